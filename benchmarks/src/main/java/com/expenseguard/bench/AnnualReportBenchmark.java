@@ -0,0 +1,71 @@
+package com.expenseguard.bench;
+
+import com.expenseguard.model.AnnualReport;
+import com.expenseguard.service.AnnualReportEngine;
+import com.expenseguard.service.ExpenseService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.time.Year;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Last year's {@link AnnualReport} read with {@code parallelism} months at
+ * once (1 is the sequential baseline), against assembling the same figures
+ * from the per-month service calls the panels use: the monthly category
+ * summary and the budgets with their spending, one query per budget.
+ *
+ * <p>The speed-up depends on the cores and on what each month waits for: on
+ * the in-process H2 fixture the months are CPU work, against PostgreSQL most
+ * of a month is round trips, which overlap even beyond the core count (up to
+ * the connection pool size). Compare {@code -p parallelism=1,8} on the
+ * target machine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnnualReportBenchmark {
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private AnnualReportEngine engine;
+    private ExpenseService     service;
+    private Year               year;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        System.setProperty("java.awt.headless", "true");
+        BenchmarkDatabase.open(rows);
+        engine  = new AnnualReportEngine(parallelism);
+        service = new ExpenseService();
+        year    = Year.now().minusYears(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public AnnualReport engine() throws SQLException {
+        return engine.generate(year);
+    }
+
+    /** The same months through the panels' service calls, on the shared connection; ignores {@code parallelism}. */
+    @Benchmark
+    public void perMonthServiceCalls(Blackhole bh) throws SQLException {
+        for (int m = 1; m <= 12; m++) {
+            String month = year.atMonth(m).toString();
+            bh.consume(service.getMonthlyCategorySummary(month));
+            bh.consume(service.getBudgetsForMonth(month));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.expenseguard.bench;
+
+import com.expenseguard.model.Expense;
+import com.expenseguard.service.AnomalyDetector;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AnomalyDetector}: checking and learning one inserted expense, and
+ * rebuilding all flags from a history of {@code rows} expenses in one
+ * parallel pass.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnomalyBenchmark {
+
+    private static final String[] MERCHANTS = new String[200];
+
+    static {
+        for (int i = 0; i < MERCHANTS.length; i++) MERCHANTS[i] = "Merchant " + (char) ('A' + i % 26) + (char) ('a' + i / 26);
+    }
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    private List<Expense>    history;
+    private AnomalyDetector  detector;
+    private SplittableRandom rnd;
+    private int              nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rnd     = new SplittableRandom(5);
+        history = new ArrayList<>(rows);
+        LocalDate first = LocalDate.now().minusYears(2);
+        for (int i = 1; i <= rows; i++) history.add(expense(i, first.plusDays(rnd.nextInt(730))));
+        detector = new AnomalyDetector();
+        detector.rebuild(history);
+        nextId = rows;
+    }
+
+    @Benchmark
+    public Set<AnomalyDetector.Flag> added() {
+        return detector.added(expense(++nextId, LocalDate.now()));
+    }
+
+    @Benchmark
+    public AnomalyDetector rebuild() {
+        AnomalyDetector d = new AnomalyDetector();
+        d.rebuild(history);
+        return d;
+    }
+
+    private Expense expense(int id, LocalDate day) {
+        int m = rnd.nextInt(MERCHANTS.length);
+        // Each merchant has its own typical amount; one in 500 has an extra zero
+        long cents = (500 + m * 37L) * (80 + rnd.nextInt(40)) / 100 * (rnd.nextInt(500) == 0 ? 10 : 1);
+        Expense e = new Expense(1 + m % 8, MERCHANTS[m] + " #" + rnd.nextInt(10_000),
+                                BigDecimal.valueOf(cents, 2), day, null);
+        e.setId(id);
+        return e;
+    }
+}
@@ -0,0 +1,212 @@
+package com.expenseguard.bench;
+
+import com.expenseguard.db.DatabaseConnection;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * In-process stand-in for PostgreSQL used by the JDBC-bound benchmarks.
+ *
+ * <p>Points {@link DatabaseConnection} at an H2 database running in PostgreSQL
+ * compatibility mode (so {@code TO_CHAR}, {@code COALESCE} and the DAO joins
+ * behave the same), creates the application schema and loads a deterministic
+ * data set of the requested size.
+ */
+public final class BenchmarkDatabase {
+
+    public static final String[] CATEGORIES = {
+        "Food & Dining", "Transportation", "Housing", "Healthcare",
+        "Entertainment", "Shopping", "Education", "Miscellaneous"
+    };
+
+    /** Number of months (ending with the current one) the generated expenses span. */
+    public static final int MONTHS = 24;
+
+    private BenchmarkDatabase() {}
+
+    /**
+     * Configures the application connection for an in-memory database named
+     * after {@code rows} and fills it. Safe to call once per JMH trial.
+     */
+    public static void open(int rows) throws SQLException {
+        System.setProperty("expenseguard.db.url",
+            "jdbc:h2:mem:bench" + rows + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        System.setProperty("expenseguard.db.user", "sa");
+        System.setProperty("expenseguard.db.password", "");
+
+        Connection conn = DatabaseConnection.getInstance().getConnection();
+        createSchema(conn);
+        load(conn, rows);
+    }
+
+    public static void close() {
+        try (Statement st = DatabaseConnection.getInstance().getConnection().createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+        } catch (SQLException ignored) {
+        }
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static void createSchema(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+            st.execute("""
+                CREATE TABLE categories (
+                    id          SERIAL PRIMARY KEY,
+                    name        VARCHAR(100) NOT NULL UNIQUE,
+                    description TEXT,
+                    created_at  TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """);
+            st.execute("""
+                CREATE TABLE budgets (
+                    id           SERIAL PRIMARY KEY,
+                    category_id  INTEGER REFERENCES categories(id) ON DELETE CASCADE,
+                    month_year   VARCHAR(7) NOT NULL,
+                    limit_amount DECIMAL(12,2) NOT NULL,
+                    currency     VARCHAR(3) NOT NULL DEFAULT 'USD',
+                    hard_limit   BOOLEAN NOT NULL DEFAULT FALSE,
+                    UNIQUE(category_id, month_year)
+                )
+            """);
+            st.execute("""
+                CREATE TABLE expenses (
+                    id           SERIAL PRIMARY KEY,
+                    category_id  INTEGER REFERENCES categories(id) ON DELETE SET NULL,
+                    description  VARCHAR(255) NOT NULL,
+                    amount       DECIMAL(12,2) NOT NULL,
+                    expense_date DATE NOT NULL,
+                    notes        TEXT,
+                    currency     VARCHAR(3) NOT NULL DEFAULT 'USD',
+                    recurring_id INTEGER,
+                    client_ref   VARCHAR(36) UNIQUE,
+                    version      INTEGER NOT NULL DEFAULT 1,
+                    created_at   TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    updated_at   TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """);
+            st.execute("""
+                CREATE TABLE fx_rates (
+                    currency  VARCHAR(3)     NOT NULL,
+                    rate_date DATE           NOT NULL,
+                    rate      NUMERIC(18,8)  NOT NULL,
+                    PRIMARY KEY (currency, rate_date)
+                )
+            """);
+            st.execute("""
+                CREATE TABLE budget_alerts (
+                    id            SERIAL PRIMARY KEY,
+                    category_id   INTEGER REFERENCES categories(id) ON DELETE CASCADE,
+                    month_year    VARCHAR(7) NOT NULL,
+                    threshold     INTEGER NOT NULL,
+                    rising        BOOLEAN NOT NULL,
+                    level         INTEGER NOT NULL,
+                    usage_percent NUMERIC(7,2) NOT NULL,
+                    spent_amount  DECIMAL(12,2) NOT NULL,
+                    limit_amount  DECIMAL(12,2) NOT NULL,
+                    currency      VARCHAR(3) NOT NULL,
+                    created_at    TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """);
+            st.execute("""
+                CREATE TABLE recurring_expenses (
+                    id             SERIAL PRIMARY KEY,
+                    category_id    INTEGER REFERENCES categories(id) ON DELETE CASCADE,
+                    description    VARCHAR(255) NOT NULL,
+                    amount         DECIMAL(12,2) NOT NULL,
+                    currency       VARCHAR(3) NOT NULL DEFAULT 'USD',
+                    notes          TEXT,
+                    rule           VARCHAR(255) NOT NULL,
+                    start_date     DATE NOT NULL,
+                    last_generated DATE,
+                    active         BOOLEAN NOT NULL DEFAULT TRUE
+                )
+            """);
+            st.execute("""
+                CREATE TABLE expense_sketches (
+                    category_id INTEGER REFERENCES categories(id) ON DELETE CASCADE,
+                    "month"     DATE NOT NULL,
+                    currency    VARCHAR(3) NOT NULL,
+                    item_count  INTEGER NOT NULL,
+                    amounts     BYTEA NOT NULL,
+                    merchants   BYTEA NOT NULL,
+                    PRIMARY KEY (category_id, "month")
+                )
+            """);
+            st.execute("""
+                CREATE TABLE expense_attachments (
+                    id           SERIAL PRIMARY KEY,
+                    expense_id   INTEGER NOT NULL REFERENCES expenses(id) ON DELETE CASCADE,
+                    sha256       CHAR(64) NOT NULL,
+                    file_name    VARCHAR(255) NOT NULL,
+                    content_type VARCHAR(100),
+                    size_bytes   BIGINT NOT NULL,
+                    created_at   TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """);
+            st.execute("CREATE INDEX idx_expenses_date ON expenses(expense_date)");
+            st.execute("CREATE INDEX idx_expenses_category ON expenses(category_id)");
+            st.execute("CREATE INDEX idx_expenses_page ON expenses(expense_date DESC, id DESC)");
+            st.execute("CREATE INDEX idx_budgets_month ON budgets(month_year)");
+        }
+    }
+
+    private static void load(Connection conn, int rows) throws SQLException {
+        boolean auto = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO categories (name, description) VALUES (?, ?)")) {
+                for (String c : CATEGORIES) {
+                    ps.setString(1, c);
+                    ps.setString(2, c + " expenses");
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+
+            LocalDate today = LocalDate.now();
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO budgets (category_id, month_year, limit_amount) VALUES (?, ?, ?)")) {
+                for (int m = 0; m < MONTHS; m++) {
+                    String ym = today.minusMonths(m).toString().substring(0, 7);
+                    for (int c = 1; c <= CATEGORIES.length; c++) {
+                        ps.setInt(1, c);
+                        ps.setString(2, ym);
+                        ps.setBigDecimal(3, BigDecimal.valueOf(250L * c));
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+
+            SplittableRandom rnd = new SplittableRandom(42);
+            LocalDate first = today.minusMonths(MONTHS - 1).withDayOfMonth(1);
+            int days = (int) (today.toEpochDay() - first.toEpochDay()) + 1;
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO expenses (category_id, description, amount, expense_date, notes) " +
+                    "VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < rows; i++) {
+                    ps.setInt(1, 1 + rnd.nextInt(CATEGORIES.length));
+                    ps.setString(2, "Expense #" + i);
+                    ps.setBigDecimal(3, BigDecimal.valueOf(100 + rnd.nextInt(50_000), 2));
+                    ps.setDate(4, Date.valueOf(first.plusDays(rnd.nextInt(days))));
+                    ps.setString(5, (i & 7) == 0 ? "note " + i : null);
+                    ps.addBatch();
+                    if (i % 1_000 == 999) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(auto);
+        }
+    }
+}
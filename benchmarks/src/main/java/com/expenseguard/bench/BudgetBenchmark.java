@@ -0,0 +1,52 @@
+package com.expenseguard.bench;
+
+import com.expenseguard.model.Budget;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Budget#getUsagePercent()} and the status checks built on it, as
+ * evaluated by {@code BudgetPanel} for every row and every rendered cell.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BudgetBenchmark {
+
+    @Param({"8", "1000"})
+    public int size;
+
+    private Budget[] budgets;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom rnd = new SplittableRandom(11);
+        budgets = new Budget[size];
+        for (int i = 0; i < size; i++) {
+            Budget b = new Budget(i, "2025-01", BigDecimal.valueOf(100 + rnd.nextInt(5_000)));
+            b.setSpentAmount(BigDecimal.valueOf(rnd.nextLong(600_000), 2));
+            budgets[i] = b;
+        }
+    }
+
+    @Benchmark
+    public void usagePercent(Blackhole bh) {
+        for (Budget b : budgets) bh.consume(b.getUsagePercent());
+    }
+
+    /** The status column plus the row renderer: one usage computation per check. */
+    @Benchmark
+    public void statusChecks(Blackhole bh) {
+        for (Budget b : budgets) {
+            bh.consume(b.isExceeded());
+            bh.consume(b.isNearLimit());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.expenseguard.bench;
+
+import com.expenseguard.util.CurrencyFormatter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.util.Currency;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link CurrencyFormatter} as called once per table cell and chart
+ * label, compared with a per-thread {@code NumberFormat.getCurrencyInstance}
+ * (the shared static instance it replaced was not thread-safe).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurrencyFormatterBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    @Param({"en-US", "de-DE"})
+    public String locale;
+
+    private BigDecimal[]      amounts;
+    private double[]          doubles;
+    private long[]            cents;
+    private CurrencyFormatter formatter;
+    private NumberFormat      numberFormat;
+    private StringBuilder     out;
+
+    @Setup
+    public void setUp() {
+        Locale l = Locale.forLanguageTag(locale);
+        Currency c = Currency.getInstance(l);
+        formatter    = CurrencyFormatter.of(l, c);
+        numberFormat = NumberFormat.getCurrencyInstance(l);
+        numberFormat.setCurrency(c);
+        out = new StringBuilder(64);
+
+        SplittableRandom rnd = new SplittableRandom(7);
+        amounts = new BigDecimal[size];
+        doubles = new double[size];
+        cents   = new long[size];
+        for (int i = 0; i < size; i++) {
+            cents[i]   = rnd.nextLong(1_000_000_00L);
+            amounts[i] = BigDecimal.valueOf(cents[i], 2);
+            doubles[i] = amounts[i].doubleValue();
+        }
+    }
+
+    @Benchmark
+    public void numberFormatBigDecimal(Blackhole bh) {
+        for (BigDecimal a : amounts) bh.consume(numberFormat.format(a));
+    }
+
+    @Benchmark
+    public void formatterBigDecimal(Blackhole bh) {
+        for (BigDecimal a : amounts) bh.consume(formatter.formatAmount(a));
+    }
+
+    @Benchmark
+    public void numberFormatDouble(Blackhole bh) {
+        for (double d : doubles) bh.consume(numberFormat.format(d));
+    }
+
+    @Benchmark
+    public void formatterDouble(Blackhole bh) {
+        for (double d : doubles) bh.consume(formatter.formatAmount(d));
+    }
+
+    /** Minor units straight into a reused buffer – no String per value. */
+    @Benchmark
+    public void formatterAppendMinor(Blackhole bh) {
+        for (long c : cents) {
+            out.setLength(0);
+            bh.consume(formatter.appendMinor(out, c).length());
+        }
+    }
+
+    /** The static API the panels call, using the default instance. */
+    @Benchmark
+    public void staticFormat(Blackhole bh) {
+        for (BigDecimal a : amounts) bh.consume(CurrencyFormatter.format(a));
+    }
+}
@@ -0,0 +1,63 @@
+package com.expenseguard.bench;
+
+import com.expenseguard.dao.ExpenseDAO;
+import com.expenseguard.model.Expense;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JDBC-bound benchmarks for {@link ExpenseDAO}: row mapping ({@code findAll},
+ * {@code findByMonth}) and the aggregate queries behind budgets and charts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseDaoBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private ExpenseDAO dao;
+    private YearMonth  month;
+    private String     monthYear;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.open(rows);
+        dao       = new ExpenseDAO();
+        month     = YearMonth.now().minusMonths(1);
+        monthYear = month.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public List<Expense> findAll() throws SQLException {
+        return dao.findAll();
+    }
+
+    @Benchmark
+    public List<Expense> findByMonth() throws SQLException {
+        return dao.findByMonth(month);
+    }
+
+    @Benchmark
+    public List<Object[]> sumByCategoryAndMonth() throws SQLException {
+        return dao.sumByCategoryAndMonth(1, monthYear, "USD");
+    }
+
+    @Benchmark
+    public List<Object[]> monthlyCategorySummary() throws SQLException {
+        return dao.monthlyCategorySummary(monthYear, "USD");
+    }
+}
@@ -0,0 +1,69 @@
+package com.expenseguard.bench;
+
+import com.expenseguard.service.CurrencyConverter;
+import com.expenseguard.service.SpendForecaster;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SpendForecaster}: projecting every category at once, as
+ * {@code BudgetPanel} does on each refresh (target: 1,000 categories in under
+ * 10 ms), and folding in one expense change.
+ *
+ * <p>The forecaster is seeded with a year of generated daily totals in the
+ * reporting currency, so no database is involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForecastBenchmark {
+
+    @Param({"100", "1000"})
+    public int categories;
+
+    private SpendForecaster  forecaster;
+    private LocalDate        today;
+    private SplittableRandom rnd;
+    private long             sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        rnd   = new SplittableRandom(7);
+        today = LocalDate.now().withDayOfMonth(Math.min(15, LocalDate.now().lengthOfMonth()));
+        List<Object[]> rows = new ArrayList<>();
+        String currency = CurrencyConverter.reportingCurrency();
+        for (LocalDate d = YearMonth.from(today).minusMonths(12).atDay(1); !d.isAfter(today); d = d.plusDays(1)) {
+            for (int c = 1; c <= categories; c++) {
+                if (rnd.nextInt(4) != 0) continue;
+                rows.add(new Object[]{c, d, currency, BigDecimal.valueOf(100 + rnd.nextInt(20_000), 2)});
+            }
+        }
+        forecaster = new SpendForecaster();
+        forecaster.seed(rows, today);
+    }
+
+    @Benchmark
+    public Map<Integer, SpendForecaster.Forecast> forecastAll() throws SQLException {
+        return forecaster.forecastAll(today);
+    }
+
+    /** One new expense in the current month, the per-change cost of keeping the statistics. */
+    @Benchmark
+    public void expenseChanged() {
+        forecaster.expenseChanged(++sequence, 1 + rnd.nextInt(categories),
+            today.withDayOfMonth(1 + rnd.nextInt(today.getDayOfMonth())),
+            BigDecimal.valueOf(100 + rnd.nextInt(20_000), 2), CurrencyConverter.reportingCurrency());
+    }
+}
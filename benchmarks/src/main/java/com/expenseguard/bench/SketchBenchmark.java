@@ -0,0 +1,75 @@
+package com.expenseguard.bench;
+
+import com.expenseguard.util.HyperLogLog;
+import com.expenseguard.util.KllSketch;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics sketches as {@code ExpenseSketches} uses them: building one
+ * category's sketches for a month of {@code perMonth} expenses, and reading
+ * back and merging {@code months} stored months into a median, 90th
+ * percentile and distinct-merchant count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SketchBenchmark {
+
+    @Param({"12", "120"})
+    public int months;
+
+    @Param({"300"})
+    public int perMonth;
+
+    private byte[][]         amounts;
+    private byte[][]         merchants;
+    private SplittableRandom rnd;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rnd       = new SplittableRandom(11);
+        amounts   = new byte[months][];
+        merchants = new byte[months][];
+        for (int m = 0; m < months; m++) {
+            KllSketch   a = new KllSketch();
+            HyperLogLog h = new HyperLogLog();
+            fill(a, h);
+            amounts[m]   = a.toBytes();
+            merchants[m] = h.toBytes();
+        }
+    }
+
+    @Benchmark
+    public Object buildMonth() {
+        KllSketch   a = new KllSketch();
+        HyperLogLog h = new HyperLogLog();
+        fill(a, h);
+        return new byte[][]{a.toBytes(), h.toBytes()};
+    }
+
+    @Benchmark
+    public double mergeRange() {
+        KllSketch   a = new KllSketch();
+        HyperLogLog h = new HyperLogLog();
+        for (int m = 0; m < months; m++) {
+            a.merge(KllSketch.fromBytes(amounts[m]));
+            h.merge(HyperLogLog.fromBytes(merchants[m]));
+        }
+        return a.quantile(0.5) + a.quantile(0.9) + h.estimate();
+    }
+
+    private void fill(KllSketch a, HyperLogLog h) {
+        for (int i = 0; i < perMonth; i++) {
+            // Log-normal-ish amounts around 25.00; a few hundred merchants, some frequent
+            a.add(Math.round(2500 * Math.exp(rnd.nextGaussian())) / 100.0);
+            int m = rnd.nextInt(4) == 0 ? rnd.nextInt(20) : rnd.nextInt(600);
+            h.add("merchant " + m);
+        }
+    }
+}
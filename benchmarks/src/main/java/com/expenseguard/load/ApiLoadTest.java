@@ -0,0 +1,168 @@
+package com.expenseguard.load;
+
+import com.expenseguard.api.ApiServer;
+import com.expenseguard.bench.BenchmarkDatabase;
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.SchemaInitializer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test of the HTTP API ({@code App --server}).
+ *
+ * <p>Starts an {@link ApiServer} in-process and keeps {@code --concurrency}
+ * requests in flight from an asynchronous client until {@code --requests}
+ * have completed. The mix is keyset pages of expenses (a month's first
+ * page, and pages starting from a cursor deep inside the data), category
+ * summaries, budgets and alerts, plus {@code --write-pct} percent bulk
+ * inserts of 10 expenses.
+ *
+ * <p>Prints latency per endpoint, HTTP error counts, and the JVM's peak
+ * live thread count: the server's threads stay at the executor size (or
+ * are virtual) however many requests are queued.
+ *
+ * <pre>
+ * java -cp benchmarks.jar com.expenseguard.load.ApiLoadTest \
+ *      --in-memory 20000 --concurrency 2000 --requests 50000
+ * </pre>
+ *
+ * <p>Bulk inserts need PostgreSQL ({@code INSERT ... RETURNING}); against
+ * the H2 fixture keep {@code --write-pct 0}.
+ */
+public final class ApiLoadTest {
+
+    private static final String[] OPS = {
+        "GET /api/expenses", "GET /api/expenses?after", "GET /api/categories/summary",
+        "GET /api/budgets", "GET /api/alerts", "POST /api/expenses/bulk"
+    };
+
+    public static void main(String[] args) throws Exception {
+        Args a = new Args(args);
+        int concurrency = a.intOpt("concurrency", 1000);
+        int requests    = a.intOpt("requests", 20_000);
+        int writePct    = a.intOpt("write-pct", 0);
+        int months      = a.intOpt("months", 12);
+
+        int inMemory = a.intOpt("in-memory", 0);
+        if (inMemory > 0) {
+            BenchmarkDatabase.open(inMemory);
+        } else {
+            DatabaseConnection.getInstance();
+            SchemaInitializer.initialize();
+        }
+
+        ApiServer server = new ApiServer(0);
+        server.start();
+        String base = "http://127.0.0.1:" + server.port();
+
+        // The client's own threads: a small fixed pool, so the peak count reflects the server
+        ExecutorService clientPool = Executors.newFixedThreadPool(4);
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(clientPool)
+            .build();
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int threadsBefore = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+
+        LatencyRecorder[] recs = new LatencyRecorder[OPS.length];
+        for (int i = 0; i < recs.length; i++) recs[i] = new LatencyRecorder();
+        AtomicInteger httpErrors = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(concurrency);
+        CountDownLatch done = new CountDownLatch(requests);
+        SplittableRandom rnd = new SplittableRandom(42);
+
+        System.out.printf("Sending %d requests, %d in flight ...%n", requests, concurrency);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            int op = pick(rnd, writePct);
+            HttpRequest req = request(base, op, rnd, months);
+            long start = System.nanoTime();
+            client.sendAsync(req, HttpResponse.BodyHandlers.ofString()).whenComplete((resp, err) -> {
+                long nanos = System.nanoTime() - start;
+                synchronized (recs[op]) {
+                    if (err != null || resp.statusCode() >= 400) {
+                        recs[op].error();
+                        if (resp != null) httpErrors.incrementAndGet();
+                    } else {
+                        recs[op].record(nanos);
+                    }
+                }
+                inFlight.release();
+                done.countDown();
+            });
+        }
+        done.await();
+        double elapsed = (System.nanoTime() - t0) / 1e9;
+
+        System.out.printf("%n%-30s %9s %7s %10s %9s %9s %9s %9s%n",
+            "endpoint", "count", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        int total = 0;
+        for (int i = 0; i < OPS.length; i++) {
+            LatencyRecorder r = recs[i];
+            total += r.count();
+            if (r.count() == 0 && r.errors() == 0) continue;
+            System.out.printf("%-30s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                OPS[i], r.count(), r.errors(), r.count() / elapsed,
+                r.percentileMillis(50), r.percentileMillis(95),
+                r.percentileMillis(99), r.percentileMillis(100));
+        }
+        System.out.printf("%ntotal %.1f req/s, %d HTTP errors; live threads %d before, peak %d "
+                          + "(api executor %s, db pool %d)%n",
+            total / elapsed, httpErrors.get(), threadsBefore, threads.getPeakThreadCount(),
+            System.getProperty("expenseguard.api.threads", "default"), DatabaseConnection.poolSize());
+
+        server.stop(0);
+        clientPool.shutdownNow();
+        DatabaseConnection.getInstance().closeConnection();
+        System.exit(0);
+    }
+
+    private static int pick(SplittableRandom rnd, int writePct) {
+        if (rnd.nextInt(100) < writePct) return 5;
+        int r = rnd.nextInt(100);
+        if (r < 40) return 0;
+        if (r < 60) return 1;
+        if (r < 80) return 2;
+        if (r < 95) return 3;
+        return 4;
+    }
+
+    private static HttpRequest request(String base, int op, SplittableRandom rnd, int months) {
+        YearMonth ym = YearMonth.now().minusMonths(rnd.nextInt(months));
+        String path = switch (op) {
+            case 0 -> "/api/expenses?limit=50&month=" + ym;
+            // A cursor somewhere inside the data: later pages cost the same as the first
+            case 1 -> "/api/expenses?limit=50&after=" + LocalDate.now().minusDays(rnd.nextInt(months * 30)) + "_0";
+            case 2 -> "/api/categories/summary?month=" + ym;
+            case 3 -> "/api/budgets?month=" + ym;
+            case 4 -> "/api/alerts?limit=20";
+            case 5 -> "/api/expenses/bulk";
+            default -> throw new IllegalStateException("op " + op);
+        };
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(base + path));
+        if (op != 5) return b.GET().build();
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < 10; i++) {
+            if (i > 0) body.append(',');
+            body.append("{\"categoryId\":").append(1 + rnd.nextInt(8))
+                .append(",\"description\":\"Load test\",\"amount\":").append(1 + rnd.nextInt(100))
+                .append(",\"date\":\"").append(LocalDate.now().minusDays(rnd.nextInt(28))).append("\"}");
+        }
+        body.append(']');
+        return b.header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
+    }
+}
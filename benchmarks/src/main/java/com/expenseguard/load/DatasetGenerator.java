@@ -0,0 +1,371 @@
+package com.expenseguard.load;
+
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.SchemaInitializer;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Fills {@code categories}, {@code budgets} and {@code expenses} with a
+ * production-like synthetic data set.
+ *
+ * <ul>
+ *   <li>Volume scales with {@code --users} × {@code --years} × {@code --per-month}.</li>
+ *   <li>Merchants (the expense description) follow a Zipf distribution, so a few
+ *       merchants dominate as in real statements.</li>
+ *   <li>Amounts are log-normal per category with a seasonal multiplier
+ *       (December peak, late-summer dip).</li>
+ *   <li>Budgets are set per category and month around the expected spend, so
+ *       a realistic share of them end up near or over the limit.</li>
+ * </ul>
+ *
+ * Expenses are streamed with {@code COPY ... FROM STDIN} when the target is
+ * PostgreSQL and fall back to JDBC batches otherwise.
+ *
+ * <pre>
+ * java -cp benchmarks.jar com.expenseguard.load.DatasetGenerator \
+ *      --users 20 --years 3 --per-month 60 --categories 24 --truncate
+ * </pre>
+ */
+public final class DatasetGenerator {
+
+    private static final Logger LOGGER = Logger.getLogger(DatasetGenerator.class.getName());
+
+    private static final String[] PREFIXES = {
+        "Corner", "Metro", "Green", "Blue", "Sunny", "Prime", "City", "Urban",
+        "Golden", "North", "Royal", "Fresh", "Daily", "Star", "Happy", "Quick"
+    };
+    private static final String[] SUFFIXES = {
+        "Market", "Cafe", "Store", "Services", "Co", "Express", "Hub", "Outlet",
+        "Pharmacy", "Station", "Bistro", "Depot", "Works", "Mart", "Club", "Shop"
+    };
+
+    private final int  users;
+    private final int  years;
+    private final int  perMonth;
+    private final int  extraCategories;
+    private final int  merchants;
+    private final long seed;
+
+    public DatasetGenerator(int users, int years, int perMonth, int extraCategories,
+                            int merchants, long seed) {
+        this.users           = users;
+        this.years           = years;
+        this.perMonth        = perMonth;
+        this.extraCategories = extraCategories;
+        this.merchants       = merchants;
+        this.seed            = seed;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        Args a = new Args(args);
+        DatasetGenerator gen = new DatasetGenerator(
+            a.intOpt("users", 10), a.intOpt("years", 2), a.intOpt("per-month", 60),
+            a.intOpt("categories", 0), a.intOpt("merchants", 500), a.intOpt("seed", 42));
+
+        DatabaseConnection.getInstance();
+        SchemaInitializer.initialize();
+        gen.generate(a.flag("truncate"));
+    }
+
+    /** Generates the full data set into the application's database. */
+    public void generate(boolean truncate) throws SQLException {
+        Connection conn = DatabaseConnection.getInstance().getConnection();
+        long t0 = System.nanoTime();
+        boolean auto = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            if (truncate) {
+                try (Statement st = conn.createStatement()) {
+                    st.executeUpdate("DELETE FROM expenses");
+                    st.executeUpdate("DELETE FROM budgets");
+                }
+            }
+            List<Integer> categoryIds = ensureCategories(conn);
+            SplittableRandom rnd = new SplittableRandom(seed);
+            Profile[] profiles = profiles(categoryIds, rnd);
+            Merchant[] pool = merchants(profiles, rnd);
+            Zipf zipf = new Zipf(pool.length, 1.1);
+
+            YearMonth last  = YearMonth.now();
+            YearMonth first = last.minusMonths(years * 12L - 1);
+
+            long budgets  = loadBudgets(conn, profiles, first, last);
+            long expenses = loadExpenses(conn, pool, zipf, first, last, rnd);
+            conn.commit();
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("ANALYZE expenses");
+                st.execute("ANALYZE budgets");
+            } catch (SQLException ignored) {
+                // not every engine understands ANALYZE
+            }
+            LOGGER.info(String.format("Generated %d categories, %d budgets, %d expenses in %.1f s",
+                categoryIds.size(), budgets, expenses, (System.nanoTime() - t0) / 1e9));
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(auto);
+        }
+    }
+
+    // ── categories & budgets ─────────────────────────────────────────────────
+
+    private List<Integer> ensureCategories(Connection conn) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT name FROM categories")) {
+            while (rs.next()) existing.add(rs.getString(1));
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO categories (name, description) VALUES (?, ?)")) {
+            for (int i = 1; i <= extraCategories; i++) {
+                String name = "Synthetic " + i;
+                if (existing.contains(name)) continue;
+                ps.setString(1, name);
+                ps.setString(2, "Generated category");
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        List<Integer> ids = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id FROM categories ORDER BY id")) {
+            while (rs.next()) ids.add(rs.getInt(1));
+        }
+        return ids;
+    }
+
+    private long loadBudgets(Connection conn, Profile[] profiles,
+                             YearMonth first, YearMonth last) throws SQLException {
+        long n = 0;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO budgets (category_id, month_year, limit_amount) VALUES (?, ?, ?) " +
+                "ON CONFLICT (category_id, month_year) DO NOTHING")) {
+            for (YearMonth ym = first; !ym.isAfter(last); ym = ym.plusMonths(1)) {
+                for (Profile p : profiles) {
+                    double expected = p.share * perMonth * users * p.mean() * season(ym.getMonthValue());
+                    double limit = expected * (0.85 + 0.4 * p.budgetSlack);
+                    ps.setInt(1, p.categoryId);
+                    ps.setString(2, ym.toString());
+                    ps.setBigDecimal(3, BigDecimal.valueOf(Math.max(10, Math.round(limit / 10) * 10L)));
+                    ps.addBatch();
+                    n++;
+                }
+            }
+            ps.executeBatch();
+        }
+        return n;
+    }
+
+    // ── expenses ─────────────────────────────────────────────────────────────
+
+    private long loadExpenses(Connection conn, Merchant[] pool, Zipf zipf,
+                              YearMonth first, YearMonth last, SplittableRandom rnd) throws SQLException {
+        boolean copy = conn.isWrapperFor(PGConnection.class);
+        RowSink sink = copy ? new CopySink(conn.unwrap(PGConnection.class))
+                            : new BatchSink(conn);
+        long n = 0;
+        try {
+            for (YearMonth ym = first; !ym.isAfter(last); ym = ym.plusMonths(1)) {
+                int rows = users * perMonth;
+                double season = season(ym.getMonthValue());
+                for (int i = 0; i < rows; i++) {
+                    Merchant m = pool[zipf.sample(rnd)];
+                    double amount = m.profile.sample(rnd) * season;
+                    LocalDate day = ym.atDay(1 + rnd.nextInt(ym.lengthOfMonth()));
+                    String notes = rnd.nextInt(10) == 0 ? "Synthetic note " + n : null;
+                    sink.add(m.profile.categoryId, m.name,
+                             BigDecimal.valueOf(Math.max(1, Math.round(amount * 100)), 2), day, notes);
+                    n++;
+                }
+            }
+            sink.finish();
+        } catch (SQLException e) {
+            sink.abort();
+            throw e;
+        }
+        return n;
+    }
+
+    private interface RowSink {
+        void add(int categoryId, String description, BigDecimal amount,
+                 LocalDate date, String notes) throws SQLException;
+        void finish() throws SQLException;
+        void abort();
+    }
+
+    /** Streams rows in COPY text format, flushing roughly every megabyte. */
+    private static final class CopySink implements RowSink {
+        private final CopyIn        copy;
+        private final StringBuilder buf = new StringBuilder(1 << 20);
+
+        CopySink(PGConnection pg) throws SQLException {
+            copy = pg.getCopyAPI().copyIn(
+                "COPY expenses (category_id, description, amount, expense_date, notes) FROM STDIN");
+        }
+
+        @Override public void add(int categoryId, String description, BigDecimal amount,
+                                  LocalDate date, String notes) throws SQLException {
+            buf.append(categoryId).append('\t');
+            escape(description);
+            buf.append('\t').append(amount.toPlainString())
+               .append('\t').append(date).append('\t');
+            if (notes == null) buf.append("\\N"); else escape(notes);
+            buf.append('\n');
+            if (buf.length() >= (1 << 20) - 512) flush();
+        }
+
+        private void escape(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '\\' -> buf.append("\\\\");
+                    case '\t' -> buf.append("\\t");
+                    case '\n' -> buf.append("\\n");
+                    case '\r' -> buf.append("\\r");
+                    default   -> buf.append(c);
+                }
+            }
+        }
+
+        private void flush() throws SQLException {
+            byte[] bytes = buf.toString().getBytes(StandardCharsets.UTF_8);
+            copy.writeToCopy(bytes, 0, bytes.length);
+            buf.setLength(0);
+        }
+
+        @Override public void finish() throws SQLException {
+            flush();
+            copy.endCopy();
+        }
+
+        @Override public void abort() {
+            try { if (copy.isActive()) copy.cancelCopy(); } catch (SQLException ignored) {}
+        }
+    }
+
+    /** Fallback for non-PostgreSQL targets (e.g. the H2 stand-in). */
+    private static final class BatchSink implements RowSink {
+        private final PreparedStatement ps;
+        private int pending;
+
+        BatchSink(Connection conn) throws SQLException {
+            ps = conn.prepareStatement(
+                "INSERT INTO expenses (category_id, description, amount, expense_date, notes) " +
+                "VALUES (?, ?, ?, ?, ?)");
+        }
+
+        @Override public void add(int categoryId, String description, BigDecimal amount,
+                                  LocalDate date, String notes) throws SQLException {
+            ps.setInt(1, categoryId);
+            ps.setString(2, description);
+            ps.setBigDecimal(3, amount);
+            ps.setDate(4, java.sql.Date.valueOf(date));
+            ps.setString(5, notes);
+            ps.addBatch();
+            if (++pending == 5_000) { ps.executeBatch(); pending = 0; }
+        }
+
+        @Override public void finish() throws SQLException {
+            ps.executeBatch();
+            ps.close();
+        }
+
+        @Override public void abort() {
+            try { ps.close(); } catch (SQLException ignored) {}
+        }
+    }
+
+    // ── distributions ────────────────────────────────────────────────────────
+
+    /** Seasonal spend multiplier for a calendar month (1 = January). */
+    static double season(int month) {
+        double wave = 1 + 0.12 * Math.cos(2 * Math.PI * (month - 12) / 12.0);
+        return month == 12 ? wave * 1.25 : month == 8 ? wave * 0.9 : wave;
+    }
+
+    /** Per-category amount distribution and share of transactions. */
+    private static final class Profile {
+        final int    categoryId;
+        final double mu, sigma;
+        final double budgetSlack;
+        double       share;
+
+        Profile(int categoryId, double mu, double sigma, double budgetSlack) {
+            this.categoryId  = categoryId;
+            this.mu          = mu;
+            this.sigma       = sigma;
+            this.budgetSlack = budgetSlack;
+        }
+
+        double mean() { return Math.exp(mu + sigma * sigma / 2); }
+
+        double sample(SplittableRandom rnd) {
+            return Math.exp(mu + sigma * gaussian(rnd));
+        }
+    }
+
+    private static Profile[] profiles(List<Integer> categoryIds, SplittableRandom rnd) {
+        Profile[] p = new Profile[categoryIds.size()];
+        double total = 0;
+        for (int i = 0; i < p.length; i++) {
+            // Median between ~$5 and ~$400; a few categories are large and rare (rent-like).
+            double mu = Math.log(5 + rnd.nextDouble() * rnd.nextDouble() * 400);
+            p[i] = new Profile(categoryIds.get(i), mu, 0.4 + rnd.nextDouble() * 0.6, rnd.nextDouble());
+            p[i].share = 1.0 / Math.exp(mu / 2);
+            total += p[i].share;
+        }
+        for (Profile pr : p) pr.share /= total;
+        return p;
+    }
+
+    private record Merchant(String name, Profile profile) {}
+
+    private Merchant[] merchants(Profile[] profiles, SplittableRandom rnd) {
+        double[] cdf = new double[profiles.length];
+        double acc = 0;
+        for (int i = 0; i < profiles.length; i++) cdf[i] = acc += profiles[i].share;
+
+        Merchant[] pool = new Merchant[merchants];
+        for (int i = 0; i < merchants; i++) {
+            int idx = Arrays.binarySearch(cdf, rnd.nextDouble() * acc);
+            Profile p = profiles[Math.min(profiles.length - 1, idx < 0 ? -idx - 1 : idx)];
+            String name = PREFIXES[rnd.nextInt(PREFIXES.length)] + " "
+                        + SUFFIXES[rnd.nextInt(SUFFIXES.length)] + " #" + (i + 1);
+            pool[i] = new Merchant(name, p);
+        }
+        return pool;
+    }
+
+    private static double gaussian(SplittableRandom rnd) {
+        double u1 = 1 - rnd.nextDouble(), u2 = rnd.nextDouble();
+        return Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+    }
+
+    /** Zipf(s) over ranks 0..n-1 sampled by binary search on a precomputed CDF. */
+    static final class Zipf {
+        private final double[] cdf;
+
+        Zipf(int n, double s) {
+            cdf = new double[n];
+            double acc = 0;
+            for (int k = 1; k <= n; k++) cdf[k - 1] = acc += 1 / Math.pow(k, s);
+            for (int k = 0; k < n; k++) cdf[k] /= acc;
+        }
+
+        int sample(SplittableRandom rnd) {
+            int idx = Arrays.binarySearch(cdf, rnd.nextDouble());
+            return Math.min(cdf.length - 1, idx < 0 ? -idx - 1 : idx);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.expenseguard.load;
+
+import com.expenseguard.dao.ExpenseDAO;
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.SchemaInitializer;
+import com.expenseguard.model.Budget;
+import com.expenseguard.model.Expense;
+import com.expenseguard.service.BudgetExceededException;
+import com.expenseguard.service.CurrencyConverter;
+import com.expenseguard.service.ExpenseService;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.sql.Date;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent stress test for hard-limit budgets (PostgreSQL only: it relies on
+ * advisory locks).
+ *
+ * <p>Gives {@code --categories} categories a hard budget of {@code --limit} in
+ * a scratch month ({@code --month}, default 2099-01) and lets {@code --threads}
+ * writers save random expenses of up to {@code --max-amount} into them for
+ * {@code --duration} seconds. Afterwards it compares every category's stored
+ * total with its limit and with the amounts the writers saw accepted.
+ *
+ * <ul>
+ *   <li>{@code --mode locked} (default) uses {@code ExpenseService.saveExpense};
+ *       no total may exceed its limit.</li>
+ *   <li>{@code --mode naive} uses soft budgets and checks "sum + amount ≤ limit"
+ *       before an unlocked insert – the race this mode exists to fix – and
+ *       normally overshoots.</li>
+ *   <li>{@code --hot} sends every writer to the first category to measure the
+ *       fully contended case; otherwise categories are picked at random and
+ *       only writers of the same category wait for each other.</li>
+ * </ul>
+ *
+ * Rows created are removed afterwards unless {@code --keep} is given. Raise
+ * {@code -Dexpenseguard.db.poolSize} to at least {@code --threads}.
+ *
+ * <pre>
+ * java -Dexpenseguard.db.poolSize=32 -cp benchmarks.jar com.expenseguard.load.HardLimitStress \
+ *      --threads 32 --categories 8 --limit 500 --duration 20
+ * </pre>
+ */
+public final class HardLimitStress {
+
+    private static final String TAG = "HardLimitStress";
+
+    public static void main(String[] args) throws Exception {
+        Args a = new Args(args);
+        int        threads    = a.intOpt("threads", 16);
+        int        categories = a.intOpt("categories", 8);
+        int        duration   = a.intOpt("duration", 20);
+        BigDecimal limit      = new BigDecimal(a.opt("limit", "500.00"));
+        int        maxCents   = a.intOpt("max-amount", 25) * 100;
+        YearMonth  month      = YearMonth.parse(a.opt("month", "2099-01"));
+        boolean    naive      = "naive".equals(a.opt("mode", "locked"));
+        boolean    hot        = a.flag("hot");
+
+        DatabaseConnection.getInstance();
+        SchemaInitializer.initialize();
+        int[] categoryIds = setUp(categories, month, limit, !naive);
+
+        System.out.printf("%s: %d threads, %d categories (%s), limit %s, mode %s, %d s%n",
+            TAG, threads, categoryIds.length, hot ? "hot" : "spread", limit,
+            naive ? "naive" : "locked", duration);
+
+        AtomicLongArray acceptedCents = new AtomicLongArray(categoryIds.length);
+        AtomicLongArray accepted      = new AtomicLongArray(categoryIds.length);
+        AtomicLongArray rejected      = new AtomicLongArray(categoryIds.length);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration);
+        List<Future<LatencyRecorder>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            futures.add(pool.submit(() -> {
+                SplittableRandom rnd     = new SplittableRandom(seed);
+                ExpenseService   service = new ExpenseService();
+                LatencyRecorder  rec     = new LatencyRecorder();
+                while (System.nanoTime() < deadline) {
+                    int idx = hot ? 0 : rnd.nextInt(categoryIds.length);
+                    long cents = 1 + rnd.nextInt(maxCents);
+                    Expense e = new Expense(categoryIds[idx], TAG, BigDecimal.valueOf(cents, 2),
+                                            month.atDay(1 + rnd.nextInt(month.lengthOfMonth())), null);
+                    long t0 = System.nanoTime();
+                    try {
+                        if (naive) saveNaive(service, e, limit);
+                        else       service.saveExpense(e);
+                        acceptedCents.addAndGet(idx, cents);
+                        accepted.incrementAndGet(idx);
+                        rec.record(System.nanoTime() - t0);
+                    } catch (BudgetExceededException ex) {
+                        rejected.incrementAndGet(idx);
+                        rec.record(System.nanoTime() - t0);
+                    } catch (SQLException ex) {
+                        rec.error();
+                    }
+                }
+                return rec;
+            }));
+        }
+        LatencyRecorder all = new LatencyRecorder();
+        for (Future<LatencyRecorder> f : futures) all.merge(f.get());
+        pool.shutdown();
+
+        boolean ok = verify(categoryIds, month, limit, acceptedCents, accepted, rejected);
+        System.out.printf("%nsaves: %d (%.1f/s), errors %d, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+            all.count(), all.count() / (double) duration, all.errors(),
+            all.percentileMillis(50), all.percentileMillis(95),
+            all.percentileMillis(99), all.percentileMillis(100));
+        System.out.println(ok ? "RESULT: no budget exceeded its limit"
+                              : "RESULT: LIMIT VIOLATED");
+
+        if (!a.flag("keep")) cleanUp(month);
+        DatabaseConnection.getInstance().closeConnection();
+        System.exit(ok || naive ? 0 : 1);
+    }
+
+    /** The pre-fix pattern: read the total, then insert without holding anything. */
+    private static void saveNaive(ExpenseService service, Expense e, BigDecimal limit) throws SQLException {
+        String month = YearMonth.from(e.getExpenseDate()).toString();
+        String cur   = CurrencyConverter.reportingCurrency();
+        BigDecimal spent = CurrencyConverter.getInstance().sum(
+            new ExpenseDAO().sumByCategoryAndMonth(e.getCategoryId(), month, cur), 0, 1, 2, cur);
+        if (spent.add(e.getAmount()).compareTo(limit) > 0) {
+            Budget b = new Budget(e.getCategoryId(), month, limit);
+            b.setSpentAmount(spent);
+            throw new BudgetExceededException(b, e.getAmount());
+        }
+        service.saveExpense(e);
+    }
+
+    private static int[] setUp(int categories, YearMonth month, BigDecimal limit, boolean hard)
+            throws SQLException {
+        cleanUp(month);
+        Connection c = DatabaseConnection.getInstance().getConnection();
+        List<Integer> ids = new ArrayList<>();
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id FROM categories ORDER BY id LIMIT " + categories)) {
+            while (rs.next()) ids.add(rs.getInt(1));
+        }
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO budgets (category_id, month_year, limit_amount, currency, hard_limit) " +
+                "VALUES (?, ?, ?, ?, ?)")) {
+            for (int id : ids) {
+                ps.setInt(1, id);
+                ps.setString(2, month.toString());
+                ps.setBigDecimal(3, limit);
+                ps.setString(4, CurrencyConverter.reportingCurrency());
+                ps.setBoolean(5, hard);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static boolean verify(int[] categoryIds, YearMonth month, BigDecimal limit,
+                                  AtomicLongArray acceptedCents, AtomicLongArray accepted,
+                                  AtomicLongArray rejected) throws SQLException {
+        Map<Integer, BigDecimal> stored = new HashMap<>();
+        try (PreparedStatement ps = DatabaseConnection.getInstance().getConnection().prepareStatement(
+                "SELECT category_id, SUM(amount) FROM expenses WHERE description = ? " +
+                "AND expense_date BETWEEN ? AND ? GROUP BY category_id")) {
+            ps.setString(1, TAG);
+            ps.setDate(2, Date.valueOf(month.atDay(1)));
+            ps.setDate(3, Date.valueOf(month.atEndOfMonth()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) stored.put(rs.getInt(1), rs.getBigDecimal(2));
+            }
+        }
+        boolean ok = true;
+        System.out.printf("%n%-10s %12s %12s %12s %9s %9s  %s%n",
+            "category", "limit", "stored", "accepted", "saves", "rejects", "status");
+        for (int i = 0; i < categoryIds.length; i++) {
+            BigDecimal total = stored.getOrDefault(categoryIds[i], BigDecimal.ZERO);
+            BigDecimal seen  = BigDecimal.valueOf(acceptedCents.get(i), 2);
+            boolean within   = total.compareTo(limit) <= 0;
+            boolean matches  = total.compareTo(seen) == 0;
+            ok &= within && matches;
+            System.out.printf("%-10d %12s %12s %12s %9d %9d  %s%n",
+                categoryIds[i], limit, total, seen, accepted.get(i), rejected.get(i),
+                !within ? "OVER LIMIT" : !matches ? "MISMATCH" : "ok");
+        }
+        return ok;
+    }
+
+    private static void cleanUp(YearMonth month) throws SQLException {
+        Connection c = DatabaseConnection.getInstance().getConnection();
+        try (PreparedStatement del = c.prepareStatement(
+                 "DELETE FROM expenses WHERE description = ? AND expense_date BETWEEN ? AND ?");
+             PreparedStatement delBudgets = c.prepareStatement("DELETE FROM budgets WHERE month_year = ?");
+             PreparedStatement delAlerts  = c.prepareStatement("DELETE FROM budget_alerts WHERE month_year = ?")) {
+            del.setString(1, TAG);
+            del.setDate(2, Date.valueOf(month.atDay(1)));
+            del.setDate(3, Date.valueOf(month.atEndOfMonth()));
+            del.executeUpdate();
+            delBudgets.setString(1, month.toString());
+            delBudgets.executeUpdate();
+            delAlerts.setString(1, month.toString());
+            delAlerts.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.expenseguard.load;
+
+import java.util.Arrays;
+
+/**
+ * Single-threaded latency sample buffer. Each worker owns one recorder per
+ * operation; recorders are merged after the run.
+ */
+final class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int    size;
+    private int    errors;
+
+    void record(long nanos) {
+        if (size == samples.length) samples = Arrays.copyOf(samples, size * 2);
+        samples[size++] = nanos;
+    }
+
+    void error() { errors++; }
+
+    void merge(LatencyRecorder other) {
+        if (size + other.size > samples.length) {
+            samples = Arrays.copyOf(samples, Math.max(samples.length * 2, size + other.size));
+        }
+        System.arraycopy(other.samples, 0, samples, size, other.size);
+        size   += other.size;
+        errors += other.errors;
+    }
+
+    int count()  { return size; }
+    int errors() { return errors; }
+
+    /** Returns percentile {@code p} (0–100) in milliseconds; sorts in place. */
+    double percentileMillis(double p) {
+        if (size == 0) return 0;
+        Arrays.sort(samples, 0, size);
+        int idx = (int) Math.ceil(p / 100.0 * size) - 1;
+        return samples[Math.max(0, Math.min(size - 1, idx))] / 1e6;
+    }
+}
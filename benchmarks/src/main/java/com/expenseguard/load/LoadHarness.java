@@ -0,0 +1,214 @@
+package com.expenseguard.load;
+
+import com.expenseguard.bench.BenchmarkDatabase;
+import com.expenseguard.dao.ExpenseQuery;
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.SchemaInitializer;
+import com.expenseguard.metrics.QueryMetrics;
+import com.expenseguard.metrics.QueryStats;
+import com.expenseguard.model.Expense;
+import com.expenseguard.service.ExpenseService;
+import com.expenseguard.ui.BudgetPanel;
+import com.expenseguard.ui.CategoriesPanel;
+import com.expenseguard.ui.ChartsPanel;
+import com.expenseguard.ui.ExpensesPanel;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Headless end-to-end load harness.
+ *
+ * <p>Runs {@code --threads} workers for {@code --duration} seconds. Each worker
+ * owns its own {@link ExpenseService} and set of panels and picks operations
+ * from a fixed mix: the service read paths, {@code checkBudget}, the panels'
+ * refreshes and (with {@code --write-pct}) {@code saveExpense}. The budget,
+ * chart and category panels are driven directly from the worker thread with
+ * {@code java.awt.headless=true}; that is not how Swing runs them, but it
+ * measures exactly the data path a refresh performs on the EDT.
+ * {@link ExpensesPanel#refreshData()} only starts a {@code SwingWorker}, so
+ * timing it would time the submission; instead the harness runs the same
+ * background work synchronously: the anomaly flags, the panel's default
+ * filter through {@code findExpenses} and the total of the rows read.
+ *
+ * <p>{@code --in-memory N} runs against the H2 benchmark fixture with N
+ * expenses instead of the configured PostgreSQL database. Saves need
+ * PostgreSQL ({@code INSERT ... RETURNING}, advisory locks), so
+ * {@code --write-pct} is rejected with {@code --in-memory}.
+ *
+ * <p>Prints count, throughput and p50/p95/p99/max latency per operation, and
+ * per SQL statement how often it was prepared and how often an already
+ * prepared statement (and so its plan) was reused.
+ *
+ * <pre>
+ * java -Djava.awt.headless=true -cp benchmarks.jar com.expenseguard.load.LoadHarness \
+ *      --threads 8 --duration 60 --warmup 10 --write-pct 5
+ * </pre>
+ */
+public final class LoadHarness {
+
+    private static final String[] OPS = {
+        "service.getAllExpenses", "service.getExpensesByMonth", "service.getMonthlyCategorySummary",
+        "service.getBudgetsForMonth", "service.checkBudget", "service.saveExpense",
+        "ExpensesPanel.refreshData", "BudgetPanel.refreshData",
+        "ChartsPanel.refreshData", "CategoriesPanel.refreshData"
+    };
+
+    // The filter an ExpensesPanel starts with.
+    private static final ExpenseQuery EXPENSES_QUERY = ExpenseQuery.builder().build();
+
+    // Relative weights, aligned with OPS; the saveExpense weight is set from --write-pct.
+    private static final int[] WEIGHTS = {2, 20, 15, 15, 15, 0, 8, 10, 10, 5};
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        Args a = new Args(args);
+        int threads  = a.intOpt("threads", 4);
+        int duration = a.intOpt("duration", 30);
+        int warmup   = a.intOpt("warmup", 5);
+        int writePct = a.intOpt("write-pct", 0);
+        int months   = a.intOpt("months", 12);
+
+        int inMemory = a.intOpt("in-memory", 0);
+        if (inMemory > 0 && writePct > 0) {
+            System.err.println("--write-pct needs PostgreSQL: saves fail against the --in-memory H2 fixture");
+            System.exit(2);
+        }
+        if (inMemory > 0) {
+            BenchmarkDatabase.open(inMemory);
+        } else {
+            DatabaseConnection.getInstance();
+            SchemaInitializer.initialize();
+        }
+
+        int[] weights = WEIGHTS.clone();
+        int readTotal = Arrays.stream(weights).sum();
+        weights[5] = writePct <= 0 ? 0 : Math.max(1, readTotal * writePct / (100 - writePct));
+
+        System.out.printf("Warming up for %d s ...%n", warmup);
+        run(threads, warmup, weights, months);
+        System.out.printf("Measuring %d threads for %d s ...%n", threads, duration);
+        long t0 = System.nanoTime();
+        LatencyRecorder[] merged = run(threads, duration, weights, months);
+        double elapsed = (System.nanoTime() - t0) / 1e9;
+        report(merged, elapsed);
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static LatencyRecorder[] run(int threads, int seconds, int[] weights, int months)
+            throws InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<LatencyRecorder[]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            futures.add(pool.submit(() -> new Worker(seed, weights, months).runUntil(deadline)));
+        }
+        LatencyRecorder[] merged = new LatencyRecorder[OPS.length];
+        for (int i = 0; i < merged.length; i++) merged[i] = new LatencyRecorder();
+        for (Future<LatencyRecorder[]> f : futures) {
+            LatencyRecorder[] part = f.get();
+            for (int i = 0; i < merged.length; i++) merged[i].merge(part[i]);
+        }
+        pool.shutdown();
+        return merged;
+    }
+
+    private static void report(LatencyRecorder[] recs, double elapsed) {
+        System.out.printf("%n%-36s %9s %7s %10s %9s %9s %9s %9s%n",
+            "operation", "count", "errors", "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (int i = 0; i < OPS.length; i++) {
+            LatencyRecorder r = recs[i];
+            if (r.count() == 0 && r.errors() == 0) continue;
+            System.out.printf("%-36s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                OPS[i], r.count(), r.errors(), r.count() / elapsed,
+                r.percentileMillis(50), r.percentileMillis(95),
+                r.percentileMillis(99), r.percentileMillis(100));
+        }
+
+        List<QueryStats> stats = new ArrayList<>(QueryMetrics.all());
+        stats.sort(Comparator.comparing(QueryStats::getName));
+        System.out.printf("%n%-40s %9s %9s %9s %9s%n", "statement", "calls", "prepared", "reused", "reuse %");
+        for (QueryStats s : stats) {
+            System.out.printf("%-40s %9d %9d %9d %9.1f%n", s.getName(), s.getCalls(),
+                s.getStatementPrepares(), s.getStatementReuses(), s.getStatementHitPercent());
+        }
+    }
+
+    /** One load-generating thread with its own service and panel instances. */
+    private static final class Worker {
+        private final SplittableRandom  rnd;
+        private final int[]             cumulative;
+        private final int               months;
+        private final LatencyRecorder[] recs = new LatencyRecorder[OPS.length];
+        private final ExpenseService    service = new ExpenseService();
+
+        private BudgetPanel     budgetPanel;
+        private ChartsPanel     chartsPanel;
+        private CategoriesPanel categoriesPanel;
+
+        Worker(long seed, int[] weights, int months) {
+            this.rnd    = new SplittableRandom(seed);
+            this.months = months;
+            cumulative  = new int[weights.length];
+            int acc = 0;
+            for (int i = 0; i < weights.length; i++) cumulative[i] = acc += weights[i];
+            for (int i = 0; i < recs.length; i++) recs[i] = new LatencyRecorder();
+        }
+
+        LatencyRecorder[] runUntil(long deadline) {
+            // A panel built without a preload refreshes once in its constructor; keep that out of the measurement.
+            budgetPanel     = new BudgetPanel();
+            chartsPanel     = new ChartsPanel();
+            categoriesPanel = new CategoriesPanel();
+
+            while (System.nanoTime() < deadline) {
+                int op = pick();
+                long t0 = System.nanoTime();
+                try {
+                    execute(op);
+                    recs[op].record(System.nanoTime() - t0);
+                } catch (Exception e) {
+                    recs[op].error();
+                }
+            }
+            return recs;
+        }
+
+        private int pick() {
+            int r = rnd.nextInt(cumulative[cumulative.length - 1]);
+            for (int i = 0; i < cumulative.length; i++) if (r < cumulative[i]) return i;
+            return cumulative.length - 1;
+        }
+
+        private void execute(int op) throws Exception {
+            YearMonth ym = YearMonth.now().minusMonths(rnd.nextInt(months));
+            switch (op) {
+                case 0 -> service.getAllExpenses();
+                case 1 -> service.getExpensesByMonth(ym);
+                case 2 -> service.getMonthlyCategorySummary(ym.toString());
+                case 3 -> service.getBudgetsForMonth(ym.toString());
+                case 4 -> service.checkBudget(1 + rnd.nextInt(8), ym.toString());
+                case 5 -> service.saveExpense(new Expense(1 + rnd.nextInt(8), "Load test",
+                              BigDecimal.valueOf(100 + rnd.nextInt(10_000), 2),
+                              LocalDate.now().minusDays(rnd.nextInt(28)), null));
+                case 6 -> refreshExpenses();
+                case 7 -> budgetPanel.refreshData();
+                case 8 -> chartsPanel.refreshData();
+                case 9 -> categoriesPanel.refreshData();
+                default -> throw new IllegalStateException("op " + op);
+            }
+        }
+
+        /** What the worker started by {@link ExpensesPanel#refreshData()} does in the background. */
+        private void refreshExpenses() throws Exception {
+            service.getAnomalyFlags();
+            List<Expense> rows = new ArrayList<>();
+            service.findExpenses(EXPENSES_QUERY, rows::add);
+            service.totalInReportingCurrency(rows);
+        }
+    }
+}
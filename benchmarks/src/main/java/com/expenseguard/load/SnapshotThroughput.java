@@ -0,0 +1,164 @@
+package com.expenseguard.load;
+
+import com.expenseguard.db.SnapshotArchive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * Throughput of the snapshot file format against the disk, without a database.
+ *
+ * <p>Generates {@code --rows} expenses (default 10,000,000) as PostgreSQL's
+ * binary {@code COPY} stream of the {@code expenses} table and times
+ *
+ * <ol>
+ *   <li>generating the stream alone (the ceiling of the other runs),</li>
+ *   <li>writing it uncompressed to a file – the disk-bound baseline,</li>
+ *   <li>writing it as a snapshot ({@code DatabaseSnapshot.backup}'s path), and</li>
+ *   <li>reading and checking the snapshot back ({@code restore}'s path).</li>
+ * </ol>
+ *
+ * Files go to {@code --dir} (default the temp directory) and are deleted
+ * unless {@code --keep} is given.
+ *
+ * <pre>
+ * java -cp benchmarks.jar com.expenseguard.load.SnapshotThroughput --rows 10000000 --dir /data/tmp
+ * </pre>
+ */
+public final class SnapshotThroughput {
+
+    private static final String[] MERCHANTS = {
+        "Grocery Mart", "City Transit", "Coffee House", "Pharmacy Plus", "Streaming Co",
+        "Fuel Stop", "Book Nook", "Electric Utility", "Corner Bakery", "Sports Hall"
+    };
+    private static final String[] CURRENCIES = {"USD", "USD", "USD", "EUR", "GBP"};
+
+    public static void main(String[] args) throws Exception {
+        Args a = new Args(args);
+        long rows = Long.parseLong(a.opt("rows", "10000000"));
+        Path dir  = Path.of(a.opt("dir", System.getProperty("java.io.tmpdir")));
+        Path raw  = dir.resolve("snapshot-throughput.raw");
+        Path snap = dir.resolve("snapshot-throughput.egsnap");
+
+        try {
+            long t0 = System.nanoTime();
+            long bytes = generate(rows, OutputStream.nullOutputStream());
+            report("generate only", bytes, System.nanoTime() - t0, bytes);
+
+            t0 = System.nanoTime();
+            try (FileChannel ch = FileChannel.open(raw, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                   StandardOpenOption.TRUNCATE_EXISTING);
+                 OutputStream out = Channels.newOutputStream(ch)) {
+                generate(rows, new java.io.BufferedOutputStream(out, 1 << 20) {
+                    @Override public void close() throws IOException { flush(); }
+                });
+                ch.force(false);
+            }
+            report("raw file", bytes, System.nanoTime() - t0, Files.size(raw));
+
+            t0 = System.nanoTime();
+            try (SnapshotArchive.Writer w = new SnapshotArchive.Writer(snap)) {
+                OutputStream section = w.beginSection("expenses", "id,category_id,description,amount,"
+                    + "expense_date,notes,created_at,updated_at,currency,recurring_id,client_ref,version");
+                generate(rows, section);
+                w.endSection(rows);
+                w.finish();
+            }
+            report("snapshot write", bytes, System.nanoTime() - t0, Files.size(snap));
+
+            t0 = System.nanoTime();
+            long read = 0;
+            try (SnapshotArchive.Reader r = new SnapshotArchive.Reader(snap)) {
+                byte[] buf = new byte[1 << 16];
+                while (r.nextSection()) {
+                    try (InputStream in = r.data()) {
+                        int n;
+                        while ((n = in.read(buf)) > 0) read += n;
+                    }
+                    if (r.rows() != rows) throw new IllegalStateException("Read " + r.rows() + " rows");
+                }
+            }
+            if (read != bytes) throw new IllegalStateException("Read " + read + " of " + bytes + " bytes");
+            report("snapshot read", bytes, System.nanoTime() - t0, Files.size(snap));
+        } finally {
+            if (!a.flag("keep")) {
+                Files.deleteIfExists(raw);
+                Files.deleteIfExists(snap);
+            }
+        }
+    }
+
+    private static void report(String what, long bytes, long nanos, long fileBytes) {
+        double sec = nanos / 1e9;
+        System.out.printf("%-15s %8.2f s %9.1f MB/s of stream   file %,15d bytes%n",
+            what, sec, bytes / sec / 1e6, fileBytes);
+    }
+
+    /** Writes {@code rows} expenses in binary COPY format; returns the bytes written. */
+    private static long generate(long rows, OutputStream out) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(42);
+        ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+        byte[][] merchants  = new byte[MERCHANTS.length][];
+        for (int i = 0; i < merchants.length; i++) merchants[i] = MERCHANTS[i].getBytes(StandardCharsets.UTF_8);
+        byte[][] currencies = new byte[CURRENCIES.length][];
+        for (int i = 0; i < currencies.length; i++) currencies[i] = CURRENCIES[i].getBytes(StandardCharsets.UTF_8);
+
+        long total = 0;
+        buf.put("PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1)).putInt(0).putInt(0);
+        long created = 700_000_000_000_000L;   // microseconds since 2000-01-01
+        for (long id = 1; id <= rows; id++) {
+            if (buf.remaining() < 256) {
+                total += flush(buf, out);
+            }
+            int  day   = 8_000 + (int) (id * 3650 / rows);
+            long cents = 100 + rnd.nextInt(20_000);
+            buf.putShort((short) 12);
+            buf.putInt(4).putInt((int) id);
+            buf.putInt(4).putInt(1 + rnd.nextInt(8));
+            byte[] m = merchants[rnd.nextInt(merchants.length)];
+            buf.putInt(m.length).put(m);
+            putNumeric(buf, cents);
+            buf.putInt(4).putInt(day);
+            buf.putInt(-1);                                                   // notes
+            long ts = created + id * 1_000_000L;
+            buf.putInt(8).putLong(ts);
+            buf.putInt(8).putLong(ts);
+            byte[] c = currencies[rnd.nextInt(currencies.length)];
+            buf.putInt(c.length).put(c);
+            buf.putInt(-1);                                                   // recurring_id
+            buf.putInt(-1);                                                   // client_ref
+            buf.putInt(4).putInt(1);
+        }
+        buf.putShort((short) -1);
+        total += flush(buf, out);
+        out.close();
+        return total;
+    }
+
+    /** {@code cents / 100} as a binary NUMERIC with two decimals. */
+    private static void putNumeric(ByteBuffer buf, long cents) {
+        long units = cents / 100;
+        int  frac  = (int) (cents % 100) * 100;   // base-10000 digit after the point
+        short[] digits = units >= 10_000 ? new short[]{(short) (units / 10_000), (short) (units % 10_000), (short) frac}
+                                         : new short[]{(short) units, (short) frac};
+        buf.putInt(8 + digits.length * 2);
+        buf.putShort((short) digits.length).putShort((short) (digits.length - 2)).putShort((short) 0).putShort((short) 2);
+        for (short d : digits) buf.putShort(d);
+    }
+
+    private static int flush(ByteBuffer buf, OutputStream out) throws IOException {
+        int n = buf.position();
+        out.write(buf.array(), 0, n);
+        buf.clear();
+        return n;
+    }
+}
@@ -0,0 +1,88 @@
+package com.expenseguard.ui;
+
+import com.expenseguard.bench.BenchmarkDatabase;
+import com.expenseguard.model.Expense;
+import com.expenseguard.service.AnomalyDetector;
+import com.expenseguard.util.ChartPainter;
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.table.DefaultTableModel;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UI-side work without a display: {@link ExpensesPanel#fillTable}, which
+ * builds the expenses table's rows, and the {@link ChartPainter} calls the
+ * {@code ChartsPanel} canvases make on every paint of the monthly summary.
+ * In the {@code ui} package so it runs the panel's own package-visible code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TableAndChartBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int rows;
+
+    private List<Expense>                           expenses;
+    private Map<Integer, Set<AnomalyDetector.Flag>> flags;
+    private DefaultTableModel                       model;
+    private List<Object[]>                          summary;
+    private BufferedImage                           canvas;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom rnd = new SplittableRandom(3);
+        expenses = new ArrayList<>(rows);
+        flags    = new HashMap<>();
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < rows; i++) {
+            Expense e = new Expense(1 + rnd.nextInt(8), "Expense #" + i,
+                                    BigDecimal.valueOf(100 + rnd.nextInt(50_000), 2),
+                                    today.minusDays(rnd.nextInt(365)), null);
+            e.setId(i + 1);
+            e.setCategoryName(BenchmarkDatabase.CATEGORIES[e.getCategoryId() - 1]);
+            expenses.add(e);
+            if (rnd.nextInt(100) == 0) flags.put(e.getId(), EnumSet.of(AnomalyDetector.Flag.OUTLIER));
+        }
+        model   = ExpensesPanel.newTableModel();
+        summary = new ArrayList<>();
+        for (int c = 0; c < BenchmarkDatabase.CATEGORIES.length; c++) {
+            summary.add(new Object[]{c + 1, BenchmarkDatabase.CATEGORIES[c],
+                                     BigDecimal.valueOf(rnd.nextLong(1_000_000), 2)});
+        }
+        canvas = new BufferedImage(400, 260, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Benchmark
+    public List<Expense> populateTable() {
+        return ExpensesPanel.fillTable(model, expenses, new IdentityHashMap<>(), flags);
+    }
+
+    /** One paint of the bar chart and the donut. */
+    @Benchmark
+    public BufferedImage paintCharts() {
+        Graphics2D g = canvas.createGraphics();
+        try {
+            ChartPainter.bars(g, 400, 260, summary);
+            ChartPainter.donut(g, 240, 240, summary);
+        } finally {
+            g.dispose();
+        }
+        return canvas;
+    }
+}
@@ -1,43 +1,224 @@
 package com.expenseguard;
 
+import com.expenseguard.api.ApiServer;
 import com.expenseguard.db.DatabaseConnection;
 import com.expenseguard.db.SchemaInitializer;
+import com.expenseguard.metrics.EdtWatchdog;
+import com.expenseguard.metrics.FlightRecording;
+import com.expenseguard.metrics.StartupTimer;
+import com.expenseguard.model.AnnualReport;
+import com.expenseguard.service.AnnualReportEngine;
+import com.expenseguard.service.AnnualReportWriter;
+import com.expenseguard.service.DatabaseSnapshot;
+import com.expenseguard.service.FxRateImporter;
+import com.expenseguard.service.OfflineStore;
+import com.expenseguard.service.RecurringScheduler;
+import com.expenseguard.service.SyncManager;
+import com.expenseguard.service.WriteBehindQueue;
+import com.expenseguard.ui.BudgetPanel;
+import com.expenseguard.ui.CategoriesPanel;
+import com.expenseguard.ui.ChartsPanel;
+import com.expenseguard.ui.ExpensesPanel;
 import com.expenseguard.ui.MainWindow;
+import com.expenseguard.util.UITheme;
 
 import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Year;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 /**
  * Application entry point.
+ *
+ * <p>The database connection and schema check run in the background while
+ * Swing starts; each step logs its time since JVM launch (see {@link StartupTimer}).
  */
 public class App {
 
     private static final Logger LOGGER = Logger.getLogger(App.class.getName());
 
     public static void main(String[] args) {
-        // 1. Set system look & feel
+        StartupTimer.phase("main entered");
+        FlightRecording.startIfConfigured();
+
+        // --import-fx rates.csv : load FX rates and exit without starting the UI
+        if (args.length == 2 && "--import-fx".equals(args[0])) {
+            importFxRates(Path.of(args[1]));
+            return;
+        }
+
+        // --backup file.egsnap / --restore file.egsnap : snapshot the database or load one, without the UI
+        if (args.length == 2 && ("--backup".equals(args[0]) || "--restore".equals(args[0]))) {
+            snapshot("--restore".equals(args[0]), Path.of(args[1]));
+            return;
+        }
+
+        // --report year [dir] : write the year's HTML/CSV report (default: current directory), without the UI
+        if ((args.length == 2 || args.length == 3) && "--report".equals(args[0])) {
+            annualReport(Year.of(Integer.parseInt(args[1])), Path.of(args.length == 3 ? args[2] : "."));
+            return;
+        }
+
+        // --server [port] : serve the HTTP/JSON API instead of the UI
+        if (args.length >= 1 && "--server".equals(args[0])) {
+            runServer(args.length > 1 ? Integer.parseInt(args[1])
+                                      : Integer.getInteger("expenseguard.api.port", 8080));
+            return;
+        }
+
+        // --cds-training : load the UI classes headless and exit (builds the AppCDS archive)
+        if (args.length == 1 && "--cds-training".equals(args[0])) {
+            cdsTraining();
+            return;
+        }
+
+        // 1. Connect to database and initialise schema in the background. Without
+        //    data stored by an earlier run the app cannot work if that fails.
+        SyncManager sync = SyncManager.getInstance();
+        boolean firstStart = OfflineStore.getInstance().isEmpty();
+        sync.start();
+        sync.firstAttempt().whenComplete((v, ex) -> {
+            if (ex == null) {
+                StartupTimer.phase("database connected");
+            } else if (firstStart) {
+                SwingUtilities.invokeLater(() -> {
+                    JOptionPane.showMessageDialog(null,
+                        "Cannot connect to the database.\n\n" + ex.getMessage() +
+                        "\n\nPlease check your PostgreSQL configuration in:\n" +
+                        "src/main/java/com/expenseguard/db/DatabaseConnection.java",
+                        "Database Error", JOptionPane.ERROR_MESSAGE);
+                    System.exit(1);
+                });
+            }
+        });
+
+        // 2. Set system look & feel
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
         } catch (Exception ignored) {}
+        StartupTimer.phase("look and feel");
 
-        // 2. Connect to database and initialise schema
+        // 3. Replay saves left in the journal (write-behind or offline) before the UI shows them
         try {
-            DatabaseConnection.getInstance();
-            SchemaInitializer.initialize();
-        } catch (RuntimeException ex) {
-            JOptionPane.showMessageDialog(null,
-                "Cannot connect to the database.\n\n" + ex.getMessage() +
-                "\n\nPlease check your PostgreSQL configuration in:\n" +
-                "src/main/java/com/expenseguard/db/DatabaseConnection.java",
-                "Database Error", JOptionPane.ERROR_MESSAGE);
-            System.exit(1);
+            WriteBehindQueue.getInstance().start();
+        } catch (IOException ex) {
+            if (!WriteBehindQueue.isEnabled()) {
+                LOGGER.warning("Cannot open the save journal, offline saves are unavailable: " + ex.getMessage());
+            } else {
+                JOptionPane.showMessageDialog(null,
+                    "Cannot open the write-behind journal.\n\n" + ex.getMessage(),
+                    "Journal Error", JOptionPane.ERROR_MESSAGE);
+                System.exit(1);
+            }
         }
 
-        // 3. Launch UI on the Event Dispatch Thread
+        // 4. Launch UI on the Event Dispatch Thread
         SwingUtilities.invokeLater(() -> {
             MainWindow window = new MainWindow();
             window.setVisible(true);
+            StartupTimer.phase("window shown");
             LOGGER.info("Application started successfully.");
         });
+        EdtWatchdog.start();
+
+        // 5. Generate due recurring expenses once the database was tried, then periodically
+        sync.firstAttempt().whenComplete((v, ex) -> RecurringScheduler.getInstance().start());
+    }
+
+    /**
+     * Training run for {@code -XX:ArchiveClassesAtExit}: builds the panels
+     * without data or a window (so it works headless and without a database)
+     * and loads the other classes of a normal start.
+     */
+    private static void cdsTraining() {
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception ignored) {}
+        UITheme.applyDefaults();
+        new ExpensesPanel(new CompletableFuture<>());
+        new BudgetPanel(new CompletableFuture<>());
+        new ChartsPanel(new CompletableFuture<>());
+        new CategoriesPanel(new CompletableFuture<>());
+        for (String name : new String[]{
+                "com.expenseguard.ui.MainWindow", "com.expenseguard.ui.ExpenseFormDialog",
+                "com.expenseguard.ui.RecurringExpensesDialog", "com.expenseguard.service.ExpenseService",
+                "com.expenseguard.service.BudgetAlertEngine", "com.expenseguard.db.SchemaInitializer",
+                "org.postgresql.Driver", "javax.swing.JFrame", "javax.swing.JOptionPane"}) {
+            try {
+                Class.forName(name, false, App.class.getClassLoader());
+            } catch (ClassNotFoundException ex) {
+                LOGGER.warning("CDS training: " + ex.getMessage());
+            }
+        }
+        StartupTimer.phase("CDS training run");
+        System.exit(0);
+    }
+
+    private static void runServer(int port) {
+        try {
+            DatabaseConnection.getInstance();
+            SchemaInitializer.initialize();
+            ApiServer server = new ApiServer(port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop(2);
+                DatabaseConnection.getInstance().closeConnection();
+            }, "api-shutdown"));
+            server.start();
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Cannot start the API server: " + ex.getMessage());
+            System.exit(1);
+        }
+        RecurringScheduler.getInstance().start();
+    }
+
+    private static void snapshot(boolean restore, Path file) {
+        try {
+            SchemaInitializer.initialize();
+            DatabaseSnapshot snapshot = new DatabaseSnapshot();
+            long[] shown = {-1};
+            DatabaseSnapshot.Progress progress = (table, done, total) -> {
+                long pct = 100 * done / Math.max(1, total);
+                if (pct / 10 == shown[0]) return;
+                shown[0] = pct / 10;
+                System.err.printf("%s: %d %%%n", table, pct);
+            };
+            long rows = restore ? snapshot.restore(file, progress) : snapshot.backup(file, progress);
+            LOGGER.info((restore ? "Restored " : "Backed up ") + rows + " rows " + (restore ? "from " : "to ") + file);
+        } catch (Exception ex) {
+            System.err.println((restore ? "Restore" : "Backup") + " failed: " + ex.getMessage());
+            System.exit(1);
+        } finally {
+            DatabaseConnection.getInstance().closeConnection();
+        }
+    }
+
+    private static void annualReport(Year year, Path dir) {
+        System.setProperty("java.awt.headless", "true");   // charts are drawn into images
+        try {
+            SchemaInitializer.initialize();
+            AnnualReport report = new AnnualReportEngine().generate(year);
+            Path html = new AnnualReportWriter().write(report, dir);
+            LOGGER.info("Wrote annual report " + html);
+        } catch (Exception ex) {
+            System.err.println("Annual report failed: " + ex.getMessage());
+            System.exit(1);
+        } finally {
+            DatabaseConnection.getInstance().closeConnection();
+        }
+    }
+
+    private static void importFxRates(Path file) {
+        try {
+            SchemaInitializer.initialize();
+            int n = new FxRateImporter().importFile(file);
+            LOGGER.info("Imported " + n + " FX rates from " + file);
+        } catch (Exception ex) {
+            System.err.println("FX import failed: " + ex.getMessage());
+            System.exit(1);
+        } finally {
+            DatabaseConnection.getInstance().closeConnection();
+        }
     }
 }
@@ -0,0 +1,526 @@
+package com.expenseguard.api;
+
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.QueryGuard;
+import com.expenseguard.model.Budget;
+import com.expenseguard.model.Category;
+import com.expenseguard.model.Expense;
+import com.expenseguard.service.BudgetExceededException;
+import com.expenseguard.service.CurrencyConverter;
+import com.expenseguard.service.ExpenseService;
+import com.expenseguard.service.SyncConflictException;
+import com.expenseguard.service.SyncManager;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Headless HTTP/JSON API over {@link ExpenseService}, started with
+ * {@code App --server [port]}:
+ *
+ * <pre>
+ * GET    /api/expenses?month=2025-03&amp;limit=100&amp;after=CURSOR  expenses, newest first
+ * GET    /api/expenses/{id}
+ * POST   /api/expenses                 create one expense
+ * POST   /api/expenses/bulk            create an array of expenses, all or none
+ * PUT    /api/expenses/{id}            replace an expense (needs its version)
+ * DELETE /api/expenses/{id}            (needs its version)
+ * GET    /api/categories
+ * GET    /api/categories/summary?month=2025-03
+ * GET    /api/budgets?month=2025-03
+ * GET    /api/alerts?limit=50
+ * </pre>
+ *
+ * <p>Expense lists are paged by keyset: a full page ends with {@code next},
+ * the position of its last row, which is passed as {@code after} for the
+ * following page. Each page is one index range scan, however deep it is.
+ * Responses are encoded straight onto the (chunked) response stream.
+ *
+ * <p>An expense's {@code version} is also sent as its {@code ETag}. A
+ * {@code PUT} or {@code DELETE} must name the version it was based on, in an
+ * {@code If-Match} header or else as {@code version} in the body ({@code PUT})
+ * or query ({@code DELETE}); without one it is refused with 428, and if the
+ * expense has changed since, with 409 and nothing written. Fields a
+ * {@code PUT} leaves out that have a stored value (the currency) keep it.
+ *
+ * <p>Requests run on a virtual thread each when the JVM has them (Java 21+).
+ * On Java 17 they share a fixed pool of {@code -Dexpenseguard.api.threads}
+ * platform threads (default four per pooled database connection); requests
+ * beyond that wait in the executor's queue instead of each holding a thread,
+ * since the connection pool bounds how many can make progress anyway. Reads
+ * run on a pooled connection of their own, so concurrent requests do not
+ * queue up on the UI's shared connection.
+ *
+ * <p>There is no authentication: the server listens on
+ * {@code -Dexpenseguard.api.bind} (default {@code 127.0.0.1}) only.
+ */
+public final class ApiServer {
+
+    private static final Logger LOGGER = Logger.getLogger(ApiServer.class.getName());
+
+    private static final String BIND      = System.getProperty("expenseguard.api.bind", "127.0.0.1");
+    private static final int    BACKLOG   = Integer.getInteger("expenseguard.api.backlog", 4096);
+    private static final int    THREADS   = Integer.getInteger("expenseguard.api.threads", 4 * DatabaseConnection.poolSize());
+    private static final int    PAGE      = 100;
+    private static final int    MAX_PAGE  = 1000;
+    private static final int    MAX_BULK  = 10_000;
+    private static final int    MAX_BODY  = 8 * 1024 * 1024;
+
+    private final HttpServer      server;
+    private final ExecutorService executor;
+    private final ExpenseService  service = new ExpenseService();
+
+    /** Creates the server on {@code port} (0 picks a free one); {@link #start()} starts serving. */
+    public ApiServer(int port) throws IOException {
+        server   = HttpServer.create(new InetSocketAddress(BIND, port), BACKLOG);
+        executor = newExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        LOGGER.info("HTTP API listening on http://" + BIND + ":" + port() + "/api/");
+    }
+
+    /** Stops accepting requests and waits up to {@code delaySec} seconds for running ones. */
+    public void stop(int delaySec) {
+        server.stop(delaySec);
+        executor.shutdown();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private static ExecutorService newExecutor() {
+        try {
+            // Java 21+: one virtual thread per request
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger n = new AtomicInteger();
+            return new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "api-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // ── Routing ──────────────────────────────────────────────────────────────
+
+    @SuppressWarnings("try")   // the scope only has to span the request
+    private void handle(HttpExchange ex) {
+        try (QueryGuard.Scope queries = QueryGuard.open(ex.getRequestMethod() + " " + ex.getRequestURI().getPath())) {
+            route(ex);
+        } catch (HttpError e) {
+            error(ex, e.status, e.getMessage());
+        } catch (IllegalArgumentException | DateTimeException | ArithmeticException e) {
+            error(ex, 400, e.getMessage());
+        } catch (BudgetExceededException e) {
+            error(ex, 409, e.getMessage());
+        } catch (SyncConflictException e) {
+            error(ex, 409, "Expense " + e.getStored().getId() + " has changed; its version is now "
+                           + e.getStored().getVersion());
+        } catch (SQLException e) {
+            if (SyncManager.isConnectionError(e)) {
+                error(ex, 503, "Database unavailable");
+            } else if ("02000".equals(e.getSQLState())) {
+                error(ex, 404, e.getMessage());
+            } else {
+                LOGGER.log(Level.WARNING, ex.getRequestMethod() + " " + ex.getRequestURI() + " failed", e);
+                error(ex, 500, e.getMessage());
+            }
+        } catch (IOException e) {
+            LOGGER.fine("Client connection lost: " + e.getMessage());
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, ex.getRequestMethod() + " " + ex.getRequestURI() + " failed", e);
+            error(ex, 500, "Internal error");
+        } finally {
+            ex.close();
+        }
+    }
+
+    private void route(HttpExchange ex) throws IOException, SQLException {
+        String[] path = ex.getRequestURI().getPath().substring("/api/".length()).split("/");
+        String   method = ex.getRequestMethod();
+        Map<String, String> q = query(ex);
+
+        switch (path[0]) {
+            case "expenses" -> {
+                if (path.length == 1) {
+                    if (method.equals("GET")) listExpenses(ex, q);
+                    else if (method.equals("POST")) createExpense(ex);
+                    else throw new HttpError(405, "Method not allowed");
+                } else if (path.length == 2 && path[1].equals("bulk")) {
+                    if (!method.equals("POST")) throw new HttpError(405, "Method not allowed");
+                    createExpenses(ex);
+                } else if (path.length == 2) {
+                    int id = id(path[1]);
+                    switch (method) {
+                        case "GET"    -> getExpense(ex, id);
+                        case "PUT"    -> updateExpense(ex, id);
+                        case "DELETE" -> deleteExpense(ex, id, q);
+                        default       -> throw new HttpError(405, "Method not allowed");
+                    }
+                } else {
+                    throw new HttpError(404, "Not found");
+                }
+            }
+            case "categories" -> {
+                requireGet(method);
+                if (path.length == 1) listCategories(ex);
+                else if (path.length == 2 && path[1].equals("summary")) categorySummary(ex, month(q));
+                else throw new HttpError(404, "Not found");
+            }
+            case "budgets" -> {
+                requireGet(method);
+                if (path.length != 1) throw new HttpError(404, "Not found");
+                listBudgets(ex, month(q));
+            }
+            case "alerts" -> {
+                requireGet(method);
+                if (path.length != 1) throw new HttpError(404, "Not found");
+                listAlerts(ex, clamp(intParam(q, "limit", 50), 1, MAX_PAGE));
+            }
+            default -> throw new HttpError(404, "Not found");
+        }
+    }
+
+    // ── Expenses ─────────────────────────────────────────────────────────────
+
+    private void listExpenses(HttpExchange ex, Map<String, String> q) throws IOException, SQLException {
+        YearMonth ym    = q.containsKey("month") ? YearMonth.parse(q.get("month")) : null;
+        int       limit = clamp(intParam(q, "limit", PAGE), 1, MAX_PAGE);
+        LocalDate afterDate = null;
+        int       afterId   = 0;
+        String after = q.get("after");
+        if (after != null) {
+            int sep = after.indexOf('_');
+            if (sep < 0) throw new IllegalArgumentException("Bad cursor: " + after);
+            afterDate = LocalDate.parse(after.substring(0, sep));
+            afterId   = id(after.substring(sep + 1));
+        }
+        LocalDate fromDate = afterDate;
+        int       fromId   = afterId;
+        List<Expense> page = read(() -> service.getExpensePage(ym, fromDate, fromId, limit));
+
+        send(ex, 200, w -> {
+            w.beginObject().name("items").beginArray();
+            for (Expense e : page) writeExpense(w, e);
+            w.endArray();
+            Expense last = page.size() == limit ? page.get(limit - 1) : null;
+            w.field("next", last == null ? null : last.getExpenseDate() + "_" + last.getId());
+            w.endObject();
+        });
+    }
+
+    private void getExpense(HttpExchange ex, int id) throws IOException, SQLException {
+        Expense e = read(() -> service.getExpense(id));
+        if (e == null) throw new HttpError(404, "No expense " + id);
+        etag(ex, e);
+        send(ex, 200, w -> writeExpense(w, e));
+    }
+
+    private void createExpense(HttpExchange ex) throws IOException, SQLException {
+        Expense e = toExpense(body(ex), null);
+        service.saveExpense(e);
+        Expense stored = read(() -> service.getExpense(e.getId()));
+        etag(ex, stored);
+        send(ex, 201, w -> writeExpense(w, stored));
+    }
+
+    private void createExpenses(HttpExchange ex) throws IOException, SQLException {
+        if (!(body(ex) instanceof List<?> items)) throw new IllegalArgumentException("Expected an array of expenses");
+        if (items.size() > MAX_BULK) throw new HttpError(413, "At most " + MAX_BULK + " expenses per request");
+        List<Expense> expenses = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                expenses.add(toExpense(items.get(i), null));
+            } catch (IllegalArgumentException | DateTimeException e) {
+                throw new IllegalArgumentException("Item " + i + ": " + e.getMessage(), e);
+            }
+        }
+        service.saveExpenses(expenses);
+        send(ex, 201, w -> {
+            w.beginObject().field("created", expenses.size()).name("ids").beginArray();
+            for (Expense e : expenses) w.value(e.getId());
+            w.endArray().endObject();
+        });
+    }
+
+    private void updateExpense(HttpExchange ex, int id) throws IOException, SQLException {
+        Object  json    = body(ex);
+        int     base    = version(ex, json instanceof Map<?, ?> m && m.containsKey("version")
+                                      ? number(m, "version").intValueExact() : null);
+        Expense current = read(() -> service.getExpense(id));
+        if (current == null) throw new HttpError(404, "No expense " + id);
+        Expense e = toExpense(json, current);
+        e.setId(id);
+        service.updateExpense(e, base);
+        Expense stored = read(() -> service.getExpense(id));
+        etag(ex, stored);
+        send(ex, 200, w -> writeExpense(w, stored));
+    }
+
+    private void deleteExpense(HttpExchange ex, int id, Map<String, String> q) throws IOException, SQLException {
+        int base = version(ex, q.containsKey("version") ? Integer.valueOf(q.get("version")) : null);
+        service.deleteExpense(id, base);
+        ex.sendResponseHeaders(204, -1);
+    }
+
+    /** The version a change was based on: the {@code If-Match} header, else {@code fallback}; 428 without either. */
+    private static int version(HttpExchange ex, Integer fallback) {
+        String match = ex.getRequestHeaders().getFirst("If-Match");
+        if (match != null) {
+            String tag = match.strip();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) tag = tag.substring(1, tag.length() - 1);
+            try {
+                return Integer.parseInt(tag);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad If-Match: " + match);
+            }
+        }
+        if (fallback == null) throw new HttpError(428, "The expense's version is required, as If-Match or version");
+        return fallback;
+    }
+
+    private static void etag(HttpExchange ex, Expense e) {
+        ex.getResponseHeaders().set("ETag", "\"" + e.getVersion() + "\"");
+    }
+
+    private static void writeExpense(JsonWriter w, Expense e) throws IOException {
+        w.beginObject()
+         .field("id",           e.getId())
+         .field("categoryId",   e.getCategoryId())
+         .field("categoryName", e.getCategoryName())
+         .field("description",  e.getDescription())
+         .field("amount",       e.getAmount())
+         .field("currency",     e.getCurrency())
+         .field("date",         e.getExpenseDate())
+         .field("notes",        e.getNotes())
+         .field("recurringId",  e.getRecurringId())
+         .field("version",      e.getVersion())
+         .field("updatedAt",    e.getUpdatedAt())
+         .endObject();
+    }
+
+    /**
+     * Reads an expense from a request: categoryId, description, amount and date
+     * are required. A currency left out is {@code stored}'s, when replacing it.
+     */
+    private static Expense toExpense(Object json, Expense stored) {
+        if (!(json instanceof Map<?, ?> m)) throw new IllegalArgumentException("Expected an expense object");
+        Expense e = new Expense();
+        e.setCategoryId(number(m, "categoryId").intValueExact());
+        String description = string(m, "description", true);
+        if (description.isBlank()) throw new IllegalArgumentException("description must not be blank");
+        e.setDescription(description.trim());
+        BigDecimal amount = number(m, "amount");
+        if (amount.signum() <= 0) throw new IllegalArgumentException("amount must be positive");
+        e.setAmount(amount);
+        String currency = string(m, "currency", false);
+        if (currency != null)    e.setCurrency(currency.toUpperCase(Locale.ROOT));
+        else if (stored != null) e.setCurrency(stored.getCurrency());
+        e.setExpenseDate(LocalDate.parse(string(m, "date", true)));
+        e.setNotes(string(m, "notes", false));
+        return e;
+    }
+
+    // ── Categories, budgets, alerts ──────────────────────────────────────────
+
+    private void listCategories(HttpExchange ex) throws IOException, SQLException {
+        List<Category> categories = read(service::getCategories);
+        send(ex, 200, w -> {
+            w.beginArray();
+            for (Category c : categories) {
+                w.beginObject()
+                 .field("id",          c.getId())
+                 .field("name",        c.getName())
+                 .field("description", c.getDescription())
+                 .endObject();
+            }
+            w.endArray();
+        });
+    }
+
+    private void categorySummary(HttpExchange ex, YearMonth ym) throws IOException, SQLException {
+        List<Object[]> rows = read(() -> service.getMonthlyCategorySummary(ym.toString()));
+        String currency = CurrencyConverter.reportingCurrency();
+        send(ex, 200, w -> {
+            w.beginObject().field("month", ym).field("currency", currency).name("categories").beginArray();
+            for (Object[] r : rows) {
+                w.beginObject()
+                 .field("categoryId", (Integer) r[0])
+                 .field("name",       (String) r[1])
+                 .field("total",      (BigDecimal) r[2])
+                 .endObject();
+            }
+            w.endArray().endObject();
+        });
+    }
+
+    private void listBudgets(HttpExchange ex, YearMonth ym) throws IOException, SQLException {
+        List<Budget> budgets = read(() -> service.getBudgetsForMonth(ym.toString()));
+        send(ex, 200, w -> {
+            w.beginArray();
+            for (Budget b : budgets) {
+                w.beginObject()
+                 .field("id",           b.getId())
+                 .field("categoryId",   b.getCategoryId())
+                 .field("categoryName", b.getCategoryName())
+                 .field("month",        b.getMonthYear())
+                 .field("limit",        b.getLimitAmount())
+                 .field("spent",        b.getSpentAmount())
+                 .field("remaining",    b.getRemainingAmount())
+                 .field("usagePercent", b.getUsagePercent())
+                 .field("projected",    b.getProjectedAmount())
+                 .field("currency",     b.getCurrency())
+                 .field("hardLimit",    b.isHardLimit())
+                 .endObject();
+            }
+            w.endArray();
+        });
+    }
+
+    private void listAlerts(HttpExchange ex, int limit) throws IOException, SQLException {
+        List<Object[]> rows = read(() -> service.getAlertHistory(limit));
+        send(ex, 200, w -> {
+            w.beginArray();
+            for (Object[] r : rows) {
+                w.beginObject()
+                 .field("createdAt",    r[0])
+                 .field("category",     (String) r[1])
+                 .field("month",        (String) r[2])
+                 .field("threshold",    (Integer) r[3])
+                 .field("rising",       (boolean) (Boolean) r[4])
+                 .field("usagePercent", (BigDecimal) r[5])
+                 .field("spent",        (BigDecimal) r[6])
+                 .field("limit",        (BigDecimal) r[7])
+                 .field("currency",     (String) r[8])
+                 .endObject();
+            }
+            w.endArray();
+        });
+    }
+
+    // ── Helpers ──────────────────────────────────────────────────────────────
+
+    /** Runs a read on a pooled connection of its own, as one consistent snapshot. */
+    private static <T> T read(DatabaseConnection.Work<T> work) throws SQLException {
+        return DatabaseConnection.instance().inTransaction(work);
+    }
+
+    private interface Body {
+        void write(JsonWriter w) throws IOException;
+    }
+
+    /** Sends a JSON response, encoding it onto the stream as it is produced. */
+    private static void send(HttpExchange ex, int status, Body body) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, 0);
+        Writer out = new BufferedWriter(new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8), 8192);
+        JsonWriter w = new JsonWriter(out);
+        body.write(w);
+        w.flush();
+        out.close();
+    }
+
+    private static void error(HttpExchange ex, int status, String message) {
+        if (ex.getResponseCode() != -1) return;   // a response is already under way
+        try {
+            send(ex, status, w -> w.beginObject().field("error", message).endObject());
+        } catch (IOException e) {
+            LOGGER.fine("Could not send error response: " + e.getMessage());
+        }
+    }
+
+    private static Object body(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            byte[] data = in.readNBytes(MAX_BODY + 1);
+            if (data.length > MAX_BODY) throw new HttpError(413, "Request body too large");
+            return JsonParser.parse(new String(data, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange ex) {
+        Map<String, String> q = new HashMap<>();
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw == null) return q;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            q.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                  URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return q;
+    }
+
+    private static YearMonth month(Map<String, String> q) {
+        String m = q.get("month");
+        return m == null ? YearMonth.now() : YearMonth.parse(m);
+    }
+
+    private static int intParam(Map<String, String> q, String name, int def) {
+        String v = q.get(name);
+        return v == null ? def : Integer.parseInt(v);
+    }
+
+    private static int id(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            throw new HttpError(404, "Not found");
+        }
+    }
+
+    private static int clamp(int v, int min, int max) {
+        return Math.max(min, Math.min(max, v));
+    }
+
+    private static void requireGet(String method) {
+        if (!method.equals("GET")) throw new HttpError(405, "Method not allowed");
+    }
+
+    private static BigDecimal number(Map<?, ?> m, String key) {
+        Object v = m.get(key);
+        if (v instanceof BigDecimal n) return n;
+        throw new IllegalArgumentException(key + " must be a number");
+    }
+
+    private static String string(Map<?, ?> m, String key, boolean required) {
+        Object v = m.get(key);
+        if (v == null && !required) return null;
+        if (v instanceof String s) return s;
+        throw new IllegalArgumentException(key + " must be a string");
+    }
+
+    /** Ends a request with a status other than 200. */
+    private static final class HttpError extends RuntimeException {
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+    }
+}
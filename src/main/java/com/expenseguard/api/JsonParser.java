@@ -0,0 +1,174 @@
+package com.expenseguard.api;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON parser for request bodies. Objects become {@code Map<String, Object>},
+ * arrays {@code List<Object>}, numbers {@link BigDecimal}, and {@code true},
+ * {@code false} and {@code null} their Java counterparts.
+ *
+ * <p>Malformed input is reported as an {@link IllegalArgumentException}.
+ */
+final class JsonParser {
+
+    private static final int MAX_DEPTH = 32;
+
+    private final String s;
+    private int          pos;
+    private int          depth;
+
+    private JsonParser(String s) {
+        this.s = s;
+    }
+
+    static Object parse(String json) {
+        JsonParser p = new JsonParser(json);
+        Object value = p.value();
+        p.skipSpace();
+        if (p.pos != json.length()) throw p.error("Unexpected trailing content");
+        return value;
+    }
+
+    private Object value() {
+        skipSpace();
+        if (pos >= s.length()) throw error("Unexpected end of input");
+        char c = s.charAt(pos);
+        switch (c) {
+            case '{': return object();
+            case '[': return array();
+            case '"': return string();
+            case 't': return literal("true", Boolean.TRUE);
+            case 'f': return literal("false", Boolean.FALSE);
+            case 'n': return literal("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) return number();
+                throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> object() {
+        enter();
+        Map<String, Object> map = new LinkedHashMap<>();
+        pos++;
+        skipSpace();
+        if (peek('}')) {
+            pos++;
+            depth--;
+            return map;
+        }
+        while (true) {
+            skipSpace();
+            if (!peek('"')) throw error("Expected a member name");
+            String name = string();
+            skipSpace();
+            expect(':');
+            map.put(name, value());
+            skipSpace();
+            if (peek(',')) {
+                pos++;
+                continue;
+            }
+            expect('}');
+            depth--;
+            return map;
+        }
+    }
+
+    private List<Object> array() {
+        enter();
+        List<Object> list = new ArrayList<>();
+        pos++;
+        skipSpace();
+        if (peek(']')) {
+            pos++;
+            depth--;
+            return list;
+        }
+        while (true) {
+            list.add(value());
+            skipSpace();
+            if (peek(',')) {
+                pos++;
+                continue;
+            }
+            expect(']');
+            depth--;
+            return list;
+        }
+    }
+
+    private String string() {
+        pos++;   // opening quote
+        StringBuilder sb = new StringBuilder();
+        while (pos < s.length()) {
+            char c = s.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= s.length()) break;
+            char esc = s.charAt(pos++);
+            switch (esc) {
+                case '"', '\\', '/' -> sb.append(esc);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (pos + 4 > s.length()) throw error("Bad unicode escape");
+                    try {
+                        sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Bad unicode escape");
+                    }
+                    pos += 4;
+                }
+                default -> throw error("Bad escape '\\" + esc + "'");
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private BigDecimal number() {
+        int start = pos;
+        while (pos < s.length() && "+-.eE0123456789".indexOf(s.charAt(pos)) >= 0) pos++;
+        try {
+            return new BigDecimal(s.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw error("Bad number");
+        }
+    }
+
+    private Object literal(String word, Object value) {
+        if (!s.startsWith(word, pos)) throw error("Unexpected token");
+        pos += word.length();
+        return value;
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) throw error("Nested too deeply");
+    }
+
+    private boolean peek(char c) {
+        return pos < s.length() && s.charAt(pos) == c;
+    }
+
+    private void expect(char c) {
+        if (!peek(c)) throw error("Expected '" + c + "'");
+        pos++;
+    }
+
+    private void skipSpace() {
+        while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid JSON at offset " + pos + ": " + message);
+    }
+}
@@ -0,0 +1,121 @@
+package com.expenseguard.api;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+/**
+ * Minimal streaming JSON encoder: values are written straight to the
+ * underlying writer as they are produced, so a large response is never built
+ * in memory. Commas are inserted automatically; nesting is not validated.
+ */
+final class JsonWriter {
+
+    private final Writer out;
+    private boolean      first = true;   // no value yet in the current object or array
+
+    JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    JsonWriter beginObject() throws IOException { return open('{'); }
+    JsonWriter endObject()   throws IOException { return close('}'); }
+    JsonWriter beginArray()  throws IOException { return open('['); }
+    JsonWriter endArray()    throws IOException { return close(']'); }
+
+    /** Writes a member name; the next call writes its value. */
+    JsonWriter name(String name) throws IOException {
+        separate();
+        string(name);
+        out.write(':');
+        first = true;   // the value that follows needs no comma
+        return this;
+    }
+
+    JsonWriter value(String s) throws IOException {
+        separate();
+        if (s == null) out.write("null");
+        else           string(s);
+        return this;
+    }
+
+    JsonWriter value(BigDecimal n) throws IOException {
+        separate();
+        out.write(n == null ? "null" : n.toPlainString());
+        return this;
+    }
+
+    JsonWriter value(long n) throws IOException {
+        separate();
+        out.write(Long.toString(n));
+        return this;
+    }
+
+    JsonWriter value(double n) throws IOException {
+        separate();
+        out.write(Double.isFinite(n) ? Double.toString(n) : "null");
+        return this;
+    }
+
+    JsonWriter value(boolean b) throws IOException {
+        separate();
+        out.write(b ? "true" : "false");
+        return this;
+    }
+
+    JsonWriter value(Integer n) throws IOException {
+        return n == null ? value((String) null) : value(n.longValue());
+    }
+
+    /** Shorthand for {@code name(name).value(s)}; likewise for the other types. */
+    JsonWriter field(String name, String s)     throws IOException { return name(name).value(s); }
+    JsonWriter field(String name, BigDecimal n) throws IOException { return name(name).value(n); }
+    JsonWriter field(String name, long n)       throws IOException { return name(name).value(n); }
+    JsonWriter field(String name, double n)     throws IOException { return name(name).value(n); }
+    JsonWriter field(String name, boolean b)    throws IOException { return name(name).value(b); }
+    JsonWriter field(String name, Integer n)    throws IOException { return name(name).value(n); }
+    JsonWriter field(String name, Object o)     throws IOException { return name(name).value(o == null ? null : o.toString()); }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    private JsonWriter open(char c) throws IOException {
+        separate();
+        out.write(c);
+        first = true;
+        return this;
+    }
+
+    private JsonWriter close(char c) throws IOException {
+        out.write(c);
+        first = false;
+        return this;
+    }
+
+    private void separate() throws IOException {
+        if (!first) out.write(',');
+        first = false;
+    }
+
+    private void string(String s) throws IOException {
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\' && c != 0x2028 && c != 0x2029) continue;
+            out.write(s, start, i - start);
+            switch (c) {
+                case '"'  -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default   -> out.write(String.format("\\u%04x", (int) c));
+            }
+            start = i + 1;
+        }
+        out.write(s, start, s.length() - start);
+        out.write('"');
+    }
+}
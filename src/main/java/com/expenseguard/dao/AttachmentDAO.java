@@ -0,0 +1,98 @@
+package com.expenseguard.dao;
+
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.SqlStatement;
+import com.expenseguard.metrics.QueryMetrics;
+import com.expenseguard.metrics.QueryTimer;
+import com.expenseguard.model.Attachment;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class AttachmentDAO {
+
+    private static final SqlStatement FIND_BY_EXPENSE = SqlStatement.readOnly("AttachmentDAO.findByExpense",
+        "SELECT id, expense_id, sha256, file_name, content_type, size_bytes, created_at " +
+        "FROM expense_attachments WHERE expense_id = ? ORDER BY id");
+    private static final SqlStatement FIND_HASHES = SqlStatement.readOnly("AttachmentDAO.findHashes",
+        "SELECT DISTINCT sha256 FROM expense_attachments");
+    private static final SqlStatement INSERT = new SqlStatement("AttachmentDAO.insert",
+        "INSERT INTO expense_attachments (expense_id, sha256, file_name, content_type, size_bytes) " +
+        "VALUES (?, ?, ?, ?, ?) RETURNING id, created_at");
+    private static final SqlStatement DELETE = new SqlStatement("AttachmentDAO.delete",
+        "DELETE FROM expense_attachments WHERE id = ?");
+
+    private Connection conn() throws SQLException {
+        return DatabaseConnection.current();
+    }
+
+    /** Attachments of one expense, oldest first. */
+    public List<Attachment> findByExpense(int expenseId) throws SQLException {
+        List<Attachment> list = new ArrayList<>();
+        try (PreparedStatement ps = FIND_BY_EXPENSE.prepare(conn());
+             QueryTimer t = QueryMetrics.start(FIND_BY_EXPENSE, ps)) {
+            ps.setInt(1, expenseId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(map(rs));
+            }
+            t.rows(list.size());
+        }
+        return list;
+    }
+
+    /** Hashes of every stored attachment's content. */
+    public Set<String> findHashes() throws SQLException {
+        Set<String> hashes = new HashSet<>();
+        try (PreparedStatement ps = FIND_HASHES.prepare(conn());
+             QueryTimer t = QueryMetrics.start(FIND_HASHES, ps);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) hashes.add(rs.getString(1));
+            t.rows(hashes.size());
+        }
+        return hashes;
+    }
+
+    public Attachment save(Attachment a) throws SQLException {
+        try (PreparedStatement ps = INSERT.prepare(conn());
+             QueryTimer t = QueryMetrics.start(INSERT, ps)) {
+            ps.setInt(1, a.getExpenseId());
+            ps.setString(2, a.getSha256());
+            ps.setString(3, a.getFileName());
+            ps.setString(4, a.getContentType());
+            ps.setLong(5, a.getSize());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    a.setId(rs.getInt(1));
+                    Timestamp created = rs.getTimestamp(2);
+                    if (created != null) a.setCreatedAt(created.toLocalDateTime());
+                }
+            }
+            t.rows(1);
+        }
+        return a;
+    }
+
+    public void delete(int id) throws SQLException {
+        try (PreparedStatement ps = DELETE.prepare(conn());
+             QueryTimer t = QueryMetrics.start(DELETE, ps)) {
+            ps.setInt(1, id);
+            t.rows(ps.executeUpdate());
+        }
+    }
+
+    private Attachment map(ResultSet rs) throws SQLException {
+        Attachment a = new Attachment();
+        a.setId(rs.getInt("id"));
+        a.setExpenseId(rs.getInt("expense_id"));
+        a.setSha256(rs.getString("sha256"));
+        a.setFileName(rs.getString("file_name"));
+        a.setContentType(rs.getString("content_type"));
+        a.setSize(rs.getLong("size_bytes"));
+        Timestamp created = rs.getTimestamp("created_at");
+        if (created != null) a.setCreatedAt(created.toLocalDateTime());
+        return a;
+    }
+}
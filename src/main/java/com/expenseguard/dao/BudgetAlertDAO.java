@@ -0,0 +1,90 @@
+package com.expenseguard.dao;
+
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.SqlStatement;
+import com.expenseguard.metrics.QueryMetrics;
+import com.expenseguard.metrics.QueryTimer;
+import com.expenseguard.model.Budget;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * History of budget threshold crossings ({@code budget_alerts}).
+ */
+public class BudgetAlertDAO {
+
+    private static final SqlStatement INSERT = new SqlStatement("BudgetAlertDAO.insert",
+        "INSERT INTO budget_alerts (category_id, month_year, threshold, rising, level, " +
+        "usage_percent, spent_amount, limit_amount, currency) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+    private static final SqlStatement LAST_LEVEL = SqlStatement.readOnly("BudgetAlertDAO.lastLevel",
+        "SELECT level FROM budget_alerts WHERE category_id = ? AND month_year = ? " +
+        "ORDER BY id DESC LIMIT 1");
+    private static final SqlStatement FIND_RECENT = SqlStatement.readOnly("BudgetAlertDAO.findRecent",
+        "SELECT a.created_at, c.name, a.month_year, a.threshold, a.rising, a.usage_percent, " +
+        "a.spent_amount, a.limit_amount, a.currency " +
+        "FROM budget_alerts a LEFT JOIN categories c ON a.category_id = c.id " +
+        "ORDER BY a.id DESC LIMIT ?");
+
+    private Connection conn() throws SQLException {
+        return DatabaseConnection.current();
+    }
+
+    /** Records a crossing of {@code threshold} percent; {@code level} is the number of thresholds now reached. */
+    public void insert(Budget b, int threshold, boolean rising, int level) throws SQLException {
+        try (PreparedStatement ps = INSERT.prepare(conn());
+             QueryTimer t = QueryMetrics.start(INSERT, ps)) {
+            ps.setInt(1, b.getCategoryId());
+            ps.setString(2, b.getMonthYear());
+            ps.setInt(3, threshold);
+            ps.setBoolean(4, rising);
+            ps.setInt(5, level);
+            ps.setBigDecimal(6, BigDecimal.valueOf(Math.min(b.getUsagePercent(), 99_999.99))
+                                          .setScale(2, RoundingMode.HALF_UP));
+            ps.setBigDecimal(7, b.getSpentAmount());
+            ps.setBigDecimal(8, b.getLimitAmount());
+            ps.setString(9, b.getCurrency());
+            t.rows(ps.executeUpdate());
+        }
+    }
+
+    /** Level recorded by the latest crossing for a category and month, or null if none. */
+    public Integer lastLevel(int categoryId, String monthYear) throws SQLException {
+        try (PreparedStatement ps = LAST_LEVEL.prepare(conn());
+             QueryTimer t = QueryMetrics.start(LAST_LEVEL, ps)) {
+            ps.setInt(1, categoryId);
+            ps.setString(2, monthYear);
+            try (ResultSet rs = ps.executeQuery()) {
+                Integer level = rs.next() ? rs.getInt(1) : null;
+                t.rows(level == null ? 0 : 1);
+                return level;
+            }
+        }
+    }
+
+    /**
+     * Latest crossings, newest first:
+     * [createdAt, categoryName, monthYear, threshold, rising, usagePercent, spent, limit, currency].
+     */
+    public List<Object[]> findRecent(int limit) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (PreparedStatement ps = FIND_RECENT.prepare(conn());
+             QueryTimer t = QueryMetrics.start(FIND_RECENT, ps)) {
+            ps.setInt(1, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp ts = rs.getTimestamp(1);
+                    rows.add(new Object[]{ts == null ? null : ts.toLocalDateTime(), rs.getString(2),
+                                          rs.getString(3), rs.getInt(4), rs.getBoolean(5),
+                                          rs.getBigDecimal(6), rs.getBigDecimal(7),
+                                          rs.getBigDecimal(8), rs.getString(9)});
+                }
+            }
+            t.rows(rows.size());
+        }
+        return rows;
+    }
+}
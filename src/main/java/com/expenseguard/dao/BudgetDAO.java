@@ -1,6 +1,9 @@
 package com.expenseguard.dao;
 
 import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.SqlStatement;
+import com.expenseguard.metrics.QueryMetrics;
+import com.expenseguard.metrics.QueryTimer;
 import com.expenseguard.model.Budget;
 
 import java.math.BigDecimal;
@@ -10,68 +13,126 @@ import java.util.List;
 
 public class BudgetDAO {
 
-    private Connection conn() {
-        return DatabaseConnection.getInstance().getConnection();
+    private static final String SELECT =
+        "SELECT b.id, b.category_id, c.name AS category_name, " +
+        "b.month_year, b.limit_amount, b.currency, b.hard_limit " +
+        "FROM budgets b JOIN categories c ON b.category_id = c.id ";
+
+    private static final SqlStatement FIND_BY_MONTH = SqlStatement.readOnly("BudgetDAO.findByMonth",
+        SELECT + "WHERE b.month_year = ? ORDER BY c.name");
+    private static final SqlStatement FIND_BY_CATEGORY_AND_MONTH = SqlStatement.readOnly("BudgetDAO.findByCategoryAndMonth",
+        SELECT + "WHERE b.category_id = ? AND b.month_year = ?");
+    private static final SqlStatement FIND_BY_CATEGORIES_AND_MONTHS = SqlStatement.readOnly("BudgetDAO.findByCategoriesAndMonths",
+        SELECT + "JOIN UNNEST(?::int[], ?::varchar[]) AS k(category_id, month_year) " +
+        "ON b.category_id = k.category_id AND b.month_year = k.month_year");
+    private static final SqlStatement UPSERT = new SqlStatement("BudgetDAO.upsert",
+        "INSERT INTO budgets (category_id, month_year, limit_amount, currency, hard_limit) " +
+        "VALUES (?, ?, ?, ?, ?) " +
+        "ON CONFLICT (category_id, month_year) DO UPDATE " +
+        "SET limit_amount = EXCLUDED.limit_amount, currency = EXCLUDED.currency, " +
+        "hard_limit = EXCLUDED.hard_limit " +
+        "RETURNING id");
+    private static final SqlStatement UPDATE = new SqlStatement("BudgetDAO.update",
+        "UPDATE budgets SET limit_amount = ?, currency = ?, hard_limit = ? WHERE id = ?");
+    private static final SqlStatement DELETE = new SqlStatement("BudgetDAO.delete",
+        "DELETE FROM budgets WHERE id = ?");
+    private static final SqlStatement LOCK_CATEGORY_MONTH = new SqlStatement("BudgetDAO.lockCategoryMonth",
+        "SELECT pg_advisory_xact_lock(?, ?)");
+
+    private Connection conn() throws SQLException {
+        return DatabaseConnection.current();
     }
 
     public List<Budget> findByMonth(String monthYear) throws SQLException {
-        String sql = "SELECT b.id, b.category_id, c.name AS category_name, " +
-                     "b.month_year, b.limit_amount " +
-                     "FROM budgets b JOIN categories c ON b.category_id = c.id " +
-                     "WHERE b.month_year = ? ORDER BY c.name";
         List<Budget> list = new ArrayList<>();
-        try (PreparedStatement ps = conn().prepareStatement(sql)) {
+        try (PreparedStatement ps = FIND_BY_MONTH.prepare(conn());
+             QueryTimer t = QueryMetrics.start(FIND_BY_MONTH, ps)) {
             ps.setString(1, monthYear);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) list.add(map(rs));
             }
+            t.rows(list.size());
         }
         return list;
     }
 
     public Budget findByCategoryAndMonth(int categoryId, String monthYear) throws SQLException {
-        String sql = "SELECT b.id, b.category_id, c.name AS category_name, " +
-                     "b.month_year, b.limit_amount " +
-                     "FROM budgets b JOIN categories c ON b.category_id = c.id " +
-                     "WHERE b.category_id = ? AND b.month_year = ?";
-        try (PreparedStatement ps = conn().prepareStatement(sql)) {
+        try (PreparedStatement ps = FIND_BY_CATEGORY_AND_MONTH.prepare(conn());
+             QueryTimer t = QueryMetrics.start(FIND_BY_CATEGORY_AND_MONTH, ps)) {
             ps.setInt(1, categoryId);
             ps.setString(2, monthYear);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? map(rs) : null;
+                Budget b = rs.next() ? map(rs) : null;
+                t.rows(b == null ? 0 : 1);
+                return b;
+            }
+        }
+    }
+
+    /** The budgets of the ({@code categoryIds[i]}, {@code monthYears[i]}) pairs that have one, in one query. */
+    public List<Budget> findByCategoriesAndMonths(Integer[] categoryIds, String[] monthYears) throws SQLException {
+        List<Budget> list = new ArrayList<>();
+        Connection c = conn();
+        try (PreparedStatement ps = FIND_BY_CATEGORIES_AND_MONTHS.prepare(c);
+             QueryTimer t = QueryMetrics.start(FIND_BY_CATEGORIES_AND_MONTHS, ps)) {
+            ps.setArray(1, c.createArrayOf("integer", categoryIds));
+            ps.setArray(2, c.createArrayOf("varchar", monthYears));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(map(rs));
             }
+            t.rows(list.size());
         }
+        return list;
     }
 
     public Budget save(Budget b) throws SQLException {
         if (b.getId() == 0) {
-            String sql = "INSERT INTO budgets (category_id, month_year, limit_amount) " +
-                         "VALUES (?, ?, ?) " +
-                         "ON CONFLICT (category_id, month_year) DO UPDATE SET limit_amount = EXCLUDED.limit_amount " +
-                         "RETURNING id";
-            try (PreparedStatement ps = conn().prepareStatement(sql)) {
+            try (PreparedStatement ps = UPSERT.prepare(conn());
+                 QueryTimer t = QueryMetrics.start(UPSERT, ps)) {
                 ps.setInt(1, b.getCategoryId());
                 ps.setString(2, b.getMonthYear());
                 ps.setBigDecimal(3, b.getLimitAmount());
+                ps.setString(4, b.getCurrency());
+                ps.setBoolean(5, b.isHardLimit());
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) b.setId(rs.getInt(1));
                 }
+                t.rows(1);
             }
         } else {
-            String sql = "UPDATE budgets SET limit_amount = ? WHERE id = ?";
-            try (PreparedStatement ps = conn().prepareStatement(sql)) {
+            try (PreparedStatement ps = UPDATE.prepare(conn());
+                 QueryTimer t = QueryMetrics.start(UPDATE, ps)) {
                 ps.setBigDecimal(1, b.getLimitAmount());
-                ps.setInt(2, b.getId());
-                ps.executeUpdate();
+                ps.setString(2, b.getCurrency());
+                ps.setBoolean(3, b.isHardLimit());
+                ps.setInt(4, b.getId());
+                t.rows(ps.executeUpdate());
             }
         }
         return b;
     }
 
     public void delete(int id) throws SQLException {
-        try (PreparedStatement ps = conn().prepareStatement("DELETE FROM budgets WHERE id = ?")) {
+        try (PreparedStatement ps = DELETE.prepare(conn());
+             QueryTimer t = QueryMetrics.start(DELETE, ps)) {
             ps.setInt(1, id);
-            ps.executeUpdate();
+            t.rows(ps.executeUpdate());
+        }
+    }
+
+    /**
+     * Takes a transaction-scoped advisory lock for one category and month.
+     * Must run inside {@code DatabaseConnection.inTransaction}; writers of
+     * other categories or months never wait on it.
+     */
+    public void lockCategoryMonth(int categoryId, String monthYear) throws SQLException {
+        int month = Integer.parseInt(monthYear.substring(0, 4)) * 100 + Integer.parseInt(monthYear.substring(5, 7));
+        try (PreparedStatement ps = LOCK_CATEGORY_MONTH.prepare(conn());
+             QueryTimer t = QueryMetrics.start(LOCK_CATEGORY_MONTH, ps)) {
+            ps.setInt(1, categoryId);
+            ps.setInt(2, month);
+            ps.execute();
+            t.rows(0);
         }
     }
 
@@ -82,6 +143,8 @@ public class BudgetDAO {
         b.setCategoryName(rs.getString("category_name"));
         b.setMonthYear(rs.getString("month_year"));
         b.setLimitAmount(rs.getBigDecimal("limit_amount"));
+        b.setCurrency(rs.getString("currency"));
+        b.setHardLimit(rs.getBoolean("hard_limit"));
         return b;
     }
 }
@@ -1,6 +1,9 @@
 package com.expenseguard.dao;
 
 import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.SqlStatement;
+import com.expenseguard.metrics.QueryMetrics;
+import com.expenseguard.metrics.QueryTimer;
 import com.expenseguard.model.Category;
 
 import java.sql.*;
@@ -9,58 +12,74 @@ import java.util.List;
 
 public class CategoryDAO {
 
-    private Connection conn() {
-        return DatabaseConnection.getInstance().getConnection();
+    private static final SqlStatement FIND_ALL = SqlStatement.readOnly("CategoryDAO.findAll",
+        "SELECT id, name, description FROM categories ORDER BY name");
+    private static final SqlStatement FIND_BY_ID = SqlStatement.readOnly("CategoryDAO.findById",
+        "SELECT id, name, description FROM categories WHERE id = ?");
+    private static final SqlStatement INSERT = new SqlStatement("CategoryDAO.insert",
+        "INSERT INTO categories (name, description) VALUES (?, ?) RETURNING id");
+    private static final SqlStatement UPDATE = new SqlStatement("CategoryDAO.update",
+        "UPDATE categories SET name = ?, description = ? WHERE id = ?");
+    private static final SqlStatement DELETE = new SqlStatement("CategoryDAO.delete",
+        "DELETE FROM categories WHERE id = ?");
+
+    private Connection conn() throws SQLException {
+        return DatabaseConnection.current();
     }
 
     public List<Category> findAll() throws SQLException {
         List<Category> list = new ArrayList<>();
-        String sql = "SELECT id, name, description FROM categories ORDER BY name";
-        try (PreparedStatement ps = conn().prepareStatement(sql);
+        try (PreparedStatement ps = FIND_ALL.prepare(conn());
+             QueryTimer t = QueryMetrics.start(FIND_ALL, ps);
              ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
                 list.add(map(rs));
             }
+            t.rows(list.size());
         }
         return list;
     }
 
     public Category findById(int id) throws SQLException {
-        String sql = "SELECT id, name, description FROM categories WHERE id = ?";
-        try (PreparedStatement ps = conn().prepareStatement(sql)) {
+        try (PreparedStatement ps = FIND_BY_ID.prepare(conn());
+             QueryTimer t = QueryMetrics.start(FIND_BY_ID, ps)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? map(rs) : null;
+                Category c = rs.next() ? map(rs) : null;
+                t.rows(c == null ? 0 : 1);
+                return c;
             }
         }
     }
 
     public Category save(Category c) throws SQLException {
         if (c.getId() == 0) {
-            String sql = "INSERT INTO categories (name, description) VALUES (?, ?) RETURNING id";
-            try (PreparedStatement ps = conn().prepareStatement(sql)) {
+            try (PreparedStatement ps = INSERT.prepare(conn());
+                 QueryTimer t = QueryMetrics.start(INSERT, ps)) {
                 ps.setString(1, c.getName());
                 ps.setString(2, c.getDescription());
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) c.setId(rs.getInt(1));
                 }
+                t.rows(1);
             }
         } else {
-            String sql = "UPDATE categories SET name = ?, description = ? WHERE id = ?";
-            try (PreparedStatement ps = conn().prepareStatement(sql)) {
+            try (PreparedStatement ps = UPDATE.prepare(conn());
+                 QueryTimer t = QueryMetrics.start(UPDATE, ps)) {
                 ps.setString(1, c.getName());
                 ps.setString(2, c.getDescription());
                 ps.setInt(3, c.getId());
-                ps.executeUpdate();
+                t.rows(ps.executeUpdate());
             }
         }
         return c;
     }
 
     public void delete(int id) throws SQLException {
-        try (PreparedStatement ps = conn().prepareStatement("DELETE FROM categories WHERE id = ?")) {
+        try (PreparedStatement ps = DELETE.prepare(conn());
+             QueryTimer t = QueryMetrics.start(DELETE, ps)) {
             ps.setInt(1, id);
-            ps.executeUpdate();
+            t.rows(ps.executeUpdate());
         }
     }
 
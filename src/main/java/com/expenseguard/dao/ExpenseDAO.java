@@ -1,6 +1,9 @@
 package com.expenseguard.dao;
 
 import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.SqlStatement;
+import com.expenseguard.metrics.QueryMetrics;
+import com.expenseguard.metrics.QueryTimer;
 import com.expenseguard.model.Expense;
 
 import java.math.BigDecimal;
@@ -8,117 +11,578 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class ExpenseDAO {
 
-    private Connection conn() {
-        return DatabaseConnection.getInstance().getConnection();
+    static final String SELECT =
+        "SELECT e.*, c.name AS category_name FROM expenses e " +
+        "LEFT JOIN categories c ON e.category_id = c.id ";
+
+    private static final SqlStatement FIND_ALL = SqlStatement.readOnly("ExpenseDAO.findAll",
+        SELECT + "ORDER BY e.expense_date DESC, e.id DESC");
+    private static final SqlStatement FIND_BY_MONTH = SqlStatement.readOnly("ExpenseDAO.findByMonth",
+        SELECT + "WHERE TO_CHAR(e.expense_date,'YYYY-MM') = ? ORDER BY e.expense_date DESC, e.id DESC");
+    // Indexed by (month filter ? 1 : 0) | (cursor ? 2 : 0); named findPage[InMonth][After]
+    private static final SqlStatement[] FIND_PAGE = new SqlStatement[4];
+    private static final SqlStatement FIND_BY_CATEGORY_AND_MONTH = SqlStatement.readOnly("ExpenseDAO.findByCategoryAndMonth",
+        SELECT + "WHERE e.category_id = ? AND TO_CHAR(e.expense_date,'YYYY-MM') = ? ORDER BY e.expense_date DESC");
+    private static final SqlStatement FIND_BY_ID = SqlStatement.readOnly("ExpenseDAO.findById",
+        SELECT + "WHERE e.id = ?");
+    private static final SqlStatement FIND_ID_BY_CLIENT_REF = SqlStatement.readOnly("ExpenseDAO.findIdByClientRef",
+        "SELECT id FROM expenses WHERE client_ref = ?");
+    private static final SqlStatement SUM_BY_CATEGORY_AND_MONTH = SqlStatement.readOnly("ExpenseDAO.sumByCategoryAndMonth",
+        "SELECT currency, " +
+        "CASE WHEN currency = ? THEN NULL ELSE expense_date END AS fx_day, " +
+        "SUM(amount) FROM expenses " +
+        "WHERE category_id = ? AND TO_CHAR(expense_date,'YYYY-MM') = ? " +
+        "GROUP BY 1, 2");
+    // Grouped as above, each category in its budget's currency
+    private static final SqlStatement SUMS_FOR_BUDGETS = SqlStatement.readOnly("ExpenseDAO.sumsForBudgets",
+        "SELECT e.category_id, e.currency, " +
+        "CASE WHEN e.currency = b.currency THEN NULL ELSE e.expense_date END AS fx_day, " +
+        "SUM(e.amount) FROM expenses e " +
+        "JOIN budgets b ON b.category_id = e.category_id AND b.month_year = ? " +
+        "WHERE e.expense_date >= ? AND e.expense_date < ? " +
+        "GROUP BY 1, 2, 3");
+    private static final SqlStatement MONTHLY_CATEGORY_SUMMARY = SqlStatement.readOnly("ExpenseDAO.monthlyCategorySummary",
+        "SELECT c.id, c.name, e.currency, " +
+        "CASE WHEN e.currency = ? THEN NULL ELSE e.expense_date END AS fx_day, " +
+        "SUM(e.amount) AS total " +
+        "FROM categories c LEFT JOIN expenses e " +
+        "ON e.category_id = c.id AND TO_CHAR(e.expense_date,'YYYY-MM') = ? " +
+        "GROUP BY 1, 2, 3, 4");
+    // Monthly totals per category over a calendar of months (so months without spending count as 0),
+    // converted to the target currency at each day's rate, then compared with window functions.
+    // Rate of currency $c on d.expense_date, else the last one before it, else the first after it (as CurrencyConverter)
+    private static final String RATE_ON =
+        "COALESCE((SELECT r.rate FROM fx_rates r WHERE r.currency = $c AND r.rate_date <= d.expense_date " +
+        "          ORDER BY r.rate_date DESC LIMIT 1), " +
+        "         (SELECT r.rate FROM fx_rates r WHERE r.currency = $c ORDER BY r.rate_date LIMIT 1))";
+    private static final SqlStatement MONTHLY_COMPARISON = SqlStatement.readOnly("ExpenseDAO.monthlyComparison",
+        "WITH p AS (SELECT CAST(? AS varchar) AS target), " +
+        "months AS (" +
+        "  SELECT CAST(m AS date) AS month " +
+        "  FROM generate_series(CAST(? AS timestamp), CAST(? AS timestamp), INTERVAL '1 month') AS m), " +
+        "day_totals AS (" +
+        "  SELECT category_id, currency, expense_date, SUM(amount) AS amount FROM expenses " +
+        "  WHERE expense_date >= ? AND expense_date < ? GROUP BY 1, 2, 3), " +
+        "spent AS (" +
+        "  SELECT d.category_id, CAST(date_trunc('month', d.expense_date) AS date) AS month, " +
+        "         SUM(CASE WHEN d.currency = p.target THEN d.amount " +
+        "                  ELSE d.amount * COALESCE(rf.rate, 1) / COALESCE(rt.rate, 1) END) AS total " +
+        "  FROM day_totals d CROSS JOIN p " +
+        "  LEFT JOIN LATERAL (SELECT " + RATE_ON.replace("$c", "d.currency") + " AS rate) rf ON d.currency <> p.target " +
+        "  LEFT JOIN LATERAL (SELECT " + RATE_ON.replace("$c", "p.target") + " AS rate) rt ON d.currency <> p.target " +
+        "  GROUP BY 1, 2), " +
+        "grid AS (" +
+        "  SELECT c.id, c.name, m.month, COALESCE(s.total, 0) AS total " +
+        "  FROM categories c CROSS JOIN months m " +
+        "  LEFT JOIN spent s ON s.category_id = c.id AND s.month = m.month) " +
+        "SELECT id, name, month, total, " +
+        "       LAG(total, 1)  OVER w AS prev, " +
+        "       LAG(total, 12) OVER w AS last_year, " +
+        "       AVG(total) OVER (w ROWS BETWEEN 3 PRECEDING AND 1 PRECEDING)  AS avg3, " +
+        "       AVG(total) OVER (w ROWS BETWEEN 6 PRECEDING AND 1 PRECEDING)  AS avg6, " +
+        "       AVG(total) OVER (w ROWS BETWEEN 12 PRECEDING AND 1 PRECEDING) AS avg12 " +
+        "FROM grid WINDOW w AS (PARTITION BY id ORDER BY month) " +
+        "ORDER BY id, month");
+    private static final SqlStatement DAILY_TOTALS = SqlStatement.readOnly("ExpenseDAO.dailyTotals",
+        "SELECT category_id, expense_date, currency, SUM(amount) FROM expenses " +
+        "WHERE category_id IS NOT NULL AND expense_date >= ? AND expense_date < ? " +
+        "GROUP BY 1, 2, 3 ORDER BY 2");
+    private static final SqlStatement SKETCH_INPUT = SqlStatement.readOnly("ExpenseDAO.sketchInput",
+        "SELECT category_id, expense_date, currency, amount, description FROM expenses " +
+        "WHERE expense_date >= ? AND expense_date < ? AND category_id = ANY (?)");
+    private static final SqlStatement INSERT = new SqlStatement("ExpenseDAO.insert",
+        "INSERT INTO expenses (category_id, description, amount, expense_date, notes, currency, recurring_id, client_ref) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?) RETURNING id, version");
+    // Ordered by position, so the serial ids follow the input order
+    private static final SqlStatement INSERT_ALL = new SqlStatement("ExpenseDAO.insertAll",
+        "INSERT INTO expenses (category_id, description, amount, expense_date, notes, currency, recurring_id, client_ref) " +
+        "SELECT category_id, description, amount, expense_date, notes, currency, recurring_id, client_ref " +
+        "FROM UNNEST(?::int[], ?::varchar[], ?::numeric[], ?::date[], ?::text[], ?::varchar[], ?::int[], ?::varchar[]) " +
+        "WITH ORDINALITY AS u(category_id, description, amount, expense_date, notes, currency, recurring_id, client_ref, i) " +
+        "ORDER BY i RETURNING id, version");
+    private static final SqlStatement UPDATE = new SqlStatement("ExpenseDAO.update",
+        "UPDATE expenses SET category_id=?, description=?, amount=?, " +
+        "expense_date=?, notes=?, currency=?, version=version+1, updated_at=NOW() WHERE id=?");
+    private static final SqlStatement UPDATE_AT_VERSION = new SqlStatement("ExpenseDAO.updateAtVersion",
+        "UPDATE expenses SET category_id=?, description=?, amount=?, " +
+        "expense_date=?, notes=?, currency=?, version=version+1, updated_at=NOW() WHERE id=? AND version=?");
+    private static final SqlStatement INSERT_OCCURRENCES = new SqlStatement("ExpenseDAO.insertOccurrences",
+        "INSERT INTO expenses (category_id, description, amount, expense_date, notes, currency, recurring_id) " +
+        "SELECT * FROM UNNEST(?::int[], ?::varchar[], ?::numeric[], ?::date[], ?::text[], ?::varchar[], ?::int[]) " +
+        "ON CONFLICT (recurring_id, expense_date) DO NOTHING " +
+        "RETURNING id, recurring_id, expense_date");
+    private static final SqlStatement DELETE = new SqlStatement("ExpenseDAO.delete",
+        "WITH e AS (DELETE FROM expenses WHERE id = ? RETURNING *) " +
+        "SELECT e.*, c.name AS category_name FROM e LEFT JOIN categories c ON e.category_id = c.id");
+    private static final SqlStatement DELETE_AT_VERSION = new SqlStatement("ExpenseDAO.deleteAtVersion",
+        "DELETE FROM expenses WHERE id = ? AND version = ?");
+
+    // Rows fetched per round trip by find(); applies inside a transaction
+    private static final int FIND_FETCH_SIZE = 250;
+
+    static {
+        for (int v = 0; v < FIND_PAGE.length; v++) {
+            StringBuilder sql = new StringBuilder(SELECT).append("WHERE 1=1");
+            if ((v & 1) != 0) sql.append(" AND e.expense_date >= ? AND e.expense_date < ?");
+            if ((v & 2) != 0) sql.append(" AND (e.expense_date, e.id) < (?, ?)");
+            sql.append(" ORDER BY e.expense_date DESC, e.id DESC LIMIT ?");
+            String name = "ExpenseDAO.findPage" + ((v & 1) != 0 ? "InMonth" : "") + ((v & 2) != 0 ? "After" : "");
+            FIND_PAGE[v] = SqlStatement.readOnly(name, sql.toString());
+        }
+    }
+
+    private Connection conn() throws SQLException {
+        return DatabaseConnection.current();
     }
 
     public List<Expense> findAll() throws SQLException {
-        return query("SELECT e.*, c.name AS category_name FROM expenses e " +
-                     "LEFT JOIN categories c ON e.category_id = c.id " +
-                     "ORDER BY e.expense_date DESC, e.id DESC");
+        return query(FIND_ALL);
     }
 
     public List<Expense> findByMonth(YearMonth ym) throws SQLException {
-        String sql = "SELECT e.*, c.name AS category_name FROM expenses e " +
-                     "LEFT JOIN categories c ON e.category_id = c.id " +
-                     "WHERE TO_CHAR(e.expense_date,'YYYY-MM') = ? " +
-                     "ORDER BY e.expense_date DESC, e.id DESC";
         List<Expense> list = new ArrayList<>();
-        try (PreparedStatement ps = conn().prepareStatement(sql)) {
+        try (PreparedStatement ps = FIND_BY_MONTH.prepare(conn());
+             QueryTimer t = QueryMetrics.start(FIND_BY_MONTH, ps)) {
             ps.setString(1, ym.toString());
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) list.add(map(rs));
             }
+            t.rows(list.size());
+        }
+        return list;
+    }
+
+    /**
+     * One page of expenses in list order (newest first) for keyset pagination:
+     * up to {@code limit} rows after the row ({@code afterDate}, {@code afterId}),
+     * or from the top if {@code afterDate} is null. {@code ym} may be null for all months.
+     */
+    public List<Expense> findPage(YearMonth ym, LocalDate afterDate, int afterId, int limit) throws SQLException {
+        SqlStatement sql = FIND_PAGE[(ym != null ? 1 : 0) | (afterDate != null ? 2 : 0)];
+        List<Expense> list = new ArrayList<>(limit);
+        try (PreparedStatement ps = sql.prepare(conn());
+             QueryTimer t = QueryMetrics.start(sql, ps)) {
+            int i = 1;
+            if (ym != null) {
+                ps.setDate(i++, Date.valueOf(ym.atDay(1)));
+                ps.setDate(i++, Date.valueOf(ym.plusMonths(1).atDay(1)));
+            }
+            if (afterDate != null) {
+                ps.setDate(i++, Date.valueOf(afterDate));
+                ps.setInt(i++, afterId);
+            }
+            ps.setInt(i, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(map(rs));
+            }
+            t.rows(list.size());
         }
         return list;
     }
 
+    /** The expenses matching {@code q}, in its sort order. */
+    public List<Expense> find(ExpenseQuery q) throws SQLException {
+        List<Expense> list = new ArrayList<>();
+        find(q, list::add);
+        return list;
+    }
+
+    /**
+     * Passes the expenses matching {@code q} to {@code sink} as they are read.
+     * Inside {@code DatabaseConnection.inTransaction} the rows are fetched in
+     * batches through a cursor rather than all at once.
+     */
+    public void find(ExpenseQuery q, Consumer<Expense> sink) throws SQLException {
+        SqlStatement sql = q.statement();
+        Connection c = conn();
+        try (PreparedStatement ps = sql.prepare(c);
+             QueryTimer t = QueryMetrics.start(sql, ps)) {
+            int i = 1;
+            if (q.getFrom() != null)             ps.setDate(i++, Date.valueOf(q.getFrom()));
+            if (q.getTo() != null)               ps.setDate(i++, Date.valueOf(q.getTo()));
+            if (!q.getCategoryIds().isEmpty())   ps.setArray(i++, c.createArrayOf("integer", q.getCategoryIds().toArray()));
+            if (q.getMinAmount() != null)        ps.setBigDecimal(i++, q.getMinAmount());
+            if (q.getMaxAmount() != null)        ps.setBigDecimal(i++, q.getMaxAmount());
+            if (q.getText() != null) {
+                ps.setString(i++, q.textPattern());
+                ps.setString(i++, q.textPattern());
+            }
+            if (q.getPageSize() > 0) {
+                ps.setInt(i++, q.getPageSize());
+                ps.setLong(i, (long) q.getPage() * q.getPageSize());
+            }
+            ps.setFetchSize(FIND_FETCH_SIZE);
+            int count = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sink.accept(map(rs));
+                    count++;
+                }
+            }
+            t.rows(count);
+        }
+    }
+
     public List<Expense> findByCategoryAndMonth(int categoryId, String monthYear) throws SQLException {
-        String sql = "SELECT e.*, c.name AS category_name FROM expenses e " +
-                     "LEFT JOIN categories c ON e.category_id = c.id " +
-                     "WHERE e.category_id = ? AND TO_CHAR(e.expense_date,'YYYY-MM') = ? " +
-                     "ORDER BY e.expense_date DESC";
         List<Expense> list = new ArrayList<>();
-        try (PreparedStatement ps = conn().prepareStatement(sql)) {
+        try (PreparedStatement ps = FIND_BY_CATEGORY_AND_MONTH.prepare(conn());
+             QueryTimer t = QueryMetrics.start(FIND_BY_CATEGORY_AND_MONTH, ps)) {
             ps.setInt(1, categoryId);
             ps.setString(2, monthYear);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) list.add(map(rs));
             }
+            t.rows(list.size());
         }
         return list;
     }
 
-    public BigDecimal sumByCategoryAndMonth(int categoryId, String monthYear) throws SQLException {
-        String sql = "SELECT COALESCE(SUM(amount), 0) FROM expenses " +
-                     "WHERE category_id = ? AND TO_CHAR(expense_date,'YYYY-MM') = ?";
-        try (PreparedStatement ps = conn().prepareStatement(sql)) {
-            ps.setInt(1, categoryId);
-            ps.setString(2, monthYear);
+    public Expense findById(int id) throws SQLException {
+        try (PreparedStatement ps = FIND_BY_ID.prepare(conn());
+             QueryTimer t = QueryMetrics.start(FIND_BY_ID, ps)) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                Expense e = rs.next() ? map(rs) : null;
+                t.rows(e == null ? 0 : 1);
+                return e;
+            }
+        }
+    }
+
+    /** Id of the expense inserted with this write-behind key, or null. */
+    public Integer findIdByClientRef(String clientRef) throws SQLException {
+        try (PreparedStatement ps = FIND_ID_BY_CLIENT_REF.prepare(conn());
+             QueryTimer t = QueryMetrics.start(FIND_ID_BY_CLIENT_REF, ps)) {
+            ps.setString(1, clientRef);
+            try (ResultSet rs = ps.executeQuery()) {
+                Integer id = rs.next() ? rs.getInt(1) : null;
+                t.rows(id == null ? 0 : 1);
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Returns the category's spending for a month grouped for currency conversion:
+     * [currency, day, total]. Amounts already in {@code targetCurrency} collapse
+     * into one row with a null day; other currencies are grouped per day so each
+     * group converts with a single rate.
+     */
+    public List<Object[]> sumByCategoryAndMonth(int categoryId, String monthYear,
+                                                String targetCurrency) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (PreparedStatement ps = SUM_BY_CATEGORY_AND_MONTH.prepare(conn());
+             QueryTimer t = QueryMetrics.start(SUM_BY_CATEGORY_AND_MONTH, ps)) {
+            ps.setString(1, targetCurrency);
+            ps.setInt(2, categoryId);
+            ps.setString(3, monthYear);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? rs.getBigDecimal(1) : BigDecimal.ZERO;
+                while (rs.next()) rows.add(new Object[]{rs.getString(1), toLocalDate(rs.getDate(2)), rs.getBigDecimal(3)});
             }
+            t.rows(rows.size());
         }
+        return rows;
     }
 
-    /** Returns total spent per category for a given month: [categoryId, categoryName, total] */
-    public List<Object[]> monthlyCategorySummary(String monthYear) throws SQLException {
-        String sql = "SELECT c.id, c.name, COALESCE(SUM(e.amount),0) AS total " +
-                     "FROM categories c LEFT JOIN expenses e " +
-                     "ON e.category_id = c.id AND TO_CHAR(e.expense_date,'YYYY-MM') = ? " +
-                     "GROUP BY c.id, c.name ORDER BY total DESC";
+    /**
+     * Spending of {@code monthYear} in each category that has a budget that
+     * month, grouped as in {@link #sumByCategoryAndMonth} for the budget's
+     * currency: [categoryId, currency, day, total].
+     */
+    public List<Object[]> sumsForBudgets(String monthYear) throws SQLException {
+        YearMonth ym = YearMonth.parse(monthYear);
         List<Object[]> rows = new ArrayList<>();
-        try (PreparedStatement ps = conn().prepareStatement(sql)) {
+        try (PreparedStatement ps = SUMS_FOR_BUDGETS.prepare(conn());
+             QueryTimer t = QueryMetrics.start(SUMS_FOR_BUDGETS, ps)) {
             ps.setString(1, monthYear);
+            ps.setDate(2, Date.valueOf(ym.atDay(1)));
+            ps.setDate(3, Date.valueOf(ym.plusMonths(1).atDay(1)));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Object[]{rs.getInt(1), rs.getString(2), toLocalDate(rs.getDate(3)), rs.getBigDecimal(4)});
+                }
+            }
+            t.rows(rows.size());
+        }
+        return rows;
+    }
+
+    /**
+     * Returns spending per category for a given month, grouped for currency
+     * conversion: [categoryId, categoryName, currency, day, total]. Categories
+     * without expenses appear once with null currency and total; grouping is
+     * as in {@link #sumByCategoryAndMonth}.
+     */
+    public List<Object[]> monthlyCategorySummary(String monthYear, String targetCurrency) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (PreparedStatement ps = MONTHLY_CATEGORY_SUMMARY.prepare(conn());
+             QueryTimer t = QueryMetrics.start(MONTHLY_CATEGORY_SUMMARY, ps)) {
+            ps.setString(1, targetCurrency);
+            ps.setString(2, monthYear);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Object[]{rs.getInt(1), rs.getString(2), rs.getString(3),
+                                          toLocalDate(rs.getDate(4)), rs.getBigDecimal(5)});
+                }
+            }
+            t.rows(rows.size());
+        }
+        return rows;
+    }
+
+    /**
+     * Monthly spending per category for the 13 months ending with {@code ym},
+     * in {@code targetCurrency}, one row per category and month, oldest month
+     * first: [categoryId, categoryName, month, total, previous, lastYear, avg3,
+     * avg6, avg12]. {@code previous} and {@code lastYear} are the totals one and
+     * twelve months before, the averages cover the 3, 6 and 12 months before
+     * (as far as they lie in the range; null where none do). Rates are
+     * looked up per day as by {@code CurrencyConverter}; a currency without
+     * rates counts as the pivot.
+     */
+    public List<Object[]> monthlyComparison(YearMonth ym, String targetCurrency) throws SQLException {
+        YearMonth first = ym.minusMonths(12);
+        List<Object[]> rows = new ArrayList<>();
+        try (PreparedStatement ps = MONTHLY_COMPARISON.prepare(conn());
+             QueryTimer t = QueryMetrics.start(MONTHLY_COMPARISON, ps)) {
+            ps.setString(1, targetCurrency);
+            ps.setTimestamp(2, Timestamp.valueOf(first.atDay(1).atStartOfDay()));
+            ps.setTimestamp(3, Timestamp.valueOf(ym.atDay(1).atStartOfDay()));
+            ps.setDate(4, Date.valueOf(first.atDay(1)));
+            ps.setDate(5, Date.valueOf(ym.plusMonths(1).atDay(1)));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Object[]{rs.getInt(1), rs.getString(2), toLocalDate(rs.getDate(3)),
+                                          rs.getBigDecimal(4), rs.getBigDecimal(5), rs.getBigDecimal(6),
+                                          rs.getBigDecimal(7), rs.getBigDecimal(8), rs.getBigDecimal(9)});
+                }
+            }
+            t.rows(rows.size());
+        }
+        return rows;
+    }
+
+    /**
+     * Spending per category and day from {@code from} (inclusive) to {@code to}
+     * (exclusive), oldest day first, grouped for currency conversion:
+     * [categoryId, day, currency, total].
+     */
+    public List<Object[]> dailyTotals(LocalDate from, LocalDate to) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (PreparedStatement ps = DAILY_TOTALS.prepare(conn());
+             QueryTimer t = QueryMetrics.start(DAILY_TOTALS, ps)) {
+            ps.setDate(1, Date.valueOf(from));
+            ps.setDate(2, Date.valueOf(to));
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    rows.add(new Object[]{rs.getInt(1), rs.getString(2), rs.getBigDecimal(3)});
+                    rows.add(new Object[]{rs.getInt(1), toLocalDate(rs.getDate(2)), rs.getString(3), rs.getBigDecimal(4)});
                 }
             }
+            t.rows(rows.size());
         }
         return rows;
     }
 
+    /**
+     * The expenses of the given categories from {@code from} (inclusive) to
+     * {@code to} (exclusive), as needed for statistics sketches: [categoryId,
+     * day, currency, amount, description].
+     */
+    public void sketchInput(LocalDate from, LocalDate to, Collection<Integer> categoryIds,
+                            Consumer<Object[]> sink) throws SQLException {
+        Connection c = conn();
+        try (PreparedStatement ps = SKETCH_INPUT.prepare(c);
+             QueryTimer t = QueryMetrics.start(SKETCH_INPUT, ps)) {
+            ps.setDate(1, Date.valueOf(from));
+            ps.setDate(2, Date.valueOf(to));
+            ps.setArray(3, c.createArrayOf("integer", categoryIds.toArray()));
+            ps.setFetchSize(FIND_FETCH_SIZE);
+            int n = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sink.accept(new Object[]{rs.getInt(1), toLocalDate(rs.getDate(2)), rs.getString(3),
+                                             rs.getBigDecimal(4), rs.getString(5)});
+                    n++;
+                }
+            }
+            t.rows(n);
+        }
+    }
+
     public Expense save(Expense e) throws SQLException {
         if (e.getId() == 0) {
-            String sql = "INSERT INTO expenses (category_id, description, amount, expense_date, notes) " +
-                         "VALUES (?, ?, ?, ?, ?) RETURNING id";
-            try (PreparedStatement ps = conn().prepareStatement(sql)) {
+            try (PreparedStatement ps = INSERT.prepare(conn());
+                 QueryTimer t = QueryMetrics.start(INSERT, ps)) {
                 bind(ps, e);
+                ps.setObject(7, e.getRecurringId(), Types.INTEGER);
+                ps.setString(8, e.getClientRef());
                 try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) e.setId(rs.getInt(1));
+                    if (rs.next()) {
+                        e.setId(rs.getInt(1));
+                        e.setVersion(rs.getInt(2));
+                    }
                 }
+                t.rows(1);
             }
         } else {
-            String sql = "UPDATE expenses SET category_id=?, description=?, amount=?, " +
-                         "expense_date=?, notes=?, updated_at=NOW() WHERE id=?";
-            try (PreparedStatement ps = conn().prepareStatement(sql)) {
+            try (PreparedStatement ps = UPDATE.prepare(conn());
+                 QueryTimer t = QueryMetrics.start(UPDATE, ps)) {
                 bind(ps, e);
-                ps.setInt(6, e.getId());
-                ps.executeUpdate();
+                ps.setInt(7, e.getId());
+                t.rows(ps.executeUpdate());
             }
         }
         return e;
     }
 
-    public void delete(int id) throws SQLException {
-        try (PreparedStatement ps = conn().prepareStatement("DELETE FROM expenses WHERE id = ?")) {
+    /** Updates {@code e} only if its row is still at {@code version}; false if it moved on or is gone. */
+    public boolean update(Expense e, int version) throws SQLException {
+        try (PreparedStatement ps = UPDATE_AT_VERSION.prepare(conn());
+             QueryTimer t = QueryMetrics.start(UPDATE_AT_VERSION, ps)) {
+            bind(ps, e);
+            ps.setInt(7, e.getId());
+            ps.setInt(8, version);
+            return t.rows(ps.executeUpdate()) == 1;
+        }
+    }
+
+    /**
+     * Inserts new expenses in one statement and sets their ids and versions.
+     * The rows are inserted in list order, so the ids, drawn from the serial
+     * in that order, are handed out ascending.
+     */
+    public void insertAll(List<Expense> expenses) throws SQLException {
+        if (expenses.isEmpty()) return;
+        int n = expenses.size();
+        Integer[] cat = new Integer[n], rec = new Integer[n];
+        String[] desc = new String[n], notes = new String[n], cur = new String[n], ref = new String[n];
+        BigDecimal[] amt = new BigDecimal[n];
+        Date[] day = new Date[n];
+        for (int i = 0; i < n; i++) {
+            Expense e = expenses.get(i);
+            cat[i]   = e.getCategoryId();
+            desc[i]  = e.getDescription();
+            amt[i]   = e.getAmount();
+            day[i]   = Date.valueOf(e.getExpenseDate());
+            notes[i] = e.getNotes();
+            cur[i]   = e.getCurrency();
+            rec[i]   = e.getRecurringId();
+            ref[i]   = e.getClientRef();
+        }
+        Connection c = conn();
+        try (PreparedStatement ps = INSERT_ALL.prepare(c);
+             QueryTimer t = QueryMetrics.start(INSERT_ALL, ps)) {
+            ps.setArray(1, c.createArrayOf("integer", cat));
+            ps.setArray(2, c.createArrayOf("varchar", desc));
+            ps.setArray(3, c.createArrayOf("numeric", amt));
+            ps.setArray(4, c.createArrayOf("date", day));
+            ps.setArray(5, c.createArrayOf("text", notes));
+            ps.setArray(6, c.createArrayOf("varchar", cur));
+            ps.setArray(7, c.createArrayOf("integer", rec));
+            ps.setArray(8, c.createArrayOf("varchar", ref));
+            List<int[]> keys = new ArrayList<>(n);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) keys.add(new int[]{rs.getInt(1), rs.getInt(2)});
+            }
+            if (keys.size() != n) throw new SQLException("Inserted " + keys.size() + " of " + n + " expenses");
+            keys.sort((a, b) -> Integer.compare(a[0], b[0]));
+            for (int i = 0; i < n; i++) {
+                expenses.get(i).setId(keys.get(i)[0]);
+                expenses.get(i).setVersion(keys.get(i)[1]);
+            }
+            t.rows(n);
+        }
+    }
+
+    /**
+     * Inserts generated occurrences of recurring expenses in one statement.
+     * Occurrences that already exist (same template and date) are skipped, so
+     * re-running a generation is harmless.
+     *
+     * @return the occurrences actually inserted, with their ids set
+     */
+    public List<Expense> insertOccurrences(List<Expense> occurrences) throws SQLException {
+        List<Expense> inserted = new ArrayList<>();
+        if (occurrences.isEmpty()) return inserted;
+        int n = occurrences.size();
+        Integer[] cat = new Integer[n], rec = new Integer[n];
+        String[] desc = new String[n], notes = new String[n], cur = new String[n];
+        BigDecimal[] amt = new BigDecimal[n];
+        Date[] day = new Date[n];
+        for (int i = 0; i < n; i++) {
+            Expense e = occurrences.get(i);
+            cat[i]   = e.getCategoryId();
+            desc[i]  = e.getDescription();
+            amt[i]   = e.getAmount();
+            day[i]   = Date.valueOf(e.getExpenseDate());
+            notes[i] = e.getNotes();
+            cur[i]   = e.getCurrency();
+            rec[i]   = e.getRecurringId();
+        }
+        Connection c = conn();
+        try (PreparedStatement ps = INSERT_OCCURRENCES.prepare(c);
+             QueryTimer t = QueryMetrics.start(INSERT_OCCURRENCES, ps)) {
+            ps.setArray(1, c.createArrayOf("integer", cat));
+            ps.setArray(2, c.createArrayOf("varchar", desc));
+            ps.setArray(3, c.createArrayOf("numeric", amt));
+            ps.setArray(4, c.createArrayOf("date", day));
+            ps.setArray(5, c.createArrayOf("text", notes));
+            ps.setArray(6, c.createArrayOf("varchar", cur));
+            ps.setArray(7, c.createArrayOf("integer", rec));
+            Map<String, Expense> byKey = new HashMap<>();
+            for (Expense e : occurrences) byKey.put(e.getRecurringId() + "|" + e.getExpenseDate(), e);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Expense e = byKey.get(rs.getInt(2) + "|" + rs.getDate(3).toLocalDate());
+                    e.setId(rs.getInt(1));
+                    inserted.add(e);
+                }
+            }
+            t.rows(inserted.size());
+        }
+        return inserted;
+    }
+
+    /** Deletes the expense and returns it as it was, in one statement; null if there was none. */
+    public Expense delete(int id) throws SQLException {
+        try (PreparedStatement ps = DELETE.prepare(conn());
+             QueryTimer t = QueryMetrics.start(DELETE, ps)) {
             ps.setInt(1, id);
-            ps.executeUpdate();
+            try (ResultSet rs = ps.executeQuery()) {
+                Expense e = rs.next() ? map(rs) : null;
+                t.rows(e == null ? 0 : 1);
+                return e;
+            }
+        }
+    }
+
+    /** Deletes the expense only if it is still at {@code version}; false if it moved on or is gone. */
+    public boolean delete(int id, int version) throws SQLException {
+        try (PreparedStatement ps = DELETE_AT_VERSION.prepare(conn());
+             QueryTimer t = QueryMetrics.start(DELETE_AT_VERSION, ps)) {
+            ps.setInt(1, id);
+            ps.setInt(2, version);
+            return t.rows(ps.executeUpdate()) == 1;
         }
     }
 
     // ── helpers ──────────────────────────────────────────────────────────────
 
-    private List<Expense> query(String sql) throws SQLException {
+    private List<Expense> query(SqlStatement sql) throws SQLException {
         List<Expense> list = new ArrayList<>();
-        try (Statement st = conn().createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
+        try (PreparedStatement ps = sql.prepare(conn());
+             QueryTimer t = QueryMetrics.start(sql, ps);
+             ResultSet rs = ps.executeQuery()) {
             while (rs.next()) list.add(map(rs));
+            t.rows(list.size());
         }
         return list;
     }
@@ -133,6 +597,13 @@ public class ExpenseDAO {
         Date d = rs.getDate("expense_date");
         if (d != null) e.setExpenseDate(d.toLocalDate());
         e.setNotes(rs.getString("notes"));
+        e.setCurrency(rs.getString("currency"));
+        int recurringId = rs.getInt("recurring_id");
+        if (!rs.wasNull()) e.setRecurringId(recurringId);
+        e.setClientRef(rs.getString("client_ref"));
+        e.setVersion(rs.getInt("version"));
+        Timestamp updated = rs.getTimestamp("updated_at");
+        if (updated != null) e.setUpdatedAt(updated.toLocalDateTime());
         return e;
     }
 
@@ -142,5 +613,10 @@ public class ExpenseDAO {
         ps.setBigDecimal(3, e.getAmount());
         ps.setDate(4, Date.valueOf(e.getExpenseDate()));
         ps.setString(5, e.getNotes());
+        ps.setString(6, e.getCurrency());
+    }
+
+    private static LocalDate toLocalDate(Date d) {
+        return d == null ? null : d.toLocalDate();
     }
 }
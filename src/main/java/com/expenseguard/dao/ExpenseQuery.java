@@ -0,0 +1,286 @@
+package com.expenseguard.dao;
+
+import com.expenseguard.db.SqlStatement;
+import com.expenseguard.model.Expense;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A filter over expenses: date range, categories, amount range, text, sort
+ * order and page. Every criterion is optional; an empty query lists all
+ * expenses newest first.
+ *
+ * <pre>
+ * ExpenseQuery q = ExpenseQuery.builder()
+ *     .from(LocalDate.of(2024, 3, 1)).to(LocalDate.of(2024, 3, 31))
+ *     .categories(Set.of(1, 4)).minAmount(new BigDecimal("20"))
+ *     .text("taxi").sort(ExpenseQuery.Sort.LARGEST).page(0, 200)
+ *     .build();
+ * </pre>
+ *
+ * <p>{@link ExpenseDAO#find} runs it as one parameterised statement. Criteria
+ * are written in the order of the indexes that serve them, date range
+ * ({@code idx_expenses_page}, {@code idx_expenses_date}) before categories
+ * ({@code idx_expenses_category}), and the statement depends only on which
+ * criteria are set (its shape), so each shape is built and prepared once.
+ * Amounts are compared in each expense's own currency.
+ */
+public final class ExpenseQuery {
+
+    /** Sort orders; ties are broken by id so pages are stable. */
+    public enum Sort {
+        NEWEST      ("Newest first",     "e.expense_date DESC, e.id DESC"),
+        OLDEST      ("Oldest first",     "e.expense_date ASC, e.id ASC"),
+        LARGEST     ("Largest amount",   "e.amount DESC, e.id DESC"),
+        SMALLEST    ("Smallest amount",  "e.amount ASC, e.id ASC"),
+        DESCRIPTION ("Description A–Z",  "LOWER(e.description) ASC, e.id ASC");
+
+        private final String label;
+        private final String orderBy;
+
+        Sort(String label, String orderBy) {
+            this.label   = label;
+            this.orderBy = orderBy;
+        }
+
+        Comparator<Expense> comparator() {
+            Comparator<Expense> c = switch (this) {
+                case NEWEST, OLDEST      -> Comparator.comparing(Expense::getExpenseDate);
+                case LARGEST, SMALLEST   -> Comparator.comparing(Expense::getAmount);
+                case DESCRIPTION         -> Comparator.comparing(e -> e.getDescription().toLowerCase(Locale.ROOT));
+            };
+            c = c.thenComparingInt(Expense::getId);
+            return this == NEWEST || this == LARGEST ? c.reversed() : c;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private static final int FROM = 1, TO = 2, CATEGORIES = 4, MIN = 8, MAX = 16, TEXT = 32;
+
+    // One statement per shape, named by its key so metrics and the query guard tell the shapes apart
+    private static final ConcurrentMap<Integer, SqlStatement> SHAPES = new ConcurrentHashMap<>();
+
+    private final LocalDate    from;
+    private final LocalDate    to;
+    private final Set<Integer> categoryIds;
+    private final BigDecimal   minAmount;
+    private final BigDecimal   maxAmount;
+    private final String       text;
+    private final Sort         sort;
+    private final int          page;
+    private final int          pageSize;
+
+    private ExpenseQuery(Builder b) {
+        this.from        = b.from;
+        this.to          = b.to;
+        this.categoryIds = Set.copyOf(b.categoryIds);
+        this.minAmount   = b.minAmount;
+        this.maxAmount   = b.maxAmount;
+        this.text        = b.text;
+        this.sort        = b.sort;
+        this.page        = b.page;
+        this.pageSize    = b.pageSize;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** A builder starting from this query's criteria. */
+    public Builder toBuilder() {
+        Builder b = new Builder();
+        b.from        = from;
+        b.to          = to;
+        b.categoryIds = new LinkedHashSet<>(categoryIds);
+        b.minAmount   = minAmount;
+        b.maxAmount   = maxAmount;
+        b.text        = text;
+        b.sort        = sort;
+        b.page        = page;
+        b.pageSize    = pageSize;
+        return b;
+    }
+
+    public LocalDate    getFrom()        { return from;        }
+    public LocalDate    getTo()          { return to;          }
+    public Set<Integer> getCategoryIds() { return categoryIds; }
+    public BigDecimal   getMinAmount()   { return minAmount;   }
+    public BigDecimal   getMaxAmount()   { return maxAmount;   }
+    public String       getText()        { return text;        }
+    public Sort         getSort()        { return sort;        }
+    public int          getPage()        { return page;        }
+    /** Rows per page; 0 for all rows. */
+    public int          getPageSize()    { return pageSize;    }
+
+    /** Whether this query lists every expense, newest first, on one page. */
+    public boolean isAll() {
+        return from == null && to == null && categoryIds.isEmpty() && minAmount == null
+            && maxAmount == null && text == null && sort == Sort.NEWEST && pageSize == 0;
+    }
+
+    /** Whether {@code e} meets every criterion (ignoring sort and page). */
+    public boolean matches(Expense e) {
+        LocalDate d = e.getExpenseDate();
+        if (from != null && d.isBefore(from)) return false;
+        if (to != null && d.isAfter(to)) return false;
+        if (!categoryIds.isEmpty() && !categoryIds.contains(e.getCategoryId())) return false;
+        if (minAmount != null && e.getAmount().compareTo(minAmount) < 0) return false;
+        if (maxAmount != null && e.getAmount().compareTo(maxAmount) > 0) return false;
+        if (text != null) {
+            String needle = text.toLowerCase(Locale.ROOT);
+            return contains(e.getDescription(), needle) || contains(e.getNotes(), needle);
+        }
+        return true;
+    }
+
+    /** This query applied in memory: the matching rows, sorted and paged; null if {@code rows} is. */
+    public List<Expense> apply(Collection<Expense> rows) {
+        if (rows == null) return null;
+        List<Expense> list = new ArrayList<>();
+        for (Expense e : rows) if (matches(e)) list.add(e);
+        list.sort(sort.comparator());
+        if (pageSize == 0) return list;
+        int start = Math.min(page * pageSize, list.size());
+        return new ArrayList<>(list.subList(start, Math.min(start + pageSize, list.size())));
+    }
+
+    /** The criteria in short, e.g. {@code 2024-03-01..2024-03-31 cat=[1, 4] text="taxi" page=0/200}. */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if (from != null || to != null) {
+            sb.append(from == null ? "" : from).append("..").append(to == null ? "" : to).append(' ');
+        }
+        if (!categoryIds.isEmpty()) sb.append("cat=").append(categoryIds).append(' ');
+        if (minAmount != null || maxAmount != null) {
+            sb.append("amount=").append(minAmount == null ? "" : minAmount.toPlainString())
+              .append("..").append(maxAmount == null ? "" : maxAmount.toPlainString()).append(' ');
+        }
+        if (text != null) sb.append("text=\"").append(text).append("\" ");
+        if (sort != Sort.NEWEST) sb.append("sort=").append(sort.name()).append(' ');
+        if (pageSize > 0) sb.append("page=").append(page).append('/').append(pageSize);
+        return sb.length() == 0 ? "All" : sb.toString().strip();
+    }
+
+    private static boolean contains(String s, String needle) {
+        return s != null && s.toLowerCase(Locale.ROOT).contains(needle);
+    }
+
+    // ── SQL ──────────────────────────────────────────────────────────────────
+
+    /** The statement for this query's shape. */
+    SqlStatement statement() {
+        int shape = (from != null ? FROM : 0) | (to != null ? TO : 0)
+                  | (categoryIds.isEmpty() ? 0 : CATEGORIES)
+                  | (minAmount != null ? MIN : 0) | (maxAmount != null ? MAX : 0)
+                  | (text != null ? TEXT : 0);
+        int key = (shape << 4 | sort.ordinal()) << 1 | (pageSize > 0 ? 1 : 0);
+        return SHAPES.computeIfAbsent(key, k -> SqlStatement.readOnly("ExpenseDAO.find#" + k, sql(shape)));
+    }
+
+    private String sql(int shape) {
+        StringBuilder sql = new StringBuilder(ExpenseDAO.SELECT).append("WHERE 1=1");
+        if ((shape & FROM) != 0)       sql.append(" AND e.expense_date >= ?");
+        if ((shape & TO) != 0)         sql.append(" AND e.expense_date <= ?");
+        if ((shape & CATEGORIES) != 0) sql.append(" AND e.category_id = ANY (?)");
+        if ((shape & MIN) != 0)        sql.append(" AND e.amount >= ?");
+        if ((shape & MAX) != 0)        sql.append(" AND e.amount <= ?");
+        if ((shape & TEXT) != 0)       sql.append(" AND (e.description ILIKE ? OR e.notes ILIKE ?)");
+        sql.append(" ORDER BY ").append(sort.orderBy);
+        if (pageSize > 0) sql.append(" LIMIT ? OFFSET ?");
+        return sql.toString();
+    }
+
+    /** {@link #text} as an ILIKE pattern, with its wildcards escaped. */
+    String textPattern() {
+        return "%" + text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    /** Builds an {@link ExpenseQuery}; unset criteria do not filter. */
+    public static final class Builder {
+
+        private LocalDate    from;
+        private LocalDate    to;
+        private Set<Integer> categoryIds = new LinkedHashSet<>();
+        private BigDecimal   minAmount;
+        private BigDecimal   maxAmount;
+        private String       text;
+        private Sort         sort = Sort.NEWEST;
+        private int          page;
+        private int          pageSize;
+
+        private Builder() {}
+
+        /** First day included, or null. */
+        public Builder from(LocalDate from) {
+            this.from = from;
+            return this;
+        }
+
+        /** Last day included, or null. */
+        public Builder to(LocalDate to) {
+            this.to = to;
+            return this;
+        }
+
+        /** Categories to include; empty or null for all. */
+        public Builder categories(Collection<Integer> ids) {
+            this.categoryIds = ids == null ? new LinkedHashSet<>() : new LinkedHashSet<>(ids);
+            return this;
+        }
+
+        public Builder minAmount(BigDecimal min) {
+            this.minAmount = min;
+            return this;
+        }
+
+        public Builder maxAmount(BigDecimal max) {
+            this.maxAmount = max;
+            return this;
+        }
+
+        /** Case-insensitive substring of the description or notes; blank for none. */
+        public Builder text(String text) {
+            this.text = text == null || text.isBlank() ? null : text.strip();
+            return this;
+        }
+
+        public Builder sort(Sort sort) {
+            this.sort = sort == null ? Sort.NEWEST : sort;
+            return this;
+        }
+
+        /** Page {@code page} (from 0) of {@code size} rows; size 0 for all rows. */
+        public Builder page(int page, int size) {
+            if (page < 0 || size < 0) throw new IllegalArgumentException("page and size must not be negative");
+            this.page     = page;
+            this.pageSize = size;
+            return this;
+        }
+
+        /** @throws IllegalArgumentException if a range is empty */
+        public ExpenseQuery build() {
+            if (from != null && to != null && from.isAfter(to)) {
+                throw new IllegalArgumentException("The date range ends before it starts");
+            }
+            if (minAmount != null && maxAmount != null && minAmount.compareTo(maxAmount) > 0) {
+                throw new IllegalArgumentException("The minimum amount is above the maximum");
+            }
+            return new ExpenseQuery(this);
+        }
+    }
+}
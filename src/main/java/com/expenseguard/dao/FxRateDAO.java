@@ -0,0 +1,81 @@
+package com.expenseguard.dao;
+
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.SqlStatement;
+import com.expenseguard.metrics.QueryMetrics;
+import com.expenseguard.metrics.QueryTimer;
+import com.expenseguard.model.FxRate;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FxRateDAO {
+
+    private static final SqlStatement FIND_BY_CURRENCY = SqlStatement.readOnly("FxRateDAO.findByCurrency",
+        "SELECT currency, rate_date, rate FROM fx_rates WHERE currency = ? ORDER BY rate_date");
+    private static final SqlStatement FIND_CURRENCIES = SqlStatement.readOnly("FxRateDAO.findCurrencies",
+        "SELECT DISTINCT currency FROM fx_rates ORDER BY currency");
+    private static final SqlStatement SAVE_ALL = new SqlStatement("FxRateDAO.saveAll",
+        "INSERT INTO fx_rates (currency, rate_date, rate) VALUES (?, ?, ?) " +
+        "ON CONFLICT (currency, rate_date) DO UPDATE SET rate = EXCLUDED.rate");
+
+    private Connection conn() throws SQLException {
+        return DatabaseConnection.current();
+    }
+
+    /** All rates of one currency, oldest first. */
+    public List<FxRate> findByCurrency(String currency) throws SQLException {
+        List<FxRate> list = new ArrayList<>();
+        try (PreparedStatement ps = FIND_BY_CURRENCY.prepare(conn());
+             QueryTimer t = QueryMetrics.start(FIND_BY_CURRENCY, ps)) {
+            ps.setString(1, currency);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(map(rs));
+            }
+            t.rows(list.size());
+        }
+        return list;
+    }
+
+    public List<String> findCurrencies() throws SQLException {
+        List<String> list = new ArrayList<>();
+        try (PreparedStatement ps = FIND_CURRENCIES.prepare(conn());
+             QueryTimer t = QueryMetrics.start(FIND_CURRENCIES, ps);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) list.add(rs.getString(1));
+            t.rows(list.size());
+        }
+        return list;
+    }
+
+    /** Inserts or replaces rates in one batched transaction. */
+    public int saveAll(List<FxRate> rates) throws SQLException {
+        Connection c = conn();
+        boolean auto = c.getAutoCommit();
+        c.setAutoCommit(false);
+        try (PreparedStatement ps = SAVE_ALL.prepare(c);
+             QueryTimer t = QueryMetrics.start(SAVE_ALL, ps)) {
+            for (FxRate r : rates) {
+                ps.setString(1, r.getCurrency());
+                ps.setDate(2, Date.valueOf(r.getRateDate()));
+                ps.setBigDecimal(3, r.getRate());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            c.commit();
+            t.rows(rates.size());
+        } catch (SQLException e) {
+            c.rollback();
+            throw e;
+        } finally {
+            c.setAutoCommit(auto);
+        }
+        return rates.size();
+    }
+
+    private FxRate map(ResultSet rs) throws SQLException {
+        return new FxRate(rs.getDate("rate_date").toLocalDate(),
+                          rs.getString("currency"), rs.getBigDecimal("rate"));
+    }
+}
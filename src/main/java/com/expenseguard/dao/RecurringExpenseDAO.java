@@ -0,0 +1,148 @@
+package com.expenseguard.dao;
+
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.SqlStatement;
+import com.expenseguard.metrics.QueryMetrics;
+import com.expenseguard.metrics.QueryTimer;
+import com.expenseguard.model.RecurringExpense;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class RecurringExpenseDAO {
+
+    private static final String SELECT =
+        "SELECT r.*, c.name AS category_name FROM recurring_expenses r " +
+        "LEFT JOIN categories c ON r.category_id = c.id ";
+
+    private static final SqlStatement FIND_ACTIVE = SqlStatement.readOnly("RecurringExpenseDAO.findActive",
+        SELECT + "WHERE r.active ORDER BY r.description");
+    private static final SqlStatement FIND_DUE = SqlStatement.readOnly("RecurringExpenseDAO.findDue",
+        SELECT + "WHERE r.active AND r.start_date <= ? " +
+        "AND (r.last_generated IS NULL OR r.last_generated < ?)");
+    private static final SqlStatement INSERT = new SqlStatement("RecurringExpenseDAO.insert",
+        "INSERT INTO recurring_expenses (category_id, description, amount, currency, notes, " +
+        "rule, start_date, last_generated, active) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) RETURNING id");
+    private static final SqlStatement UPDATE = new SqlStatement("RecurringExpenseDAO.update",
+        "UPDATE recurring_expenses SET category_id=?, description=?, amount=?, currency=?, " +
+        "notes=?, rule=?, start_date=?, last_generated=?, active=? WHERE id=?");
+    private static final SqlStatement DEACTIVATE = new SqlStatement("RecurringExpenseDAO.deactivate",
+        "UPDATE recurring_expenses SET active = FALSE WHERE id = ?");
+    private static final SqlStatement MARK_GENERATED = new SqlStatement("RecurringExpenseDAO.markGenerated",
+        "UPDATE recurring_expenses r SET last_generated = v.day " +
+        "FROM UNNEST(?::int[], ?::date[]) AS v(id, day) " +
+        "WHERE r.id = v.id AND (r.last_generated IS NULL OR r.last_generated < v.day)");
+
+    private Connection conn() throws SQLException {
+        return DatabaseConnection.current();
+    }
+
+    /** Active templates, by description. */
+    public List<RecurringExpense> findActive() throws SQLException {
+        List<RecurringExpense> list = new ArrayList<>();
+        try (PreparedStatement ps = FIND_ACTIVE.prepare(conn());
+             QueryTimer t = QueryMetrics.start(FIND_ACTIVE, ps);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) list.add(map(rs));
+            t.rows(list.size());
+        }
+        return list;
+    }
+
+    /** Active templates that may have occurrences on or before {@code today} not yet generated. */
+    public List<RecurringExpense> findDue(LocalDate today) throws SQLException {
+        List<RecurringExpense> list = new ArrayList<>();
+        try (PreparedStatement ps = FIND_DUE.prepare(conn());
+             QueryTimer t = QueryMetrics.start(FIND_DUE, ps)) {
+            ps.setDate(1, Date.valueOf(today));
+            ps.setDate(2, Date.valueOf(today));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(map(rs));
+            }
+            t.rows(list.size());
+        }
+        return list;
+    }
+
+    public RecurringExpense save(RecurringExpense r) throws SQLException {
+        if (r.getId() == 0) {
+            try (PreparedStatement ps = INSERT.prepare(conn());
+                 QueryTimer t = QueryMetrics.start(INSERT, ps)) {
+                bind(ps, r);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) r.setId(rs.getInt(1));
+                }
+                t.rows(1);
+            }
+        } else {
+            try (PreparedStatement ps = UPDATE.prepare(conn());
+                 QueryTimer t = QueryMetrics.start(UPDATE, ps)) {
+                bind(ps, r);
+                ps.setInt(10, r.getId());
+                t.rows(ps.executeUpdate());
+            }
+        }
+        return r;
+    }
+
+    /** Stops a template; occurrences already generated are kept. */
+    public void deactivate(int id) throws SQLException {
+        try (PreparedStatement ps = DEACTIVATE.prepare(conn());
+             QueryTimer t = QueryMetrics.start(DEACTIVATE, ps)) {
+            ps.setInt(1, id);
+            t.rows(ps.executeUpdate());
+        }
+    }
+
+    /** Advances {@code last_generated} for many templates in one statement. */
+    public void markGenerated(Map<Integer, LocalDate> lastByTemplate) throws SQLException {
+        if (lastByTemplate.isEmpty()) return;
+        Integer[] ids  = new Integer[lastByTemplate.size()];
+        Date[]    days = new Date[ids.length];
+        int i = 0;
+        for (Map.Entry<Integer, LocalDate> en : lastByTemplate.entrySet()) {
+            ids[i]  = en.getKey();
+            days[i] = Date.valueOf(en.getValue());
+            i++;
+        }
+        Connection c = conn();
+        try (PreparedStatement ps = MARK_GENERATED.prepare(c);
+             QueryTimer t = QueryMetrics.start(MARK_GENERATED, ps)) {
+            ps.setArray(1, c.createArrayOf("integer", ids));
+            ps.setArray(2, c.createArrayOf("date", days));
+            t.rows(ps.executeUpdate());
+        }
+    }
+
+    private RecurringExpense map(ResultSet rs) throws SQLException {
+        RecurringExpense r = new RecurringExpense();
+        r.setId(rs.getInt("id"));
+        r.setCategoryId(rs.getInt("category_id"));
+        r.setCategoryName(rs.getString("category_name"));
+        r.setDescription(rs.getString("description"));
+        r.setAmount(rs.getBigDecimal("amount"));
+        r.setCurrency(rs.getString("currency"));
+        r.setNotes(rs.getString("notes"));
+        r.setRule(rs.getString("rule"));
+        r.setStartDate(rs.getDate("start_date").toLocalDate());
+        Date last = rs.getDate("last_generated");
+        if (last != null) r.setLastGenerated(last.toLocalDate());
+        r.setActive(rs.getBoolean("active"));
+        return r;
+    }
+
+    private void bind(PreparedStatement ps, RecurringExpense r) throws SQLException {
+        ps.setInt(1, r.getCategoryId());
+        ps.setString(2, r.getDescription());
+        ps.setBigDecimal(3, r.getAmount());
+        ps.setString(4, r.getCurrency());
+        ps.setString(5, r.getNotes());
+        ps.setString(6, r.getRule());
+        ps.setDate(7, Date.valueOf(r.getStartDate()));
+        ps.setDate(8, r.getLastGenerated() == null ? null : Date.valueOf(r.getLastGenerated()));
+        ps.setBoolean(9, r.isActive());
+    }
+}
@@ -0,0 +1,99 @@
+package com.expenseguard.dao;
+
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.SqlStatement;
+import com.expenseguard.metrics.QueryMetrics;
+import com.expenseguard.metrics.QueryTimer;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-category, per-month statistics sketches ({@code expense_sketches}).
+ *
+ * <p>Rows are dropped by the triggers on {@code expenses} whenever a month's
+ * expenses change. The triggers (shared) and {@link #tryLockCategoryMonth}
+ * (exclusive) take the same advisory lock, so a sketch stored while holding it was built from the
+ * month's current rows.
+ */
+public class SketchDAO {
+
+    private static final SqlStatement FIND_RANGE = SqlStatement.readOnly("SketchDAO.findRange",
+        "SELECT category_id, month, item_count, amounts, merchants FROM expense_sketches " +
+        "WHERE month >= ? AND month <= ? AND currency = ?");
+    private static final SqlStatement TRY_LOCK_CATEGORY_MONTH = new SqlStatement("SketchDAO.tryLockCategoryMonth",
+        "SELECT pg_try_advisory_xact_lock(?)");
+    private static final SqlStatement UPSERT = new SqlStatement("SketchDAO.upsert",
+        "INSERT INTO expense_sketches (category_id, month, currency, item_count, amounts, merchants) " +
+        "VALUES (?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (category_id, month) DO UPDATE SET currency = EXCLUDED.currency, " +
+        "item_count = EXCLUDED.item_count, amounts = EXCLUDED.amounts, merchants = EXCLUDED.merchants");
+    private static final SqlStatement DELETE_ALL = new SqlStatement("SketchDAO.deleteAll",
+        "DELETE FROM expense_sketches");
+
+    private Connection conn() throws SQLException {
+        return DatabaseConnection.current();
+    }
+
+    /**
+     * Sketches of the months {@code fromMonth} to {@code toMonth} (first days,
+     * inclusive) kept in {@code currency}: [categoryId, month, count, amounts, merchants].
+     */
+    public List<Object[]> findRange(LocalDate fromMonth, LocalDate toMonth, String currency) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (PreparedStatement ps = FIND_RANGE.prepare(conn());
+             QueryTimer t = QueryMetrics.start(FIND_RANGE, ps)) {
+            ps.setDate(1, Date.valueOf(fromMonth));
+            ps.setDate(2, Date.valueOf(toMonth));
+            ps.setString(3, currency);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Object[]{rs.getInt(1), rs.getDate(2).toLocalDate(), rs.getInt(3),
+                                          rs.getBytes(4), rs.getBytes(5)});
+                }
+            }
+            t.rows(rows.size());
+        }
+        return rows;
+    }
+
+    /**
+     * Takes the transaction-scoped lock the {@code expenses} trigger takes for
+     * the same category and month, without waiting; false if a writer holds
+     * it. Must run inside {@code DatabaseConnection.inTransaction}.
+     */
+    public boolean tryLockCategoryMonth(int categoryId, LocalDate month) throws SQLException {
+        try (PreparedStatement ps = TRY_LOCK_CATEGORY_MONTH.prepare(conn());
+             QueryTimer t = QueryMetrics.start(TRY_LOCK_CATEGORY_MONTH, ps)) {
+            ps.setLong(1, (long) categoryId << 32 | (month.getYear() * 100 + month.getMonthValue()));
+            try (ResultSet rs = ps.executeQuery()) {
+                t.rows(1);
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    public void upsert(int categoryId, LocalDate month, String currency, int count,
+                       byte[] amounts, byte[] merchants) throws SQLException {
+        try (PreparedStatement ps = UPSERT.prepare(conn());
+             QueryTimer t = QueryMetrics.start(UPSERT, ps)) {
+            ps.setInt(1, categoryId);
+            ps.setDate(2, Date.valueOf(month));
+            ps.setString(3, currency);
+            ps.setInt(4, count);
+            ps.setBytes(5, amounts);
+            ps.setBytes(6, merchants);
+            t.rows(ps.executeUpdate());
+        }
+    }
+
+    /** Drops every sketch, e.g. after exchange rates changed. */
+    public void deleteAll() throws SQLException {
+        try (PreparedStatement ps = DELETE_ALL.prepare(conn());
+             QueryTimer t = QueryMetrics.start(DELETE_ALL, ps)) {
+            t.rows(ps.executeUpdate());
+        }
+    }
+}
@@ -3,10 +3,27 @@ package com.expenseguard.db;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Logger;
 
 /**
  * Singleton class for managing PostgreSQL database connections.
+ *
+ * <p>DAOs normally share one auto-commit connection. {@link #inTransaction}
+ * runs a unit of work on a pooled connection of its own (at most
+ * {@code -Dexpenseguard.db.poolSize}, default 8, at a time) and binds it to
+ * the calling thread, so the DAOs called inside it join the transaction
+ * without any change to their code.
+ *
+ * <p>When the server cannot be reached, {@link #current()} and
+ * {@link #instance()} fail with a {@link SQLRecoverableException} (SQLState
+ * {@code 08001}) instead of a runtime exception, and fail fast for
+ * {@code -Dexpenseguard.db.retrySec} seconds (default 5) before trying again.
+ *
+ * <p>Every connection counts its statements for {@link QueryGuard}.
  */
 public class DatabaseConnection {
 
@@ -18,13 +35,42 @@ public class DatabaseConnection {
     private static final String PASSWORD = "Mourya11";
     // ─────────────────────────────────────────────────────────────────────────
 
+    // Each default can be overridden with -Dexpenseguard.db.url / .user / .password
+    // (used by the benchmarks to point the DAOs at an in-process database).
+    static String url()      { return System.getProperty("expenseguard.db.url", URL); }
+    static String username() { return System.getProperty("expenseguard.db.user", USERNAME); }
+    static String password() { return System.getProperty("expenseguard.db.password", PASSWORD); }
+
+    private static final int  POOL_SIZE   = Integer.getInteger("expenseguard.db.poolSize", 8);
+    private static final long RETRY_NANOS = Long.getLong("expenseguard.db.retrySec", 5) * 1_000_000_000L;
+
+    static {
+        // Give up on an unreachable server after a few seconds rather than the driver default
+        if (DriverManager.getLoginTimeout() == 0) {
+            DriverManager.setLoginTimeout(Integer.getInteger("expenseguard.db.loginTimeoutSec", 5));
+        }
+    }
+
+    private static final ThreadLocal<Connection> BOUND = new ThreadLocal<>();
+
     private static DatabaseConnection instance;
+    private static RuntimeException   lastFailure;    // of the latest connection attempt
+    private static long               lastFailureAt;
     private Connection connection;
 
+    private final BlockingQueue<Connection> idle    = new LinkedBlockingQueue<>();
+    private final Semaphore                 permits = new Semaphore(POOL_SIZE, true);
+
+    /** A unit of work run by {@link #inTransaction}. */
+    @FunctionalInterface
+    public interface Work<T> {
+        T run() throws SQLException;
+    }
+
     private DatabaseConnection() {
         try {
             Class.forName("org.postgresql.Driver");
-            connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+            connection = QueryGuard.wrap(DriverManager.getConnection(url(), username(), password()));
             LOGGER.info("Database connection established successfully.");
         } catch (ClassNotFoundException e) {
             LOGGER.severe("PostgreSQL JDBC Driver not found: " + e.getMessage());
@@ -37,11 +83,49 @@ public class DatabaseConnection {
 
     public static synchronized DatabaseConnection getInstance() {
         if (instance == null || isConnectionClosed()) {
+            if (instance != null && instance.connection != null) StatementCache.drop(instance.connection);
             instance = new DatabaseConnection();
         }
         return instance;
     }
 
+    /**
+     * Like {@link #getInstance()}, but reports an unreachable server as a
+     * checked {@link SQLRecoverableException}, without retrying for a few
+     * seconds after a failed attempt.
+     */
+    public static synchronized DatabaseConnection instance() throws SQLException {
+        if (instance != null && !isConnectionClosed()) return instance;
+        if (lastFailure != null && System.nanoTime() - lastFailureAt < RETRY_NANOS) {
+            throw unreachable(lastFailure);
+        }
+        try {
+            DatabaseConnection db = getInstance();
+            lastFailure = null;
+            return db;
+        } catch (RuntimeException e) {
+            lastFailure   = e;
+            lastFailureAt = System.nanoTime();
+            throw unreachable(e);
+        }
+    }
+
+    /** The connection DAOs should use: the one bound by {@link #inTransaction}, else the shared one. */
+    public static Connection current() throws SQLException {
+        Connection bound = BOUND.get();
+        return bound != null ? bound : instance().getConnection();
+    }
+
+    /** Maximum number of pooled connections in use at once. */
+    public static int poolSize() {
+        return POOL_SIZE;
+    }
+
+    private static SQLException unreachable(RuntimeException e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return new SQLRecoverableException("Database unreachable: " + cause.getMessage(), "08001", cause);
+    }
+
     private static boolean isConnectionClosed() {
         try {
             return instance.connection == null || instance.connection.isClosed();
@@ -50,12 +134,79 @@ public class DatabaseConnection {
         }
     }
 
+    /** The connection bound by an enclosing {@link #inTransaction}, else the shared one. */
     public Connection getConnection() {
-        return connection;
+        Connection bound = BOUND.get();
+        return bound != null ? bound : connection;
+    }
+
+    /**
+     * Runs {@code work} in one transaction on a pooled connection: committed if
+     * it returns, rolled back if it throws. Nested calls join the outer one.
+     */
+    public <T> T inTransaction(Work<T> work) throws SQLException {
+        if (BOUND.get() != null) return work.run();
+        Connection c = borrow();
+        BOUND.set(c);
+        try {
+            c.setAutoCommit(false);
+            T result = work.run();
+            c.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                c.rollback();
+            } catch (SQLException re) {
+                e.addSuppressed(re);
+            }
+            throw e;
+        } finally {
+            BOUND.remove();
+            release(c);
+        }
+    }
+
+    private Connection borrow() throws SQLException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        try {
+            Connection c;
+            while ((c = idle.poll()) != null) {
+                if (!c.isClosed()) return c;
+                StatementCache.drop(c);
+            }
+            return QueryGuard.wrap(DriverManager.getConnection(url(), username(), password()));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(Connection c) {
+        try {
+            if (!c.isClosed()) {
+                c.setAutoCommit(true);
+                idle.offer(c);
+            } else {
+                StatementCache.drop(c);
+            }
+        } catch (SQLException e) {
+            LOGGER.warning("Discarding pooled connection: " + e.getMessage());
+            close(c);
+        } finally {
+            permits.release();
+        }
     }
 
     public void closeConnection() {
+        Connection pooled;
+        while ((pooled = idle.poll()) != null) close(pooled);
         try {
+            if (connection != null) StatementCache.drop(connection);
             if (connection != null && !connection.isClosed()) {
                 connection.close();
                 LOGGER.info("Database connection closed.");
@@ -64,4 +215,13 @@ public class DatabaseConnection {
             LOGGER.warning("Error closing connection: " + e.getMessage());
         }
     }
+
+    /** Closes a pooled connection along with its cached statements. */
+    private static void close(Connection c) {
+        StatementCache.drop(c);
+        try {
+            c.close();
+        } catch (SQLException ignored) {
+        }
+    }
 }
@@ -0,0 +1,154 @@
+package com.expenseguard.db;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Compressor for snapshot frames in the LZ4 block format: runs of literals
+ * and back-references of at least four bytes within the last 64 KiB, found
+ * through a hash table of the four bytes at each position.
+ *
+ * <p>It compresses the row streams of {@code COPY} (repeated lengths, ids,
+ * dates and currency codes) about three to five times at several hundred
+ * MB/s per core, where even deflate's fastest level manages about 100.
+ */
+final class Lz4Block {
+
+    private static final VarHandle INT  = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final int MIN_MATCH     = 4;
+    private static final int LAST_LITERALS = 5;    // the format ends every block with literals
+    private static final int MATCH_LIMIT   = 12;   // no match may start closer to the end
+    private static final int MAX_OFFSET    = 0xFFFF;
+    private static final int HASH_BITS     = 16;
+
+    private Lz4Block() {}
+
+    /** Largest compressed size of {@code len} bytes. */
+    static int maxCompressedLength(int len) {
+        return len + len / 255 + 16;
+    }
+
+    /** Compresses {@code src[0, len)} into {@code dst}; returns the compressed length. */
+    static int compress(byte[] src, int len, byte[] dst) {
+        int[] table  = new int[1 << HASH_BITS];   // position + 1 of the last occurrence of each hash
+        int   anchor = 0;
+        int   ip     = 0;
+        int   op     = 0;
+        int   limit  = len - MATCH_LIMIT;
+        while (ip < limit) {
+            int seq = (int) INT.get(src, ip);
+            int h   = (seq * -1640531535) >>> (32 - HASH_BITS);
+            int ref = table[h] - 1;
+            table[h] = ip + 1;
+            if (ref < 0 || ip - ref > MAX_OFFSET || (int) INT.get(src, ref) != seq) {
+                ip += 1 + ((ip - anchor) >>> 6);   // skip faster through incompressible data
+                continue;
+            }
+            while (ip > anchor && ref > 0 && src[ip - 1] == src[ref - 1]) {
+                ip--;
+                ref--;
+            }
+            int matchLen = MIN_MATCH;
+            int end      = len - LAST_LITERALS;
+            while (ip + matchLen + 8 <= end) {   // eight bytes at a time
+                long diff = (long) LONG.get(src, ref + matchLen) ^ (long) LONG.get(src, ip + matchLen);
+                if (diff != 0) {
+                    matchLen += Long.numberOfTrailingZeros(diff) >>> 3;
+                    break;
+                }
+                matchLen += 8;
+            }
+            if (ip + matchLen + 8 > end) {
+                while (ip + matchLen < end && src[ref + matchLen] == src[ip + matchLen]) matchLen++;
+            }
+
+            op = sequence(src, anchor, ip - anchor, dst, op, ip - ref, matchLen);
+            ip    += matchLen;
+            anchor = ip;
+        }
+        int literals = len - anchor;
+        int token    = Math.min(literals, 15) << 4;
+        dst[op++] = (byte) token;
+        op = length(dst, op, literals);
+        System.arraycopy(src, anchor, dst, op, literals);
+        return op + literals;
+    }
+
+    private static int sequence(byte[] src, int from, int literals, byte[] dst, int op, int offset, int matchLen) {
+        int ml = matchLen - MIN_MATCH;
+        dst[op++] = (byte) (Math.min(literals, 15) << 4 | Math.min(ml, 15));
+        op = length(dst, op, literals);
+        System.arraycopy(src, from, dst, op, literals);
+        op += literals;
+        dst[op++] = (byte) offset;
+        dst[op++] = (byte) (offset >>> 8);
+        return length(dst, op, ml);
+    }
+
+    /** Writes the part of a length beyond the token's 15 as 255-byte steps. */
+    private static int length(byte[] dst, int op, int len) {
+        if (len < 15) return op;
+        len -= 15;
+        while (len >= 255) {
+            dst[op++] = (byte) 255;
+            len -= 255;
+        }
+        dst[op++] = (byte) len;
+        return op;
+    }
+
+    /**
+     * Decompresses {@code src[0, srcLen)} into {@code dst}, which it must fill
+     * exactly.
+     *
+     * @throws IOException if the input is not a valid block of that length
+     */
+    static void decompress(byte[] src, int srcLen, byte[] dst) throws IOException {
+        int ip = 0;
+        int op = 0;
+        try {
+            while (true) {
+                int token    = src[ip++] & 0xFF;
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        literals += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(src, ip, dst, op, literals);
+                ip += literals;
+                op += literals;
+                if (ip >= srcLen) break;
+
+                int offset = (src[ip] & 0xFF) | (src[ip + 1] & 0xFF) << 8;
+                ip += 2;
+                int matchLen = token & 0x0F;
+                if (matchLen == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        matchLen += b;
+                    } while (b == 255);
+                }
+                matchLen += MIN_MATCH;
+                if (offset == 0 || offset > op || op + matchLen > dst.length) throw new IOException("Corrupt block");
+                int ref = op - offset;
+                if (offset >= matchLen) {
+                    System.arraycopy(dst, ref, dst, op, matchLen);
+                } else {
+                    for (int i = 0; i < matchLen; i++) dst[op + i] = dst[ref + i];   // overlapping: a repeated run
+                }
+                op += matchLen;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt block", e);
+        }
+        if (ip != srcLen || op != dst.length) throw new IOException("Corrupt block");
+    }
+}
@@ -0,0 +1,213 @@
+package com.expenseguard.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Counts the statements one logical operation (a service call, a panel
+ * refresh, an API request) sends to the database, to catch N+1 query
+ * patterns: a loop running the same query once per row.
+ *
+ * <pre>
+ * try (QueryGuard.Scope s = QueryGuard.open("BudgetPanel.refresh")) {
+ *     ... DAO calls on this thread ...
+ * }
+ * </pre>
+ *
+ * <p>{@link DatabaseConnection} hands out connections wrapped so that every
+ * execution on this thread is counted in its open scope, by SQL shape: the
+ * {@link SqlStatement} name, else the SQL with its literals replaced. A batch
+ * counts once. When the scope closes having run more than its budget of
+ * statements, or one shape more than {@code -Dexpenseguard.db.queryRepeatLimit}
+ * times (default 10), it is reported according to
+ * {@code -Dexpenseguard.db.queryGuard}: {@code warn} (the default) logs it,
+ * {@code fail} throws {@link TooManyQueriesException} (for test runs),
+ * {@code off} wraps nothing. Scopes opened inside a scope join it.
+ */
+public final class QueryGuard {
+
+    private static final Logger LOGGER = Logger.getLogger(QueryGuard.class.getName());
+
+    public enum Mode { OFF, WARN, FAIL }
+
+    private static final Mode MODE =
+        Mode.valueOf(System.getProperty("expenseguard.db.queryGuard", "warn").toUpperCase(Locale.ROOT));
+    private static final int  BUDGET       = Integer.getInteger("expenseguard.db.queryBudget", 50);
+    private static final int  REPEAT_LIMIT = Integer.getInteger("expenseguard.db.queryRepeatLimit", 10);
+
+    private static final Pattern LITERAL = Pattern.compile("'[^']*'|\\b\\d+(\\.\\d+)?\\b");
+    private static final Pattern SPACE   = Pattern.compile("\\s+");
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private QueryGuard() {}
+
+    public static Mode mode() {
+        return MODE;
+    }
+
+    /** Opens a scope with the default budget ({@code -Dexpenseguard.db.queryBudget}, default 50). */
+    public static Scope open(String operation) {
+        return open(operation, BUDGET);
+    }
+
+    /** Opens a scope allowed {@code budget} statements; inside another scope, joins that one. */
+    public static Scope open(String operation, int budget) {
+        Scope outer = CURRENT.get();
+        if (outer != null) return outer.join();
+        Scope s = new Scope(operation, budget);
+        CURRENT.set(s);
+        return s;
+    }
+
+    /** {@code c} with its statements counted; {@code c} itself when the guard is off. */
+    static Connection wrap(Connection c) {
+        if (MODE == Mode.OFF) return c;
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+            new Class<?>[]{Connection.class}, new ConnectionHandler(c));
+    }
+
+    private static void executed(String shape) {
+        Scope s = CURRENT.get();
+        if (s != null) s.count(shape);
+    }
+
+    /** Names a statement: its {@link SqlStatement} name, else its SQL without literals. */
+    private static String shape(String sql) {
+        String name = SqlStatement.nameOf(sql);
+        if (name != null) return name;
+        String s = SPACE.matcher(LITERAL.matcher(sql).replaceAll("?")).replaceAll(" ").trim();
+        return s.length() > 120 ? s.substring(0, 117) + "..." : s;
+    }
+
+    /** Statements of one operation on one thread. */
+    public static final class Scope implements AutoCloseable {
+        private final String               operation;
+        private final int                  budget;
+        private final Map<String, Integer> shapes = new LinkedHashMap<>();
+        private int                        statements;
+        private int                        depth = 1;
+
+        private Scope(String operation, int budget) {
+            this.operation = operation;
+            this.budget    = budget;
+        }
+
+        private Scope join() {
+            depth++;
+            return this;
+        }
+
+        private void count(String shape) {
+            statements++;
+            shapes.merge(shape, 1, Integer::sum);
+        }
+
+        public String getOperation() { return operation; }
+
+        /** Statements executed so far. */
+        public int getStatements() { return statements; }
+
+        /** Executions per statement shape, in first-run order. */
+        public Map<String, Integer> getShapes() { return Collections.unmodifiableMap(shapes); }
+
+        /** What exceeds the limits, or null if nothing. */
+        public String violation() {
+            StringBuilder sb = new StringBuilder();
+            if (statements > budget) {
+                sb.append(statements).append(" statements (budget ").append(budget).append(')');
+            }
+            shapes.forEach((shape, n) -> {
+                if (n <= REPEAT_LIMIT) return;
+                sb.append(sb.length() == 0 ? "" : "; ").append(shape).append(" ran ").append(n).append(" times");
+            });
+            return sb.length() == 0 ? null : operation + ": " + sb;
+        }
+
+        /** Ends the scope (unless it was joined) and reports a violation. */
+        @Override
+        public void close() {
+            if (--depth > 0) return;
+            CURRENT.remove();
+            String v = violation();
+            if (v == null) return;
+            if (MODE == Mode.FAIL) throw new TooManyQueriesException(v);
+            LOGGER.warning("Possible N+1 queries in " + v);
+        }
+    }
+
+    /** Wraps the statements a connection creates. */
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":   return proxy == args[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                default:         break;
+            }
+            Object result = call(target, method, args);
+            return switch (method.getName()) {
+                case "createStatement"  -> statement(Statement.class, result, null);
+                case "prepareStatement" -> statement(PreparedStatement.class, result, (String) args[0]);
+                case "prepareCall"      -> statement(CallableStatement.class, result, (String) args[0]);
+                default                 -> result;
+            };
+        }
+    }
+
+    private static Object statement(Class<?> type, Object statement, String sql) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+            new StatementHandler(statement, sql == null ? null : shape(sql)));
+    }
+
+    /** Counts a statement's executions. */
+    private static final class StatementHandler implements InvocationHandler {
+        private final Object target;
+        private final String shape;   // of the prepared SQL; null for a plain statement
+
+        StatementHandler(Object target, String shape) {
+            this.target = target;
+            this.shape  = shape;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                executed(shape != null ? shape : sql != null ? shape(sql) : "batch");
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            return call(target, method, args);
+        }
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -51,6 +51,164 @@ public class SchemaInitializer {
                 )
             """);
 
+            // Multi-currency: amounts are stored in their own currency
+            stmt.executeUpdate("ALTER TABLE expenses ADD COLUMN IF NOT EXISTS currency VARCHAR(3) NOT NULL DEFAULT 'USD'");
+            stmt.executeUpdate("ALTER TABLE budgets  ADD COLUMN IF NOT EXISTS currency VARCHAR(3) NOT NULL DEFAULT 'USD'");
+
+            // Daily FX rates: value of one unit of currency in the pivot currency
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS fx_rates (
+                    currency    VARCHAR(3) NOT NULL,
+                    rate_date   DATE NOT NULL,
+                    rate        NUMERIC(18,8) NOT NULL,
+                    PRIMARY KEY (currency, rate_date)
+                )
+            """);
+
+            // Recurring expense templates; occurrences are rows in expenses
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS recurring_expenses (
+                    id             SERIAL PRIMARY KEY,
+                    category_id    INTEGER REFERENCES categories(id) ON DELETE CASCADE,
+                    description    VARCHAR(255) NOT NULL,
+                    amount         DECIMAL(12,2) NOT NULL,
+                    currency       VARCHAR(3) NOT NULL DEFAULT 'USD',
+                    notes          TEXT,
+                    rule           VARCHAR(255) NOT NULL,
+                    start_date     DATE NOT NULL,
+                    last_generated DATE,
+                    active         BOOLEAN NOT NULL DEFAULT TRUE
+                )
+            """);
+            stmt.executeUpdate("""
+                ALTER TABLE expenses ADD COLUMN IF NOT EXISTS recurring_id INTEGER
+                    REFERENCES recurring_expenses(id) ON DELETE SET NULL
+            """);
+            stmt.executeUpdate(
+                "CREATE UNIQUE INDEX IF NOT EXISTS uq_expenses_occurrence ON expenses(recurring_id, expense_date)");
+
+            // Budget alert history: one row per threshold crossing
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS budget_alerts (
+                    id            SERIAL PRIMARY KEY,
+                    category_id   INTEGER REFERENCES categories(id) ON DELETE CASCADE,
+                    month_year    VARCHAR(7) NOT NULL,
+                    threshold     INTEGER NOT NULL,
+                    rising        BOOLEAN NOT NULL,
+                    level         INTEGER NOT NULL,
+                    usage_percent NUMERIC(7,2) NOT NULL,
+                    spent_amount  DECIMAL(12,2) NOT NULL,
+                    limit_amount  DECIMAL(12,2) NOT NULL,
+                    currency      VARCHAR(3) NOT NULL,
+                    created_at    TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """);
+            stmt.executeUpdate(
+                "CREATE INDEX IF NOT EXISTS idx_budget_alerts_key ON budget_alerts(category_id, month_year, id)");
+
+            // Hard-limit budgets reject expenses that would exceed them
+            stmt.executeUpdate("ALTER TABLE budgets ADD COLUMN IF NOT EXISTS hard_limit BOOLEAN NOT NULL DEFAULT FALSE");
+
+            // Idempotency key of inserts replayed from the write-behind journal
+            stmt.executeUpdate("ALTER TABLE expenses ADD COLUMN IF NOT EXISTS client_ref VARCHAR(36)");
+            stmt.executeUpdate(
+                "CREATE UNIQUE INDEX IF NOT EXISTS uq_expenses_client_ref ON expenses(client_ref)");
+
+            // Row version: offline edits are only synced onto the version they were made on
+            stmt.executeUpdate("ALTER TABLE expenses ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 1");
+
+            // Keyset pagination of the HTTP API (newest first)
+            stmt.executeUpdate(
+                "CREATE INDEX IF NOT EXISTS idx_expenses_page ON expenses(expense_date DESC, id DESC)");
+
+            // Report statistics: sketches per category and month, dropped by the
+            // statement-level triggers when the month's expenses change (see ExpenseSketches)
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS expense_sketches (
+                    category_id  INTEGER REFERENCES categories(id) ON DELETE CASCADE,
+                    month        DATE NOT NULL,                -- first day of the month
+                    currency     VARCHAR(3) NOT NULL,          -- amounts converted into this currency
+                    item_count   INTEGER NOT NULL,
+                    amounts      BYTEA NOT NULL,               -- KLL quantile sketch of the amounts
+                    merchants    BYTEA NOT NULL,               -- HyperLogLog of the descriptions
+                    PRIMARY KEY (category_id, month)
+                )
+            """);
+            stmt.executeUpdate("""
+                CREATE OR REPLACE FUNCTION expense_sketches_invalidate() RETURNS trigger AS $$
+                DECLARE
+                    changed TEXT;
+                    key     RECORD;
+                    cats    INTEGER[] := '{}';
+                    months  DATE[]    := '{}';
+                    stale   TID[];
+                BEGIN
+                    -- The rows whose sketch changes: all inserted or deleted ones, and both
+                    -- sides of updates to a column the sketches depend on
+                    changed := CASE TG_OP
+                        WHEN 'INSERT' THEN 'SELECT category_id, expense_date FROM new_rows'
+                        WHEN 'DELETE' THEN 'SELECT category_id, expense_date FROM old_rows'
+                        ELSE 'SELECT x.category_id, x.expense_date FROM old_rows o JOIN new_rows n ON n.id = o.id, '
+                          || 'LATERAL (VALUES (o.category_id, o.expense_date), (n.category_id, n.expense_date)) '
+                          || 'AS x(category_id, expense_date) '
+                          || 'WHERE (o.category_id, o.amount, o.currency, o.expense_date, o.description) '
+                          || 'IS DISTINCT FROM (n.category_id, n.amount, n.currency, n.expense_date, n.description)'
+                    END;
+                    -- Each (category, month) once, locked in key order so writers never wait on each other in a cycle
+                    FOR key IN EXECUTE 'SELECT DISTINCT category_id, date_trunc(''month'', expense_date)::date AS month FROM ('
+                                     || changed || ') c WHERE category_id IS NOT NULL ORDER BY 1, 2' LOOP
+                        PERFORM pg_advisory_xact_lock_shared((key.category_id::bigint << 32)
+                            | (EXTRACT(YEAR FROM key.month)::int * 100 + EXTRACT(MONTH FROM key.month)::int));
+                        cats   := cats   || key.category_id;
+                        months := months || key.month;
+                    END LOOP;
+                    -- Deletes exactly the sketch rows locked here, in key order
+                    IF cardinality(cats) > 0 THEN
+                        SELECT array_agg(l.ctid) INTO stale FROM (
+                            SELECT s.ctid FROM expense_sketches s JOIN unnest(cats, months) AS u(category_id, month)
+                                ON s.category_id = u.category_id AND s.month = u.month
+                             ORDER BY s.category_id, s.month FOR UPDATE OF s) l;
+                        DELETE FROM expense_sketches WHERE ctid = ANY(stale);
+                    END IF;
+                    RETURN NULL;
+                END
+                $$ LANGUAGE plpgsql
+            """);
+            stmt.executeUpdate("DROP TRIGGER IF EXISTS trg_expense_sketches ON expenses");   // the former row-level trigger
+            stmt.executeUpdate("DROP TRIGGER IF EXISTS trg_expense_sketches_insert ON expenses");
+            stmt.executeUpdate("""
+                CREATE TRIGGER trg_expense_sketches_insert AFTER INSERT ON expenses
+                    REFERENCING NEW TABLE AS new_rows
+                    FOR EACH STATEMENT EXECUTE FUNCTION expense_sketches_invalidate()
+            """);
+            stmt.executeUpdate("DROP TRIGGER IF EXISTS trg_expense_sketches_update ON expenses");
+            stmt.executeUpdate("""
+                CREATE TRIGGER trg_expense_sketches_update AFTER UPDATE ON expenses
+                    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+                    FOR EACH STATEMENT EXECUTE FUNCTION expense_sketches_invalidate()
+            """);
+            stmt.executeUpdate("DROP TRIGGER IF EXISTS trg_expense_sketches_delete ON expenses");
+            stmt.executeUpdate("""
+                CREATE TRIGGER trg_expense_sketches_delete AFTER DELETE ON expenses
+                    REFERENCING OLD TABLE AS old_rows
+                    FOR EACH STATEMENT EXECUTE FUNCTION expense_sketches_invalidate()
+            """);
+
+            // Receipt attachments: metadata only, the files are in the blob store (see BlobStore)
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS expense_attachments (
+                    id            SERIAL PRIMARY KEY,
+                    expense_id    INTEGER NOT NULL REFERENCES expenses(id) ON DELETE CASCADE,
+                    sha256        CHAR(64) NOT NULL,
+                    file_name     VARCHAR(255) NOT NULL,
+                    content_type  VARCHAR(100),
+                    size_bytes    BIGINT NOT NULL,
+                    created_at    TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """);
+            stmt.executeUpdate(
+                "CREATE INDEX IF NOT EXISTS idx_expense_attachments_expense ON expense_attachments(expense_id)");
+
             // Seed default categories if none exist
             stmt.executeUpdate("""
                 INSERT INTO categories (name, description)
@@ -0,0 +1,175 @@
+package com.expenseguard.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.logging.*;
+import java.util.regex.Pattern;
+
+/**
+ * Logs DAO statements that exceed a latency threshold and captures their
+ * execution plan in the background.
+ *
+ * <p>A slow statement is logged immediately with its SQL, as its
+ * {@link SqlStatement} declares it, and the parameters bound to it (recorded
+ * by {@link StatementCache}). Its plan is then fetched asynchronously on a
+ * dedicated connection with the same parameters –
+ * {@code EXPLAIN (ANALYZE, BUFFERS)} for statements declared
+ * {@link SqlStatement#readOnly read-only}, plain {@code EXPLAIN} for all
+ * others (writes, locks) so nothing with an effect is executed twice – and
+ * appended to a rotating plan file together with a fingerprint of the plan shape. A changed fingerprint for
+ * the same query is logged as a warning.
+ *
+ * <table>
+ *   <caption>System properties</caption>
+ *   <tr><td>{@code expenseguard.slowQuery.thresholdMs}</td><td>threshold, default 250; 0 or less disables</td></tr>
+ *   <tr><td>{@code expenseguard.slowQuery.explainIntervalSec}</td><td>min. seconds between plan captures per query, default 300</td></tr>
+ *   <tr><td>{@code expenseguard.slowQuery.dir}</td><td>plan file directory, default {@code ~/.expenseguard}</td></tr>
+ * </table>
+ */
+public final class SlowQueryLog {
+
+    private static final Logger LOGGER = Logger.getLogger(SlowQueryLog.class.getName());
+    private static final Logger PLANS  = Logger.getLogger("com.expenseguard.slowplans");
+
+    private static final long THRESHOLD_NANOS;
+    private static final long EXPLAIN_INTERVAL_NANOS =
+        TimeUnit.SECONDS.toNanos(Long.getLong("expenseguard.slowQuery.explainIntervalSec", 300L));
+
+    private static final int PLAN_FILE_LIMIT = 5 * 1024 * 1024;
+    private static final int PLAN_FILE_COUNT = 5;
+
+    private static final Map<String, Long>   lastCapture  = new ConcurrentHashMap<>();
+    private static final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+
+    private static final Pattern PARENS  = Pattern.compile("\\s*\\([^()]*\\)");
+    private static final Pattern LITERAL = Pattern.compile("'[^']*'(::\\w+)?|\\b\\d+(\\.\\d+)?\\b");
+
+    private static ExecutorService explainer;
+    private static Connection      explainConn;
+
+    static {
+        long ms = Long.getLong("expenseguard.slowQuery.thresholdMs", 250L);
+        THRESHOLD_NANOS = ms > 0 ? TimeUnit.MILLISECONDS.toNanos(ms) : Long.MAX_VALUE;
+    }
+
+    private SlowQueryLog() {}
+
+    public static long thresholdNanos() {
+        return THRESHOLD_NANOS;
+    }
+
+    /** Called by the query timer, on the calling thread, while {@code statement} is still open. */
+    public static void report(SqlStatement sql, long nanos, Statement statement) {
+        String       name       = sql.getName();
+        List<Object> parameters = StatementCache.parameters(statement);
+        LOGGER.warning(String.format("Slow query %s took %.1f ms: %s%s", name, nanos / 1e6, sql.getSql(),
+                                     parameters == null ? "" : " " + parameters));
+        if (parameters == null && sql.getSql().indexOf('?') >= 0) {
+            LOGGER.fine("Parameters of " + name + " not recorded, no plan captured");
+            return;
+        }
+
+        long now = System.nanoTime();
+        Long last = lastCapture.get(name);
+        if (last != null && now - last < EXPLAIN_INTERVAL_NANOS) return;
+        lastCapture.put(name, now);
+        try {
+            executor().execute(() -> capture(sql, nanos, parameters));
+        } catch (RejectedExecutionException e) {
+            LOGGER.fine("Plan capture queue full, skipping " + name);
+        }
+    }
+
+    private static synchronized ExecutorService executor() {
+        if (explainer == null) {
+            explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(16), r -> {
+                    Thread t = new Thread(r, "slow-query-explain");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+            initPlanFile();
+        }
+        return explainer;
+    }
+
+    private static void capture(SqlStatement sql, long nanos, List<Object> parameters) {
+        String name    = sql.getName();
+        String explain = (sql.isReadOnly() ? "EXPLAIN (ANALYZE, BUFFERS) " : "EXPLAIN ") + sql.getSql();
+
+        StringBuilder plan = new StringBuilder();
+        try (PreparedStatement ps = connection().prepareStatement(explain)) {
+            if (parameters != null) {
+                for (int i = 0; i < parameters.size(); i++) ps.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) plan.append(rs.getString(1)).append('\n');
+            }
+        } catch (SQLException e) {
+            LOGGER.warning("Could not capture plan for " + name + ": " + e.getMessage());
+            return;
+        }
+
+        String fp = fingerprint(plan.toString());
+        String previous = fingerprints.put(name, fp);
+        if (previous != null && !previous.equals(fp)) {
+            LOGGER.warning("Plan for " + name + " changed: " + previous + " -> " + fp);
+        }
+        PLANS.info(String.format("=== %s %s %.1f ms fingerprint=%s%nSQL: %s%nParameters: %s%n%s",
+            LocalDateTime.now(), name, nanos / 1e6, fp, sql.getSql(), parameters == null ? "[]" : parameters, plan));
+    }
+
+    /** Hash of the plan's node structure with costs, timings and literals removed. */
+    static String fingerprint(String plan) {
+        StringBuilder shape = new StringBuilder();
+        for (String line : plan.split("\n")) {
+            String l = line.strip();
+            if (l.isEmpty() || l.startsWith("Buffers:") || l.startsWith("Planning")
+                || l.startsWith("Execution") || l.startsWith("Rows Removed")
+                || l.startsWith("Heap Blocks") || l.startsWith("I/O Timings")) continue;
+            l = PARENS.matcher(l.replace("->", "")).replaceAll("");
+            shape.append(LITERAL.matcher(l).replaceAll("?").strip()).append('\n');
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                                       .digest(shape.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(shape.toString().hashCode());
+        }
+    }
+
+    private static Connection connection() throws SQLException {
+        if (explainConn == null || explainConn.isClosed()) {
+            explainConn = DriverManager.getConnection(
+                DatabaseConnection.url(), DatabaseConnection.username(), DatabaseConnection.password());
+        }
+        return explainConn;
+    }
+
+    private static void initPlanFile() {
+        File dir = new File(System.getProperty("expenseguard.slowQuery.dir",
+                                               System.getProperty("user.home") + "/.expenseguard"));
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("cannot create " + dir);
+            FileHandler fh = new FileHandler(dir.getPath() + "/slow-query-plans.%g.log",
+                                             PLAN_FILE_LIMIT, PLAN_FILE_COUNT, true);
+            fh.setFormatter(new Formatter() {
+                @Override public String format(LogRecord r) { return r.getMessage() + "\n"; }
+            });
+            PLANS.setUseParentHandlers(false);
+            PLANS.addHandler(fh);
+        } catch (IOException e) {
+            LOGGER.warning("Slow query plans will only go to the console: " + e.getMessage());
+        }
+    }
+}
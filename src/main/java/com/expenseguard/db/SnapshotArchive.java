@@ -0,0 +1,303 @@
+package com.expenseguard.db;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+
+/**
+ * File format of database snapshots: one section per table, each holding the
+ * table's {@code COPY ... (FORMAT binary)} stream.
+ *
+ * <pre>
+ * file    = MAGIC FORMAT created:long section* END
+ * section = SECTION table:str columns:str frame* 0:int rows:long
+ * frame   = rawLength:int compressedLength:int crc32c(raw):int LZ4 block
+ * str     = length:short UTF-8 bytes
+ * </pre>
+ *
+ * <p>The stream is cut into {@value #FRAME_SIZE}-byte frames that are
+ * compressed (see {@link Lz4Block}) and decompressed on a pool of one thread
+ * per core, up to twice that many frames ahead of the file, so compression
+ * keeps up with the disk. A frame whose checksum does not match fails the read.
+ */
+public final class SnapshotArchive {
+
+    private static final int  MAGIC      = 0x45475342;   // "EGSB"
+    private static final int  FORMAT     = 1;
+    private static final byte SECTION    = 1;
+    private static final byte END        = 0;
+    public  static final int  FRAME_SIZE = 1 << 20;
+
+    private static final int  THREADS   = Runtime.getRuntime().availableProcessors();
+    private static final int  IN_FLIGHT = THREADS * 2;
+
+    private SnapshotArchive() {}
+
+    private static ExecutorService pool(String name) {
+        return Executors.newFixedThreadPool(THREADS, r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // ── writing ──────────────────────────────────────────────────────────────
+
+    /** Writes a snapshot file; sections are written one after the other. */
+    public static final class Writer implements AutoCloseable {
+        private final FileChannel     channel;
+        private final ExecutorService pool = pool("snapshot-compress");
+        private SectionStream         open;
+
+        public Writer(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                       StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer header = ByteBuffer.allocate(16);
+            header.putInt(MAGIC).putInt(FORMAT).putLong(System.currentTimeMillis()).flip();
+            writeFully(header);
+        }
+
+        /** Starts a section; write the table's stream to what it returns, then {@link #endSection}. */
+        public OutputStream beginSection(String table, String columns) throws IOException {
+            if (open != null) throw new IllegalStateException("Section " + open.table + " not ended");
+            byte[] t = table.getBytes(StandardCharsets.UTF_8);
+            byte[] c = columns.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buf = ByteBuffer.allocate(1 + 2 + t.length + 2 + c.length);
+            buf.put(SECTION).putShort((short) t.length).put(t).putShort((short) c.length).put(c).flip();
+            writeFully(buf);
+            return open = new SectionStream(table);
+        }
+
+        /** Ends the open section, recording the number of rows it holds. */
+        public void endSection(long rows) throws IOException {
+            open.flushFrame();
+            open.drain(0);
+            open = null;
+            ByteBuffer buf = ByteBuffer.allocate(12);
+            buf.putInt(0).putLong(rows).flip();
+            writeFully(buf);
+        }
+
+        /** Marks the snapshot complete; a file closed without it cannot be restored. */
+        public void finish() throws IOException {
+            if (open != null) throw new IllegalStateException("Section " + open.table + " not ended");
+            writeFully(ByteBuffer.wrap(new byte[]{END}));
+            channel.force(false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            pool.shutdownNow();
+            channel.close();
+        }
+
+        private void writeFully(ByteBuffer... buffers) throws IOException {
+            long remaining = 0;
+            for (ByteBuffer b : buffers) remaining += b.remaining();
+            while (remaining > 0) remaining -= channel.write(buffers);
+        }
+
+        /** Cuts what it is given into frames and hands them to the pool in order. */
+        private final class SectionStream extends OutputStream {
+            final String  table;
+            final ArrayDeque<Future<ByteBuffer[]>> pending = new ArrayDeque<>();
+            byte[]        frame = new byte[FRAME_SIZE];
+            int           size;
+
+            SectionStream(String table) {
+                this.table = table;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                if (size == frame.length) flushFrame();
+                frame[size++] = (byte) b;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    if (size == frame.length) flushFrame();
+                    int n = Math.min(len, frame.length - size);
+                    System.arraycopy(b, off, frame, size, n);
+                    size += n;
+                    off  += n;
+                    len  -= n;
+                }
+            }
+
+            void flushFrame() throws IOException {
+                if (size == 0) return;
+                byte[] raw = frame;
+                int    len = size;
+                pending.add(pool.submit(() -> compress(raw, len)));
+                frame = new byte[FRAME_SIZE];
+                size  = 0;
+                drain(IN_FLIGHT);
+            }
+
+            /** Writes finished frames, oldest first, until at most {@code keep} are pending. */
+            void drain(int keep) throws IOException {
+                while (pending.size() > keep) writeFully(await(pending.poll()));
+            }
+        }
+    }
+
+    private static ByteBuffer[] compress(byte[] raw, int len) {
+        CRC32C crc = new CRC32C();
+        crc.update(raw, 0, len);
+        byte[] out = new byte[Lz4Block.maxCompressedLength(len)];
+        int    n   = Lz4Block.compress(raw, len, out);
+        ByteBuffer header = ByteBuffer.allocate(12);
+        header.putInt(len).putInt(n).putInt((int) crc.getValue()).flip();
+        return new ByteBuffer[]{header, ByteBuffer.wrap(out, 0, n)};
+    }
+
+    // ── reading ──────────────────────────────────────────────────────────────
+
+    /** Reads a snapshot file section by section. */
+    public static final class Reader implements AutoCloseable {
+        private final FileChannel     channel;
+        private final ExecutorService pool = pool("snapshot-decompress");
+        private final long            created;
+        private String                table;
+        private String                columns;
+        private long                  rows = -1;
+
+        public Reader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            ByteBuffer header = read(16);
+            if (header.getInt() != MAGIC) throw new IOException(file + " is not a snapshot");
+            int format = header.getInt();
+            if (format != FORMAT) throw new IOException("Unsupported snapshot format " + format);
+            created = header.getLong();
+        }
+
+        /** When the snapshot was taken, in epoch milliseconds. */
+        public long created() { return created; }
+
+        /** File size and bytes read so far, for progress. */
+        public long size()     throws IOException { return channel.size(); }
+        public long position() throws IOException { return channel.position(); }
+
+        /** Moves to the next section; false at the end of the snapshot. */
+        public boolean nextSection() throws IOException {
+            if (table != null && rows < 0) throw new IllegalStateException("Section " + table + " not read to its end");
+            byte kind = read(1).get();
+            if (kind == END) return false;
+            if (kind != SECTION) throw new IOException("Corrupt snapshot: unexpected record " + kind);
+            table   = readString();
+            columns = readString();
+            rows    = -1;
+            return true;
+        }
+
+        public String table()   { return table; }
+        public String columns() { return columns; }
+
+        /** The rows the section holds, known once {@link #data()} was read to its end. */
+        public long rows()      { return rows; }
+
+        /** The current section's stream, decompressed ahead on the pool. */
+        public InputStream data() {
+            return new SectionInput();
+        }
+
+        @Override
+        public void close() throws IOException {
+            pool.shutdownNow();
+            channel.close();
+        }
+
+        private String readString() throws IOException {
+            int len = Short.toUnsignedInt(read(2).getShort());
+            return StandardCharsets.UTF_8.decode(read(len)).toString();
+        }
+
+        private ByteBuffer read(int n) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(n);
+            while (buf.hasRemaining()) {
+                if (channel.read(buf) < 0) throw new EOFException("Snapshot ends early");
+            }
+            return buf.flip();
+        }
+
+        private final class SectionInput extends InputStream {
+            final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+            boolean ended;                // the end marker was read
+            byte[]  current = new byte[0];
+            int     pos;
+
+            @Override
+            public int read() throws IOException {
+                if (pos == current.length && !next()) return -1;
+                return current[pos++] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) return 0;
+                if (pos == current.length && !next()) return -1;
+                int n = Math.min(len, current.length - pos);
+                System.arraycopy(current, pos, b, off, n);
+                pos += n;
+                return n;
+            }
+
+            private boolean next() throws IOException {
+                while (!ended && pending.size() < IN_FLIGHT) {
+                    ByteBuffer header = Reader.this.read(4);
+                    int raw = header.getInt();
+                    if (raw == 0) {
+                        rows  = Reader.this.read(8).getLong();
+                        ended = true;
+                        break;
+                    }
+                    ByteBuffer rest = Reader.this.read(8);
+                    int compressed = rest.getInt();
+                    int crc        = rest.getInt();
+                    if (raw < 0 || raw > FRAME_SIZE || compressed < 0) throw new IOException("Corrupt snapshot frame in " + table);
+                    byte[] in = Reader.this.read(compressed).array();
+                    pending.add(pool.submit(() -> decompress(in, raw, crc)));
+                }
+                if (pending.isEmpty()) return false;
+                current = await(pending.poll());
+                pos     = 0;
+                return true;
+            }
+        }
+    }
+
+    private static byte[] decompress(byte[] in, int raw, int crc) throws IOException {
+        byte[] out = new byte[raw];
+        Lz4Block.decompress(in, in.length, out);
+        CRC32C check = new CRC32C();
+        check.update(out, 0, raw);
+        if ((int) check.getValue() != crc) throw new IOException("Snapshot frame checksum mismatch");
+        return out;
+    }
+
+    private static <T> T await(Future<T> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
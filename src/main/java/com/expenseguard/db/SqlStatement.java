@@ -0,0 +1,71 @@
+package com.expenseguard.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A named, constant SQL statement, declared once by the DAO that runs it:
+ *
+ * <pre>
+ * private static final SqlStatement FIND_BY_MONTH = new SqlStatement("ExpenseDAO.findByMonth",
+ *     "SELECT ... WHERE b.month_year = ?");
+ *
+ * try (PreparedStatement ps = FIND_BY_MONTH.prepare(conn());
+ *      QueryTimer t = QueryMetrics.start(FIND_BY_MONTH, ps)) { ... }
+ * </pre>
+ *
+ * <p>Statements that only read are declared with {@link #readOnly}; the slow
+ * query log executes those again to capture their actual plan, and only
+ * explains the others. A {@code SELECT} that takes a lock or a {@code WITH}
+ * that writes is not read-only.
+ *
+ * <p>{@link #prepare} hands out a statement kept prepared on the server for
+ * that connection (see {@link StatementCache}); closing it returns it for the
+ * next call instead of discarding the plan.
+ */
+public final class SqlStatement {
+
+    private static final Map<String, String> NAMES = new ConcurrentHashMap<>();   // by SQL
+
+    private final String  name;
+    private final String  sql;
+    private final boolean readOnly;
+
+    public SqlStatement(String name, String sql) {
+        this(name, sql, false);
+    }
+
+    private SqlStatement(String name, String sql, boolean readOnly) {
+        this.name     = name;
+        this.sql      = sql;
+        this.readOnly = readOnly;
+        NAMES.putIfAbsent(sql, name);
+    }
+
+    /** A statement that reads and changes nothing, so it may safely be run twice. */
+    public static SqlStatement readOnly(String name, String sql) {
+        return new SqlStatement(name, sql, true);
+    }
+
+    /** Name of the statement declared with {@code sql}, or null. */
+    static String nameOf(String sql) {
+        return NAMES.get(sql);
+    }
+
+    public String  getName()    { return name; }
+    public String  getSql()     { return sql; }
+    public boolean isReadOnly() { return readOnly; }
+
+    /** A prepared statement for this SQL on {@code c}; close it as usual when done. */
+    public PreparedStatement prepare(Connection c) throws SQLException {
+        return StatementCache.of(c).take(this);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,206 @@
+package com.expenseguard.db;
+
+import com.expenseguard.metrics.QueryMetrics;
+import org.postgresql.PGStatement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * The {@link SqlStatement}s kept prepared on one connection.
+ *
+ * <p>Statements not in use are held in an LRU of at most
+ * {@code -Dexpenseguard.db.statementCacheSize} entries per connection
+ * (default 64; 0 prepares every statement afresh). They are server-side
+ * prepared on their first execution, so PostgreSQL parses and plans each
+ * query once per connection rather than once per call. A statement in use
+ * is taken out of the cache, so two threads sharing a connection never bind
+ * parameters on the same one; the second simply prepares its own.
+ *
+ * <p>Reuses, prepares and evictions are counted per statement name in
+ * {@link QueryMetrics}. While the slow query log is on, the parameters bound
+ * to a statement handed out are remembered until it is returned, for
+ * {@link #parameters}.
+ */
+final class StatementCache {
+
+    private static final Logger LOGGER = Logger.getLogger(StatementCache.class.getName());
+
+    private static final int CAPACITY = Integer.getInteger("expenseguard.db.statementCacheSize", 64);
+
+    private static final boolean RECORD_PARAMETERS = SlowQueryLog.thresholdNanos() != Long.MAX_VALUE;
+
+    private static final Map<Connection, StatementCache> CACHES = new ConcurrentHashMap<>();
+
+    private final Connection connection;
+    private final LinkedHashMap<SqlStatement, Lease> idle =
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SqlStatement, Lease> eldest) {
+                if (size() <= CAPACITY) return false;
+                QueryMetrics.stats(eldest.getKey().getName()).statementEvicted();
+                eldest.getValue().discard();
+                return true;
+            }
+        };
+
+    private StatementCache(Connection connection) {
+        this.connection = connection;
+    }
+
+    /** The cache of {@code c}; caches of connections closed since are dropped. */
+    static StatementCache of(Connection c) {
+        StatementCache cache = CACHES.get(c);
+        if (cache != null) return cache;
+        CACHES.keySet().removeIf(StatementCache::isClosed);
+        return CACHES.computeIfAbsent(c, StatementCache::new);
+    }
+
+    /**
+     * Forgets the cache of {@code c} and closes its idle statements; called
+     * for each connection {@link DatabaseConnection} closes or finds closed,
+     * so the map never keeps a dead connection reachable.
+     */
+    static void drop(Connection c) {
+        StatementCache cache = CACHES.remove(c);
+        if (cache == null) return;
+        synchronized (cache) {
+            for (Lease lease : cache.idle.values()) lease.discard();
+            cache.idle.clear();
+        }
+    }
+
+    PreparedStatement take(SqlStatement s) throws SQLException {
+        if (CAPACITY <= 0) return connection.prepareStatement(s.getSql());
+        Lease lease;
+        synchronized (this) {
+            lease = idle.remove(s);
+        }
+        if (lease != null) {
+            QueryMetrics.stats(s.getName()).statementReused();
+        } else {
+            QueryMetrics.stats(s.getName()).statementPrepared();
+            lease = new Lease(s, connection.prepareStatement(s.getSql()));
+        }
+        lease.returned = false;
+        return lease.proxy;
+    }
+
+    private void give(Lease lease) {
+        synchronized (this) {
+            if (!idle.containsKey(lease.sql)) {
+                idle.put(lease.sql, lease);
+                return;
+            }
+        }
+        lease.discard();   // another copy is already cached
+    }
+
+    /**
+     * The parameters bound so far to {@code statement}, by index from 1 (unset
+     * ones null); null when it was not handed out by a cache or nothing was recorded.
+     */
+    static List<Object> parameters(Statement statement) {
+        if (!Proxy.isProxyClass(statement.getClass())
+            || !(Proxy.getInvocationHandler(statement) instanceof Lease lease)) return null;
+        return lease.bound == 0 ? null : Arrays.asList(Arrays.copyOf(lease.parameters, lease.bound));
+    }
+
+    private static boolean isClosed(Connection c) {
+        try {
+            return c.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    /** One cached statement, handed out as a proxy whose {@code close()} returns it. */
+    private final class Lease implements InvocationHandler {
+
+        final SqlStatement      sql;
+        final PreparedStatement statement;
+        final PreparedStatement proxy;
+        volatile boolean        returned;
+        Object[]                parameters = new Object[8];
+        int                     bound;
+
+        Lease(SqlStatement sql, PreparedStatement statement) throws SQLException {
+            this.sql       = sql;
+            this.statement = statement;
+            this.proxy     = (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, this);
+            if (statement.isWrapperFor(PGStatement.class)) {
+                // Use a named server-side statement from the first execution, not the fifth
+                statement.unwrap(PGStatement.class).setPrepareThreshold(1);
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) release();
+                    return null;
+                case "isClosed":
+                    return returned || statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    if (returned) throw new SQLException("Statement " + sql + " is closed");
+                    if (RECORD_PARAMETERS && args != null && args.length >= 2 && args[0] instanceof Integer i
+                        && method.getName().startsWith("set")) {
+                        bind(i, method.getName().equals("setNull") ? null : args[1]);
+                    }
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+
+        private void bind(int index, Object value) {
+            if (index < 1) return;
+            if (index > parameters.length) parameters = Arrays.copyOf(parameters, Math.max(index, 2 * parameters.length));
+            parameters[index - 1] = value;
+            bound = Math.max(bound, index);
+        }
+
+        private void release() {
+            returned = true;
+            Arrays.fill(parameters, 0, bound, null);
+            bound = 0;
+            try {
+                if (statement.isClosed()) return;
+                statement.clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                discard();
+                return;
+            }
+            give(this);
+        }
+
+        void discard() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                LOGGER.fine("Closing cached statement " + sql + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.expenseguard.db;
+
+/**
+ * Thrown when a {@link QueryGuard} scope ran more statements than allowed,
+ * or one statement too often, with {@code -Dexpenseguard.db.queryGuard=fail}.
+ */
+public class TooManyQueriesException extends IllegalStateException {
+
+    public TooManyQueriesException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,56 @@
+package com.expenseguard.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering one {@code ExpenseService.checkBudget} evaluation.
+ */
+@Name("com.expenseguard.BudgetCheck")
+@Label("Budget Check")
+@Category({"Expense Guard", "Service"})
+@Description("Evaluation of a category budget for one month")
+@StackTrace(false)
+public class BudgetCheckEvent extends Event {
+
+    @Label("Category Id")
+    int categoryId;
+
+    @Label("Month")
+    String month;
+
+    @Label("Outcome")
+    @Description("NO_BUDGET, OK, NEAR_LIMIT or EXCEEDED")
+    String outcome;
+
+    @Label("Usage")
+    @Percentage
+    double usage;
+
+    // Checked before allocating an event, so budget checks cost no garbage while no recording is on
+    private static final EventType BUDGET_CHECK_EVENT = EventType.getEventType(BudgetCheckEvent.class);
+
+    /** Starts timing a check; null while the event is not recorded. */
+    public static BudgetCheckEvent begin(int categoryId, String month) {
+        if (!BUDGET_CHECK_EVENT.isEnabled()) return null;
+        BudgetCheckEvent ev = new BudgetCheckEvent();
+        ev.categoryId = categoryId;
+        ev.month      = month;
+        ev.begin();
+        return ev;
+    }
+
+    /** Records the outcome and commits {@code ev}, if {@link #begin} started one. */
+    public static void complete(BudgetCheckEvent ev, String outcome, double usagePercent) {
+        if (ev == null) return;
+        ev.outcome = outcome;
+        ev.usage   = usagePercent / 100.0;
+        ev.commit();
+    }
+}
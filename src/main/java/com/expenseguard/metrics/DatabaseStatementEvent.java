@@ -0,0 +1,29 @@
+package com.expenseguard.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted for every DAO statement, timed by {@link QueryTimer}.
+ */
+@Name("com.expenseguard.DatabaseStatement")
+@Label("Database Statement")
+@Category({"Expense Guard", "Database"})
+@Description("One JDBC statement executed by a DAO")
+@StackTrace(false)
+public class DatabaseStatementEvent extends Event {
+
+    @Label("SQL Id")
+    @Description("Named query, e.g. ExpenseDAO.findByMonth")
+    String sqlId;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Failed")
+    boolean failed;
+}
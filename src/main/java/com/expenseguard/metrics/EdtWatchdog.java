@@ -0,0 +1,177 @@
+package com.expenseguard.metrics;
+
+import javax.management.ObjectName;
+import javax.swing.SwingUtilities;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Detects stalls of the Event Dispatch Thread.
+ *
+ * <p>A daemon thread posts a heartbeat to the EDT every {@value #HEARTBEAT_MS} ms.
+ * When a heartbeat has been pending for longer than the stall threshold the
+ * watchdog starts sampling the EDT's stack on every tick. Once the EDT catches
+ * up, the samples are aggregated into folded (flame-graph style) stacks and
+ * logged together with the dominant application call path, e.g.
+ * {@code ExpensesPanel.refreshData → ExpenseService.getAllExpenses → ExpenseDAO.findAll}.
+ *
+ * <table>
+ *   <caption>System properties</caption>
+ *   <tr><td>{@code expenseguard.edt.enabled}</td><td>default true</td></tr>
+ *   <tr><td>{@code expenseguard.edt.stallThresholdMs}</td><td>default 250</td></tr>
+ *   <tr><td>{@code expenseguard.edt.sampleIntervalMs}</td><td>default 20</td></tr>
+ * </table>
+ */
+public final class EdtWatchdog implements EdtWatchdogMBean {
+
+    private static final Logger LOGGER = Logger.getLogger(EdtWatchdog.class.getName());
+
+    private static final long HEARTBEAT_MS = 100;
+    private static final int  TOP_STACKS   = 5;
+    private static final String APP_PACKAGE = "com.expenseguard.";
+
+    private static EdtWatchdog instance;
+
+    private final long thresholdNanos;
+    private final long sampleMillis;
+
+    private volatile Thread edt;
+    private volatile long   pendingSince;          // 0 = no heartbeat outstanding
+    private volatile long   lastLagNanos;
+    private long            lastPost;
+
+    // Sampling state – touched only by the watchdog thread
+    private final Map<String, Integer> samples = new HashMap<>();
+    private final Map<String, StackTraceElement[]> exemplars = new HashMap<>();
+    private int sampleCount;
+
+    private final LongAdder        stalls     = new LongAdder();
+    private final LongAdder        stallNanos = new LongAdder();
+    private final AtomicLong       maxNanos   = new AtomicLong();
+    private final LatencyHistogram histogram  = new LatencyHistogram();
+    private volatile String        lastPath   = "";
+
+    private EdtWatchdog(long thresholdMillis, long sampleMillis) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.sampleMillis   = sampleMillis;
+    }
+
+    /** Starts the watchdog once; later calls are ignored. */
+    public static synchronized void start() {
+        if (instance != null
+            || !Boolean.parseBoolean(System.getProperty("expenseguard.edt.enabled", "true"))) return;
+        instance = new EdtWatchdog(Long.getLong("expenseguard.edt.stallThresholdMs", 250L),
+                                   Math.max(1, Long.getLong("expenseguard.edt.sampleIntervalMs", 20L)));
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(instance, new ObjectName("com.expenseguard:type=EdtWatchdog"));
+        } catch (Exception e) {
+            LOGGER.warning("Could not register EDT watchdog MBean: " + e.getMessage());
+        }
+        ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "edt-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        ses.scheduleAtFixedRate(instance::tick, instance.sampleMillis, instance.sampleMillis,
+                                TimeUnit.MILLISECONDS);
+    }
+
+    private void tick() {
+        try {
+            long now = System.nanoTime();
+            long pending = pendingSince;
+            if (pending == 0) {
+                if (sampleCount > 0) finishStall();
+                if (now - lastPost >= TimeUnit.MILLISECONDS.toNanos(HEARTBEAT_MS)) postHeartbeat(now);
+            } else if (now - pending >= thresholdNanos && edt != null) {
+                sample(edt.getStackTrace());
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warning("EDT watchdog tick failed: " + e);
+        }
+    }
+
+    private void postHeartbeat(long now) {
+        lastPost     = now;
+        pendingSince = now;
+        SwingUtilities.invokeLater(() -> {
+            edt          = Thread.currentThread();
+            lastLagNanos = System.nanoTime() - pendingSince;
+            pendingSince = 0;
+        });
+    }
+
+    private void sample(StackTraceElement[] stack) {
+        if (stack.length == 0) return;
+        StringBuilder folded = new StringBuilder();
+        for (int i = stack.length - 1; i >= 0; i--) {
+            folded.append(stack[i].getClassName()).append('.').append(stack[i].getMethodName());
+            if (i > 0) folded.append(';');
+        }
+        String key = folded.toString();
+        samples.merge(key, 1, Integer::sum);
+        exemplars.putIfAbsent(key, stack);
+        sampleCount++;
+    }
+
+    private void finishStall() {
+        long lag = lastLagNanos;
+        stalls.increment();
+        stallNanos.add(lag);
+        histogram.record(lag);
+        maxNanos.accumulateAndGet(lag, Math::max);
+
+        List<Map.Entry<String, Integer>> top = new ArrayList<>(samples.entrySet());
+        top.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        String path = offendingPath(exemplars.get(top.get(0).getKey()));
+        lastPath = path;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("EDT stalled for %.0f ms (%d samples). Offending path: %s",
+                                lag / 1e6, sampleCount, path));
+        sb.append("\nFolded stacks (samples  root;...;leaf):");
+        for (int i = 0; i < Math.min(TOP_STACKS, top.size()); i++) {
+            sb.append(String.format("%n%6d  %s", top.get(i).getValue(), top.get(i).getKey()));
+        }
+        LOGGER.warning(sb.toString());
+
+        samples.clear();
+        exemplars.clear();
+        sampleCount = 0;
+    }
+
+    /** Application frames of a stack, root first, as {@code Class.method → ...}. */
+    static String offendingPath(StackTraceElement[] stack) {
+        StringBuilder sb = new StringBuilder();
+        String prev = null;
+        for (int i = stack.length - 1; i >= 0; i--) {
+            String cls = stack[i].getClassName();
+            if (!cls.startsWith(APP_PACKAGE)) continue;
+            String simple = cls.substring(cls.lastIndexOf('.') + 1);
+            int inner = simple.indexOf('$');
+            if (inner > 0) simple = simple.substring(0, inner);
+            String frame = simple + "." + stack[i].getMethodName();
+            if (frame.equals(prev) || stack[i].getMethodName().startsWith("lambda$")) continue;
+            if (sb.length() > 0) sb.append(" → ");
+            sb.append(frame);
+            prev = frame;
+        }
+        return sb.length() == 0 ? "(no application frames)" : sb.toString();
+    }
+
+    @Override public long   getStallCount()       { return stalls.sum(); }
+    @Override public double getTotalStallMillis() { return stallNanos.sum() / 1e6; }
+    @Override public double getMaxStallMillis()   { return maxNanos.get() / 1e6; }
+    @Override public double getP95StallMillis()   { return histogram.percentile(95) / 1e6; }
+    @Override public String getLastOffendingPath() { return lastPath; }
+}
@@ -0,0 +1,14 @@
+package com.expenseguard.metrics;
+
+/**
+ * JMX view of the {@link EdtWatchdog}, registered as
+ * {@code com.expenseguard:type=EdtWatchdog}.
+ */
+public interface EdtWatchdogMBean {
+
+    long   getStallCount();
+    double getTotalStallMillis();
+    double getMaxStallMillis();
+    double getP95StallMillis();
+    String getLastOffendingPath();
+}
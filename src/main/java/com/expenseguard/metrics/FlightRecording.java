@@ -0,0 +1,48 @@
+package com.expenseguard.metrics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.logging.Logger;
+
+/**
+ * Starts an always-on flight recording with the bundled {@code expenseguard.jfc}
+ * profile when {@code -Dexpenseguard.jfr=true} is set.
+ *
+ * <p>The recording keeps the last {@code expenseguard.jfr.maxAgeMin} minutes
+ * (default 60) and is dumped to {@code expenseguard.jfr.file} (default
+ * {@code ~/.expenseguard/expenseguard.jfr}) on exit. The same profile can be
+ * used from the command line after extracting it from the jar:
+ * {@code -XX:StartFlightRecording:settings=expenseguard.jfc,...}.
+ */
+public final class FlightRecording {
+
+    private static final Logger LOGGER = Logger.getLogger(FlightRecording.class.getName());
+
+    private FlightRecording() {}
+
+    public static void startIfConfigured() {
+        if (!Boolean.getBoolean("expenseguard.jfr")) return;
+        try (Reader r = new InputStreamReader(
+                FlightRecording.class.getResourceAsStream("/expenseguard.jfc"), StandardCharsets.UTF_8)) {
+            Recording rec = new Recording(Configuration.create(r));
+            File out = new File(System.getProperty("expenseguard.jfr.file",
+                                System.getProperty("user.home") + "/.expenseguard/expenseguard.jfr"));
+            out.getParentFile().mkdirs();
+            rec.setName("expenseguard");
+            rec.setToDisk(true);
+            rec.setMaxAge(Duration.ofMinutes(Long.getLong("expenseguard.jfr.maxAgeMin", 60L)));
+            rec.setDumpOnExit(true);
+            rec.setDestination(out.toPath());
+            rec.start();
+            LOGGER.info("Flight recording started, dumps to " + out);
+        } catch (Exception e) {
+            LOGGER.warning("Could not start flight recording: " + e.getMessage());
+        }
+    }
+}
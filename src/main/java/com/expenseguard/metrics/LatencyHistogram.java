@@ -0,0 +1,71 @@
+package com.expenseguard.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, fixed-size latency histogram with HDR-style log-linear buckets.
+ *
+ * <p>Values (nanoseconds) are grouped by power of two and each power is split
+ * into {@value #SUB_BUCKETS} linear sub-buckets, giving a worst-case relative
+ * error of about 6 % from 1 ns up to ~18 minutes in 608 counters. Recording is
+ * a single {@code getAndIncrement} and never allocates.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS    = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXP     = 40;                       // 2^40 ns ≈ 18 min
+    private static final int BUCKETS     = (MAX_EXP - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long nanos) {
+        counts.getAndIncrement(index(Math.max(0, nanos)));
+    }
+
+    /** Value at percentile {@code p} (0–100), reported as the bucket's upper bound. */
+    public long percentile(double p) {
+        long[] snap = snapshot();
+        long total = 0;
+        for (long c : snap) total += c;
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < snap.length; i++) {
+            seen += snap[i];
+            if (seen >= rank) return upperBound(i);
+        }
+        return upperBound(snap.length - 1);
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += counts.get(i);
+        return total;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+    }
+
+    private long[] snapshot() {
+        long[] snap = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) snap[i] = counts.get(i);
+        return snap;
+    }
+
+    static int index(long v) {
+        if (v < SUB_BUCKETS) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        if (exp > MAX_EXP) return BUCKETS - 1;
+        int shift = exp - SUB_BITS;
+        return ((shift + 1) << SUB_BITS) + (int) ((v >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = (index >>> SUB_BITS) - 1;
+        long sub  = index & (SUB_BUCKETS - 1);
+        return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+}
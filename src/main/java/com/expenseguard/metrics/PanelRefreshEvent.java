@@ -0,0 +1,47 @@
+package com.expenseguard.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * JFR event covering one panel {@code refreshData()} call.
+ *
+ * <pre>
+ * PanelRefreshEvent ev = PanelRefreshEvent.begin("BudgetPanel", month);
+ * try { ... } finally { ev.commit(); }
+ * </pre>
+ */
+@Name("com.expenseguard.PanelRefresh")
+@Label("Panel Refresh")
+@Category({"Expense Guard", "UI"})
+@Description("One refreshData() call of a UI panel")
+@StackTrace(false)
+public class PanelRefreshEvent extends Event {
+
+    @Label("Panel")
+    String panel;
+
+    @Label("Month")
+    String month;
+
+    @Label("On EDT")
+    @Description("Whether the refresh ran on the Event Dispatch Thread")
+    boolean onEdt;
+
+    public static PanelRefreshEvent begin(String panel, String month) {
+        PanelRefreshEvent ev = new PanelRefreshEvent();
+        if (ev.isEnabled()) {
+            ev.panel = panel;
+            ev.month = month;
+            ev.onEdt = SwingUtilities.isEventDispatchThread();
+        }
+        ev.begin();
+        return ev;
+    }
+}
@@ -0,0 +1,87 @@
+package com.expenseguard.metrics;
+
+import com.expenseguard.db.SqlStatement;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Registry of per-query statistics recorded by the DAOs.
+ *
+ * <p>Every named query gets a {@link QueryStats} that is also exported as a JMX
+ * MBean. Setting {@code -Dexpenseguard.metrics.logIntervalSec=N} additionally
+ * logs a summary of all queries every N seconds; {@code
+ * -Dexpenseguard.metrics.enabled=false} turns recording off entirely.
+ */
+public final class QueryMetrics {
+
+    private static final Logger LOGGER = Logger.getLogger(QueryMetrics.class.getName());
+
+    static final boolean ENABLED =
+        Boolean.parseBoolean(System.getProperty("expenseguard.metrics.enabled", "true"));
+
+    private static final ConcurrentMap<String, QueryStats> STATS = new ConcurrentHashMap<>();
+
+    static {
+        long interval = Long.getLong("expenseguard.metrics.logIntervalSec", 0L);
+        if (ENABLED && interval > 0) {
+            ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "query-metrics-log");
+                t.setDaemon(true);
+                return t;
+            });
+            ses.scheduleAtFixedRate(() -> LOGGER.info(summary()), interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    private QueryMetrics() {}
+
+    /** Starts timing one execution of {@code sql} on {@code statement}. */
+    public static QueryTimer start(SqlStatement sql, Statement statement) {
+        return new QueryTimer(sql, statement);
+    }
+
+    public static QueryStats stats(String name) {
+        return STATS.computeIfAbsent(name, QueryMetrics::register);
+    }
+
+    public static Collection<QueryStats> all() {
+        return STATS.values();
+    }
+
+    /** One line per query, slowest (by p95) first. */
+    public static String summary() {
+        List<QueryStats> list = new ArrayList<>(STATS.values());
+        list.sort(Comparator.comparingDouble(QueryStats::getP95Millis).reversed());
+        StringBuilder sb = new StringBuilder("Query metrics:");
+        for (QueryStats s : list) sb.append('\n').append("  ").append(s);
+        return sb.toString();
+    }
+
+    static void record(String name, long nanos, int rows, boolean failed) {
+        stats(name).record(nanos, rows, failed);
+    }
+
+    private static QueryStats register(String name) {
+        QueryStats s = new QueryStats(name);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(s, new ObjectName("com.expenseguard:type=Query,name=" + ObjectName.quote(name)));
+        } catch (Exception e) {
+            LOGGER.warning("Could not register MBean for " + name + ": " + e.getMessage());
+        }
+        return s;
+    }
+}
@@ -0,0 +1,90 @@
+package com.expenseguard.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histogram for a single named query.
+ */
+public class QueryStats implements QueryStatsMBean {
+
+    private final String           name;
+    private final LongAdder        calls      = new LongAdder();
+    private final LongAdder        errors     = new LongAdder();
+    private final LongAdder        rows       = new LongAdder();
+    private final LongAdder        totalNanos = new LongAdder();
+    private final AtomicLong       maxNanos   = new AtomicLong();
+    private final LatencyHistogram histogram  = new LatencyHistogram();
+    private final LongAdder        prepares   = new LongAdder();
+    private final LongAdder        reuses     = new LongAdder();
+    private final LongAdder        evictions  = new LongAdder();
+
+    QueryStats(String name) {
+        this.name = name;
+    }
+
+    void record(long nanos, int rowCount, boolean failed) {
+        calls.increment();
+        totalNanos.add(nanos);
+        histogram.record(nanos);
+        if (failed) errors.increment();
+        else        rows.add(rowCount);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) { }
+    }
+
+    /** The statement was prepared on its connection for this call. */
+    public void statementPrepared() { prepares.increment(); }
+    /** A statement already prepared on the connection was reused for this call. */
+    public void statementReused()   { reuses.increment(); }
+    /** The prepared statement was dropped from its connection's cache. */
+    public void statementEvicted()  { evictions.increment(); }
+
+    @Override public String getName()   { return name; }
+    @Override public long   getCalls()  { return calls.sum(); }
+    @Override public long   getErrors() { return errors.sum(); }
+    @Override public long   getRows()   { return rows.sum(); }
+
+    @Override
+    public double getMeanMillis() {
+        long n = calls.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+    }
+
+    @Override public double getP50Millis() { return histogram.percentile(50) / 1e6; }
+    @Override public double getP95Millis() { return histogram.percentile(95) / 1e6; }
+    @Override public double getP99Millis() { return histogram.percentile(99) / 1e6; }
+    @Override public double getMaxMillis() { return maxNanos.get() / 1e6; }
+
+    @Override public long getStatementPrepares()  { return prepares.sum(); }
+    @Override public long getStatementReuses()    { return reuses.sum(); }
+    @Override public long getStatementEvictions() { return evictions.sum(); }
+
+    @Override
+    public double getStatementHitPercent() {
+        long hits = reuses.sum(), total = hits + prepares.sum();
+        return total == 0 ? 0 : 100.0 * hits / total;
+    }
+
+    @Override
+    public void reset() {
+        calls.reset();
+        errors.reset();
+        rows.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+        histogram.reset();
+        prepares.reset();
+        reuses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-40s calls=%-7d err=%-4d rows=%-9d mean=%.2fms p95=%.2fms p99=%.2fms max=%.2fms "
+                             + "stmt-hit=%.1f%% prepared=%d",
+            name, getCalls(), getErrors(), getRows(),
+            getMeanMillis(), getP95Millis(), getP99Millis(), getMaxMillis(),
+            getStatementHitPercent(), getStatementPrepares());
+    }
+}
@@ -0,0 +1,28 @@
+package com.expenseguard.metrics;
+
+/**
+ * JMX view of one named query, registered as
+ * {@code com.expenseguard:type=Query,name=<query>}.
+ */
+public interface QueryStatsMBean {
+
+    String getName();
+    long   getCalls();
+    long   getErrors();
+    long   getRows();
+    double getMeanMillis();
+    double getP50Millis();
+    double getP95Millis();
+    double getP99Millis();
+    double getMaxMillis();
+
+    /** Calls that had to prepare the statement on their connection. */
+    long   getStatementPrepares();
+    /** Calls that reused a statement already prepared on their connection. */
+    long   getStatementReuses();
+    long   getStatementEvictions();
+    /** Share of calls that reused a prepared statement (and so its plan). */
+    double getStatementHitPercent();
+
+    void reset();
+}
@@ -0,0 +1,66 @@
+package com.expenseguard.metrics;
+
+import com.expenseguard.db.SlowQueryLog;
+import com.expenseguard.db.SqlStatement;
+import jdk.jfr.EventType;
+
+import java.sql.Statement;
+
+/**
+ * Times one DAO statement. Open it in the same try-with-resources right after
+ * the statement (so it is closed while the statement is still open) and call
+ * {@link #rows(int)} once the results have been consumed; a timer closed
+ * without {@code rows} is counted as an error.
+ *
+ * <pre>
+ * try (PreparedStatement ps = FIND_BY_MONTH.prepare(conn());
+ *      QueryTimer t = QueryMetrics.start(FIND_BY_MONTH, ps)) {
+ *     ...
+ *     t.rows(list.size());
+ * }
+ * </pre>
+ */
+public final class QueryTimer implements AutoCloseable {
+
+    // Checked before allocating an event, so statements cost no garbage while no recording is on
+    private static final EventType STATEMENT_EVENT = EventType.getEventType(DatabaseStatementEvent.class);
+
+    private final SqlStatement           sql;
+    private final Statement              statement;
+    private final long                   startNanos;
+    private final DatabaseStatementEvent event;
+    private int                          rows = -1;
+
+    QueryTimer(SqlStatement sql, Statement statement) {
+        this.sql        = sql;
+        this.statement  = statement;
+        this.startNanos = QueryMetrics.ENABLED ? System.nanoTime() : 0;
+        this.event      = STATEMENT_EVENT.isEnabled() ? new DatabaseStatementEvent() : null;
+        if (event != null) event.begin();
+    }
+
+    /** Marks the statement as successful with the given row count and returns it. */
+    public int rows(int count) {
+        this.rows = count;
+        return count;
+    }
+
+    @Override
+    public void close() {
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.sqlId  = sql.getName();
+                event.rows   = Math.max(rows, 0);
+                event.failed = rows < 0;
+                event.commit();
+            }
+        }
+        if (!QueryMetrics.ENABLED) return;
+        long elapsed = System.nanoTime() - startNanos;
+        QueryMetrics.record(sql.getName(), elapsed, Math.max(rows, 0), rows < 0);
+        if (elapsed >= SlowQueryLog.thresholdNanos()) {
+            SlowQueryLog.report(sql, elapsed, statement);
+        }
+    }
+}
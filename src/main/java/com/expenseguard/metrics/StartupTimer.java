@@ -0,0 +1,43 @@
+package com.expenseguard.metrics;
+
+import java.time.Instant;
+import java.util.logging.Logger;
+
+/**
+ * Logs the start-up phases with their time since the JVM was launched, so a
+ * slow cold start shows where the time went:
+ *
+ * <pre>
+ * INFO: Startup   412 ms (+ 38 ms)  window shown
+ * </pre>
+ *
+ * <p>Phases may be marked from any thread; {@link #interactive()} marks the
+ * point where the first tab shows its data and logs the total.
+ */
+public final class StartupTimer {
+
+    private static final Logger LOGGER = Logger.getLogger(StartupTimer.class.getName());
+
+    private static final long JVM_START = ProcessHandle.current().info().startInstant()
+        .map(Instant::toEpochMilli).orElse(System.currentTimeMillis());
+
+    private static long    last = JVM_START;   // guarded by the class
+    private static boolean done;
+
+    private StartupTimer() {}
+
+    /** Logs that {@code phase} has finished. */
+    public static synchronized void phase(String phase) {
+        long now = System.currentTimeMillis();
+        LOGGER.info(String.format("Startup %5d ms (+%4d ms)  %s", now - JVM_START, now - last, phase));
+        last = now;
+    }
+
+    /** Marks the first tab showing its data; only the first call counts. */
+    public static synchronized void interactive() {
+        if (done) return;
+        done = true;
+        phase("first data shown");
+        LOGGER.info("Time to first interactive: " + (System.currentTimeMillis() - JVM_START) + " ms");
+    }
+}
@@ -0,0 +1,115 @@
+package com.expenseguard.model;
+
+import java.math.BigDecimal;
+import java.time.Year;
+import java.util.List;
+
+/**
+ * A year's spending statement: every category's actuals and budgets for
+ * each of the twelve months, the months' totals and the merchants spent at
+ * most. All amounts are in the reporting currency (see {@code AnnualReportEngine}).
+ */
+public class AnnualReport {
+
+    private Year               year;
+    private String             currency;
+    private List<CategoryLine> categories;   // largest yearly total first
+    private BigDecimal[]       monthTotals;  // [0] = January
+    private List<Merchant>     topMerchants; // largest total first
+    private int                expenseCount;
+
+    public BigDecimal getTotal() {
+        BigDecimal t = BigDecimal.ZERO;
+        for (BigDecimal m : monthTotals) t = t.add(m);
+        return t;
+    }
+
+    // ── Getters & Setters ────────────────────────────────────────────────────
+    public Year               getYear()                           { return year; }
+    public void               setYear(Year v)                     { this.year = v; }
+
+    public String             getCurrency()                       { return currency; }
+    public void               setCurrency(String v)               { this.currency = v; }
+
+    public List<CategoryLine> getCategories()                     { return categories; }
+    public void               setCategories(List<CategoryLine> v) { this.categories = v; }
+
+    public BigDecimal[]       getMonthTotals()                    { return monthTotals; }
+    public void               setMonthTotals(BigDecimal[] v)      { this.monthTotals = v; }
+
+    public List<Merchant>     getTopMerchants()                   { return topMerchants; }
+    public void               setTopMerchants(List<Merchant> v)   { this.topMerchants = v; }
+
+    public int                getExpenseCount()                   { return expenseCount; }
+    public void               setExpenseCount(int v)              { this.expenseCount = v; }
+
+    /** One category's twelve months. */
+    public static class CategoryLine {
+
+        private int          categoryId;
+        private String       categoryName;
+        private BigDecimal[] actual;   // per month, zero without spending
+        private BigDecimal[] budget;   // per month, null without a budget
+        private int          count;
+        private BigDecimal   trend;    // least-squares change per month of the actuals
+
+        public BigDecimal getTotal() {
+            BigDecimal t = BigDecimal.ZERO;
+            for (BigDecimal a : actual) t = t.add(a);
+            return t;
+        }
+
+        /** Sum of the months' budgets, null if no month has one. */
+        public BigDecimal getBudgetTotal() {
+            BigDecimal t = null;
+            for (BigDecimal b : budget) if (b != null) t = t == null ? b : t.add(b);
+            return t;
+        }
+
+        /** Months whose actual exceeds their budget. */
+        public int getMonthsOverBudget() {
+            int n = 0;
+            for (int m = 0; m < actual.length; m++) {
+                if (budget[m] != null && actual[m].compareTo(budget[m]) > 0) n++;
+            }
+            return n;
+        }
+
+        // ── Getters & Setters ────────────────────────────────────────────────
+        public int          getCategoryId()                 { return categoryId; }
+        public void         setCategoryId(int v)            { this.categoryId = v; }
+
+        public String       getCategoryName()               { return categoryName; }
+        public void         setCategoryName(String v)       { this.categoryName = v; }
+
+        public BigDecimal[] getActual()                     { return actual; }
+        public void         setActual(BigDecimal[] v)       { this.actual = v; }
+
+        public BigDecimal[] getBudget()                     { return budget; }
+        public void         setBudget(BigDecimal[] v)       { this.budget = v; }
+
+        public int          getCount()                      { return count; }
+        public void         setCount(int v)                 { this.count = v; }
+
+        public BigDecimal   getTrend()                      { return trend; }
+        public void         setTrend(BigDecimal v)          { this.trend = v; }
+    }
+
+    /** Spending at one merchant (as {@code AnomalyDetector} keys merchants) over the year. */
+    public static class Merchant {
+
+        private String     name;
+        private BigDecimal total;
+        private int        count;
+
+        public Merchant(String name, BigDecimal total, int count) {
+            this.name  = name;
+            this.total = total;
+            this.count = count;
+        }
+
+        public String     getName()   { return name; }
+        public BigDecimal getTotal()  { return total; }
+        public int        getCount()  { return count; }
+    }
+}
@@ -0,0 +1,48 @@
+package com.expenseguard.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * A receipt or other file attached to an expense. Only this metadata is in
+ * the database; the content is in the blob store under {@code sha256}.
+ */
+public class Attachment {
+
+    private int           id;
+    private int           expenseId;
+    private String        sha256;
+    private String        fileName;
+    private String        contentType;
+    private long          size;
+    private LocalDateTime createdAt;
+
+    // ── Getters & Setters ────────────────────────────────────────────────────
+    public int           getId()                          { return id; }
+    public void          setId(int v)                     { this.id = v; }
+
+    public int           getExpenseId()                   { return expenseId; }
+    public void          setExpenseId(int v)              { this.expenseId = v; }
+
+    public String        getSha256()                      { return sha256; }
+    public void          setSha256(String v)              { this.sha256 = v; }
+
+    public String        getFileName()                    { return fileName; }
+    public void          setFileName(String v)            { this.fileName = v; }
+
+    public String        getContentType()                 { return contentType; }
+    public void          setContentType(String v)         { this.contentType = v; }
+
+    public long          getSize()                        { return size; }
+    public void          setSize(long v)                  { this.size = v; }
+
+    public LocalDateTime getCreatedAt()                   { return createdAt; }
+    public void          setCreatedAt(LocalDateTime v)    { this.createdAt = v; }
+
+    /** Whether the content is a picture thumbnails can be decoded from. */
+    public boolean isImage() {
+        return contentType != null && contentType.startsWith("image/");
+    }
+
+    @Override
+    public String toString() { return fileName; }
+}
@@ -1,5 +1,7 @@
 package com.expenseguard.model;
 
+import com.expenseguard.util.CurrencyFormatter;
+
 import java.math.BigDecimal;
 
 /**
@@ -12,7 +14,10 @@ public class Budget {
     private String     categoryName;
     private String     monthYear;      // YYYY-MM
     private BigDecimal limitAmount;
+    private String     currency = CurrencyFormatter.currencyCode(); // ISO 4217 code of limit (and spent)
+    private boolean    hardLimit;      // reject expenses that would exceed the limit
     private BigDecimal spentAmount;    // populated by service layer
+    private BigDecimal projectedAmount; // end-of-month forecast, current month only; populated by service layer
 
     public Budget() {}
 
@@ -38,6 +43,11 @@ public class Budget {
     public boolean isExceeded()      { return getUsagePercent() >= 100; }
     public boolean isNearLimit()     { return getUsagePercent() >= 80 && !isExceeded(); }
 
+    /** Not exceeded yet, but the end-of-month forecast is over the limit. */
+    public boolean isProjectedToExceed() {
+        return projectedAmount != null && !isExceeded() && projectedAmount.compareTo(limitAmount) > 0;
+    }
+
     // ── Getters & Setters ────────────────────────────────────────────────────
     public int        getId()                        { return id; }
     public void       setId(int id)                  { this.id = id; }
@@ -54,6 +64,15 @@ public class Budget {
     public BigDecimal getLimitAmount()               { return limitAmount; }
     public void       setLimitAmount(BigDecimal v)   { this.limitAmount = v; }
 
+    public String     getCurrency()                  { return currency; }
+    public void       setCurrency(String v)          { this.currency = v; }
+
+    public boolean    isHardLimit()                  { return hardLimit; }
+    public void       setHardLimit(boolean v)        { this.hardLimit = v; }
+
     public BigDecimal getSpentAmount()               { return spentAmount; }
     public void       setSpentAmount(BigDecimal v)   { this.spentAmount = v; }
+
+    public BigDecimal getProjectedAmount()           { return projectedAmount; }
+    public void       setProjectedAmount(BigDecimal v) { this.projectedAmount = v; }
 }
@@ -0,0 +1,67 @@
+package com.expenseguard.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * One category's spending in a month compared with the month before, the
+ * same month a year earlier and its average over the preceding 3, 6 and 12
+ * months. All amounts are in the reporting currency.
+ */
+public class CategoryComparison {
+
+    private int              categoryId;
+    private String           categoryName;
+    private BigDecimal       total;
+    private BigDecimal       previous;
+    private BigDecimal       lastYear;
+    private BigDecimal       avg3;
+    private BigDecimal       avg6;
+    private BigDecimal       avg12;
+    private List<BigDecimal> history;   // monthly totals, oldest first, ending with this month
+
+    // ── Getters & Setters ────────────────────────────────────────────────────
+    public int              getCategoryId()                    { return categoryId; }
+    public void             setCategoryId(int v)               { this.categoryId = v; }
+
+    public String           getCategoryName()                  { return categoryName; }
+    public void             setCategoryName(String v)          { this.categoryName = v; }
+
+    public BigDecimal       getTotal()                         { return total; }
+    public void             setTotal(BigDecimal v)             { this.total = v; }
+
+    public BigDecimal       getPrevious()                      { return previous; }
+    public void             setPrevious(BigDecimal v)          { this.previous = v; }
+
+    public BigDecimal       getLastYear()                      { return lastYear; }
+    public void             setLastYear(BigDecimal v)          { this.lastYear = v; }
+
+    public BigDecimal       getAvg3()                          { return avg3; }
+    public void             setAvg3(BigDecimal v)              { this.avg3 = v; }
+
+    public BigDecimal       getAvg6()                          { return avg6; }
+    public void             setAvg6(BigDecimal v)              { this.avg6 = v; }
+
+    public BigDecimal       getAvg12()                         { return avg12; }
+    public void             setAvg12(BigDecimal v)             { this.avg12 = v; }
+
+    public List<BigDecimal> getHistory()                       { return history; }
+    public void             setHistory(List<BigDecimal> v)     { this.history = v; }
+
+    // ── Derived ──────────────────────────────────────────────────────────────
+    public BigDecimal getChangeFromPrevious() { return total.subtract(previous); }
+    public BigDecimal getChangeFromLastYear() { return total.subtract(lastYear); }
+
+    /** Change from the previous month in percent, or null if nothing was spent then. */
+    public Double getPercentFromPrevious() { return percent(total, previous); }
+
+    /** Change from the same month last year in percent, or null if nothing was spent then. */
+    public Double getPercentFromLastYear() { return percent(total, lastYear); }
+
+    private static Double percent(BigDecimal now, BigDecimal before) {
+        if (before.signum() == 0) return null;
+        return now.subtract(before).multiply(BigDecimal.valueOf(100))
+                  .divide(before, 1, RoundingMode.HALF_UP).doubleValue();
+    }
+}
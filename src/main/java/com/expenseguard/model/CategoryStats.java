@@ -0,0 +1,37 @@
+package com.expenseguard.model;
+
+import java.math.BigDecimal;
+
+/**
+ * One category's transaction sizes and merchants over a range of months.
+ * Amounts are in the reporting currency; the median, 90th percentile and
+ * merchant count are estimates (see {@code ExpenseSketches}).
+ */
+public class CategoryStats {
+
+    private int        categoryId;
+    private String     categoryName;
+    private int        count;
+    private BigDecimal median;
+    private BigDecimal p90;
+    private long       distinctMerchants;
+
+    // ── Getters & Setters ────────────────────────────────────────────────────
+    public int        getCategoryId()                   { return categoryId; }
+    public void       setCategoryId(int v)              { this.categoryId = v; }
+
+    public String     getCategoryName()                 { return categoryName; }
+    public void       setCategoryName(String v)         { this.categoryName = v; }
+
+    public int        getCount()                        { return count; }
+    public void       setCount(int v)                   { this.count = v; }
+
+    public BigDecimal getMedian()                       { return median; }
+    public void       setMedian(BigDecimal v)           { this.median = v; }
+
+    public BigDecimal getP90()                          { return p90; }
+    public void       setP90(BigDecimal v)              { this.p90 = v; }
+
+    public long       getDistinctMerchants()            { return distinctMerchants; }
+    public void       setDistinctMerchants(long v)      { this.distinctMerchants = v; }
+}
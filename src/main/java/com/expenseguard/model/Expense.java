@@ -1,5 +1,7 @@
 package com.expenseguard.model;
 
+import com.expenseguard.util.CurrencyFormatter;
+
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -14,13 +16,34 @@ public class Expense {
     private String        categoryName;   // joined from categories table
     private String        description;
     private BigDecimal    amount;
+    private String        currency = CurrencyFormatter.currencyCode(); // ISO 4217 code of amount
     private LocalDate     expenseDate;
     private String        notes;
+    private Integer       recurringId;    // template this occurrence was generated from
+    private String        clientRef;      // idempotency key of a write-behind insert
+    private int           version;        // bumped by every update; 0 = unknown
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
     public Expense() {}
 
+    /** Copy of {@code other}, e.g. to queue a snapshot of an edited row. */
+    public Expense(Expense other) {
+        this.id           = other.id;
+        this.categoryId   = other.categoryId;
+        this.categoryName = other.categoryName;
+        this.description  = other.description;
+        this.amount       = other.amount;
+        this.currency     = other.currency;
+        this.expenseDate  = other.expenseDate;
+        this.notes        = other.notes;
+        this.recurringId  = other.recurringId;
+        this.clientRef    = other.clientRef;
+        this.version      = other.version;
+        this.createdAt    = other.createdAt;
+        this.updatedAt    = other.updatedAt;
+    }
+
     public Expense(int categoryId, String description, BigDecimal amount,
                    LocalDate expenseDate, String notes) {
         this.categoryId  = categoryId;
@@ -46,12 +69,24 @@ public class Expense {
     public BigDecimal    getAmount()                   { return amount; }
     public void          setAmount(BigDecimal v)       { this.amount = v; }
 
+    public String        getCurrency()                 { return currency; }
+    public void          setCurrency(String v)         { this.currency = v; }
+
     public LocalDate     getExpenseDate()              { return expenseDate; }
     public void          setExpenseDate(LocalDate v)   { this.expenseDate = v; }
 
     public String        getNotes()                    { return notes; }
     public void          setNotes(String v)            { this.notes = v; }
 
+    public Integer       getRecurringId()              { return recurringId; }
+    public void          setRecurringId(Integer v)     { this.recurringId = v; }
+
+    public String        getClientRef()                { return clientRef; }
+    public void          setClientRef(String v)        { this.clientRef = v; }
+
+    public int           getVersion()                  { return version; }
+    public void          setVersion(int v)             { this.version = v; }
+
     public LocalDateTime getCreatedAt()                { return createdAt; }
     public void          setCreatedAt(LocalDateTime v) { this.createdAt = v; }
 
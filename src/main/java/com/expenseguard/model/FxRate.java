@@ -0,0 +1,33 @@
+package com.expenseguard.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Daily exchange rate: the value of one unit of {@code currency} in the
+ * pivot currency of the imported rate file.
+ */
+public class FxRate {
+
+    private LocalDate  rateDate;
+    private String     currency;
+    private BigDecimal rate;
+
+    public FxRate() {}
+
+    public FxRate(LocalDate rateDate, String currency, BigDecimal rate) {
+        this.rateDate = rateDate;
+        this.currency = currency;
+        this.rate     = rate;
+    }
+
+    // ── Getters & Setters ────────────────────────────────────────────────────
+    public LocalDate  getRateDate()              { return rateDate; }
+    public void       setRateDate(LocalDate v)   { this.rateDate = v; }
+
+    public String     getCurrency()              { return currency; }
+    public void       setCurrency(String v)      { this.currency = v; }
+
+    public BigDecimal getRate()                  { return rate; }
+    public void       setRate(BigDecimal v)      { this.rate = v; }
+}
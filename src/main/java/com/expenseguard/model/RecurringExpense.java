@@ -0,0 +1,84 @@
+package com.expenseguard.model;
+
+import com.expenseguard.util.CurrencyFormatter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Template for an expense that repeats, e.g. rent on the 1st of every month.
+ * Occurrences are materialised as ordinary {@link Expense} rows.
+ */
+public class RecurringExpense {
+
+    private int        id;
+    private int        categoryId;
+    private String     categoryName;   // joined from categories table
+    private String     description;
+    private BigDecimal amount;
+    private String     currency = CurrencyFormatter.currencyCode();
+    private String     notes;
+    private String     rule;           // see RecurrenceRule
+    private LocalDate  startDate;
+    private LocalDate  lastGenerated;  // newest occurrence already materialised
+    private boolean    active = true;
+
+    public RecurringExpense() {}
+
+    /** Template repeating {@code first} by {@code rule}, starting on its date. */
+    public static RecurringExpense from(Expense first, String rule) {
+        RecurringExpense r = new RecurringExpense();
+        r.categoryId   = first.getCategoryId();
+        r.categoryName = first.getCategoryName();
+        r.description  = first.getDescription();
+        r.amount       = first.getAmount();
+        r.currency     = first.getCurrency();
+        r.notes        = first.getNotes();
+        r.rule         = rule;
+        r.startDate    = first.getExpenseDate();
+        return r;
+    }
+
+    /** The expense for one occurrence of this template. */
+    public Expense occurrence(LocalDate date) {
+        Expense e = new Expense(categoryId, description, amount, date, notes);
+        e.setCategoryName(categoryName);
+        e.setCurrency(currency);
+        e.setRecurringId(id);
+        return e;
+    }
+
+    // ── Getters & Setters ────────────────────────────────────────────────────
+    public int        getId()                        { return id; }
+    public void       setId(int id)                  { this.id = id; }
+
+    public int        getCategoryId()                { return categoryId; }
+    public void       setCategoryId(int v)           { this.categoryId = v; }
+
+    public String     getCategoryName()              { return categoryName; }
+    public void       setCategoryName(String v)      { this.categoryName = v; }
+
+    public String     getDescription()               { return description; }
+    public void       setDescription(String v)       { this.description = v; }
+
+    public BigDecimal getAmount()                    { return amount; }
+    public void       setAmount(BigDecimal v)        { this.amount = v; }
+
+    public String     getCurrency()                  { return currency; }
+    public void       setCurrency(String v)          { this.currency = v; }
+
+    public String     getNotes()                     { return notes; }
+    public void       setNotes(String v)             { this.notes = v; }
+
+    public String     getRule()                      { return rule; }
+    public void       setRule(String v)              { this.rule = v; }
+
+    public LocalDate  getStartDate()                 { return startDate; }
+    public void       setStartDate(LocalDate v)      { this.startDate = v; }
+
+    public LocalDate  getLastGenerated()             { return lastGenerated; }
+    public void       setLastGenerated(LocalDate v)  { this.lastGenerated = v; }
+
+    public boolean    isActive()                     { return active; }
+    public void       setActive(boolean v)           { this.active = v; }
+}
@@ -0,0 +1,265 @@
+package com.expenseguard.service;
+
+import com.expenseguard.dao.BudgetDAO;
+import com.expenseguard.dao.CategoryDAO;
+import com.expenseguard.dao.ExpenseDAO;
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.model.AnnualReport;
+import com.expenseguard.model.Budget;
+import com.expenseguard.model.Category;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Logger;
+
+/**
+ * Builds the {@link AnnualReport} of a year.
+ *
+ * <p>The year is split in halves down to single months on a fork/join pool
+ * of {@code -Dexpenseguard.report.parallelism} threads (default: the cores,
+ * at most the connection pool size). Each month runs on a pooled connection
+ * of its own: one scan of its expenses (amounts converted to the reporting
+ * currency at each expense's date, merchants keyed as {@link AnomalyDetector}
+ * keys them) and one read of its budgets (converted at the month's last day).
+ * The months' partial totals are merged on the way back up. Parallelism 1
+ * reads the months one after another on the calling thread, as a baseline.
+ */
+public class AnnualReportEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(AnnualReportEngine.class.getName());
+
+    private static final int TOP_MERCHANTS = 15;
+
+    private final ExpenseDAO        expenseDAO  = new ExpenseDAO();
+    private final BudgetDAO         budgetDAO   = new BudgetDAO();
+    private final CategoryDAO       categoryDAO = new CategoryDAO();
+    private final CurrencyConverter fx          = CurrencyConverter.getInstance();
+    private final int               parallelism;
+
+    public AnnualReportEngine() {
+        this(Integer.getInteger("expenseguard.report.parallelism",
+             Math.min(Runtime.getRuntime().availableProcessors(), DatabaseConnection.poolSize())));
+    }
+
+    /** @param parallelism months read at once; 1 reads them one after another */
+    public AnnualReportEngine(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public AnnualReport generate(Year year) throws SQLException {
+        long start = System.nanoTime();
+        String target = CurrencyConverter.reportingCurrency();
+        List<Category> categories = categoryDAO.findAll();
+        List<Integer>  ids        = new ArrayList<>();
+        for (Category c : categories) ids.add(c.getId());
+
+        Partial all;
+        if (parallelism == 1) {
+            all = new Partial();
+            for (int m = 1; m <= 12; m++) all.merge(month(year.atMonth(m), ids, target));
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                all = pool.invoke(new Months(year, 1, 13, ids, target));
+            } catch (RuntimeException ex) {
+                for (Throwable c = ex; c != null; c = c.getCause()) {
+                    if (c instanceof SQLException sql) throw sql;
+                }
+                throw ex;
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        AnnualReport report = report(year, target, categories, all);
+        LOGGER.info(() -> String.format("Annual report %s: %d expenses in %d ms (parallelism %d)",
+            year, report.getExpenseCount(), (System.nanoTime() - start) / 1_000_000, parallelism));
+        return report;
+    }
+
+    /** Reads one month's expenses and budgets in a transaction of its own. */
+    private Partial month(YearMonth ym, List<Integer> categoryIds, String target) throws SQLException {
+        int m = ym.getMonthValue() - 1;
+        return db().inTransaction(() -> {
+            Partial p = new Partial();
+            SQLException[] failure = new SQLException[1];
+            expenseDAO.sketchInput(ym.atDay(1), ym.plusMonths(1).atDay(1), categoryIds, r -> {
+                if (failure[0] != null) return;
+                try {
+                    BigDecimal amount = fx.convert((BigDecimal) r[3], (String) r[2], target, (LocalDate) r[1]);
+                    p.spent(m, (Integer) r[0], amount, AnomalyDetector.merchant((String) r[4]));
+                } catch (SQLException ex) {
+                    failure[0] = ex;
+                }
+            });
+            if (failure[0] != null) throw failure[0];
+            LocalDate last = ym.atEndOfMonth();
+            for (Budget b : budgetDAO.findByMonth(ym.toString())) {
+                p.line(b.getCategoryId()).budget[m] = fx.convert(b.getLimitAmount(), b.getCurrency(), target, last);
+            }
+            return p;
+        });
+    }
+
+    /** Months {@code from} (1-based) to {@code to} (exclusive), halved until one is left. */
+    private final class Months extends RecursiveTask<Partial> {
+        private final Year          year;
+        private final int           from;
+        private final int           to;
+        private final List<Integer> categoryIds;
+        private final String        target;
+
+        Months(Year year, int from, int to, List<Integer> categoryIds, String target) {
+            this.year        = year;
+            this.from        = from;
+            this.to          = to;
+            this.categoryIds = categoryIds;
+            this.target      = target;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from == 1) {
+                try {
+                    return month(year.atMonth(from), categoryIds, target);
+                } catch (SQLException ex) {
+                    throw new CompletionException(ex);
+                }
+            }
+            int mid = (from + to) >>> 1;
+            Months left = new Months(year, from, mid, categoryIds, target);
+            left.fork();
+            Partial p = new Months(year, mid, to, categoryIds, target).compute();
+            p.merge(left.join());
+            return p;
+        }
+    }
+
+    private AnnualReport report(Year year, String target, List<Category> categories, Partial all) {
+        // Trends over the months that have passed; later ones have no spending yet
+        YearMonth now = YearMonth.now();
+        int elapsed = year.getValue() < now.getYear() ? 12
+                    : year.getValue() > now.getYear() ? 0 : now.getMonthValue();
+
+        BigDecimal[] monthTotals = zeros();
+        List<AnnualReport.CategoryLine> lines = new ArrayList<>();
+        int count = 0;
+        for (Category c : categories) {
+            Line l = all.lines.getOrDefault(c.getId(), new Line());
+            AnnualReport.CategoryLine line = new AnnualReport.CategoryLine();
+            line.setCategoryId(c.getId());
+            line.setCategoryName(c.getName());
+            BigDecimal[] actual = new BigDecimal[12];
+            BigDecimal[] budget = new BigDecimal[12];
+            for (int m = 0; m < 12; m++) {
+                actual[m] = CurrencyConverter.round(l.actual[m], target);
+                budget[m] = l.budget[m] == null ? null : CurrencyConverter.round(l.budget[m], target);
+                monthTotals[m] = monthTotals[m].add(actual[m]);
+            }
+            line.setActual(actual);
+            line.setBudget(budget);
+            line.setCount(l.count);
+            line.setTrend(CurrencyConverter.round(slope(actual, elapsed), target));
+            lines.add(line);
+            count += l.count;
+        }
+        lines.sort((a, b) -> b.getTotal().compareTo(a.getTotal()));
+
+        List<AnnualReport.Merchant> merchants = new ArrayList<>();
+        all.merchants.forEach((name, s) -> {
+            if (!name.isEmpty()) merchants.add(new AnnualReport.Merchant(name, CurrencyConverter.round(s.total, target), s.count));
+        });
+        merchants.sort((a, b) -> b.getTotal().compareTo(a.getTotal()));
+
+        AnnualReport report = new AnnualReport();
+        report.setYear(year);
+        report.setCurrency(target);
+        report.setCategories(lines);
+        report.setMonthTotals(monthTotals);
+        report.setTopMerchants(new ArrayList<>(merchants.subList(0, Math.min(TOP_MERCHANTS, merchants.size()))));
+        report.setExpenseCount(count);
+        return report;
+    }
+
+    /** Least-squares change per month of the first {@code n} values; zero for fewer than two. */
+    private static BigDecimal slope(BigDecimal[] values, int n) {
+        if (n < 2) return BigDecimal.ZERO;
+        double meanX = (n - 1) / 2.0, meanY = 0;
+        for (int i = 0; i < n; i++) meanY += values[i].doubleValue();
+        meanY /= n;
+        double num = 0, den = 0;
+        for (int i = 0; i < n; i++) {
+            num += (i - meanX) * (values[i].doubleValue() - meanY);
+            den += (i - meanX) * (i - meanX);
+        }
+        return new BigDecimal(num / den, MathContext.DECIMAL64);
+    }
+
+    private static BigDecimal[] zeros() {
+        BigDecimal[] a = new BigDecimal[12];
+        Arrays.fill(a, BigDecimal.ZERO);
+        return a;
+    }
+
+    /** Totals of some months, unrounded. */
+    private static final class Partial {
+        final Map<Integer, Line> lines     = new HashMap<>();
+        final Map<String, Spend> merchants = new HashMap<>();
+
+        Line line(int categoryId) {
+            return lines.computeIfAbsent(categoryId, id -> new Line());
+        }
+
+        void spent(int month, int categoryId, BigDecimal amount, String merchant) {
+            Line l = line(categoryId);
+            l.actual[month] = l.actual[month].add(amount);
+            l.count++;
+            Spend s = merchants.computeIfAbsent(merchant, k -> new Spend());
+            s.total = s.total.add(amount);
+            s.count++;
+        }
+
+        void merge(Partial other) {
+            other.lines.forEach((id, o) -> {
+                Line l = line(id);
+                for (int m = 0; m < 12; m++) {
+                    l.actual[m] = l.actual[m].add(o.actual[m]);
+                    if (o.budget[m] != null) l.budget[m] = l.budget[m] == null ? o.budget[m] : l.budget[m].add(o.budget[m]);
+                }
+                l.count += o.count;
+            });
+            other.merchants.forEach((name, o) -> {
+                Spend s = merchants.computeIfAbsent(name, k -> new Spend());
+                s.total = s.total.add(o.total);
+                s.count += o.count;
+            });
+        }
+    }
+
+    private static final class Line {
+        final BigDecimal[] actual = zeros();
+        final BigDecimal[] budget = new BigDecimal[12];
+        int                count;
+    }
+
+    private static final class Spend {
+        BigDecimal total = BigDecimal.ZERO;
+        int        count;
+    }
+
+    private static DatabaseConnection db() throws SQLException {
+        return DatabaseConnection.instance();
+    }
+}
@@ -0,0 +1,140 @@
+package com.expenseguard.service;
+
+import com.expenseguard.model.AnnualReport;
+import com.expenseguard.util.ChartPainter;
+import com.expenseguard.util.CurrencyFormatter;
+import com.expenseguard.util.UITheme;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Month;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes an {@link AnnualReport} as {@code annual-YYYY.html}, a single file
+ * with its charts embedded as images, and {@code annual-YYYY.csv}, one row
+ * per category and month for spreadsheets. The charts are drawn by
+ * {@link ChartPainter} into images, so no display is needed.
+ */
+public class AnnualReportWriter {
+
+    private static final String[] MONTHS = new String[12];
+    static {
+        for (int m = 0; m < 12; m++) MONTHS[m] = Month.of(m + 1).getDisplayName(TextStyle.SHORT, Locale.getDefault());
+    }
+
+    /** Writes both files into {@code dir}; returns the HTML file. */
+    public Path write(AnnualReport report, Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Path csv  = dir.resolve("annual-" + report.getYear() + ".csv");
+        Path html = dir.resolve("annual-" + report.getYear() + ".html");
+        try (Writer w = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            writeCsv(report, w);
+        }
+        try (Writer w = Files.newBufferedWriter(html, StandardCharsets.UTF_8)) {
+            writeHtml(report, w);
+        }
+        return html;
+    }
+
+    /** {@code month,category,actual,budget,remaining}; budget and remaining empty without a budget. */
+    public void writeCsv(AnnualReport report, Writer w) throws IOException {
+        w.write("month,category,actual,budget,remaining\n");
+        for (AnnualReport.CategoryLine l : report.getCategories()) {
+            for (int m = 0; m < 12; m++) {
+                BigDecimal budget = l.getBudget()[m];
+                w.write(report.getYear().atMonth(m + 1) + "," + csv(l.getCategoryName()) + ","
+                        + l.getActual()[m].toPlainString() + ","
+                        + (budget == null ? "" : budget.toPlainString()) + ","
+                        + (budget == null ? "" : budget.subtract(l.getActual()[m]).toPlainString()) + "\n");
+            }
+        }
+    }
+
+    public void writeHtml(AnnualReport report, Writer w) throws IOException {
+        List<Object[]> months = new ArrayList<>();
+        for (int m = 0; m < 12; m++) months.add(new Object[]{m + 1, MONTHS[m], report.getMonthTotals()[m]});
+        List<Object[]> categories = new ArrayList<>();
+        for (AnnualReport.CategoryLine l : report.getCategories()) {
+            if (l.getTotal().signum() > 0) categories.add(new Object[]{l.getCategoryId(), l.getCategoryName(), l.getTotal()});
+        }
+
+        StringBuilder h = new StringBuilder(32 * 1024);
+        h.append("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>Expense Guard ")
+         .append(report.getYear()).append("</title>\n<style>\n")
+         .append("body{font-family:'Segoe UI',sans-serif;color:#0f172a;background:#f8fafc;margin:24px}\n")
+         .append("h1{font-size:22px}h2{font-size:15px;margin-top:28px}\n")
+         .append("table{border-collapse:collapse;background:#fff;font-size:12px}\n")
+         .append("th,td{border:1px solid #e2e8f0;padding:4px 8px;text-align:right}th:first-child,td:first-child{text-align:left}\n")
+         .append("small{color:#64748b}.over{color:#dc2626}.under{color:#16a34a}img{margin-right:12px}\n")
+         .append("</style></head><body>\n");
+        h.append("<h1>Spending ").append(report.getYear()).append("</h1>\n<p>")
+         .append(esc(CurrencyFormatter.format(report.getTotal()))).append(" in ")
+         .append(report.getExpenseCount()).append(" expenses, amounts in ").append(report.getCurrency()).append(".</p>\n");
+
+        h.append("<h2>By month</h2>\n");
+        image(h, ChartPainter.render(720, 260, g -> ChartPainter.bars(g, 720, 260, months, UITheme.PRIMARY)), "Spending by month");
+        h.append("<h2>By category</h2>\n");
+        image(h, ChartPainter.render(480, 260, g -> ChartPainter.bars(g, 480, 260, categories)), "Spending by category");
+        image(h, ChartPainter.render(260, 260, g -> ChartPainter.donut(g, 260, 260, categories)), "Share of each category");
+
+        h.append("<h2>Budgets and actuals</h2>\n<p><small>Each month's actual, with its budget below; "
+                 + "trend is the fitted change per month.</small></p>\n<table>\n<tr><th>Category</th>");
+        for (String m : MONTHS) h.append("<th>").append(m).append("</th>");
+        h.append("<th>Total</th><th>Budget</th><th>Months over</th><th>Trend</th></tr>\n");
+        for (AnnualReport.CategoryLine l : report.getCategories()) {
+            h.append("<tr><td>").append(esc(l.getCategoryName())).append("</td>");
+            for (int m = 0; m < 12; m++) {
+                BigDecimal actual = l.getActual()[m], budget = l.getBudget()[m];
+                boolean over = budget != null && actual.compareTo(budget) > 0;
+                h.append(over ? "<td class=\"over\">" : "<td>").append(esc(CurrencyFormatter.formatWhole(actual)));
+                if (budget != null) h.append("<br><small>").append(esc(CurrencyFormatter.formatWhole(budget))).append("</small>");
+                h.append("</td>");
+            }
+            BigDecimal budgetTotal = l.getBudgetTotal();
+            h.append("<td>").append(esc(CurrencyFormatter.format(l.getTotal()))).append("</td><td>")
+             .append(budgetTotal == null ? "" : esc(CurrencyFormatter.format(budgetTotal))).append("</td><td>")
+             .append(budgetTotal == null ? "" : l.getMonthsOverBudget()).append("</td>")
+             .append(l.getTrend().signum() > 0 ? "<td class=\"over\">+" : l.getTrend().signum() < 0 ? "<td class=\"under\">" : "<td>")
+             .append(esc(CurrencyFormatter.format(l.getTrend()))).append("</td></tr>\n");
+        }
+        h.append("<tr><th>Total</th>");
+        for (BigDecimal t : report.getMonthTotals()) h.append("<th>").append(esc(CurrencyFormatter.formatWhole(t))).append("</th>");
+        h.append("<th>").append(esc(CurrencyFormatter.format(report.getTotal()))).append("</th><th></th><th></th><th></th></tr>\n</table>\n");
+
+        h.append("<h2>Top merchants</h2>\n<table>\n<tr><th>Merchant</th><th>Expenses</th><th>Total</th></tr>\n");
+        for (AnnualReport.Merchant m : report.getTopMerchants()) {
+            h.append("<tr><td>").append(esc(m.getName())).append("</td><td>").append(m.getCount())
+             .append("</td><td>").append(esc(CurrencyFormatter.format(m.getTotal()))).append("</td></tr>\n");
+        }
+        h.append("</table>\n</body></html>\n");
+        w.write(h.toString());
+    }
+
+    private static void image(StringBuilder h, BufferedImage img, String alt) throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", png);
+        h.append("<img alt=\"").append(alt).append("\" src=\"data:image/png;base64,")
+         .append(Base64.getEncoder().encodeToString(png.toByteArray())).append("\">\n");
+    }
+
+    private static String esc(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String csv(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) return s;
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,352 @@
+package com.expenseguard.service;
+
+import com.expenseguard.dao.ExpenseDAO;
+import com.expenseguard.model.Expense;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Flags unusual expenses as they are inserted: amounts far outside what a
+ * category or merchant usually costs (an extra zero typed into the form), and
+ * likely duplicates (the same amount at the same merchant within
+ * {@code -Dexpenseguard.anomaly.duplicateDays}, default 3 days).
+ *
+ * <p>The merchant is the description with digits and punctuation removed, so
+ * {@code "Uber *Trip 4411"} and {@code "UBER trip 9921"} count as one. Per
+ * category and per merchant (and currency) the detector keeps the running
+ * mean and variance of the log amount (Welford) and a P² estimate of the
+ * {@code -Dexpenseguard.anomaly.quantile} quantile (default 0.99), all
+ * constant size and updated in constant time per insert. Per merchant it also
+ * keeps the amounts seen within the duplicate window of its latest expense;
+ * older ones are dropped as the days move on. An amount is an outlier once at
+ * least {@value #MIN_SAMPLES} earlier ones are known, if it is above the
+ * quantile and more than {@code -Dexpenseguard.anomaly.z} (default 3.5)
+ * standard deviations above the mean.
+ *
+ * <p>Statistics learn from inserts only; an edit is checked against them
+ * again and a delete drops its flags. {@link #rebuild} recomputes everything
+ * from the stored expenses in one parallel pass, each category and merchant
+ * replayed in date order on its own; inserts made while it runs are replayed
+ * on top.
+ */
+public class AnomalyDetector {
+
+    private static final Logger LOGGER = Logger.getLogger(AnomalyDetector.class.getName());
+
+    private static final int    MIN_SAMPLES    = 8;
+    private static final double Z              = Double.parseDouble(System.getProperty("expenseguard.anomaly.z", "3.5"));
+    private static final double QUANTILE       = Double.parseDouble(System.getProperty("expenseguard.anomaly.quantile", "0.99"));
+    private static final int    DUPLICATE_DAYS = Integer.getInteger("expenseguard.anomaly.duplicateDays", 3);
+
+    private static final AnomalyDetector INSTANCE = new AnomalyDetector();
+
+    /** Why an expense was flagged. */
+    public enum Flag {
+        OUTLIER   ("⚠ Unusual amount"),
+        DUPLICATE ("⧉ Possible duplicate");
+
+        private final String label;
+
+        Flag(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final ExpenseDAO expenseDAO = new ExpenseDAO();
+    private final Object     rebuilding = new Object();   // held by a rebuild reading the history
+
+    // Guarded by this.
+    private Map<String, Stats>      stats = new HashMap<>();
+    private Map<Integer, Set<Flag>> flags = new HashMap<>();
+    private boolean                 built;
+    private List<Expense>           backlog;   // inserts made while a rebuild reads, else null
+
+    /** A detector fed only through {@link #added} and {@link #rebuild(List)}; see {@link #getInstance()}. */
+    public AnomalyDetector() {}
+
+    public static AnomalyDetector getInstance() {
+        return INSTANCE;
+    }
+
+    /** Learns a new expense and returns its flags (empty if none). */
+    public synchronized Set<Flag> added(Expense e) {
+        if (backlog != null) backlog.add(new Expense(e));
+        return learn(stats, flags, e);
+    }
+
+    /** Checks an edited expense again, without learning from it. */
+    public synchronized void updated(Expense e) {
+        if (e.getId() == 0) return;
+        Set<Flag> found = EnumSet.noneOf(Flag.class);
+        Stats cat = stats.get(categoryKey(e));
+        Stats mer = stats.get(merchantKey(e));
+        if ((cat != null && cat.isOutlier(e)) || (mer != null && mer.isOutlier(e))) found.add(Flag.OUTLIER);
+        if (mer != null && mer.isDuplicate(e)) found.add(Flag.DUPLICATE);
+        if (found.isEmpty()) flags.remove(e.getId());
+        else                 flags.put(e.getId(), found);
+    }
+
+    public synchronized void removed(int id) {
+        flags.remove(id);
+    }
+
+    /** Flags of every flagged expense by id; builds from the stored expenses on first use. */
+    public Map<Integer, Set<Flag>> flags() throws SQLException {
+        synchronized (rebuilding) {
+            synchronized (this) {
+                if (built) return Collections.unmodifiableMap(new HashMap<>(flags));
+            }
+            rebuild();
+        }
+        synchronized (this) {
+            return Collections.unmodifiableMap(new HashMap<>(flags));
+        }
+    }
+
+    /** Recomputes all statistics and flags from the stored expenses. */
+    public void rebuild() throws SQLException {
+        synchronized (rebuilding) {
+            synchronized (this) {
+                backlog = new ArrayList<>();
+            }
+            List<Expense> history;
+            try {
+                history = expenseDAO.findAll();
+            } catch (SQLException ex) {
+                synchronized (this) {
+                    backlog = null;
+                }
+                throw ex;
+            }
+            rebuild(history);
+        }
+    }
+
+    /**
+     * Recomputes all statistics and flags from {@code history}: the rows are
+     * grouped by category and by merchant, and the groups replayed in
+     * parallel, each in date order.
+     */
+    public void rebuild(List<Expense> history) {
+        long start = System.nanoTime();
+        Map<String, List<Expense>> groups = new HashMap<>();
+        for (Expense e : history) {
+            if (!learnable(e)) continue;
+            groups.computeIfAbsent(categoryKey(e), k -> new ArrayList<>()).add(e);
+            groups.computeIfAbsent(merchantKey(e), k -> new ArrayList<>()).add(e);
+        }
+        Map<String, Stats>      fresh = new ConcurrentHashMap<>();
+        Map<Integer, Set<Flag>> found = new ConcurrentHashMap<>();
+        Comparator<Expense> order = Comparator.comparing(Expense::getExpenseDate).thenComparingInt(Expense::getId);
+        groups.entrySet().parallelStream().forEach(g -> {
+            List<Expense> rows = g.getValue();
+            rows.sort(order);
+            Stats s = new Stats();
+            boolean merchant = g.getKey().startsWith("m|");
+            for (Expense e : rows) {
+                Set<Flag> f = s.check(e, merchant);
+                s.learn(e, merchant);
+                if (!f.isEmpty()) found.merge(e.getId(), f, (a, b) -> {
+                    Set<Flag> u = EnumSet.copyOf(a);
+                    u.addAll(b);
+                    return u;
+                });
+            }
+            fresh.put(g.getKey(), s);
+        });
+
+        synchronized (this) {
+            stats = new HashMap<>(fresh);
+            flags = new HashMap<>(found);
+            if (backlog != null) {
+                Set<Integer> ids = new HashSet<>(history.size() * 2);
+                for (Expense e : history) ids.add(e.getId());
+                for (Expense e : backlog) if (!ids.contains(e.getId())) learn(stats, flags, e);
+            }
+            backlog = null;
+            built   = true;
+        }
+        LOGGER.fine(String.format("Anomaly flags rebuilt from %d expenses in %d groups, %d flagged, %.1f ms",
+            history.size(), groups.size(), found.size(), (System.nanoTime() - start) / 1e6));
+    }
+
+    // ── internals ────────────────────────────────────────────────────────────
+
+    private static Set<Flag> learn(Map<String, Stats> stats, Map<Integer, Set<Flag>> flags, Expense e) {
+        if (!learnable(e)) return EnumSet.noneOf(Flag.class);
+        Stats cat = stats.computeIfAbsent(categoryKey(e), k -> new Stats());
+        Stats mer = stats.computeIfAbsent(merchantKey(e), k -> new Stats());
+        Set<Flag> found = cat.check(e, false);
+        found.addAll(mer.check(e, true));
+        cat.learn(e, false);
+        mer.learn(e, true);
+        if (!found.isEmpty() && e.getId() != 0) flags.put(e.getId(), found);
+        return found;
+    }
+
+    private static boolean learnable(Expense e) {
+        return e.getAmount() != null && e.getAmount().signum() > 0 && e.getExpenseDate() != null;
+    }
+
+    private static String categoryKey(Expense e) {
+        return "c|" + e.getCategoryId() + "|" + e.getCurrency();
+    }
+
+    private static String merchantKey(Expense e) {
+        return "m|" + merchant(e.getDescription()) + "|" + e.getCurrency();
+    }
+
+    /** The description without digits, punctuation, case or repeated spaces. */
+    static String merchant(String description) {
+        if (description == null) return "";
+        StringBuilder sb = new StringBuilder(description.length());
+        boolean space = false;
+        for (char ch : description.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (Character.isLetter(ch)) {
+                if (space && sb.length() > 0) sb.append(' ');
+                sb.append(ch);
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Running statistics of one category or merchant, in one currency. */
+    private static final class Stats {
+        long   count;
+        double mean;      // of ln(amount)
+        double m2;        // sum of squared deviations from mean
+        final P2Quantile quantile = new P2Quantile(QUANTILE);
+        // Merchants only: last day and id each amount was seen, within DUPLICATE_DAYS of newestDay
+        Map<BigDecimal, long[]> lastSeen;
+        long                    newestDay = Long.MIN_VALUE;
+
+        Set<Flag> check(Expense e, boolean merchant) {
+            Set<Flag> found = EnumSet.noneOf(Flag.class);
+            if (isOutlier(e)) found.add(Flag.OUTLIER);
+            if (merchant && isDuplicate(e)) found.add(Flag.DUPLICATE);
+            return found;
+        }
+
+        boolean isOutlier(Expense e) {
+            if (count < MIN_SAMPLES) return false;
+            double amount = e.getAmount().doubleValue();
+            double sd     = Math.sqrt(m2 / (count - 1));
+            double z      = sd > 0 ? (Math.log(amount) - mean) / sd : 0;
+            return z > Z && amount > quantile.value();
+        }
+
+        boolean isDuplicate(Expense e) {
+            if (lastSeen == null || e.getRecurringId() != null) return false;
+            long[] seen = lastSeen.get(e.getAmount().stripTrailingZeros());
+            return seen != null && seen[1] != e.getId()
+                && Math.abs(e.getExpenseDate().toEpochDay() - seen[0]) <= DUPLICATE_DAYS;
+        }
+
+        void learn(Expense e, boolean merchant) {
+            double x = Math.log(e.getAmount().doubleValue());
+            count++;
+            double delta = x - mean;
+            mean += delta / count;
+            m2   += delta * (x - mean);
+            quantile.add(e.getAmount().doubleValue());
+            if (merchant) {
+                if (lastSeen == null) lastSeen = new HashMap<>();
+                long day = e.getExpenseDate().toEpochDay();
+                if (day > newestDay) {   // at most one sweep per day, so the map stays a few days' worth
+                    newestDay = day;
+                    lastSeen.values().removeIf(seen -> seen[0] < day - DUPLICATE_DAYS);
+                }
+                lastSeen.put(e.getAmount().stripTrailingZeros(), new long[]{day, e.getId()});
+            }
+        }
+    }
+
+    /**
+     * Streaming estimate of one quantile in constant space: the P² algorithm
+     * (Jain and Chlamtac, 1985), five markers moved by parabolic interpolation.
+     */
+    static final class P2Quantile {
+        private final double   p;
+        private final double[] q  = new double[5];   // marker heights
+        private final double[] n  = new double[5];   // marker positions
+        private final double[] np = new double[5];   // desired positions
+        private final double[] dn;                    // desired position increments
+        private int count;
+
+        P2Quantile(double p) {
+            this.p  = p;
+            this.dn = new double[]{0, p / 2, p, (1 + p) / 2, 1};
+        }
+
+        void add(double x) {
+            if (count < 5) {
+                q[count++] = x;
+                if (count == 5) {
+                    Arrays.sort(q);
+                    for (int i = 0; i < 5; i++) n[i] = i;
+                    np[0] = 0; np[1] = 2 * p; np[2] = 4 * p; np[3] = 2 + 2 * p; np[4] = 4;
+                }
+                return;
+            }
+            count++;
+            int k;
+            if (x < q[0])      { q[0] = x; k = 0; }
+            else if (x >= q[4]) { q[4] = x; k = 3; }
+            else {
+                k = 0;
+                while (x >= q[k + 1]) k++;
+            }
+            for (int i = k + 1; i < 5; i++) n[i]++;
+            for (int i = 0; i < 5; i++) np[i] += dn[i];
+            for (int i = 1; i < 4; i++) {
+                double d = np[i] - n[i];
+                if ((d >= 1 && n[i + 1] - n[i] > 1) || (d <= -1 && n[i - 1] - n[i] < -1)) {
+                    int s = d >= 0 ? 1 : -1;
+                    double h = parabolic(i, s);
+                    q[i] = q[i - 1] < h && h < q[i + 1] ? h : linear(i, s);
+                    n[i] += s;
+                }
+            }
+        }
+
+        /** The estimate; with fewer than five values, the largest so far. */
+        double value() {
+            if (count >= 5) return q[2];
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) max = Math.max(max, q[i]);
+            return max;
+        }
+
+        private double parabolic(int i, int s) {
+            return q[i] + s / (n[i + 1] - n[i - 1])
+                * ((n[i] - n[i - 1] + s) * (q[i + 1] - q[i]) / (n[i + 1] - n[i])
+                 + (n[i + 1] - n[i] - s) * (q[i] - q[i - 1]) / (n[i] - n[i - 1]));
+        }
+
+        private double linear(int i, int s) {
+            return q[i] + s * (q[i + s] - q[i]) / (n[i + s] - n[i]);
+        }
+    }
+}
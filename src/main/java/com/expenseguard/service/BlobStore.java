@@ -0,0 +1,128 @@
+package com.expenseguard.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Local content-addressed store for attachment files, in
+ * {@code -Dexpenseguard.blobs.dir} (default {@code ~/.expenseguard/blobs}).
+ *
+ * <p>Each file is stored once, as {@code ab/abcdef…} after the SHA-256 of its
+ * content, however many expenses attach it. {@link #put} hashes the source
+ * while copying it to a temporary file, in one pass, and renames the copy
+ * into place, so a file is never visible half-written. Hashing needs the
+ * bytes in user space, so the copy reads through a {@code DigestInputStream}
+ * rather than {@code FileChannel.transferTo}, which would keep them in the
+ * kernel and leave a second read for the hash.
+ *
+ * <p>Blobs are not deleted when their last attachment row is: {@link #prune}
+ * removes unreferenced ones once they are old enough that no attach in
+ * progress can still be about to reference them.
+ */
+public class BlobStore {
+
+    private static final Logger LOGGER = Logger.getLogger(BlobStore.class.getName());
+
+    private static final Path    ROOT = Path.of(System.getProperty("expenseguard.blobs.dir",
+        Path.of(System.getProperty("user.home"), ".expenseguard", "blobs").toString()));
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private static final BlobStore INSTANCE = new BlobStore(ROOT);
+
+    private final Path root;
+
+    public BlobStore(Path root) {
+        this.root = root;
+    }
+
+    public static BlobStore getInstance() {
+        return INSTANCE;
+    }
+
+    /** Copies {@code source} into the store, unless the same content is there already; returns its hash. */
+    public String put(Path source) throws IOException {
+        Path tmpDir = root.resolve("tmp");
+        Files.createDirectories(tmpDir);
+        Path tmp = Files.createTempFile(tmpDir, "put", ".part");
+        try {
+            MessageDigest md = sha256();
+            try (InputStream in  = new DigestInputStream(Files.newInputStream(source), md);
+                 FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                in.transferTo(Channels.newOutputStream(out));
+                out.force(true);
+            }
+            String hash = HexFormat.of().formatHex(md.digest());
+            Path target = path(hash);
+            if (Files.exists(target)) {
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));   // keeps prune away
+                return hash;
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Where the content with {@code hash} is stored. */
+    public Path path(String hash) {
+        if (!HASH.matcher(hash).matches()) throw new IllegalArgumentException("Not a SHA-256: " + hash);
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * Deletes blobs not in {@code referenced} and unmodified for {@code minAge},
+     * and leftovers of interrupted puts; returns the number deleted.
+     */
+    public int prune(Set<String> referenced, Duration minAge) throws IOException {
+        if (!Files.isDirectory(root)) return 0;
+        FileTime cutoff = FileTime.from(Instant.now().minus(minAge));
+        int deleted = 0;
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                boolean tmp = dir.getFileName().toString().equals("tmp");
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                    for (Path f : files) {
+                        String name = f.getFileName().toString();
+                        if (!tmp && (!HASH.matcher(name).matches() || referenced.contains(name))) continue;
+                        if (Files.getLastModifiedTime(f).compareTo(cutoff) > 0) continue;
+                        if (Files.deleteIfExists(f)) deleted++;
+                    }
+                }
+            }
+        }
+        if (deleted > 0) LOGGER.info("Pruned " + deleted + " unreferenced attachment files");
+        return deleted;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.expenseguard.service;
+
+import com.expenseguard.dao.BudgetAlertDAO;
+import com.expenseguard.dao.BudgetDAO;
+import com.expenseguard.dao.ExpenseDAO;
+import com.expenseguard.metrics.BudgetCheckEvent;
+import com.expenseguard.model.Budget;
+import com.expenseguard.model.Expense;
+import com.expenseguard.service.ExpenseService.BudgetAlert;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Change-driven budget alerts.
+ *
+ * <p>Writers publish expense and budget changes; a single background thread
+ * keeps a running total per (category, month) and fires an alert whenever the
+ * usage moves across one of the thresholds ({@code -Dexpenseguard.alerts.thresholds},
+ * default {@code 50,80,100,120} percent) – once per crossing, upwards or back
+ * down, never again while it stays on the same side. Crossings are stored in
+ * {@code budget_alerts}, which also restores the last level after a restart.
+ *
+ * <p>Totals are loaded from the database the first time a key is touched. Each
+ * change carries a sequence number taken while {@link #write} holds the shared
+ * side of a read/write lock; a load takes the exclusive side and notes the
+ * sequence, so changes already included in the loaded total are skipped
+ * rather than counted twice.
+ *
+ * <p>Other running statistics can follow the same changes through a
+ * {@link ChangeListener}, seeding themselves with {@link #exclusive} and the
+ * same sequence check.
+ */
+public class BudgetAlertEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(BudgetAlertEngine.class.getName());
+
+    private static final int[] THRESHOLDS =
+        parseThresholds(System.getProperty("expenseguard.alerts.thresholds", "50,80,100,120"));
+    private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private static final BudgetAlertEngine INSTANCE = new BudgetAlertEngine();
+
+    /** Receives alerts on the engine thread. */
+    public interface Listener {
+        void alert(BudgetAlert alert);
+    }
+
+    /** Receives every published expense change on the engine thread, in publish order. */
+    public interface ChangeListener {
+        /**
+         * @param sequence as seen by {@link #sequence()} once the change was published
+         * @param amount   signed: negative for the old version of an updated or deleted expense
+         */
+        void expenseChanged(long sequence, int categoryId, LocalDate day, BigDecimal amount, String currency);
+
+        /** Running totals were {@linkplain #reset() reset}. */
+        default void reset() {}
+    }
+
+    /** A database write to run under {@link #write}. */
+    @FunctionalInterface
+    public interface Change<T> {
+        T run() throws SQLException;
+    }
+
+    private final BudgetDAO         budgetDAO  = new BudgetDAO();
+    private final ExpenseDAO        expenseDAO = new ExpenseDAO();
+    private final BudgetAlertDAO    alertDAO   = new BudgetAlertDAO();
+    private final CurrencyConverter fx         = CurrencyConverter.getInstance();
+
+    private final ReentrantReadWriteLock lock     = new ReentrantReadWriteLock();
+    private final AtomicLong             sequence = new AtomicLong();
+    private final AtomicLong             changes  = new AtomicLong();
+    private final List<Listener>         listeners = new CopyOnWriteArrayList<>();
+    private final List<ChangeListener>   changeListeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService        executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "budget-alerts");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Confined to the engine thread.
+    private final Map<String, Tracker> trackers = new HashMap<>();
+
+    private BudgetAlertEngine() {}
+
+    public static BudgetAlertEngine getInstance() {
+        return INSTANCE;
+    }
+
+    public void addListener(Listener l)    { listeners.add(l); }
+    public void removeListener(Listener l) { listeners.remove(l); }
+
+    public void addChangeListener(ChangeListener l)    { changeListeners.add(l); }
+    public void removeChangeListener(ChangeListener l) { changeListeners.remove(l); }
+
+    /** Number of changes published so far; data read before it last moved may be out of date. */
+    public long changeCount() {
+        return changes.get();
+    }
+
+    /**
+     * Runs a write that publishes its changes. The publish calls must be made
+     * inside {@code change}, after the statement succeeded.
+     */
+    public <T> T write(Change<T> change) throws SQLException {
+        lock.readLock().lock();
+        try {
+            return change.run();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Sequence number of the last published change. */
+    public long sequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Runs a read while no write is in flight: it sees every change published
+     * up to {@link #sequence()} as read inside it, and none after. Must not be
+     * called inside {@link #write}.
+     */
+    public <T> T exclusive(Change<T> read) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            return read.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ── Publishing (call inside write) ───────────────────────────────────────
+
+    /** An expense was inserted ({@code before} null), updated, or deleted ({@code after} null). */
+    public void expenseChanged(Expense before, Expense after) {
+        List<Delta> deltas = new ArrayList<>(2);
+        if (before != null) addDelta(deltas, before, true);
+        if (after  != null) addDelta(deltas, after, false);
+        publish(deltas);
+    }
+
+    /** Several expenses were inserted at once; each (category, month) is evaluated once. */
+    public void expensesAdded(List<Expense> inserted) {
+        List<Delta> deltas = new ArrayList<>(inserted.size());
+        for (Expense e : inserted) addDelta(deltas, e, false);
+        publish(deltas);
+    }
+
+    /** A budget was created or its limit or currency changed. */
+    public void budgetChanged(int categoryId, String monthYear) {
+        changes.incrementAndGet();
+        executor.execute(() -> process(() -> reloadForBudget(categoryId, monthYear)));
+    }
+
+    public void budgetRemoved(int budgetId) {
+        changes.incrementAndGet();
+        executor.execute(() -> trackers.values().removeIf(t -> t.budget != null && t.budget.getId() == budgetId));
+    }
+
+    /** Forgets all running totals, e.g. after FX rates changed. */
+    public void reset() {
+        changes.incrementAndGet();
+        executor.execute(() -> {
+            trackers.clear();
+            for (ChangeListener l : changeListeners) l.reset();
+        });
+    }
+
+    // ── Engine thread ────────────────────────────────────────────────────────
+
+    private void publish(List<Delta> deltas) {
+        if (deltas.isEmpty()) return;
+        changes.incrementAndGet();
+        long seq = sequence.incrementAndGet();
+        executor.execute(() -> process(() -> {
+            notifyChanged(seq, deltas);
+            apply(seq, deltas);
+        }));
+    }
+
+    private void notifyChanged(long seq, List<Delta> deltas) {
+        for (ChangeListener l : changeListeners) {
+            try {
+                for (Delta d : deltas) l.expenseChanged(seq, d.categoryId, d.day, d.amount, d.currency);
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Expense change listener failed", ex);
+            }
+        }
+    }
+
+    private void apply(long seq, List<Delta> deltas) throws SQLException {
+        Map<String, List<Delta>> byKey = new LinkedHashMap<>();
+        for (Delta d : deltas) byKey.computeIfAbsent(d.key(), k -> new ArrayList<>()).add(d);
+
+        for (List<Delta> group : byKey.values()) {
+            Delta first = group.get(0);
+            Tracker t = trackers.get(first.key());
+            int previous;
+            try {
+                if (t == null) {
+                    t = load(first.categoryId, first.monthYear);
+                    if (t.budget == null) continue;
+                    Integer recorded = alertDAO.lastLevel(first.categoryId, first.monthYear);
+                    previous = recorded != null ? Math.min(recorded, THRESHOLDS.length)
+                                                : levelFor(t.spent.subtract(sum(t, group)), t.budget);
+                } else {
+                    if (t.budget == null || seq <= t.loadedAt) continue;
+                    t.spent  = t.spent.add(sum(t, group));
+                    previous = t.level;
+                }
+            } catch (SQLException ex) {
+                trackers.remove(first.key());   // reload on the next change
+                throw ex;
+            }
+            evaluate(t, previous);
+        }
+    }
+
+    private void reloadForBudget(int categoryId, String monthYear) throws SQLException {
+        Tracker old = trackers.get(key(categoryId, monthYear));
+        Tracker t   = load(categoryId, monthYear);
+        if (t.budget == null) return;
+        Integer recorded = old != null ? Integer.valueOf(old.level) : alertDAO.lastLevel(categoryId, monthYear);
+        evaluate(t, recorded != null ? Math.min(recorded, THRESHOLDS.length) : 0);
+    }
+
+    /** Loads budget and total, excluding concurrent writers while it reads. */
+    private Tracker load(int categoryId, String monthYear) throws SQLException {
+        Tracker t = new Tracker();
+        lock.writeLock().lock();
+        try {
+            t.loadedAt = sequence.get();
+            t.budget   = budgetDAO.findByCategoryAndMonth(categoryId, monthYear);
+            if (t.budget != null) {
+                String cur = t.budget.getCurrency();
+                t.spent = fx.sum(expenseDAO.sumByCategoryAndMonth(categoryId, monthYear, cur), 0, 1, 2, cur);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        trackers.put(key(categoryId, monthYear), t);
+        return t;
+    }
+
+    private BigDecimal sum(Tracker t, List<Delta> group) throws SQLException {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Delta d : group) total = total.add(fx.convert(d.amount, d.currency, t.budget.getCurrency(), d.day));
+        return total;
+    }
+
+    private void evaluate(Tracker t, int previous) throws SQLException {
+        Budget b = t.budget;
+        BudgetCheckEvent ev = BudgetCheckEvent.begin(b.getCategoryId(), b.getMonthYear());
+        b.setSpentAmount(t.spent);
+        int level = levelFor(t.spent, b);
+        t.level = level;
+        BudgetCheckEvent.complete(ev, level == 0 ? "OK" : "LEVEL_" + THRESHOLDS[level - 1], b.getUsagePercent());
+        if (level == previous) return;
+
+        // One alert per move: the highest threshold reached going up, the
+        // lowest one left behind going down.
+        boolean rising    = level > previous;
+        int     threshold = rising ? THRESHOLDS[level - 1] : THRESHOLDS[level];
+        Budget  snapshot  = snapshot(b);
+        alertDAO.insert(snapshot, threshold, rising, level);
+        BudgetAlert alert = new BudgetAlert(snapshot, threshold, rising);
+        for (Listener l : listeners) {
+            try {
+                l.alert(alert);
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Budget alert listener failed", ex);
+            }
+        }
+    }
+
+    private interface Task {
+        void run() throws SQLException;
+    }
+
+    private void process(Task task) {
+        try {
+            task.run();
+        } catch (SQLException | RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Budget alert evaluation failed", ex);
+        }
+    }
+
+    // ── helpers ──────────────────────────────────────────────────────────────
+
+    private static int levelFor(BigDecimal spent, Budget b) {
+        if (b.getLimitAmount().signum() <= 0) return 0;
+        double usage = spent.doubleValue() * 100 / b.getLimitAmount().doubleValue();
+        int level = 0;
+        while (level < THRESHOLDS.length && usage >= THRESHOLDS[level]) level++;
+        return level;
+    }
+
+    private static Budget snapshot(Budget b) {
+        Budget s = new Budget(b.getCategoryId(), b.getMonthYear(), b.getLimitAmount());
+        s.setId(b.getId());
+        s.setCategoryName(b.getCategoryName());
+        s.setCurrency(b.getCurrency());
+        s.setSpentAmount(b.getSpentAmount());
+        return s;
+    }
+
+    private static void addDelta(List<Delta> out, Expense e, boolean removed) {
+        if (e.getCategoryId() == 0 || e.getAmount() == null || e.getExpenseDate() == null) return;
+        out.add(new Delta(e.getCategoryId(), YearMonth.from(e.getExpenseDate()).format(FMT),
+                          removed ? e.getAmount().negate() : e.getAmount(), e.getCurrency(), e.getExpenseDate()));
+    }
+
+    private static String key(int categoryId, String monthYear) {
+        return categoryId + "|" + monthYear;
+    }
+
+    private static int[] parseThresholds(String spec) {
+        int[] t = Arrays.stream(spec.split(",")).map(String::trim).filter(s -> !s.isEmpty())
+                        .mapToInt(Integer::parseInt).filter(v -> v > 0).sorted().distinct().toArray();
+        return t.length > 0 ? t : new int[]{80, 100};
+    }
+
+    /** Running state of one (category, month). */
+    private static final class Tracker {
+        Budget     budget;     // null if the category has no budget that month
+        BigDecimal spent;      // in the budget's currency
+        int        level;      // number of thresholds reached
+        long       loadedAt;   // changes up to this sequence are in spent
+    }
+
+    /** Immutable signed amount of one expense change. */
+    private static final class Delta {
+        final int        categoryId;
+        final String     monthYear;
+        final BigDecimal amount;
+        final String     currency;
+        final LocalDate  day;
+
+        Delta(int categoryId, String monthYear, BigDecimal amount, String currency, LocalDate day) {
+            this.categoryId = categoryId;
+            this.monthYear  = monthYear;
+            this.amount     = amount;
+            this.currency   = currency;
+            this.day        = day;
+        }
+
+        String key() { return BudgetAlertEngine.key(categoryId, monthYear); }
+    }
+}
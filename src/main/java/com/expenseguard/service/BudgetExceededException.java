@@ -0,0 +1,36 @@
+package com.expenseguard.service;
+
+import com.expenseguard.model.Budget;
+import com.expenseguard.util.CurrencyFormatter;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+
+/**
+ * Thrown when an expense is rejected because it would take a hard-limit
+ * budget over its limit. Nothing was written.
+ *
+ * <p>A {@link SQLException} with SQLState {@code 23514} (check violation), so
+ * existing save paths report it without extra handling.
+ */
+public class BudgetExceededException extends SQLException {
+
+    private final Budget     budget;
+    private final BigDecimal amount;   // the rejected amount, in the budget's currency
+
+    public BudgetExceededException(Budget budget, BigDecimal amount) {
+        super(message(budget, amount), "23514");
+        this.budget = budget;
+        this.amount = amount;
+    }
+
+    public Budget     getBudget() { return budget; }
+    public BigDecimal getAmount() { return amount; }
+
+    private static String message(Budget b, BigDecimal amount) {
+        CurrencyFormatter fmt = CurrencyFormatter.forCurrency(b.getCurrency());
+        return String.format("%s would exceed the hard %s budget for %s (%s left this month).",
+                             fmt.formatAmount(amount), fmt.formatAmount(b.getLimitAmount()),
+                             b.getCategoryName(), fmt.formatAmount(b.getRemainingAmount()));
+    }
+}
@@ -0,0 +1,139 @@
+package com.expenseguard.service;
+
+import com.expenseguard.dao.FxRateDAO;
+import com.expenseguard.model.FxRate;
+import com.expenseguard.util.CurrencyFormatter;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converts amounts between currencies using the daily {@code fx_rates} table.
+ *
+ * <p>All rates of a currency are loaded once into sorted arrays and looked up
+ * by binary search, carrying the last known rate forward over weekends and
+ * holidays. The aggregate queries return one row per (currency, day) group, so
+ * a month of expenses costs one lookup per foreign-currency day, not per row.
+ *
+ * <p>Rates are quoted against a pivot currency, {@code -Dexpenseguard.fx.pivot}
+ * (default: the reporting currency), which has no rates of its own and converts
+ * at 1; so does the reporting currency while it has none. Any other currency
+ * without rates cannot be converted.
+ */
+public class CurrencyConverter {
+
+    private static final CurrencyConverter INSTANCE = new CurrencyConverter(new FxRateDAO());
+
+    private static final MathContext MC = MathContext.DECIMAL64;
+
+    private final FxRateDAO dao;
+    private final Map<String, RateTable> cache = new ConcurrentHashMap<>();
+
+    CurrencyConverter(FxRateDAO dao) {
+        this.dao = dao;
+    }
+
+    public static CurrencyConverter getInstance() {
+        return INSTANCE;
+    }
+
+    /** Currency that reports, charts and totals are shown in. */
+    public static String reportingCurrency() {
+        return CurrencyFormatter.currencyCode();
+    }
+
+    /** Currency the stored rates are quoted in. */
+    public static String pivotCurrency() {
+        return System.getProperty("expenseguard.fx.pivot", reportingCurrency());
+    }
+
+    /** Converts {@code amount} from {@code from} to {@code to} at the rate of {@code day}. */
+    public BigDecimal convert(BigDecimal amount, String from, String to, LocalDate day) throws SQLException {
+        if (amount == null || from == null || from.equals(to) || amount.signum() == 0) return amount;
+        BigDecimal rFrom = rateOn(from, day);
+        BigDecimal rTo   = rateOn(to, day);
+        if (rFrom == null || rTo == null) {
+            throw new SQLException("No exchange rate between " + from + " and " + to + " for " + day);
+        }
+        return amount.multiply(rFrom, MC).divide(rTo, MC);
+    }
+
+    /**
+     * Sums (currency, day, amount) groups into {@code target}, rounded to the
+     * target currency's minor unit.
+     *
+     * @param groups rows as returned by the grouped expense aggregates; the
+     *               other arguments give the column positions within each row
+     */
+    public BigDecimal sum(List<Object[]> groups, int currencyIdx, int dayIdx, int amountIdx,
+                          String target) throws SQLException {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Object[] g : groups) {
+            BigDecimal amt = (BigDecimal) g[amountIdx];
+            if (amt == null) continue;
+            total = total.add(convert(amt, (String) g[currencyIdx], target, (LocalDate) g[dayIdx]));
+        }
+        return round(total, target);
+    }
+
+    public static BigDecimal round(BigDecimal amount, String currency) {
+        int digits = Currency.getInstance(currency).getDefaultFractionDigits();
+        return amount.setScale(Math.max(0, digits), RoundingMode.HALF_EVEN);
+    }
+
+    /** Drops cached rates, e.g. after an import. */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    /** Rate of {@code currency} on {@code day} in the pivot currency; null if it has none. */
+    private BigDecimal rateOn(String currency, LocalDate day) throws SQLException {
+        BigDecimal rate = table(currency).rateOn(day);
+        if (rate == null && (currency.equals(pivotCurrency()) || currency.equals(reportingCurrency()))) {
+            return BigDecimal.ONE;
+        }
+        return rate;
+    }
+
+    private RateTable table(String currency) throws SQLException {
+        RateTable t = cache.get(currency);
+        if (t == null) {
+            t = new RateTable(dao.findByCurrency(currency));
+            cache.put(currency, t);
+        }
+        return t;
+    }
+
+    /** Immutable, sorted rates of one currency. */
+    private static final class RateTable {
+        private final long[]       days;
+        private final BigDecimal[] rates;
+
+        RateTable(List<FxRate> list) {
+            days  = new long[list.size()];
+            rates = new BigDecimal[list.size()];
+            for (int i = 0; i < days.length; i++) {
+                days[i]  = list.get(i).getRateDate().toEpochDay();
+                rates[i] = list.get(i).getRate();
+            }
+        }
+
+        /** Rate on {@code day}, else the last one before it, else the first after it; null if there are none. */
+        BigDecimal rateOn(LocalDate day) {
+            if (days.length == 0) return null;
+            if (day == null) return rates[rates.length - 1];
+            int idx = Arrays.binarySearch(days, day.toEpochDay());
+            if (idx >= 0) return rates[idx];
+            int insert = -idx - 1;
+            return rates[insert == 0 ? 0 : insert - 1];
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.expenseguard.service;
+
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.SnapshotArchive;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Backs the database up to a single snapshot file and restores it, using
+ * PostgreSQL's binary {@code COPY} (see {@link SnapshotArchive} for the file).
+ *
+ * <p>A backup reads every table in one read-only repeatable-read transaction,
+ * so the snapshot is consistent while the app keeps running. A restore loads
+ * into a database without data (the default categories aside) in one
+ * transaction: it drops the secondary indexes and the sketch triggers, copies
+ * each table in, then rebuilds the indexes once over the loaded rows, moves
+ * the id sequences past the restored ids and analyses the tables. Statistics
+ * sketches are derived data and not part of the snapshot.
+ */
+public class DatabaseSnapshot {
+
+    private static final Logger LOGGER = Logger.getLogger(DatabaseSnapshot.class.getName());
+
+    /** In foreign-key order. */
+    private static final String[] TABLES = {
+        "categories", "recurring_expenses", "budgets", "expenses", "expense_attachments", "budget_alerts", "fx_rates"
+    };
+    private static final Set<String> SERIAL_TABLES =
+        Set.of("categories", "recurring_expenses", "budgets", "expenses", "expense_attachments", "budget_alerts");
+    /** The triggers that drop sketches as expenses change (see {@code SchemaInitializer}). */
+    private static final String[] SKETCH_TRIGGERS = {
+        "trg_expense_sketches_insert", "trg_expense_sketches_update", "trg_expense_sketches_delete"
+    };
+    private static final Pattern IDENTIFIERS = Pattern.compile("[a-z_][a-z0-9_]*(,[a-z_][a-z0-9_]*)*");
+
+    /** Progress of a backup or restore, called on the working thread. */
+    @FunctionalInterface
+    public interface Progress {
+        /**
+         * @param table the table being copied
+         * @param done  bytes written (backup) or read (restore) so far
+         * @param total expected bytes in all: the tables' size on disk for a
+         *              backup, so only an estimate, the file size for a restore
+         */
+        void update(String table, long done, long total);
+    }
+
+    /** Writes a snapshot of the database to {@code file}; returns the number of rows. */
+    public long backup(Path file, Progress progress) throws IOException, SQLException {
+        long start = System.nanoTime();
+        Path tmp = file.resolveSibling(file.getFileName() + ".part");
+        long rows;
+        try (SnapshotArchive.Writer out = new SnapshotArchive.Writer(tmp)) {
+            rows = db().inTransaction(() -> {
+                Connection c = DatabaseConnection.current();
+                try (Statement st = c.createStatement()) {
+                    st.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ, READ ONLY");
+                }
+                CopyManager copy = c.unwrap(PGConnection.class).getCopyAPI();
+                long   total = tableBytes(c);
+                long[] done  = new long[1];
+                long   n     = 0;
+                for (String table : TABLES) {
+                    String columns = columns(c, table);
+                    try {
+                        OutputStream section = new ProgressStream(out.beginSection(table, columns), table, done, total, progress);
+                        long copied = copy.copyOut("COPY " + table + " (" + columns + ") TO STDOUT (FORMAT binary)", section);
+                        out.endSection(copied);
+                        n += copied;
+                    } catch (IOException ex) {
+                        throw new SQLException("Writing " + table + " failed: " + ex.getMessage(), ex);
+                    }
+                }
+                return n;
+            });
+            out.finish();
+        } catch (IOException | SQLException | RuntimeException ex) {
+            Files.deleteIfExists(tmp);
+            throw ex;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        LOGGER.info(String.format("Backed up %,d rows to %s (%,d bytes) in %d ms",
+            rows, file, Files.size(file), (System.nanoTime() - start) / 1_000_000));
+        return rows;
+    }
+
+    /**
+     * Loads the snapshot in {@code file} into this database, which must hold
+     * no expenses, attachments, budgets, recurring expenses, alerts or
+     * exchange rates; its categories are replaced. Returns the number of rows.
+     */
+    public long restore(Path file, Progress progress) throws IOException, SQLException {
+        long start = System.nanoTime();
+        long rows;
+        try (SnapshotArchive.Reader in = new SnapshotArchive.Reader(file)) {
+            rows = db().inTransaction(() -> {
+                Connection c = DatabaseConnection.current();
+                CopyManager copy = c.unwrap(PGConnection.class).getCopyAPI();
+                try (Statement st = c.createStatement()) {
+                    for (String table : TABLES) {
+                        if (table.equals("categories")) continue;
+                        try (ResultSet rs = st.executeQuery("SELECT EXISTS (SELECT 1 FROM " + table + ")")) {
+                            rs.next();
+                            if (rs.getBoolean(1)) {
+                                throw new SQLException("Restore needs an empty database, but " + table + " has rows");
+                            }
+                        }
+                    }
+                    st.executeUpdate("DELETE FROM expense_sketches");
+                    st.executeUpdate("DELETE FROM categories");
+
+                    Map<String, String> indexes = secondaryIndexes(st);
+                    for (String index : indexes.keySet()) st.execute("DROP INDEX " + index);
+                    for (String trigger : SKETCH_TRIGGERS) st.execute("ALTER TABLE expenses DISABLE TRIGGER " + trigger);
+
+                    long n = 0;
+                    try {
+                        while (in.nextSection()) {
+                            String table = in.table();
+                            String columns = in.columns();
+                            if (!List.of(TABLES).contains(table) || !IDENTIFIERS.matcher(columns).matches()) {
+                                throw new SQLException("Unexpected table in snapshot: " + table);
+                            }
+                            InputStream section = new ProgressInput(in.data(), table, in, progress);
+                            long copied = copy.copyIn("COPY " + table + " (" + columns + ") FROM STDIN (FORMAT binary)",
+                                                      section, SnapshotArchive.FRAME_SIZE);
+                            if (copied != in.rows()) {
+                                throw new SQLException("Snapshot of " + table + " holds " + in.rows()
+                                                       + " rows, but " + copied + " were loaded");
+                            }
+                            n += copied;
+                        }
+                    } catch (IOException ex) {
+                        throw new SQLException("Reading " + file + " failed: " + ex.getMessage(), ex);
+                    }
+
+                    long indexStart = System.nanoTime();
+                    for (String definition : indexes.values()) st.execute(definition);
+                    LOGGER.info(String.format("Rebuilt %d indexes in %d ms",
+                        indexes.size(), (System.nanoTime() - indexStart) / 1_000_000));
+                    for (String trigger : SKETCH_TRIGGERS) st.execute("ALTER TABLE expenses ENABLE TRIGGER " + trigger);
+                    for (String table : SERIAL_TABLES) {
+                        st.execute("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), "
+                                   + "COALESCE(MAX(id), 0) + 1, false) FROM " + table);
+                    }
+                    for (String table : TABLES) st.execute("ANALYZE " + table);
+                    return n;
+                }
+            });
+        }
+        CurrencyConverter.getInstance().invalidate();
+        BudgetAlertEngine.getInstance().reset();
+        LOGGER.info(String.format("Restored %,d rows from %s in %d ms",
+            rows, file, (System.nanoTime() - start) / 1_000_000));
+        return rows;
+    }
+
+    /** Comma-separated column names of {@code table}, in table order. */
+    private static String columns(Connection c, String table) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery(
+                 "SELECT attname FROM pg_attribute WHERE attrelid = '" + table + "'::regclass "
+                 + "AND attnum > 0 AND NOT attisdropped ORDER BY attnum")) {
+            while (rs.next()) names.add(rs.getString(1));
+        }
+        return String.join(",", names);
+    }
+
+    /** Size on disk of the tables' rows, the expected size of the copy. */
+    private static long tableBytes(Connection c) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT 0");
+        for (String table : TABLES) sql.append(" + pg_relation_size('").append(table).append("')");
+        try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery(sql.toString())) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /** Definitions of the indexes of the snapshot's tables that back no constraint, by name. */
+    private static Map<String, String> secondaryIndexes(Statement st) throws SQLException {
+        StringBuilder tables = new StringBuilder();
+        for (String table : TABLES) tables.append(tables.length() == 0 ? "" : ", ").append('\'').append(table).append("'::regclass");
+        Map<String, String> indexes = new LinkedHashMap<>();
+        try (ResultSet rs = st.executeQuery(
+                "SELECT i.indexrelid::regclass::text, pg_get_indexdef(i.indexrelid) FROM pg_index i "
+                + "WHERE i.indrelid IN (" + tables + ") "
+                + "AND NOT EXISTS (SELECT 1 FROM pg_constraint k WHERE k.conindid = i.indexrelid)")) {
+            while (rs.next()) indexes.put(rs.getString(1), rs.getString(2));
+        }
+        return indexes;
+    }
+
+    private static DatabaseConnection db() throws SQLException {
+        return DatabaseConnection.instance();
+    }
+
+    /** Counts the bytes of the copy and reports them every frame. */
+    private static final class ProgressStream extends OutputStream {
+        private final OutputStream out;
+        private final String       table;
+        private final long[]       done;      // bytes of every table so far
+        private final long         total;
+        private final Progress     progress;
+        private long               reported;
+
+        ProgressStream(OutputStream out, String table, long[] done, long total, Progress progress) {
+            this.out      = out;
+            this.table    = table;
+            this.done     = done;
+            this.total    = total;
+            this.progress = progress;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            report(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            report(len);
+        }
+
+        private void report(int n) {
+            done[0] += n;
+            if (progress == null || done[0] - reported < SnapshotArchive.FRAME_SIZE) return;
+            reported = done[0];
+            progress.update(table, done[0], Math.max(total, done[0]));
+        }
+    }
+
+    /** Reports the file position after each read of the copy. */
+    private static final class ProgressInput extends InputStream {
+        private final InputStream            in;
+        private final String                 table;
+        private final SnapshotArchive.Reader reader;
+        private final Progress               progress;
+        private long                         reported;
+
+        ProgressInput(InputStream in, String table, SnapshotArchive.Reader reader, Progress progress) {
+            this.in       = in;
+            this.table    = table;
+            this.reader   = reader;
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            report();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            report();
+            return n;
+        }
+
+        private void report() throws IOException {
+            long pos = reader.position();
+            if (progress == null || pos - reported < SnapshotArchive.FRAME_SIZE / 4) return;
+            reported = pos;
+            progress.update(table, pos, reader.size());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.expenseguard.service;
+
+import com.expenseguard.model.Category;
+import com.expenseguard.model.Expense;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Binary form of expenses and categories shared by {@link SaveJournal} and
+ * {@link OfflineStore}.
+ */
+final class ExpenseCodec {
+
+    private ExpenseCodec() {}
+
+    static void writeExpense(DataOutput out, Expense e) throws IOException {
+        out.writeInt(e.getId());
+        out.writeInt(e.getCategoryId());
+        writeNullable(out, e.getCategoryName());
+        out.writeUTF(e.getDescription());
+        out.writeUTF(e.getAmount().toPlainString());
+        out.writeUTF(e.getCurrency());
+        out.writeLong(e.getExpenseDate().toEpochDay());
+        writeNullable(out, e.getNotes());
+        writeNullable(out, e.getClientRef());
+        out.writeInt(e.getVersion());
+        writeNullable(out, e.getUpdatedAt() == null ? null : e.getUpdatedAt().toString());
+        out.writeInt(e.getRecurringId() == null ? 0 : e.getRecurringId());
+    }
+
+    static Expense readExpense(DataInput in) throws IOException {
+        Expense e = new Expense();
+        e.setId(in.readInt());
+        e.setCategoryId(in.readInt());
+        e.setCategoryName(readNullable(in));
+        e.setDescription(in.readUTF());
+        e.setAmount(new BigDecimal(in.readUTF()));
+        e.setCurrency(in.readUTF());
+        e.setExpenseDate(LocalDate.ofEpochDay(in.readLong()));
+        e.setNotes(readNullable(in));
+        e.setClientRef(readNullable(in));
+        e.setVersion(in.readInt());
+        String updated = readNullable(in);
+        if (updated != null) e.setUpdatedAt(LocalDateTime.parse(updated));
+        int recurringId = in.readInt();
+        if (recurringId != 0) e.setRecurringId(recurringId);
+        return e;
+    }
+
+    static void writeCategory(DataOutput out, Category c) throws IOException {
+        out.writeInt(c.getId());
+        out.writeUTF(c.getName());
+        writeNullable(out, c.getDescription());
+    }
+
+    static Category readCategory(DataInput in) throws IOException {
+        return new Category(in.readInt(), in.readUTF(), readNullable(in));
+    }
+
+    private static void writeNullable(DataOutput out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -1,123 +1,768 @@
 package com.expenseguard.service;
 
+import com.expenseguard.dao.AttachmentDAO;
+import com.expenseguard.dao.BudgetAlertDAO;
 import com.expenseguard.dao.BudgetDAO;
+import com.expenseguard.dao.CategoryDAO;
 import com.expenseguard.dao.ExpenseDAO;
+import com.expenseguard.dao.ExpenseQuery;
+import com.expenseguard.dao.RecurringExpenseDAO;
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.metrics.BudgetCheckEvent;
+import com.expenseguard.model.AnnualReport;
+import com.expenseguard.model.Attachment;
 import com.expenseguard.model.Budget;
+import com.expenseguard.model.Category;
+import com.expenseguard.model.CategoryComparison;
+import com.expenseguard.model.CategoryStats;
 import com.expenseguard.model.Expense;
+import com.expenseguard.model.RecurringExpense;
+import com.expenseguard.util.CurrencyFormatter;
+import com.expenseguard.util.RecurrenceRule;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Year;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 /**
  * Business logic layer for expenses + budget alerts.
+ *
+ * <p>Writes publish their changes to {@link BudgetAlertEngine}, which evaluates
+ * thresholds in the background and notifies its listeners; a save never waits
+ * for the budget check.
  */
 public class ExpenseService {
 
-    private final ExpenseDAO expenseDAO = new ExpenseDAO();
-    private final BudgetDAO  budgetDAO  = new BudgetDAO();
+    private final ExpenseDAO          expenseDAO   = new ExpenseDAO();
+    private final BudgetDAO           budgetDAO    = new BudgetDAO();
+    private final RecurringExpenseDAO recurringDAO = new RecurringExpenseDAO();
+    private final BudgetAlertDAO      alertDAO     = new BudgetAlertDAO();
+    private final CurrencyConverter   fx           = CurrencyConverter.getInstance();
+    private final BudgetAlertEngine   alerts       = BudgetAlertEngine.getInstance();
+    private final CategoryDAO         categoryDAO  = new CategoryDAO();
+    private final SyncManager         sync         = SyncManager.getInstance();
+    private final OfflineStore        store        = OfflineStore.getInstance();
+    private final SpendForecaster     forecaster   = SpendForecaster.getInstance();
+    private final AnomalyDetector     anomalies    = AnomalyDetector.getInstance();
+    private final ExpenseSketches     sketches     = new ExpenseSketches();
+    private final AttachmentDAO       attachments  = new AttachmentDAO();
+    private final BlobStore           blobs        = BlobStore.getInstance();
+    private final AnnualReportEngine  reports      = new AnnualReportEngine();
 
     private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("yyyy-MM");
 
     /**
-     * Saves an expense and returns a BudgetAlert if the category budget is
-     * at or near its limit, or null if no alert is needed.
+     * Saves a new expense; any budget alert is delivered by {@link BudgetAlertEngine}.
+     *
+     * @throws BudgetExceededException if it would exceed a hard-limit budget
      */
-    public BudgetAlert saveExpense(Expense expense) throws SQLException {
-        expenseDAO.save(expense);
-        return checkBudget(expense.getCategoryId(),
-                           YearMonth.from(expense.getExpenseDate()).format(FMT));
+    public void saveExpense(Expense expense) throws SQLException {
+        alerts.write(() -> {
+            db().inTransaction(() -> {
+                enforceHardLimit(expense, null);
+                return expenseDAO.save(expense);
+            });
+            alerts.expenseChanged(null, expense);
+            anomalies.added(expense);
+            return expense;
+        });
     }
 
+    /**
+     * Saves several new expenses in one transaction: all of them, or none if
+     * one is rejected. Each hard-limit check counts the expenses before it.
+     * The budgets are looked up in one query and the expenses inserted in
+     * another, however many there are; each hard-limit budget among them
+     * adds its lock and its sum.
+     *
+     * @throws BudgetExceededException if one would exceed a hard-limit budget
+     */
+    public void saveExpenses(List<Expense> expenses) throws SQLException {
+        alerts.write(() -> {
+            db().inTransaction(() -> {
+                Map<Long, Budget>     hard  = lockHardLimits(expenses);
+                Map<Long, BigDecimal> spent = new HashMap<>();   // per hard budget, with the batch's expenses so far
+                for (Expense e : expenses) {
+                    Budget budget = hard.get(budgetKey(e));
+                    if (budget == null) continue;
+                    BigDecimal before = spent.get(budgetKey(e));
+                    spent.put(budgetKey(e), spend(budget, before != null ? before : spentInBudgetCurrency(budget), e));
+                }
+                expenseDAO.insertAll(expenses);
+                return null;
+            });
+            for (Expense e : expenses) {
+                alerts.expenseChanged(null, e);
+                anomalies.added(e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Saves {@code first} as the first occurrence of a new recurring expense.
+     * Later occurrences (including any already past) are generated by
+     * {@link RecurringScheduler}.
+     *
+     * @throws IllegalArgumentException if {@code rule} cannot be parsed
+     */
+    public void saveRecurringExpense(Expense first, String rule) throws SQLException {
+        RecurrenceRule.parse(rule);
+        RecurringExpense template = RecurringExpense.from(first, rule);
+        template.setLastGenerated(first.getExpenseDate());
+        alerts.write(() -> {
+            db().inTransaction(() -> {
+                recurringDAO.save(template);
+                first.setRecurringId(template.getId());
+                enforceHardLimit(first, null);
+                return expenseDAO.save(first);
+            });
+            alerts.expenseChanged(null, first);
+            anomalies.added(first);
+            return first;
+        });
+    }
+
+    public List<RecurringExpense> getRecurringExpenses() throws SQLException {
+        return recurringDAO.findActive();
+    }
+
+    public void stopRecurringExpense(int id) throws SQLException {
+        recurringDAO.deactivate(id);
+    }
+
+    /** @throws BudgetExceededException if the change would exceed a hard-limit budget */
     public void updateExpense(Expense expense) throws SQLException {
-        expenseDAO.save(expense);
+        alerts.write(() -> {
+            Expense before = db().inTransaction(() -> {
+                Expense old = expenseDAO.findById(expense.getId());
+                enforceHardLimit(expense, old);
+                expenseDAO.save(expense);
+                if (old != null) expense.setVersion(old.getVersion() + 1);
+                return old;
+            });
+            alerts.expenseChanged(before, expense);
+            anomalies.updated(expense);
+            return expense;
+        });
+    }
+
+    /**
+     * As {@link #updateExpense(Expense)}, but applied only onto {@code version},
+     * the version of the expense the change was made on.
+     *
+     * @throws SyncConflictException if the expense was changed since; nothing is written
+     * @throws SQLException with state 02000 if the expense no longer exists
+     */
+    public void updateExpense(Expense expense, int version) throws SQLException {
+        alerts.write(() -> {
+            Expense before = db().inTransaction(() -> {
+                Expense old = expenseDAO.findById(expense.getId());
+                if (old == null) throw new SQLException("The expense no longer exists.", "02000");
+                if (old.getVersion() != version) throw new SyncConflictException(old, expense);
+                enforceHardLimit(expense, old);
+                if (!expenseDAO.update(expense, version)) throw new SyncConflictException(old, expense);
+                expense.setVersion(version + 1);
+                return old;
+            });
+            alerts.expenseChanged(before, expense);
+            anomalies.updated(expense);
+            return expense;
+        });
     }
 
     public void deleteExpense(int id) throws SQLException {
-        expenseDAO.delete(id);
+        alerts.write(() -> {
+            Expense before = expenseDAO.delete(id);
+            alerts.expenseChanged(before, null);
+            anomalies.removed(id);
+            return before;
+        });
     }
 
+    /**
+     * Deletes the expense if it is still at {@code version}.
+     *
+     * @throws SyncConflictException if the expense was changed since; nothing is deleted
+     * @throws SQLException with state 02000 if the expense no longer exists
+     */
+    public void deleteExpense(int id, int version) throws SQLException {
+        alerts.write(() -> {
+            Expense before = db().inTransaction(() -> {
+                Expense old = expenseDAO.findById(id);
+                if (old == null) throw new SQLException("The expense no longer exists.", "02000");
+                if (old.getVersion() != version || !expenseDAO.delete(id, version)) {
+                    throw new SyncConflictException(old, null);
+                }
+                return old;
+            });
+            alerts.expenseChanged(before, null);
+            anomalies.removed(id);
+            return before;
+        });
+    }
+
+    /**
+     * Applies writes queued by {@link WriteBehindQueue} in one transaction, in
+     * order, with the same hard-limit checks as the direct saves; the locks of
+     * all the batch's hard-limit budgets are taken first, in order. An insert
+     * that may have been applied before – replayed from the journal, or sent
+     * in an earlier attempt whose commit was not acknowledged – is first
+     * looked up by its client key, and skipped if it is already stored.
+     *
+     * <p>An edit or delete is rejected with {@link SyncConflictException} if
+     * the row's version moved on since the edited copy was read, unless the
+     * newer version is one the queue wrote itself: {@code versions} maps
+     * expense ids to the version the queue's own last write left, and is
+     * updated as writes are applied.
+     *
+     * <p>The queued snapshots are only modified after the commit (inserts get
+     * their ids, edits their new versions), so a failed batch can be retried as is.
+     */
+    void applyWrites(List<WriteBehindQueue.Write> writes, Map<Integer, Integer> versions) throws SQLException {
+        alerts.write(() -> {
+            List<Expense[]> applied = db().inTransaction(() -> {
+                List<Expense> checked = new ArrayList<>();
+                for (WriteBehindQueue.Write w : writes) {
+                    if (w.getOp() != WriteBehindQueue.Op.DELETE) checked.add(w.getExpense());
+                }
+                Map<Long, Budget> hard = lockHardLimits(checked);
+                List<Expense[]> rows = new ArrayList<>(writes.size());   // [before, after, queued snapshot]
+                for (WriteBehindQueue.Write w : writes) {
+                    Expense e = w.getExpense();
+                    if (w.getOp() == WriteBehindQueue.Op.INSERT) {
+                        Integer stored = w.mayBeApplied() ? expenseDAO.findIdByClientRef(e.getClientRef()) : null;
+                        w.sent();
+                        if (stored != null) {
+                            e.setId(stored);
+                            continue;
+                        }
+                        Expense row = new Expense(e);
+                        row.setId(0);
+                        checkHardLimit(row, null, hard.get(budgetKey(row)));
+                        expenseDAO.save(row);
+                        versions.put(row.getId(), row.getVersion());
+                        rows.add(new Expense[]{null, row, e});
+                        continue;
+                    }
+                    // An expense edited or deleted before its own insert was applied has no id yet
+                    int id = e.getId();
+                    if (id == 0 && e.getClientRef() != null) {
+                        Integer stored = expenseDAO.findIdByClientRef(e.getClientRef());
+                        if (stored != null) id = stored;
+                    }
+                    Expense before = id == 0 ? null : expenseDAO.findById(id);
+                    boolean delete = w.getOp() == WriteBehindQueue.Op.DELETE;
+                    if (before == null) {
+                        if (delete) continue;   // already gone
+                        throw new SQLException("The expense no longer exists.", "02000");
+                    }
+                    int base = Math.max(e.getVersion(), versions.getOrDefault(id, 0));
+                    if (e.getVersion() != 0 && base != before.getVersion() && (delete || !sameContent(before, e))) {
+                        throw new SyncConflictException(before, e);
+                    }
+                    if (delete) {
+                        expenseDAO.delete(id);
+                        versions.remove(id);
+                        rows.add(new Expense[]{before, null, e});
+                    } else {
+                        Expense row = new Expense(e);
+                        row.setId(id);
+                        checkHardLimit(row, before, hard.get(budgetKey(row)));
+                        expenseDAO.save(row);
+                        row.setVersion(before.getVersion() + 1);
+                        versions.put(id, row.getVersion());
+                        rows.add(new Expense[]{before, row, e});
+                    }
+                }
+                return rows;
+            });
+            for (Expense[] c : applied) {
+                if (c[1] != null) {
+                    c[2].setId(c[1].getId());
+                    c[2].setVersion(c[1].getVersion());
+                }
+                alerts.expenseChanged(c[0], c[1]);
+                if (c[0] == null)      anomalies.added(c[1]);
+                else if (c[1] == null) anomalies.removed(c[0].getId());
+                else                   anomalies.updated(c[1]);
+            }
+            return null;
+        });
+    }
+
+    /** Whether a replayed edit is already what is stored. */
+    private static boolean sameContent(Expense a, Expense b) {
+        return a.getCategoryId() == b.getCategoryId()
+            && Objects.equals(a.getDescription(), b.getDescription())
+            && a.getAmount().compareTo(b.getAmount()) == 0
+            && Objects.equals(a.getCurrency(), b.getCurrency())
+            && Objects.equals(a.getExpenseDate(), b.getExpenseDate())
+            && Objects.equals(a.getNotes(), b.getNotes());
+    }
+
+    /** All expenses; the locally stored ones while offline. */
     public List<Expense> getAllExpenses() throws SQLException {
-        return expenseDAO.findAll();
+        return sync.read(expenseDAO::findAll, store::putAll, store::all);
     }
 
+    /** A month's expenses; the locally stored copy while offline. */
     public List<Expense> getExpensesByMonth(YearMonth ym) throws SQLException {
-        return expenseDAO.findByMonth(ym);
+        return sync.read(() -> expenseDAO.findByMonth(ym), rows -> store.putMonth(ym, rows), () -> store.month(ym));
+    }
+
+    /**
+     * Passes the expenses matching {@code query} to {@code sink} as they are
+     * read from the database; while offline they are filtered from the local
+     * store instead.
+     */
+    public void findExpenses(ExpenseQuery query, Consumer<Expense> sink) throws SQLException {
+        if (query.isAll()) {
+            getAllExpenses().forEach(sink);   // also refreshes the local store
+            return;
+        }
+        int[] sent = {0};
+        List<Expense> local = sync.read(() -> db().inTransaction(() -> {
+            expenseDAO.find(query, e -> {
+                sent[0]++;
+                sink.accept(e);
+            });
+            return null;
+        }), rows -> { }, () -> sent[0] == 0 ? query.apply(store.all()) : null);   // never repeat rows already sent
+        if (local != null) local.forEach(sink);
+    }
+
+    /** The expense with this id, or null. */
+    public Expense getExpense(int id) throws SQLException {
+        return expenseDAO.findById(id);
+    }
+
+    /** Keyset page of expenses, newest first; see {@link ExpenseDAO#findPage}. */
+    public List<Expense> getExpensePage(YearMonth ym, LocalDate afterDate, int afterId, int limit) throws SQLException {
+        return expenseDAO.findPage(ym, afterDate, afterId, limit);
+    }
+
+    /** All categories; the locally stored ones while offline. */
+    public List<Category> getCategories() throws SQLException {
+        return sync.read(categoryDAO::findAll, store::putCategories, store::categories);
     }
 
+    /**
+     * Total spent per category for a month in the reporting currency,
+     * largest first: [categoryId, categoryName, total].
+     */
     public List<Object[]> getMonthlyCategorySummary(String monthYear) throws SQLException {
-        return expenseDAO.monthlyCategorySummary(monthYear);
+        String target = CurrencyConverter.reportingCurrency();
+        Map<Integer, Object[]> byCategory = new LinkedHashMap<>();
+        for (Object[] g : expenseDAO.monthlyCategorySummary(monthYear, target)) {
+            Object[] row = byCategory.computeIfAbsent((Integer) g[0],
+                id -> new Object[]{id, g[1], BigDecimal.ZERO});
+            BigDecimal amt = (BigDecimal) g[4];
+            if (amt != null) {
+                row[2] = ((BigDecimal) row[2]).add(fx.convert(amt, (String) g[2], target, (LocalDate) g[3]));
+            }
+        }
+        List<Object[]> rows = new ArrayList<>(byCategory.values());
+        for (Object[] r : rows) r[2] = CurrencyConverter.round((BigDecimal) r[2], target);
+        rows.sort((a, b) -> ((BigDecimal) b[2]).compareTo((BigDecimal) a[2]));
+        return rows;
+    }
+
+    /**
+     * Each category's spending in {@code ym} against the month before, the same
+     * month last year and the 3/6/12-month averages before it, in the reporting
+     * currency, largest first. Computed by one query; see {@link ExpenseDAO#monthlyComparison}.
+     */
+    public List<CategoryComparison> getCategoryComparison(YearMonth ym) throws SQLException {
+        String target = CurrencyConverter.reportingCurrency();
+        Map<Integer, CategoryComparison> byCategory = new LinkedHashMap<>();
+        for (Object[] r : expenseDAO.monthlyComparison(ym, target)) {
+            CategoryComparison c = byCategory.computeIfAbsent((Integer) r[0], id -> {
+                CategoryComparison n = new CategoryComparison();
+                n.setCategoryId(id);
+                n.setCategoryName((String) r[1]);
+                n.setHistory(new ArrayList<>());
+                return n;
+            });
+            BigDecimal total = CurrencyConverter.round((BigDecimal) r[3], target);
+            c.getHistory().add(total);
+            if (!YearMonth.from((LocalDate) r[2]).equals(ym)) continue;
+            c.setTotal(total);
+            c.setPrevious(roundOrZero((BigDecimal) r[4], target));
+            c.setLastYear(roundOrZero((BigDecimal) r[5], target));
+            c.setAvg3(roundOrZero((BigDecimal) r[6], target));
+            c.setAvg6(roundOrZero((BigDecimal) r[7], target));
+            c.setAvg12(roundOrZero((BigDecimal) r[8], target));
+        }
+        List<CategoryComparison> list = new ArrayList<>(byCategory.values());
+        list.sort((a, b) -> b.getTotal().compareTo(a.getTotal()));
+        return list;
+    }
+
+    /**
+     * Median and 90th-percentile expense and distinct merchants per category
+     * over the months {@code from} to {@code to}, in the reporting currency,
+     * most expenses first. Merged from per-month sketches; see {@link ExpenseSketches}.
+     */
+    public List<CategoryStats> getCategoryStats(YearMonth from, YearMonth to) throws SQLException {
+        String target = CurrencyConverter.reportingCurrency();
+        Map<Integer, ExpenseSketches.Merged> merged = sketches.merged(from, to);
+        List<CategoryStats> list = new ArrayList<>();
+        for (Category c : categoryDAO.findAll()) {
+            ExpenseSketches.Merged m = merged.get(c.getId());
+            if (m == null) continue;
+            CategoryStats s = new CategoryStats();
+            s.setCategoryId(c.getId());
+            s.setCategoryName(c.getName());
+            s.setCount(m.getCount());
+            s.setMedian(CurrencyConverter.round(BigDecimal.valueOf(m.quantile(0.5)), target));
+            s.setP90(CurrencyConverter.round(BigDecimal.valueOf(m.quantile(0.9)), target));
+            s.setDistinctMerchants(m.getDistinctMerchants());
+            list.add(s);
+        }
+        list.sort((a, b) -> Integer.compare(b.getCount(), a.getCount()));
+        return list;
+    }
+
+    /**
+     * Every category's actuals and budgets for each month of {@code year}, with
+     * trends and top merchants, in the reporting currency. The months are read
+     * in parallel; see {@link AnnualReportEngine}.
+     */
+    public AnnualReport getAnnualReport(Year year) throws SQLException {
+        return reports.generate(year);
+    }
+
+    private static BigDecimal roundOrZero(BigDecimal amount, String currency) {
+        return amount == null ? BigDecimal.ZERO : CurrencyConverter.round(amount, currency);
+    }
+
+    /**
+     * Expenses flagged by {@link AnomalyDetector} (unusual amount, possible
+     * duplicate) by id; built from the stored expenses on first use.
+     */
+    public Map<Integer, Set<AnomalyDetector.Flag>> getAnomalyFlags() throws SQLException {
+        return anomalies.flags();
+    }
+
+    /** Recomputes the anomaly flags from all stored expenses. */
+    public void rebuildAnomalyFlags() throws SQLException {
+        anomalies.rebuild();
+    }
+
+    /** Sum of {@code expenses} in the reporting currency, converting per (currency, day). */
+    public BigDecimal totalInReportingCurrency(List<Expense> expenses) throws SQLException {
+        String target = CurrencyConverter.reportingCurrency();
+        Map<String, Object[]> groups = new HashMap<>();
+        for (Expense e : expenses) {
+            if (e.getAmount() == null) continue;
+            boolean same = target.equals(e.getCurrency());
+            LocalDate day = same ? null : e.getExpenseDate();
+            Object[] g = groups.computeIfAbsent(e.getCurrency() + "|" + day,
+                k -> new Object[]{e.getCurrency(), day, BigDecimal.ZERO});
+            g[2] = ((BigDecimal) g[2]).add(e.getAmount());
+        }
+        return fx.sum(new ArrayList<>(groups.values()), 0, 1, 2, target);
     }
 
+    /**
+     * On-demand evaluation of one budget against the 80 % / 100 % marks,
+     * without deduplication; change-driven notifications come from
+     * {@link BudgetAlertEngine}.
+     */
     public BudgetAlert checkBudget(int categoryId, String monthYear) throws SQLException {
+        BudgetCheckEvent ev = BudgetCheckEvent.begin(categoryId, monthYear);
         Budget budget = budgetDAO.findByCategoryAndMonth(categoryId, monthYear);
-        if (budget == null) return null;
+        if (budget == null) {
+            BudgetCheckEvent.complete(ev, "NO_BUDGET", 0);
+            return null;
+        }
 
-        BigDecimal spent = expenseDAO.sumByCategoryAndMonth(categoryId, monthYear);
-        budget.setSpentAmount(spent);
+        budget.setSpentAmount(spentInBudgetCurrency(budget));
 
+        BudgetAlert alert = null;
         if (budget.isExceeded()) {
-            return new BudgetAlert(budget, BudgetAlert.Type.EXCEEDED);
+            alert = new BudgetAlert(budget, BudgetAlert.Type.EXCEEDED);
         } else if (budget.isNearLimit()) {
-            return new BudgetAlert(budget, BudgetAlert.Type.NEAR_LIMIT);
+            alert = new BudgetAlert(budget, BudgetAlert.Type.NEAR_LIMIT);
         }
-        return null;
+        BudgetCheckEvent.complete(ev, alert == null ? "OK" : alert.getType().name(), budget.getUsagePercent());
+        return alert;
     }
 
     // ── Budget CRUD ──────────────────────────────────────────────────────────
 
+    /**
+     * Budgets of {@code monthYear} with their spending and, for the current
+     * month, the projected total. The spending of all budgets is read in one
+     * query and converted here.
+     */
     public List<Budget> getBudgetsForMonth(String monthYear) throws SQLException {
         List<Budget> budgets = budgetDAO.findByMonth(monthYear);
+        if (budgets.isEmpty()) return budgets;
+        Map<Integer, List<Object[]>> groups = new HashMap<>();
+        for (Object[] r : expenseDAO.sumsForBudgets(monthYear)) {
+            groups.computeIfAbsent((Integer) r[0], id -> new ArrayList<>()).add(r);
+        }
         for (Budget b : budgets) {
-            BigDecimal spent = expenseDAO.sumByCategoryAndMonth(b.getCategoryId(), monthYear);
-            b.setSpentAmount(spent);
+            b.setSpentAmount(fx.sum(groups.getOrDefault(b.getCategoryId(), List.of()), 1, 2, 3, b.getCurrency()));
+        }
+        LocalDate today = LocalDate.now();
+        if (YearMonth.from(today).format(FMT).equals(monthYear)) {
+            setProjections(budgets, today);
         }
         return budgets;
     }
 
+    /**
+     * Projects each budget to the end of the month: what is spent plus the
+     * {@link SpendForecaster} estimate of what is still to come.
+     */
+    private void setProjections(List<Budget> budgets, LocalDate today) throws SQLException {
+        String reporting = CurrencyConverter.reportingCurrency();
+        Map<Integer, SpendForecaster.Forecast> forecasts = forecaster.forecastAll(today);
+        for (Budget b : budgets) {
+            SpendForecaster.Forecast f = forecasts.get(b.getCategoryId());
+            BigDecimal rest = f == null ? BigDecimal.ZERO
+                            : fx.convert(f.getRemaining(), reporting, b.getCurrency(), today);
+            b.setProjectedAmount(CurrencyConverter.round(b.getSpentAmount().add(rest), b.getCurrency()));
+        }
+    }
+
+    private BigDecimal spentInBudgetCurrency(Budget b) throws SQLException {
+        List<Object[]> groups = expenseDAO.sumByCategoryAndMonth(
+            b.getCategoryId(), b.getMonthYear(), b.getCurrency());
+        return fx.sum(groups, 0, 1, 2, b.getCurrency());
+    }
+
+    /**
+     * Rejects {@code e} if its budget is a hard limit that it would exceed.
+     * Runs inside the write's transaction and first takes the (category, month)
+     * advisory lock, so writers to the same budget queue up until the holder
+     * commits and each sums the rows of all before it; writers to other
+     * categories or months never wait. Soft budgets cost one lookup and no lock.
+     *
+     * @param before the stored version of {@code e} when updating, else null
+     */
+    private void enforceHardLimit(Expense e, Expense before) throws SQLException {
+        String month  = YearMonth.from(e.getExpenseDate()).format(FMT);
+        Budget budget = budgetDAO.findByCategoryAndMonth(e.getCategoryId(), month);
+        if (budget == null || !budget.isHardLimit()) return;
+        budgetDAO.lockCategoryMonth(e.getCategoryId(), month);
+        checkHardLimit(e, before, budget);
+    }
+
+    /**
+     * Looks up the hard-limit budgets of a batch's expenses and takes their
+     * advisory locks up front, in (category, month) order, so two batches over
+     * the same budgets queue up instead of deadlocking; returns them by
+     * {@link #budgetKey}.
+     */
+    private Map<Long, Budget> lockHardLimits(List<Expense> expenses) throws SQLException {
+        Map<Long, Budget> hard = new TreeMap<>();
+        if (expenses.isEmpty()) return hard;
+        Map<Long, Expense> keys = new LinkedHashMap<>();
+        for (Expense e : expenses) keys.putIfAbsent(budgetKey(e), e);
+        Integer[] categories = new Integer[keys.size()];
+        String[]  months     = new String[keys.size()];
+        int i = 0;
+        for (Expense e : keys.values()) {
+            categories[i] = e.getCategoryId();
+            months[i++]   = YearMonth.from(e.getExpenseDate()).format(FMT);
+        }
+        for (Budget b : budgetDAO.findByCategoriesAndMonths(categories, months)) {
+            if (b.isHardLimit()) hard.put(budgetKey(b.getCategoryId(), YearMonth.parse(b.getMonthYear())), b);
+        }
+        for (Budget b : hard.values()) budgetDAO.lockCategoryMonth(b.getCategoryId(), b.getMonthYear());
+        return hard;
+    }
+
+    /** Orders budgets by category, then month: the order their locks are taken in. */
+    private static long budgetKey(Expense e) {
+        return budgetKey(e.getCategoryId(), YearMonth.from(e.getExpenseDate()));
+    }
+
+    private static long budgetKey(int categoryId, YearMonth ym) {
+        return (long) categoryId << 32 | (ym.getYear() * 100 + ym.getMonthValue());
+    }
+
+    /**
+     * The check of {@link #enforceHardLimit} against {@code budget}, whose
+     * lock is already held; nothing to check if null.
+     */
+    private void checkHardLimit(Expense e, Expense before, Budget budget) throws SQLException {
+        if (budget == null) return;
+        String     month = budget.getMonthYear();
+        String     cur   = budget.getCurrency();
+        BigDecimal spent = spentInBudgetCurrency(budget);
+        if (before != null && before.getCategoryId() == e.getCategoryId()
+                && YearMonth.from(before.getExpenseDate()).format(FMT).equals(month)) {
+            spent = spent.subtract(fx.convert(before.getAmount(), before.getCurrency(), cur, before.getExpenseDate()));
+        }
+        spend(budget, spent, e);
+    }
+
+    /**
+     * Adds {@code e} to {@code spent}, what {@code budget} has spent so far;
+     * returns the new total.
+     *
+     * @throws BudgetExceededException if it goes over the limit
+     */
+    private BigDecimal spend(Budget budget, BigDecimal spent, Expense e) throws SQLException {
+        String     cur    = budget.getCurrency();
+        BigDecimal amount = CurrencyConverter.round(
+            fx.convert(e.getAmount(), e.getCurrency(), cur, e.getExpenseDate()), cur);
+        budget.setSpentAmount(spent);
+        if (spent.add(amount).compareTo(budget.getLimitAmount()) > 0) {
+            throw new BudgetExceededException(budget, amount);
+        }
+        return spent.add(amount);
+    }
+
+    private static DatabaseConnection db() throws SQLException {
+        return DatabaseConnection.instance();
+    }
+
     public void saveBudget(Budget budget) throws SQLException {
         budgetDAO.save(budget);
+        alerts.budgetChanged(budget.getCategoryId(), budget.getMonthYear());
     }
 
     public void deleteBudget(int id) throws SQLException {
         budgetDAO.delete(id);
+        alerts.budgetRemoved(id);
+    }
+
+    /** Latest budget alerts, newest first; see {@link BudgetAlertDAO#findRecent}. */
+    public List<Object[]> getAlertHistory(int limit) throws SQLException {
+        return alertDAO.findRecent(limit);
+    }
+
+    // ── Attachments ──────────────────────────────────────────────────────────
+
+    public List<Attachment> getAttachments(int expenseId) throws SQLException {
+        return attachments.findByExpense(expenseId);
+    }
+
+    /** Stores {@code file} in the blob store and attaches it to the expense. */
+    public Attachment addAttachment(int expenseId, Path file) throws IOException, SQLException {
+        Attachment a = new Attachment();
+        a.setExpenseId(expenseId);
+        a.setSize(Files.size(file));
+        a.setSha256(blobs.put(file));
+        a.setFileName(file.getFileName().toString());
+        a.setContentType(contentType(file));
+        return attachments.save(a);
+    }
+
+    /** Detaches the file; its content stays in the blob store until {@link #pruneAttachments}. */
+    public void removeAttachment(int id) throws SQLException {
+        attachments.delete(id);
+    }
+
+    /** The stored content of {@code a}. */
+    public Path attachmentFile(Attachment a) {
+        return blobs.path(a.getSha256());
+    }
+
+    /**
+     * Deletes stored files no attachment refers to any more; returns how many.
+     * Nothing is deleted while there are no attachments at all: that is a new
+     * database, or one about to be restored from a snapshot referring to them.
+     */
+    public int pruneAttachments() throws IOException, SQLException {
+        Set<String> referenced = attachments.findHashes();
+        return referenced.isEmpty() ? 0 : blobs.prune(referenced, Duration.ofHours(1));
+    }
+
+    private static String contentType(Path file) {
+        try {
+            String type = Files.probeContentType(file);
+            if (type != null) return type;
+        } catch (IOException ignored) {
+            // fall back to the extension
+        }
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".pdf"))                           return "application/pdf";
+        if (name.endsWith(".png"))                           return "image/png";
+        if (name.endsWith(".jpg") || name.endsWith(".jpeg")) return "image/jpeg";
+        if (name.endsWith(".gif"))                           return "image/gif";
+        return "application/octet-stream";
     }
 
     // ── Inner class for alerts ───────────────────────────────────────────────
     public static class BudgetAlert {
-        public enum Type { NEAR_LIMIT, EXCEEDED }
+        public enum Type { NEAR_LIMIT, EXCEEDED, BACK_UNDER }
 
         private final Budget budget;
         private final Type   type;
+        private final int    threshold;   // percent crossed, 0 for on-demand checks
 
         public BudgetAlert(Budget budget, Type type) {
-            this.budget = budget;
-            this.type   = type;
+            this(budget, type, 0);
+        }
+
+        /** Alert for crossing {@code threshold} percent upwards ({@code rising}) or back below it. */
+        public BudgetAlert(Budget budget, int threshold, boolean rising) {
+            this(budget, !rising ? Type.BACK_UNDER : threshold >= 100 ? Type.EXCEEDED : Type.NEAR_LIMIT, threshold);
+        }
+
+        private BudgetAlert(Budget budget, Type type, int threshold) {
+            this.budget    = budget;
+            this.type      = type;
+            this.threshold = threshold;
         }
 
-        public Budget getBudget() { return budget; }
-        public Type   getType()   { return type;   }
+        public Budget getBudget()    { return budget;    }
+        public Type   getType()      { return type;      }
+        public int    getThreshold() { return threshold; }
 
         public String getMessage() {
+            CurrencyFormatter fmt = CurrencyFormatter.forCurrency(budget.getCurrency());
             if (type == Type.EXCEEDED) {
                 return String.format(
-                    "⚠ BUDGET EXCEEDED for %s!\n" +
-                    "Limit: $%.2f  |  Spent: $%.2f  |  Over by: $%.2f",
+                    "⚠ BUDGET EXCEEDED for %s%s!\n" +
+                    "Limit: %s  |  Spent: %s  |  Over by: %s",
+                    budget.getCategoryName(),
+                    threshold > 100 ? " (over " + threshold + "%)" : "",
+                    fmt.formatAmount(budget.getLimitAmount()),
+                    fmt.formatAmount(budget.getSpentAmount()),
+                    fmt.formatAmount(budget.getSpentAmount().subtract(budget.getLimitAmount())));
+            } else if (type == Type.BACK_UNDER) {
+                return String.format(
+                    "✅ %s is back under %d%% of its budget\n" +
+                    "Used: %.1f%% of %s  |  Remaining: %s",
                     budget.getCategoryName(),
-                    budget.getLimitAmount(),
-                    budget.getSpentAmount(),
-                    budget.getSpentAmount().subtract(budget.getLimitAmount()));
+                    threshold,
+                    budget.getUsagePercent(),
+                    fmt.formatAmount(budget.getLimitAmount()),
+                    fmt.formatAmount(budget.getRemainingAmount()));
             } else {
                 return String.format(
                     "⚡ Budget Warning for %s\n" +
-                    "You've used %.1f%% of your $%.2f budget.\n" +
-                    "Remaining: $%.2f",
+                    "You've used %.1f%% of your %s budget.\n" +
+                    "Remaining: %s",
                     budget.getCategoryName(),
                     budget.getUsagePercent(),
-                    budget.getLimitAmount(),
-                    budget.getRemainingAmount());
+                    fmt.formatAmount(budget.getLimitAmount()),
+                    fmt.formatAmount(budget.getRemainingAmount()));
             }
         }
     }
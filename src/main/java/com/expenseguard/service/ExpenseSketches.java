@@ -0,0 +1,155 @@
+package com.expenseguard.service;
+
+import com.expenseguard.dao.CategoryDAO;
+import com.expenseguard.dao.ExpenseDAO;
+import com.expenseguard.dao.SketchDAO;
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.model.Category;
+import com.expenseguard.util.HyperLogLog;
+import com.expenseguard.util.KllSketch;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+/**
+ * Transaction-size quantiles and distinct-merchant counts per category over
+ * any range of months, from sketches kept per category and month in
+ * {@code expense_sketches}.
+ *
+ * <p>Each month's sketches are built once from its expenses (amounts in the
+ * reporting currency, merchants keyed as {@link AnomalyDetector} keys them),
+ * stored, and merged on the fly for the range asked for: a ten-year range
+ * reads and merges at most 120 small sketches per category instead of every
+ * expense. The {@code expenses} triggers drop a month's sketch whenever its
+ * expenses change, and the next read rebuilds it. Writers hold the month's
+ * advisory lock shared until they commit; a rebuild takes it exclusively
+ * without waiting, and while a writer holds it the freshly built sketch is
+ * used but not stored.
+ */
+public class ExpenseSketches {
+
+    private static final Logger LOGGER = Logger.getLogger(ExpenseSketches.class.getName());
+
+    private final SketchDAO         sketchDAO   = new SketchDAO();
+    private final ExpenseDAO        expenseDAO  = new ExpenseDAO();
+    private final CategoryDAO       categoryDAO = new CategoryDAO();
+    private final CurrencyConverter fx          = CurrencyConverter.getInstance();
+
+    /**
+     * Merged sketches of each category with spending in the months {@code from}
+     * to {@code to} (inclusive; months after the current one are left out), by
+     * category id.
+     */
+    public Map<Integer, Merged> merged(YearMonth from, YearMonth to) throws SQLException {
+        YearMonth now = YearMonth.now();
+        if (to.isAfter(now)) to = now;
+        Map<Integer, Merged> result = new HashMap<>();
+        if (from.isAfter(to)) return result;
+
+        String target = CurrencyConverter.reportingCurrency();
+        Map<YearMonth, Set<Integer>> present = new HashMap<>();
+        for (Object[] r : sketchDAO.findRange(from.atDay(1), to.atDay(1), target)) {
+            YearMonth month = YearMonth.from((LocalDate) r[1]);
+            present.computeIfAbsent(month, m -> new HashSet<>()).add((Integer) r[0]);
+            if ((Integer) r[2] == 0) continue;
+            result.computeIfAbsent((Integer) r[0], id -> new Merged())
+                  .merge((Integer) r[2], KllSketch.fromBytes((byte[]) r[3]), HyperLogLog.fromBytes((byte[]) r[4]));
+        }
+
+        List<Integer> categories = new ArrayList<>();
+        for (Category c : categoryDAO.findAll()) categories.add(c.getId());
+        for (YearMonth m = from; !m.isAfter(to); m = m.plusMonths(1)) {
+            Set<Integer> missing = new TreeSet<>(categories);
+            missing.removeAll(present.getOrDefault(m, Set.of()));
+            if (missing.isEmpty()) continue;
+            for (Map.Entry<Integer, Merged> e : rebuild(m, missing, target).entrySet()) {
+                Merged built = e.getValue();
+                if (built.count == 0) continue;
+                result.computeIfAbsent(e.getKey(), id -> new Merged()).merge(built.count, built.amounts, built.merchants);
+            }
+        }
+        return result;
+    }
+
+    /** Drops every stored sketch, e.g. after exchange rates changed; the next reads rebuild them. */
+    public void invalidateAll() throws SQLException {
+        sketchDAO.deleteAll();
+    }
+
+    /**
+     * Builds the sketches of {@code categoryIds} for {@code month} and stores
+     * those whose lock could be taken; categories without spending get empty
+     * sketches, so they are not read again.
+     */
+    private Map<Integer, Merged> rebuild(YearMonth month, Set<Integer> categoryIds, String target) throws SQLException {
+        LocalDate first = month.atDay(1);
+        return db().inTransaction(() -> {
+            Set<Integer> locked = new HashSet<>();
+            for (int id : categoryIds) {   // ascending
+                if (sketchDAO.tryLockCategoryMonth(id, first)) locked.add(id);
+            }
+            Map<Integer, Merged> built = new HashMap<>();
+            for (int id : categoryIds) built.put(id, new Merged());
+            SQLException[] failure = new SQLException[1];
+            expenseDAO.sketchInput(first, month.plusMonths(1).atDay(1), categoryIds, r -> {
+                if (failure[0] != null) return;
+                try {
+                    BigDecimal amount = fx.convert((BigDecimal) r[3], (String) r[2], target, (LocalDate) r[1]);
+                    built.get((Integer) r[0]).add(amount.doubleValue(), (String) r[4]);
+                } catch (SQLException ex) {
+                    failure[0] = ex;
+                }
+            });
+            if (failure[0] != null) throw failure[0];
+            for (int id : locked) {
+                Merged m = built.get(id);
+                sketchDAO.upsert(id, first, target, m.count, m.amounts.toBytes(), m.merchants.toBytes());
+            }
+            if (locked.size() < categoryIds.size()) {
+                LOGGER.fine(() -> "Sketches for " + month + " in use by writers; not stored for "
+                                  + (categoryIds.size() - locked.size()) + " categories");
+            }
+            return built;
+        });
+    }
+
+    private static DatabaseConnection db() throws SQLException {
+        return DatabaseConnection.instance();
+    }
+
+    /** One category's sketches over a range of months. */
+    public static final class Merged {
+        private int               count;
+        private final KllSketch   amounts   = new KllSketch();
+        private final HyperLogLog merchants = new HyperLogLog();
+
+        void add(double amount, String description) {
+            count++;
+            amounts.add(amount);
+            merchants.add(AnomalyDetector.merchant(description));
+        }
+
+        void merge(int n, KllSketch a, HyperLogLog m) {
+            count += n;
+            amounts.merge(a);
+            merchants.merge(m);
+        }
+
+        /** Number of expenses. */
+        public int    getCount()             { return count; }
+        /** Transaction size at rank {@code q} (0 to 1) in the reporting currency; NaN if none. */
+        public double quantile(double q)     { return amounts.quantile(q); }
+        /** Estimated number of distinct merchants. */
+        public long   getDistinctMerchants() { return merchants.estimate(); }
+    }
+}
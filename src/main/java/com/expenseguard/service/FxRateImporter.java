@@ -0,0 +1,57 @@
+package com.expenseguard.service;
+
+import com.expenseguard.dao.FxRateDAO;
+import com.expenseguard.model.FxRate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Imports daily exchange rates from a CSV file.
+ *
+ * <p>One rate per line: {@code date,currency,rate}, e.g. {@code 2025-02-03,EUR,1.0342},
+ * meaning one EUR is worth 1.0342 units of the file's pivot currency. Blank
+ * lines, lines starting with {@code #} and a {@code date,...} header are skipped.
+ */
+public class FxRateImporter {
+
+    private final FxRateDAO dao = new FxRateDAO();
+
+    /** Imports the file and returns the number of rates stored. */
+    public int importFile(Path file) throws IOException, SQLException {
+        List<FxRate> rates = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#") || line.toLowerCase(Locale.ROOT).startsWith("date")) continue;
+                String[] f = line.split("[,;]");
+                if (f.length < 3) throw new IOException("Line " + lineNo + ": expected date,currency,rate");
+                try {
+                    rates.add(new FxRate(LocalDate.parse(f[0].strip()),
+                                         f[1].strip().toUpperCase(Locale.ROOT),
+                                         new BigDecimal(f[2].strip())));
+                } catch (DateTimeParseException | NumberFormatException e) {
+                    throw new IOException("Line " + lineNo + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        int n = dao.saveAll(rates);
+        CurrencyConverter.getInstance().invalidate();
+        BudgetAlertEngine.getInstance().reset();
+        new ExpenseSketches().invalidateAll();
+        return n;
+    }
+}
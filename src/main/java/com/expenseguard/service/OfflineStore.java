@@ -0,0 +1,212 @@
+package com.expenseguard.service;
+
+import com.expenseguard.model.Category;
+import com.expenseguard.model.Expense;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Local copy of what the UI needs to keep working without the database: the
+ * categories and every month of expenses that was loaded while online.
+ *
+ * <p>Kept in memory and saved to {@code -Dexpenseguard.offline.store} (default
+ * {@code ~/.expenseguard/offline.store}) a second after the last change, by
+ * writing a new file and renaming it over the old one. On first use the file
+ * is memory-mapped read-only and decoded in one pass, without any network
+ * round trip. Rows are copied in and out, so callers may modify what they get.
+ */
+public class OfflineStore {
+
+    private static final Logger LOGGER = Logger.getLogger(OfflineStore.class.getName());
+
+    private static final Path FILE = Path.of(System.getProperty("expenseguard.offline.store",
+        Path.of(System.getProperty("user.home"), ".expenseguard", "offline.store").toString()));
+    private static final int  MAGIC  = 0x45474F53;   // "EGOS"
+    private static final int  FORMAT = 1;
+
+    private static final OfflineStore INSTANCE = new OfflineStore();
+
+    // Guarded by this.
+    private final Map<YearMonth, List<Expense>> months     = new HashMap<>();
+    private List<Category>                      categories = new ArrayList<>();
+    private boolean                             loaded;
+    private boolean                             saveQueued;
+
+    private final ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "offline-store");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private OfflineStore() {}
+
+    public static OfflineStore getInstance() {
+        return INSTANCE;
+    }
+
+    /** Whether nothing was ever stored, i.e. the app cannot start without the database. */
+    public synchronized boolean isEmpty() {
+        load();
+        return categories.isEmpty();
+    }
+
+    /** The stored expenses of a month, or null if it was never loaded online. */
+    public synchronized List<Expense> month(YearMonth ym) {
+        load();
+        List<Expense> rows = months.get(ym);
+        return rows == null ? null : copy(rows);
+    }
+
+    /** Every stored expense, newest first; null if nothing is stored. */
+    public synchronized List<Expense> all() {
+        load();
+        if (months.isEmpty()) return null;
+        List<Expense> rows = new ArrayList<>();
+        for (List<Expense> m : months.values()) rows.addAll(copy(m));
+        rows.sort(Comparator.comparing(Expense::getExpenseDate).thenComparing(Expense::getId).reversed());
+        return rows;
+    }
+
+    /** The stored categories, or null if none are. */
+    public synchronized List<Category> categories() {
+        load();
+        if (categories.isEmpty()) return null;
+        List<Category> list = new ArrayList<>(categories.size());
+        for (Category c : categories) list.add(new Category(c.getId(), c.getName(), c.getDescription()));
+        return list;
+    }
+
+    public synchronized void putMonth(YearMonth ym, List<Expense> rows) {
+        load();
+        months.put(ym, copy(rows));
+        queueSave();
+    }
+
+    /** Replaces every stored month with a complete list of expenses. */
+    public synchronized void putAll(List<Expense> rows) {
+        load();
+        months.clear();
+        for (Expense e : rows) {
+            months.computeIfAbsent(YearMonth.from(e.getExpenseDate()), k -> new ArrayList<>()).add(new Expense(e));
+        }
+        queueSave();
+    }
+
+    public synchronized void putCategories(List<Category> list) {
+        load();
+        categories = new ArrayList<>(list);
+        queueSave();
+    }
+
+    // ── File ─────────────────────────────────────────────────────────────────
+
+    private void load() {
+        if (loaded) return;
+        loaded = true;
+        if (!Files.exists(FILE)) return;
+        try (FileChannel ch = FileChannel.open(FILE, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new BufferInput(buf)));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT) {
+                LOGGER.warning("Ignoring offline store in an unknown format: " + FILE);
+                return;
+            }
+            int nCategories = in.readInt();
+            for (int i = 0; i < nCategories; i++) categories.add(ExpenseCodec.readCategory(in));
+            int nMonths = in.readInt();
+            for (int i = 0; i < nMonths; i++) {
+                YearMonth ym = YearMonth.parse(in.readUTF());
+                int n = in.readInt();
+                List<Expense> rows = new ArrayList<>(n);
+                for (int j = 0; j < n; j++) rows.add(ExpenseCodec.readExpense(in));
+                months.put(ym, rows);
+            }
+            LOGGER.info("Loaded offline store: " + nMonths + " month(s) from " + FILE);
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Ignoring unreadable offline store " + FILE, ex);
+            categories.clear();
+            months.clear();
+        }
+    }
+
+    private void queueSave() {
+        if (saveQueued) return;
+        saveQueued = true;
+        saver.schedule(this::save, 1, TimeUnit.SECONDS);
+    }
+
+    private void save() {
+        byte[] data;
+        try {
+            synchronized (this) {
+                saveQueued = false;
+                data = encode();
+            }
+            Path tmp = FILE.resolveSibling(FILE.getFileName() + ".tmp");
+            if (FILE.getParent() != null) Files.createDirectories(FILE.getParent());
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                   StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer b = ByteBuffer.wrap(data);
+                while (b.hasRemaining()) ch.write(b);
+                ch.force(false);
+            }
+            Files.move(tmp, FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Could not save the offline store " + FILE, ex);
+        }
+    }
+
+    private byte[] encode() throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(64 * 1024);
+        DataOutputStream out = new DataOutputStream(buf);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT);
+        out.writeInt(categories.size());
+        for (Category c : categories) ExpenseCodec.writeCategory(out, c);
+        out.writeInt(months.size());
+        for (Map.Entry<YearMonth, List<Expense>> m : months.entrySet()) {
+            out.writeUTF(m.getKey().toString());
+            out.writeInt(m.getValue().size());
+            for (Expense e : m.getValue()) ExpenseCodec.writeExpense(out, e);
+        }
+        out.flush();
+        return buf.toByteArray();
+    }
+
+    private static List<Expense> copy(List<Expense> rows) {
+        List<Expense> list = new ArrayList<>(rows.size());
+        for (Expense e : rows) list.add(new Expense(e));
+        return list;
+    }
+
+    /** Reads a (mapped) buffer as a stream. */
+    private static final class BufferInput extends InputStream {
+        private final ByteBuffer buf;
+
+        BufferInput(ByteBuffer buf) { this.buf = buf; }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buf.hasRemaining()) return -1;
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.expenseguard.service;
+
+import com.expenseguard.dao.ExpenseDAO;
+import com.expenseguard.dao.RecurringExpenseDAO;
+import com.expenseguard.model.Expense;
+import com.expenseguard.model.RecurringExpense;
+import com.expenseguard.util.RecurrenceRule;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Materialises due occurrences of recurring expenses.
+ *
+ * <p>A run expands every due template's rule up to today and inserts all
+ * occurrences with a single statement. The unique (recurring_id, expense_date)
+ * key makes runs idempotent: a crash between the insert and advancing
+ * {@code last_generated} only means the next run re-offers rows that are
+ * skipped. The inserted rows are published to {@link BudgetAlertEngine} as one
+ * change, so each affected (category, month) budget is evaluated once.
+ *
+ * <p>Runs at start-up and every {@code -Dexpenseguard.recurring.intervalMin}
+ * minutes (default 60) on a daemon thread.
+ */
+public class RecurringScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(RecurringScheduler.class.getName());
+
+    private static final long INTERVAL_MIN = Long.getLong("expenseguard.recurring.intervalMin", 60);
+
+    private static final RecurringScheduler INSTANCE = new RecurringScheduler();
+
+    /** Notified on the scheduler thread after a run that inserted occurrences. */
+    public interface Listener {
+        void generated(List<Expense> inserted);
+    }
+
+    private final RecurringExpenseDAO recurringDAO = new RecurringExpenseDAO();
+    private final ExpenseDAO          expenseDAO   = new ExpenseDAO();
+    private final BudgetAlertEngine   alerts       = BudgetAlertEngine.getInstance();
+    private final AnomalyDetector     anomalies    = AnomalyDetector.getInstance();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "recurring-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile Listener listener;
+    private boolean           started;
+
+    private RecurringScheduler() {}
+
+    public static RecurringScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Runs now and then periodically; further calls are ignored. */
+    public synchronized void start() {
+        if (started) return;
+        started = true;
+        executor.scheduleWithFixedDelay(this::runScheduled, 0, INTERVAL_MIN, TimeUnit.MINUTES);
+    }
+
+    /** Queues an immediate run, e.g. after a new template was saved. */
+    public void runNow() {
+        executor.execute(this::runScheduled);
+    }
+
+    /**
+     * Generates all occurrences due on or before {@code today}.
+     *
+     * @return the occurrences inserted by this run
+     */
+    public synchronized List<Expense> run(LocalDate today) throws SQLException {
+        List<Expense>          pending = new ArrayList<>();
+        Map<Integer, LocalDate> last   = new HashMap<>();
+        for (RecurringExpense r : recurringDAO.findDue(today)) {
+            List<LocalDate> dates;
+            try {
+                dates = RecurrenceRule.parse(r.getRule())
+                                      .occurrences(r.getStartDate(), r.getLastGenerated(), today);
+            } catch (IllegalArgumentException ex) {
+                LOGGER.warning("Skipping recurring expense " + r.getId() + ": " + ex.getMessage());
+                continue;
+            }
+            for (LocalDate d : dates) pending.add(r.occurrence(d));
+            last.put(r.getId(), today);
+        }
+
+        List<Expense> inserted = alerts.write(() -> {
+            List<Expense> rows = expenseDAO.insertOccurrences(pending);
+            alerts.expensesAdded(rows);
+            for (Expense e : rows) anomalies.added(e);
+            return rows;
+        });
+        recurringDAO.markGenerated(last);
+        if (!inserted.isEmpty()) {
+            LOGGER.info("Generated " + inserted.size() + " recurring expense(s) from " + last.size() + " template(s).");
+        }
+        return inserted;
+    }
+
+    private void runScheduled() {
+        try {
+            List<Expense> inserted = run(LocalDate.now());
+            Listener l = listener;
+            if (l != null && !inserted.isEmpty()) l.generated(inserted);
+        } catch (SQLException | RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Recurring expense generation failed", ex);
+        }
+    }
+}
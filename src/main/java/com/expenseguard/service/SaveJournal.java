@@ -0,0 +1,143 @@
+package com.expenseguard.service;
+
+import com.expenseguard.model.Expense;
+import com.expenseguard.service.WriteBehindQueue.Op;
+import com.expenseguard.service.WriteBehindQueue.Write;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of queued expense writes for {@link WriteBehindQueue}.
+ *
+ * <p>Each record is {@code [length][crc32][payload]}. A write record is forced
+ * to disk before {@link #append} returns; a done record marks it as applied to
+ * the database (or given up on) and is not forced – if it is lost, replay
+ * applies the write again, which the queue makes idempotent. A done record
+ * also carries the expense's id and version after the write, from which
+ * replay restores the queue's view of its own versions. On open, records
+ * after a torn or corrupt tail are cut off. The file is emptied whenever
+ * nothing is pending.
+ */
+final class SaveJournal implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(SaveJournal.class.getName());
+
+    private static final byte WRITE = 1;
+    private static final byte DONE  = 2;
+
+    private final Path        file;
+    private final FileChannel ch;
+    private long              nextSeq = 1;
+
+    SaveJournal(Path file) throws IOException {
+        this.file = file;
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        this.ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Reads the file and returns the writes without a done record, oldest
+     * first; {@code versions} receives the id and version each done write left.
+     */
+    synchronized List<Write> replay(Map<Integer, Integer> versions) throws IOException {
+        Map<Long, Write> open = new LinkedHashMap<>();
+        long good = 0;
+        ch.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(ch)));
+        while (true) {
+            byte[] payload;
+            try {
+                int len = in.readInt();
+                int crc = in.readInt();
+                if (len <= 0 || len > 1 << 20) break;
+                payload = new byte[len];
+                in.readFully(payload);
+                if (crc != crc(payload)) break;
+            } catch (EOFException eof) {
+                break;
+            }
+            DataInputStream r = new DataInputStream(new ByteArrayInputStream(payload));
+            byte type = r.readByte();
+            long seq  = r.readLong();
+            if (type == WRITE) open.put(seq, new Write(seq, Op.values()[r.readByte()], ExpenseCodec.readExpense(r), true));
+            else {
+                open.remove(seq);
+                int id = r.readInt(), version = r.readInt();
+                if (id != 0 && version != 0) versions.put(id, version);
+            }
+            nextSeq = Math.max(nextSeq, seq + 1);
+            good += 8 + payload.length;
+        }
+        if (good < ch.size()) {
+            LOGGER.warning("Truncating " + (ch.size() - good) + " byte(s) of incomplete journal records in " + file);
+            ch.truncate(good);
+            ch.force(false);
+        }
+        ch.position(good);
+        return new ArrayList<>(open.values());
+    }
+
+    /** Appends a write and forces it to disk. */
+    synchronized Write append(Op op, Expense e) throws IOException {
+        Write w = new Write(nextSeq++, op, e, false);
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(buf);
+        out.writeByte(WRITE);
+        out.writeLong(w.getSeq());
+        out.writeByte(op.ordinal());
+        ExpenseCodec.writeExpense(out, e);
+        record(buf.toByteArray());
+        ch.force(false);
+        return w;
+    }
+
+    /** Marks writes as finished; not forced (see class comment). */
+    synchronized void done(List<Write> writes) throws IOException {
+        for (Write w : writes) {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(17);
+            DataOutputStream out = new DataOutputStream(buf);
+            out.writeByte(DONE);
+            out.writeLong(w.getSeq());
+            out.writeInt(w.getOp() == Op.DELETE ? 0 : w.getExpense().getId());
+            out.writeInt(w.getExpense().getVersion());
+            record(buf.toByteArray());
+        }
+    }
+
+    /** Empties the file; only call when no write is pending. */
+    synchronized void reset() throws IOException {
+        ch.truncate(0);
+        ch.position(0);
+        ch.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        ch.close();
+    }
+
+    private void record(byte[] payload) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(8 + payload.length);
+        b.putInt(payload.length).putInt(crc(payload)).put(payload).flip();
+        while (b.hasRemaining()) ch.write(b);
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
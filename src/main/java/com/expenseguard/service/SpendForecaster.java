@@ -0,0 +1,246 @@
+package com.expenseguard.service;
+
+import com.expenseguard.dao.ExpenseDAO;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Projects each category's spending to the end of the current month.
+ *
+ * <p>Per category it keeps an exponentially weighted moving average (EWMA) of
+ * its finished monthly totals, weight {@code -Dexpenseguard.forecast.alpha}
+ * (default 0.3) on the latest month, and a day-of-month profile: the share of
+ * a month's spending usually made by the end of each day, averaged the same
+ * way. The projection is the amount spent so far plus the part of the month
+ * still to come, taken from an estimate of the full month that leans on this
+ * month's spending as the expected share of it grows:
+ *
+ * <pre>
+ * share     = profile[today]              (today / days in month without history)
+ * full      = spent + (1 - share) * average
+ * projected = spent + (1 - share) * full
+ * </pre>
+ *
+ * <p>The statistics are seeded once from the last {@value #HISTORY_MONTHS}
+ * months and then follow {@link BudgetAlertEngine}'s changes at constant cost
+ * per expense: a change to the current month moves its running total, one to
+ * an earlier month moves the average by the weight that month carries (the
+ * profile keeps what it learned), and the first change or projection in a new
+ * month folds the finished one in. Projections read only these numbers, so a
+ * thousand categories take well under a millisecond. Amounts are in the
+ * reporting currency.
+ */
+public class SpendForecaster implements BudgetAlertEngine.ChangeListener {
+
+    private static final Logger LOGGER = Logger.getLogger(SpendForecaster.class.getName());
+
+    private static final double ALPHA =
+        Math.min(1, Math.max(0.01, Double.parseDouble(System.getProperty("expenseguard.forecast.alpha", "0.3"))));
+    private static final int HISTORY_MONTHS = 12;
+
+    private static final SpendForecaster INSTANCE = new SpendForecaster();
+
+    static {
+        BudgetAlertEngine.getInstance().addChangeListener(INSTANCE);
+    }
+
+    private final ExpenseDAO        expenseDAO = new ExpenseDAO();
+    private final CurrencyConverter fx         = CurrencyConverter.getInstance();
+
+    // Guarded by this.
+    private final Map<Integer, Stats> stats = new HashMap<>();
+    private boolean   seeded;
+    private long      seededAt;    // changes up to this sequence are in the seed
+    private YearMonth reseedIn;    // a future-dated expense arrived; reseed once its month starts
+
+    /** A forecaster fed only through {@link #seed} and {@link #expenseChanged}; see {@link #getInstance()}. */
+    public SpendForecaster() {}
+
+    /** The forecaster following the application's expense changes. */
+    public static SpendForecaster getInstance() {
+        return INSTANCE;
+    }
+
+    /** Projection for one category on {@code today}, or null if it has no spending in the last year. */
+    public synchronized Forecast forecast(int categoryId, LocalDate today) throws SQLException {
+        ensureSeeded(today);
+        Stats s = stats.get(categoryId);
+        return s == null ? null : project(categoryId, s, today);
+    }
+
+    /** Projections on {@code today} of every category with spending in the last year, by category id. */
+    public synchronized Map<Integer, Forecast> forecastAll(LocalDate today) throws SQLException {
+        ensureSeeded(today);
+        Map<Integer, Forecast> all = new HashMap<>(stats.size() * 2);
+        for (Map.Entry<Integer, Stats> e : stats.entrySet()) {
+            all.put(e.getKey(), project(e.getKey(), e.getValue(), today));
+        }
+        return all;
+    }
+
+    /**
+     * Replaces the statistics with ones built from {@code dailyTotals}, rows as
+     * returned by {@link ExpenseDAO#dailyTotals} (oldest day first), up to the
+     * month of {@code today}.
+     */
+    public synchronized void seed(List<Object[]> dailyTotals, LocalDate today) throws SQLException {
+        String    target = CurrencyConverter.reportingCurrency();
+        YearMonth now    = YearMonth.from(today);
+        stats.clear();
+        for (Object[] r : dailyTotals) {
+            LocalDate day = (LocalDate) r[1];
+            if (YearMonth.from(day).isAfter(now)) continue;
+            BigDecimal amount = fx.convert((BigDecimal) r[3], (String) r[2], target, day);
+            add(stats.computeIfAbsent((Integer) r[0], id -> new Stats(YearMonth.from(day))), day, amount.doubleValue());
+        }
+        seeded   = true;
+        reseedIn = null;
+    }
+
+    // ── BudgetAlertEngine.ChangeListener (engine thread) ─────────────────────
+
+    @Override
+    public synchronized void expenseChanged(long sequence, int categoryId, LocalDate day,
+                                            BigDecimal amount, String currency) {
+        if (!seeded || sequence <= seededAt) return;   // the next seed reads it from the database
+        YearMonth month = YearMonth.from(day);
+        if (month.isAfter(YearMonth.now())) {
+            if (reseedIn == null || month.isBefore(reseedIn)) reseedIn = month;
+            return;
+        }
+        double v;
+        try {
+            v = fx.convert(amount, currency, CurrencyConverter.reportingCurrency(), day).doubleValue();
+        } catch (SQLException ex) {
+            LOGGER.warning("Forecast update failed, reseeding on next use: " + ex.getMessage());
+            seeded = false;
+            return;
+        }
+        Stats s = stats.get(categoryId);
+        if (s == null) stats.put(categoryId, s = new Stats(month));
+        add(s, day, v);
+    }
+
+    @Override
+    public synchronized void reset() {
+        seeded = false;
+    }
+
+    // ── internals (hold this) ────────────────────────────────────────────────
+
+    private void ensureSeeded(LocalDate today) throws SQLException {
+        if (reseedIn != null && !YearMonth.from(today).isBefore(reseedIn)) seeded = false;
+        if (seeded) return;
+        BudgetAlertEngine engine = BudgetAlertEngine.getInstance();
+        LocalDate from = YearMonth.from(today).minusMonths(HISTORY_MONTHS).atDay(1);
+        LocalDate to   = YearMonth.from(today).plusMonths(1).atDay(1);
+        long[] at = new long[1];
+        List<Object[]> rows = engine.exclusive(() -> {
+            at[0] = engine.sequence();
+            return expenseDAO.dailyTotals(from, to);
+        });
+        seed(rows, today);
+        seededAt = at[0];
+    }
+
+    private static void add(Stats s, LocalDate day, double amount) {
+        YearMonth month = YearMonth.from(day);
+        if (month.isAfter(s.month)) roll(s, month);
+        if (month.equals(s.month)) {
+            s.days[day.getDayOfMonth() - 1] += amount;
+            s.total += amount;
+            return;
+        }
+        // An earlier month: the average is linear in the monthly totals, so
+        // move it by the weight that month carries; months before the first
+        // one folded in are not part of it.
+        int back  = (int) month.until(s.month, ChronoUnit.MONTHS);
+        int index = s.months - back;   // 0 = the first month folded in
+        if (index < 0) return;
+        double weight = Math.pow(1 - ALPHA, back - 1) * (index == 0 ? 1 : ALPHA);
+        s.average += weight * amount;
+    }
+
+    /** Folds the months before {@code month} into the averages and starts accumulating {@code month}. */
+    private static void roll(Stats s, YearMonth month) {
+        while (s.month.isBefore(month)) {
+            s.average = s.months == 0 ? s.total : ALPHA * s.total + (1 - ALPHA) * s.average;
+            s.months++;
+            if (s.total > 0) {
+                double cumulative = 0;
+                for (int d = 0; d < s.days.length; d++) {
+                    cumulative += s.days[d];
+                    double share = Math.max(0, Math.min(1, cumulative / s.total));
+                    s.profile[d] = s.profiled == 0 ? share : ALPHA * share + (1 - ALPHA) * s.profile[d];
+                }
+                s.profiled++;
+            }
+            Arrays.fill(s.days, 0);
+            s.total = 0;
+            s.month = s.month.plusMonths(1);
+        }
+    }
+
+    private static Forecast project(int categoryId, Stats s, LocalDate today) {
+        YearMonth month = YearMonth.from(today);
+        if (month.isAfter(s.month)) roll(s, month);
+        int    day    = today.getDayOfMonth();
+        int    length = month.lengthOfMonth();
+        double spent  = month.equals(s.month) ? s.total : 0;
+        double share  = day == length ? 1 : s.profiled > 0 ? s.profile[day - 1] : (double) day / length;
+        double full   = s.months > 0 ? spent + (1 - share) * s.average : spent / share;
+        return new Forecast(categoryId, spent, spent + (1 - share) * full, share);
+    }
+
+    /** Running statistics of one category. */
+    private static final class Stats {
+        YearMonth      month;                         // the month being accumulated
+        final double[] days    = new double[31];      // its spending per day
+        double         total;                         // and in all
+        double         average;                       // EWMA of the finished monthly totals
+        int            months;                        // finished months in average
+        final double[] profile = new double[31];      // EWMA of the share spent by the end of each day
+        int            profiled;                      // finished months with spending in profile
+
+        Stats(YearMonth month) {
+            this.month = month;
+        }
+    }
+
+    /** One category's projected spending for the month, in the reporting currency. */
+    public static final class Forecast {
+        private final int    categoryId;
+        private final double spent;
+        private final double projected;
+        private final double expectedShare;
+
+        Forecast(int categoryId, double spent, double projected, double expectedShare) {
+            this.categoryId    = categoryId;
+            this.spent         = spent;
+            this.projected     = projected;
+            this.expectedShare = expectedShare;
+        }
+
+        public int        getCategoryId()    { return categoryId; }
+        /** Spent this month so far. */
+        public BigDecimal getSpent()         { return BigDecimal.valueOf(spent); }
+        /** Expected total by the end of the month. */
+        public BigDecimal getProjected()     { return BigDecimal.valueOf(projected); }
+        /** Part of the month's spending usually made by now, 0 to 1. */
+        public double     getExpectedShare() { return expectedShare; }
+
+        /** The projection still to come, {@code projected - spent}. */
+        public BigDecimal getRemaining() {
+            return BigDecimal.valueOf(projected - spent);
+        }
+    }
+}
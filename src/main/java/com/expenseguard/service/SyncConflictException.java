@@ -0,0 +1,34 @@
+package com.expenseguard.service;
+
+import com.expenseguard.model.Expense;
+
+import java.sql.SQLException;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Thrown when a queued edit or delete – typically one made offline – or a
+ * versioned one from the API reaches an expense that was changed elsewhere
+ * since it was read. Nothing was written.
+ */
+public class SyncConflictException extends SQLException {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final Expense stored;   // the row as it is in the database
+    private final Expense local;    // the change that was not applied
+
+    public SyncConflictException(Expense stored, Expense local) {
+        super(message(stored), "55000");
+        this.stored = stored;
+        this.local  = local;
+    }
+
+    public Expense getStored() { return stored; }
+    public Expense getLocal()  { return local; }
+
+    private static String message(Expense stored) {
+        String when = stored.getUpdatedAt() != null ? " at " + stored.getUpdatedAt().format(TIME) : "";
+        return "\"" + stored.getDescription() + "\" was changed elsewhere" + when
+               + " after you edited it; your change was not applied.";
+    }
+}
@@ -0,0 +1,170 @@
+package com.expenseguard.service;
+
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.SchemaInitializer;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Tracks whether the database is reachable and switches between online and
+ * offline mode.
+ *
+ * <p>{@link #start()} connects on a background thread, so start-up never
+ * waits for the network. While offline, reads made through {@link #read} are
+ * answered from {@link OfflineStore} and expense saves go to the
+ * {@link WriteBehindQueue} journal. A probe tries to reconnect every
+ * {@code -Dexpenseguard.offline.retrySec} seconds (default 15); once it
+ * succeeds the schema is brought up to date and the queue is woken, which
+ * uploads the offline writes in batches.
+ */
+public class SyncManager {
+
+    private static final Logger LOGGER = Logger.getLogger(SyncManager.class.getName());
+
+    private static final long RETRY_SEC = Long.getLong("expenseguard.offline.retrySec", 15);
+
+    private static final SyncManager INSTANCE = new SyncManager();
+
+    /** Notified on the sync thread when the database becomes reachable or is lost. */
+    public interface Listener {
+        void onlineChanged(boolean online);
+    }
+
+    private final List<Listener>          listeners    = new CopyOnWriteArrayList<>();
+    private final CompletableFuture<Void> firstAttempt = new CompletableFuture<>();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "db-sync");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile boolean active;      // started by the app; otherwise reads bypass the store
+    private volatile boolean online;
+    private volatile boolean attempted;   // the first connection attempt has finished
+    private boolean          probing;     // guarded by this
+
+    private SyncManager() {}
+
+    public static SyncManager getInstance() {
+        return INSTANCE;
+    }
+
+    public void addListener(Listener l)    { listeners.add(l); }
+    public void removeListener(Listener l) { listeners.remove(l); }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    /** False until the first connection attempt has finished. */
+    public boolean isConnectAttempted() {
+        return attempted;
+    }
+
+    /**
+     * Completes when the first connection attempt has finished: normally if
+     * it connected, exceptionally with the error if it did not.
+     */
+    public CompletableFuture<Void> firstAttempt() {
+        return firstAttempt;
+    }
+
+    /** Starts connecting in the background; further calls are ignored. */
+    public synchronized void start() {
+        active = true;
+        if (probing || online) return;
+        probing = true;
+        executor.execute(this::connect);
+    }
+
+    /**
+     * Connects on the calling thread, e.g. at a first start when nothing is
+     * stored locally and the app cannot work without the database.
+     */
+    public void connectNow() throws SQLException {
+        active = true;
+        DatabaseConnection.instance();
+        SchemaInitializer.initialize();
+        setOnline(true);
+    }
+
+    /** Reports a failed database call; switches to offline mode if the connection is gone. */
+    public void failed(SQLException ex) {
+        if (!isConnectionError(ex) || !online) return;
+        LOGGER.warning("Database connection lost, working offline: " + ex.getMessage());
+        setOnline(false);
+        start();
+    }
+
+    /**
+     * Reads through the offline store: while online the result of
+     * {@code query} is saved with {@code save}; while offline, or if the
+     * connection is lost during the query, the stored copy is returned. A
+     * month that was never loaded is still fetched from the database. Until
+     * the app started this manager, {@code query} is simply run.
+     */
+    public <T> T read(DatabaseConnection.Work<T> query, Consumer<T> save, Supplier<T> stored) throws SQLException {
+        if (!active) return query.run();
+        if (!online) {
+            T local = stored.get();
+            if (local != null) return local;
+        }
+        try {
+            T result = query.run();
+            save.accept(result);
+            return result;
+        } catch (SQLException ex) {
+            failed(ex);
+            T local = isConnectionError(ex) ? stored.get() : null;
+            if (local == null) throw ex;
+            return local;
+        }
+    }
+
+    /** Whether {@code ex} means the database could not be reached. */
+    public static boolean isConnectionError(SQLException ex) {
+        if (ex instanceof SQLRecoverableException || ex instanceof SQLNonTransientConnectionException
+                || ex instanceof SQLTransientConnectionException) return true;
+        String state = ex.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+
+    // ── Sync thread ──────────────────────────────────────────────────────────
+
+    private void connect() {
+        try {
+            connectNow();
+            synchronized (this) {
+                probing = false;
+            }
+            LOGGER.info("Database reachable, working online.");
+            WriteBehindQueue.getInstance().wake();
+        } catch (SQLException | RuntimeException ex) {
+            if (!attempted) LOGGER.warning("Database unreachable, working offline: " + ex.getMessage());
+            attempted = true;
+            firstAttempt.completeExceptionally(ex);
+            executor.schedule(this::connect, RETRY_SEC, TimeUnit.SECONDS);
+        }
+    }
+
+    private void setOnline(boolean value) {
+        attempted = true;
+        if (value) firstAttempt.complete(null);
+        if (online == value) return;
+        online = value;
+        for (Listener l : listeners) l.onlineChanged(value);
+    }
+}
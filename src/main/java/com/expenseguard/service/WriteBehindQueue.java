@@ -0,0 +1,277 @@
+package com.expenseguard.service;
+
+import com.expenseguard.model.Expense;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Optional write-behind mode for expense saves ({@code -Dexpenseguard.writeBehind=true}).
+ *
+ * <p>{@link #save}, {@link #update} and {@link #delete} append the write to a
+ * local journal ({@code -Dexpenseguard.journal}, default
+ * {@code ~/.expenseguard/journal.bin}), force it to disk and return, so the UI
+ * can show the row at once as pending. One background thread applies the
+ * queued writes in journal order – the writes to an expense keep their order –
+ * up to {@code -Dexpenseguard.writeBehind.batch} (default 100) per transaction.
+ *
+ * <p>If a batch fails, its writes are retried one at a time so a rejected
+ * write (e.g. by a hard-limit budget) does not hold back the rest; lost
+ * connections and deadlocks are retried with back-off. Writes still in the
+ * journal at start-up are replayed; inserts carry a client key, so one that
+ * reached the database just before a crash is not inserted twice.
+ *
+ * <p>The queue is also how expenses are recorded offline (see
+ * {@link SyncManager}): it is always started, and used for every save while
+ * the database is unreachable. Edits and deletes are only applied onto the
+ * row version they were made on; if the row was changed elsewhere in the
+ * meantime the write is dropped with a {@link SyncConflictException}.
+ */
+public class WriteBehindQueue {
+
+    private static final Logger LOGGER = Logger.getLogger(WriteBehindQueue.class.getName());
+
+    private static final boolean ENABLED = Boolean.getBoolean("expenseguard.writeBehind");
+    private static final int     BATCH   = Integer.getInteger("expenseguard.writeBehind.batch", 100);
+    private static final Path    JOURNAL = Path.of(System.getProperty("expenseguard.journal",
+        Path.of(System.getProperty("user.home"), ".expenseguard", "journal.bin").toString()));
+    private static final long    MAX_BACKOFF_MS = 30_000;
+    private static final int     VERSIONS_KEPT  = 1024;
+
+    private static final WriteBehindQueue INSTANCE = new WriteBehindQueue();
+
+    public enum Op { INSERT, UPDATE, DELETE }
+
+    /** One queued write; the expense is a snapshot taken when it was queued. */
+    public static final class Write {
+        private final long    seq;
+        private final Op      op;
+        private final Expense expense;
+        private final boolean replayed;   // read back from the journal at start-up
+        private volatile boolean sent;    // applied in a transaction before, whose commit may have landed
+
+        Write(long seq, Op op, Expense expense, boolean replayed) {
+            this.seq      = seq;
+            this.op       = op;
+            this.expense  = expense;
+            this.replayed = replayed;
+        }
+
+        public long    getSeq()     { return seq; }
+        public Op      getOp()      { return op; }
+        public Expense getExpense() { return expense; }
+        public boolean isReplayed() { return replayed; }
+
+        /** Whether an earlier attempt may have stored it: it was replayed, or sent before. */
+        boolean mayBeApplied() { return replayed || sent; }
+        void    sent()         { sent = true; }
+    }
+
+    /** Notified on the writer thread. */
+    public interface Listener {
+        /** The writes are committed, in queue order. */
+        void confirmed(List<Write> writes);
+
+        /** The write was rejected and dropped; nothing of it was stored. */
+        void failed(Write write, SQLException error);
+    }
+
+    private final ExpenseService       service   = new ExpenseService();
+    private final BlockingQueue<Write> todo      = new LinkedBlockingQueue<>();
+    private final List<Listener>       listeners = new CopyOnWriteArrayList<>();
+
+    // Guarded by this.
+    private final Map<Long, Write> pending = new LinkedHashMap<>();
+    private SaveJournal            journal;
+    private Map<Integer, Integer>  versions = lru();   // expense id -> version our last write left
+
+    private final Object wakeLock = new Object();
+
+    private WriteBehindQueue() {}
+
+    public static WriteBehindQueue getInstance() {
+        return INSTANCE;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /** Whether saves should go through the queue now: write-behind mode, or offline. */
+    public static boolean isQueueing() {
+        return ENABLED || !SyncManager.getInstance().isOnline();
+    }
+
+    public void addListener(Listener l)    { listeners.add(l); }
+    public void removeListener(Listener l) { listeners.remove(l); }
+
+    /** Opens the journal, queues any writes left in it and starts the writer; further calls are ignored. */
+    public synchronized void start() throws IOException {
+        if (journal != null) return;
+        journal = new SaveJournal(JOURNAL);
+        List<Write> replay = journal.replay(versions);
+        for (Write w : replay) {
+            pending.put(w.getSeq(), w);
+            todo.add(w);
+        }
+        if (!replay.isEmpty()) {
+            LOGGER.info("Replaying " + replay.size() + " journaled expense write(s) from " + JOURNAL);
+        }
+        Thread writer = new Thread(this::runWriter, "write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Queues a new expense; {@code e} gets the client key that identifies it until it has an id. */
+    public Write save(Expense e) throws IOException {
+        if (e.getClientRef() == null) e.setClientRef(UUID.randomUUID().toString());
+        return submit(Op.INSERT, new Expense(e));
+    }
+
+    public Write update(Expense e) throws IOException {
+        return submit(Op.UPDATE, new Expense(e));
+    }
+
+    public Write delete(Expense e) throws IOException {
+        return submit(Op.DELETE, new Expense(e));
+    }
+
+    /** Cuts short a back-off wait, e.g. once the database is reachable again. */
+    public void wake() {
+        synchronized (wakeLock) {
+            wakeLock.notifyAll();
+        }
+    }
+
+    /** Writes not yet committed or rejected, oldest first. */
+    public synchronized List<Write> pending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    private synchronized Write submit(Op op, Expense e) throws IOException {
+        if (journal == null) throw new IllegalStateException("Write-behind queue not started");
+        Write w = journal.append(op, e);
+        pending.put(w.getSeq(), w);
+        todo.add(w);
+        return w;
+    }
+
+    // ── Writer thread ────────────────────────────────────────────────────────
+
+    private void runWriter() {
+        List<Write> batch = new ArrayList<>(BATCH);
+        while (true) {
+            try {
+                batch.add(todo.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            todo.drainTo(batch, BATCH - 1);
+            apply(batch);
+            batch.clear();
+        }
+    }
+
+    private void apply(List<Write> batch) {
+        long backoff = 500;
+        while (true) {
+            if (!awaitOnline()) return;
+            Map<Integer, Integer> known;
+            synchronized (this) {
+                known = lru();
+                known.putAll(versions);
+            }
+            try {
+                service.applyWrites(batch, known);
+                synchronized (this) {
+                    versions = known;
+                }
+                finish(batch);
+                for (Listener l : listeners) l.confirmed(List.copyOf(batch));
+                return;
+            } catch (SQLException | RuntimeException ex) {
+                SQLException error = ex instanceof SQLException s ? s : new SQLException(ex.toString(), ex);
+                if (isTransient(error)) {
+                    SyncManager.getInstance().failed(error);
+                    LOGGER.warning("Write-behind flush failed, retrying in " + backoff + " ms: " + error.getMessage());
+                    if (!sleep(backoff)) return;
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+                } else if (batch.size() > 1) {
+                    for (Write w : batch) apply(List.of(w));
+                    return;
+                } else {
+                    Write w = batch.get(0);
+                    LOGGER.log(Level.WARNING, "Dropping queued " + w.getOp() + " of expense \""
+                               + w.getExpense().getDescription() + "\"", error);
+                    finish(batch);
+                    for (Listener l : listeners) l.failed(w, error);
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Records the writes as finished and empties the journal once nothing is pending. */
+    private synchronized void finish(List<Write> batch) {
+        for (Write w : batch) pending.remove(w.getSeq());
+        try {
+            if (pending.isEmpty()) journal.reset();
+            else                   journal.done(batch);
+        } catch (IOException ex) {
+            // Harmless: the writes are applied again, idempotently, on the next start.
+            LOGGER.log(Level.WARNING, "Could not update the write-behind journal", ex);
+        }
+    }
+
+    private static Map<Integer, Integer> lru() {
+        return new LinkedHashMap<>(64, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > VERSIONS_KEPT;
+            }
+        };
+    }
+
+    private static boolean isTransient(SQLException ex) {
+        if (ex instanceof SQLTransientException || ex instanceof SQLRecoverableException) return true;
+        String state = ex.getSQLState();
+        return state != null && (state.startsWith("08") || state.startsWith("40") || state.startsWith("57P"));
+    }
+
+    /** Waits while offline or before the schema is initialized; false if interrupted. */
+    private boolean awaitOnline() {
+        try {
+            synchronized (wakeLock) {
+                while (!SyncManager.getInstance().isOnline()) wakeLock.wait(MAX_BACKOFF_MS);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            synchronized (wakeLock) {
+                wakeLock.wait(millis);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
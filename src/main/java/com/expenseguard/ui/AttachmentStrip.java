@@ -0,0 +1,213 @@
+package com.expenseguard.ui;
+
+import com.expenseguard.model.Attachment;
+import com.expenseguard.service.ExpenseService;
+import com.expenseguard.util.UITheme;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A row of thumbnails of one expense's attachments. The list and the
+ * thumbnails load in the background ({@link ThumbnailCache}); showing another
+ * expense before they arrive discards them. Clicking a thumbnail opens the
+ * file; an editable strip also attaches files and removes them.
+ */
+public class AttachmentStrip extends JPanel {
+
+    private static final Logger LOGGER = Logger.getLogger(AttachmentStrip.class.getName());
+
+    private final ExpenseService service;
+    private final boolean        editable;
+    private final JPanel         thumbs;
+    private final JButton        btnAttach;
+    private int                  expenseId;
+    private int                  generation;   // bumped by every showExpense(), to drop stale loads
+
+    public AttachmentStrip(ExpenseService service, boolean editable) {
+        super(new BorderLayout(8, 0));
+        this.service  = service;
+        this.editable = editable;
+        setOpaque(false);
+
+        thumbs = new JPanel(new FlowLayout(FlowLayout.LEFT, 6, 0));
+        thumbs.setOpaque(false);
+        JScrollPane sp = new JScrollPane(thumbs, ScrollPaneConstants.VERTICAL_SCROLLBAR_NEVER,
+                                         ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+        sp.setBorder(BorderFactory.createEmptyBorder());
+        sp.setOpaque(false);
+        sp.getViewport().setOpaque(false);
+        sp.setPreferredSize(new Dimension(320, ThumbnailCache.SIZE + 20));
+        add(sp, BorderLayout.CENTER);
+
+        btnAttach = UITheme.secondaryButton("📎 Attach…");
+        btnAttach.addActionListener(e -> onAttach());
+        btnAttach.setVisible(editable);
+        JPanel east = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+        east.setOpaque(false);
+        east.add(btnAttach);
+        add(east, BorderLayout.EAST);
+    }
+
+    /** Shows the attachments of {@code expenseId}; 0 for none (an unsaved expense). */
+    public void showExpense(int expenseId) {
+        this.expenseId = expenseId;
+        int gen = ++generation;
+        thumbs.removeAll();
+        btnAttach.setEnabled(expenseId != 0);
+        if (expenseId == 0) {
+            thumbs.add(muted(editable ? "Save the expense to attach receipts" : ""));
+            thumbs.revalidate();
+            thumbs.repaint();
+            return;
+        }
+        thumbs.add(muted("Loading…"));
+        thumbs.revalidate();
+        thumbs.repaint();
+        new SwingWorker<List<Attachment>, Void>() {
+            @Override protected List<Attachment> doInBackground() throws Exception {
+                return service.getAttachments(expenseId);
+            }
+            @Override protected void done() {
+                if (gen != generation) return;
+                try {
+                    populate(get(), gen);
+                } catch (InterruptedException | ExecutionException ex) {
+                    thumbs.removeAll();
+                    thumbs.add(muted("Attachments unavailable"));
+                    thumbs.revalidate();
+                    LOGGER.log(Level.WARNING, "Loading attachments failed", ex);
+                }
+            }
+        }.execute();
+    }
+
+    /** Clears the strip. */
+    public void clear() {
+        generation++;
+        expenseId = 0;
+        thumbs.removeAll();
+        btnAttach.setEnabled(false);
+        thumbs.revalidate();
+        thumbs.repaint();
+    }
+
+    private void populate(List<Attachment> attachments, int gen) {
+        thumbs.removeAll();
+        if (attachments.isEmpty()) thumbs.add(muted(editable ? "No receipts attached" : "No receipts"));
+        ThumbnailCache cache = ThumbnailCache.getInstance();
+        for (Attachment a : attachments) {
+            JLabel thumb = new JLabel("…", SwingConstants.CENTER);
+            thumb.setPreferredSize(new Dimension(ThumbnailCache.SIZE, ThumbnailCache.SIZE));
+            thumb.setForeground(UITheme.TEXT_MUTED);
+            thumb.setToolTipText(a.getFileName() + " (" + Math.max(1, a.getSize() / 1024) + " KB)");
+            thumb.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+            thumb.addMouseListener(new MouseAdapter() {
+                @Override public void mouseClicked(MouseEvent e) {
+                    if (SwingUtilities.isLeftMouseButton(e)) open(a);
+                }
+                @Override public void mousePressed(MouseEvent e)  { popup(e, a); }
+                @Override public void mouseReleased(MouseEvent e) { popup(e, a); }
+            });
+            thumbs.add(thumb);
+            cache.get(a.getSha256(), service.attachmentFile(a), a.isImage(), a.getFileName(), icon -> {
+                if (gen != generation) return;
+                thumb.setText(null);
+                thumb.setIcon(icon);
+            });
+        }
+        thumbs.revalidate();
+        thumbs.repaint();
+    }
+
+    private void popup(MouseEvent e, Attachment a) {
+        if (!editable || !e.isPopupTrigger()) return;
+        JMenuItem remove = new JMenuItem("Remove " + a.getFileName());
+        remove.addActionListener(ev -> onRemove(a));
+        JPopupMenu menu = new JPopupMenu();
+        menu.add(remove);
+        menu.show(e.getComponent(), e.getX(), e.getY());
+    }
+
+    /** Opens the file in the desktop's viewer, off the event thread (the call can block). */
+    private void open(Attachment a) {
+        Path file = service.attachmentFile(a);
+        CompletableFuture.runAsync(() -> {
+            try {
+                Desktop.getDesktop().open(file.toFile());
+            } catch (IOException | UnsupportedOperationException ex) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                    "Could not open " + a.getFileName() + ": " + ex.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE));
+            }
+        });
+    }
+
+    private void onAttach() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setMultiSelectionEnabled(true);
+        chooser.setFileFilter(new FileNameExtensionFilter("Receipts (images, PDF)",
+            "jpg", "jpeg", "png", "gif", "bmp", "pdf"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File[] files = chooser.getSelectedFiles();
+        int id = expenseId;
+        btnAttach.setEnabled(false);
+        new SwingWorker<Void, Void>() {
+            @Override protected Void doInBackground() throws Exception {
+                for (File f : files) service.addAttachment(id, f.toPath());
+                return null;
+            }
+            @Override protected void done() {
+                try {
+                    get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(AttachmentStrip.this,
+                        "Attaching failed: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+                if (id == expenseId) showExpense(id);
+            }
+        }.execute();
+    }
+
+    private void onRemove(Attachment a) {
+        int confirm = JOptionPane.showConfirmDialog(this,
+            "Remove " + a.getFileName() + "?", "Confirm", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) return;
+        int id = expenseId;
+        new SwingWorker<Void, Void>() {
+            @Override protected Void doInBackground() throws Exception {
+                service.removeAttachment(a.getId());
+                return null;
+            }
+            @Override protected void done() {
+                try {
+                    get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(AttachmentStrip.this,
+                        "Remove failed: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+                if (id == expenseId) showExpense(id);
+            }
+        }.execute();
+    }
+
+    private static JLabel muted(String text) {
+        JLabel l = new JLabel(text);
+        l.setFont(UITheme.FONT_SMALL);
+        l.setForeground(UITheme.TEXT_MUTED);
+        return l;
+    }
+}
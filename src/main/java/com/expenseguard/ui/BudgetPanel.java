@@ -1,9 +1,12 @@
 package com.expenseguard.ui;
 
 import com.expenseguard.dao.CategoryDAO;
+import com.expenseguard.db.QueryGuard;
+import com.expenseguard.metrics.PanelRefreshEvent;
 import com.expenseguard.model.Budget;
 import com.expenseguard.model.Category;
 import com.expenseguard.service.ExpenseService;
+import com.expenseguard.service.SyncManager;
 import com.expenseguard.util.CurrencyFormatter;
 import com.expenseguard.util.UITheme;
 
@@ -12,10 +15,12 @@ import javax.swing.table.*;
 import java.awt.*;
 import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Panel for viewing and managing monthly budget limits.
@@ -31,15 +36,27 @@ public class BudgetPanel extends JPanel {
     private List<Budget>      budgets = new ArrayList<>();
 
     private static final String[] COLS = {
-        "ID", "Category", "Month", "Limit", "Spent", "Remaining", "Usage %", "Status"
+        "ID", "Category", "Month", "Limit", "Spent", "Remaining", "Projected", "Usage %", "Status"
     };
 
+    private static final Color EXCEEDED  = new Color(254, 226, 226);
+    private static final Color PROJECTED = new Color(255, 237, 213);
+    private static final Color NEAR      = new Color(254, 243, 199);
+
+    private boolean loaded;   // refreshData() has run
+
     public BudgetPanel() {
+        this(null);
+    }
+
+    /** @param preload this month's budgets, loaded in the background; null to load them now */
+    public BudgetPanel(CompletableFuture<List<Budget>> preload) {
         setLayout(new BorderLayout(0, 12));
         setBackground(UITheme.SURFACE);
         setBorder(BorderFactory.createEmptyBorder(16, 16, 16, 16));
         buildUI();
-        refreshData();
+        if (preload == null) refreshData();
+        else                 Preload.into(preload, this::show, this::refreshData, () -> loaded);
     }
 
     private void buildUI() {
@@ -59,14 +76,17 @@ public class BudgetPanel extends JPanel {
 
         JButton btnSet    = UITheme.primaryButton("+ Set Budget");
         JButton btnDelete = UITheme.dangerButton("🗑 Remove");
+        JButton btnAlerts = UITheme.secondaryButton("🔔 Alerts");
 
         btnSet.addActionListener(e -> onSetBudget());
         btnDelete.addActionListener(e -> onDeleteBudget());
+        btnAlerts.addActionListener(e -> onShowAlertHistory());
 
         ctrl.add(new JLabel("Month:"));
         ctrl.add(cbMonth);
         ctrl.add(btnSet);
         ctrl.add(btnDelete);
+        ctrl.add(btnAlerts);
         top.add(ctrl, BorderLayout.EAST);
         add(top, BorderLayout.NORTH);
 
@@ -94,9 +114,10 @@ public class BudgetPanel extends JPanel {
                 Component c = super.getTableCellRendererComponent(t, value, isSelected, hasFocus, row, col);
                 if (!isSelected && row < budgets.size()) {
                     Budget b = budgets.get(row);
-                    if (b.isExceeded())       c.setBackground(new Color(254, 226, 226));
-                    else if (b.isNearLimit()) c.setBackground(new Color(254, 243, 199));
-                    else                      c.setBackground(Color.WHITE);
+                    if (b.isExceeded())               c.setBackground(EXCEEDED);
+                    else if (b.isProjectedToExceed()) c.setBackground(PROJECTED);
+                    else if (b.isNearLimit())         c.setBackground(NEAR);
+                    else                              c.setBackground(Color.WHITE);
                 }
                 return c;
             }
@@ -109,9 +130,13 @@ public class BudgetPanel extends JPanel {
         // Legend
         JPanel legend = new JPanel(new FlowLayout(FlowLayout.LEFT, 12, 4));
         legend.setOpaque(false);
-        legend.add(legendItem(new Color(254, 226, 226), "Exceeded"));
-        legend.add(legendItem(new Color(254, 243, 199), "Near limit (≥80%)"));
+        legend.add(legendItem(EXCEEDED, "Exceeded"));
+        legend.add(legendItem(PROJECTED, "Projected to exceed by month end"));
+        legend.add(legendItem(NEAR, "Near limit (≥80%)"));
         legend.add(legendItem(Color.WHITE, "OK"));
+        JLabel hardNote = new JLabel("🔒 hard limit – expenses over it are rejected");
+        hardNote.setFont(UITheme.FONT_SMALL);
+        legend.add(hardNote);
         add(legend, BorderLayout.SOUTH);
     }
 
@@ -129,29 +154,42 @@ public class BudgetPanel extends JPanel {
         return p;
     }
 
+    @SuppressWarnings("try")   // the scope only has to span the queries
     public void refreshData() {
-        try {
-            String month = (String) cbMonth.getSelectedItem();
-            budgets = service.getBudgetsForMonth(month);
-            tableModel.setRowCount(0);
-            for (Budget b : budgets) {
-                String status = b.isExceeded() ? "❌ Exceeded"
-                              : b.isNearLimit() ? "⚡ Near Limit"
-                              : "✅ OK";
-                tableModel.addRow(new Object[]{
-                    b.getId(),
-                    b.getCategoryName(),
-                    b.getMonthYear(),
-                    CurrencyFormatter.format(b.getLimitAmount()),
-                    CurrencyFormatter.format(b.getSpentAmount() != null ? b.getSpentAmount() : BigDecimal.ZERO),
-                    CurrencyFormatter.format(b.getRemainingAmount()),
-                    String.format("%.1f%%", b.getUsagePercent()),
-                    status
-                });
-            }
+        loaded = true;
+        String month = (String) cbMonth.getSelectedItem();
+        PanelRefreshEvent ev = PanelRefreshEvent.begin("BudgetPanel", month);
+        try (QueryGuard.Scope queries = QueryGuard.open("BudgetPanel.refreshData")) {
+            show(service.getBudgetsForMonth(month));
         } catch (SQLException ex) {
+            if (SyncManager.isConnectionError(ex)) return;   // offline: keep what is shown, the status bar says so
             JOptionPane.showMessageDialog(this, "Error loading budgets: " + ex.getMessage(),
                                           "Error", JOptionPane.ERROR_MESSAGE);
+        } finally {
+            ev.commit();
+        }
+    }
+
+    private void show(List<Budget> rows) {
+        budgets = rows;
+        tableModel.setRowCount(0);
+        for (Budget b : budgets) {
+            String status = b.isExceeded()          ? "❌ Exceeded"
+                          : b.isProjectedToExceed() ? "📈 Projected to Exceed"
+                          : b.isNearLimit()         ? "⚡ Near Limit"
+                          : "✅ OK";
+            CurrencyFormatter fmt = CurrencyFormatter.forCurrency(b.getCurrency());
+            tableModel.addRow(new Object[]{
+                b.getId(),
+                b.isHardLimit() ? "🔒 " + b.getCategoryName() : b.getCategoryName(),
+                b.getMonthYear(),
+                fmt.formatAmount(b.getLimitAmount()),
+                fmt.formatAmount(b.getSpentAmount() != null ? b.getSpentAmount() : BigDecimal.ZERO),
+                fmt.formatAmount(b.getRemainingAmount()),
+                b.getProjectedAmount() != null ? fmt.formatAmount(b.getProjectedAmount()) : "—",
+                String.format("%.1f%%", b.getUsagePercent()),
+                status
+            });
         }
     }
 
@@ -165,7 +203,7 @@ public class BudgetPanel extends JPanel {
             if (selected == null) return;
 
             String amtStr = JOptionPane.showInputDialog(this,
-                "Monthly budget limit for \"" + selected.getName() + "\" ($):");
+                "Monthly budget limit for \"" + selected.getName() + "\" (" + CurrencyFormatter.symbol() + "):");
             if (amtStr == null || amtStr.isBlank()) return;
 
             BigDecimal limit;
@@ -177,8 +215,14 @@ public class BudgetPanel extends JPanel {
                 return;
             }
 
+            int hard = JOptionPane.showConfirmDialog(this,
+                "Enforce as a hard limit?\nExpenses that would exceed it will be rejected.",
+                "Set Budget", JOptionPane.YES_NO_OPTION);
+            if (hard == JOptionPane.CLOSED_OPTION) return;
+
             String month = (String) cbMonth.getSelectedItem();
             Budget b = new Budget(selected.getId(), month, limit);
+            b.setHardLimit(hard == JOptionPane.YES_OPTION);
             service.saveBudget(b);
             refreshData();
 
@@ -188,6 +232,35 @@ public class BudgetPanel extends JPanel {
         }
     }
 
+    private void onShowAlertHistory() {
+        try {
+            DefaultTableModel m = new DefaultTableModel(
+                new String[]{"When", "Category", "Month", "Crossing", "Usage %", "Spent", "Limit"}, 0);
+            DateTimeFormatter when = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+            for (Object[] r : service.getAlertHistory(200)) {
+                CurrencyFormatter fmt = CurrencyFormatter.forCurrency((String) r[8]);
+                m.addRow(new Object[]{
+                    r[0] != null ? when.format((LocalDateTime) r[0]) : "",
+                    r[1], r[2],
+                    ((Boolean) r[4] ? "▲ reached " : "▼ back under ") + r[3] + "%",
+                    String.format("%.1f%%", ((BigDecimal) r[5]).doubleValue()),
+                    fmt.formatAmount((BigDecimal) r[6]),
+                    fmt.formatAmount((BigDecimal) r[7])
+                });
+            }
+            JTable t = new JTable(m);
+            t.setFont(UITheme.FONT_BODY);
+            t.setRowHeight(24);
+            t.setEnabled(false);
+            JScrollPane sp = new JScrollPane(t);
+            sp.setPreferredSize(new Dimension(720, 320));
+            JOptionPane.showMessageDialog(this, sp, "Budget Alert History", JOptionPane.PLAIN_MESSAGE);
+        } catch (SQLException ex) {
+            JOptionPane.showMessageDialog(this, "Error loading alert history: " + ex.getMessage(),
+                                          "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private void onDeleteBudget() {
         int row = table.getSelectedRow();
         if (row < 0) { JOptionPane.showMessageDialog(this, "Select a budget to remove."); return; }
@@ -1,7 +1,10 @@
 package com.expenseguard.ui;
 
 import com.expenseguard.dao.CategoryDAO;
+import com.expenseguard.db.QueryGuard;
+import com.expenseguard.metrics.PanelRefreshEvent;
 import com.expenseguard.model.Category;
+import com.expenseguard.service.ExpenseService;
 import com.expenseguard.util.UITheme;
 
 import javax.swing.*;
@@ -10,13 +13,15 @@ import java.awt.*;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Panel for managing expense categories.
  */
 public class CategoriesPanel extends JPanel {
 
-    private final CategoryDAO   dao = new CategoryDAO();
+    private final CategoryDAO    dao     = new CategoryDAO();
+    private final ExpenseService service = new ExpenseService();
     private List<Category>      cats = new ArrayList<>();
 
     private JTable              table;
@@ -24,12 +29,20 @@ public class CategoriesPanel extends JPanel {
 
     private static final String[] COLS = {"ID", "Name", "Description"};
 
+    private boolean loaded;   // refreshData() has run
+
     public CategoriesPanel() {
+        this(null);
+    }
+
+    /** @param preload the categories, loaded in the background; null to load them now */
+    public CategoriesPanel(CompletableFuture<List<Category>> preload) {
         setLayout(new BorderLayout(0, 12));
         setBackground(UITheme.SURFACE);
         setBorder(BorderFactory.createEmptyBorder(16, 16, 16, 16));
         buildUI();
-        refreshData();
+        if (preload == null) refreshData();
+        else                 Preload.into(preload, this::show, this::refreshData, () -> loaded);
     }
 
     private void buildUI() {
@@ -72,17 +85,26 @@ public class CategoriesPanel extends JPanel {
         add(sp, BorderLayout.CENTER);
     }
 
+    @SuppressWarnings("try")   // the scope only has to span the queries
     public void refreshData() {
-        try {
-            cats = dao.findAll();
-            model.setRowCount(0);
-            for (Category c : cats)
-                model.addRow(new Object[]{c.getId(), c.getName(), c.getDescription()});
+        loaded = true;
+        PanelRefreshEvent ev = PanelRefreshEvent.begin("CategoriesPanel", null);
+        try (QueryGuard.Scope queries = QueryGuard.open("CategoriesPanel.refreshData")) {
+            show(service.getCategories());
         } catch (SQLException ex) {
             JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage());
+        } finally {
+            ev.commit();
         }
     }
 
+    private void show(List<Category> rows) {
+        cats = rows;
+        model.setRowCount(0);
+        for (Category c : cats)
+            model.addRow(new Object[]{c.getId(), c.getName(), c.getDescription()});
+    }
+
     private void onAdd() {
         JTextField tfName = UITheme.styledField();
         JTextField tfDesc = UITheme.styledField();
@@ -1,20 +1,34 @@
 package com.expenseguard.ui;
 
+import com.expenseguard.db.QueryGuard;
+import com.expenseguard.metrics.PanelRefreshEvent;
+import com.expenseguard.model.CategoryComparison;
+import com.expenseguard.model.CategoryStats;
 import com.expenseguard.service.ExpenseService;
+import com.expenseguard.service.SyncManager;
+import com.expenseguard.util.ChartPainter;
 import com.expenseguard.util.CurrencyFormatter;
 import com.expenseguard.util.UITheme;
 
 import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
-import java.awt.geom.Arc2D;
 import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * Panel showing visual spending reports (bar chart + pie chart).
+ * Panel showing visual spending reports: a month's breakdown (bar chart +
+ * pie chart), and a comparison of each category with the previous month,
+ * the same month last year and its recent averages (sortable table + one
+ * small chart of the last 13 months per category), and per-category
+ * statistics over a range of months: median and 90th-percentile expense and
+ * distinct merchants.
  */
 public class ChartsPanel extends JPanel {
 
@@ -24,21 +38,29 @@ public class ChartsPanel extends JPanel {
     private BarChartCanvas      barChart;
     private PieChartCanvas      pieChart;
     private JPanel              legendPanel;
+    private JTabbedPane         tabs;
+    private ComparisonModel     comparisonModel;
+    private JPanel              multiples;
+    private String              comparisonMonth;   // month the comparison tab shows, null if stale
+    private JComboBox<String>   cbStatsFrom;
+    private JComboBox<String>   cbStatsTo;
+    private StatsModel          statsModel;
+    private String              statsRange;        // range the statistics tab shows, null if stale
 
-    // Distinct colours for up to 8 categories
-    private static final Color[] PALETTE = {
-        new Color(37,  99,  235), new Color(22,  163, 74),
-        new Color(220, 38,  38),  new Color(217, 119, 6),
-        new Color(139, 92,  246), new Color(236, 72,  153),
-        new Color(20,  184, 166), new Color(251, 146, 60)
-    };
+    private boolean loaded;   // refreshData() has run
 
     public ChartsPanel() {
+        this(null);
+    }
+
+    /** @param preload this month's category totals, loaded in the background; null to load them now */
+    public ChartsPanel(CompletableFuture<List<Object[]>> preload) {
         setLayout(new BorderLayout(0, 12));
         setBackground(UITheme.SURFACE);
         setBorder(BorderFactory.createEmptyBorder(16, 16, 16, 16));
         buildUI();
-        refreshData();
+        if (preload == null) refreshData();
+        else                 Preload.into(preload, this::show, this::refreshData, () -> loaded);
     }
 
     private void buildUI() {
@@ -52,7 +74,10 @@ public class ChartsPanel extends JPanel {
         YearMonth cur = YearMonth.now();
         for (int i = 0; i < 12; i++)
             cbMonth.addItem(cur.minusMonths(i).format(DateTimeFormatter.ofPattern("yyyy-MM")));
-        cbMonth.addActionListener(e -> refreshData());
+        cbMonth.addActionListener(e -> {
+            comparisonMonth = null;
+            refreshData();
+        });
         ctrl.add(new JLabel("Month:"));
         ctrl.add(cbMonth);
         top.add(ctrl, BorderLayout.EAST);
@@ -69,11 +94,85 @@ public class ChartsPanel extends JPanel {
 
         split.setLeftComponent(wrap(barChart, "Spending by Category"));
         split.setRightComponent(wrap(pieChart, "Distribution"));
-        add(split, BorderLayout.CENTER);
 
         legendPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 16, 6));
         legendPanel.setOpaque(false);
-        add(legendPanel, BorderLayout.SOUTH);
+
+        JPanel breakdown = new JPanel(new BorderLayout(0, 12));
+        breakdown.setOpaque(false);
+        breakdown.add(split, BorderLayout.CENTER);
+        breakdown.add(legendPanel, BorderLayout.SOUTH);
+
+        tabs = new JTabbedPane();
+        tabs.setFont(UITheme.FONT_BODY);
+        tabs.addTab("Breakdown", breakdown);
+        tabs.addTab("Comparison", buildComparison());
+        tabs.addTab("Statistics", buildStats());
+        tabs.addChangeListener(e -> {
+            if (tabs.getSelectedIndex() == 1) refreshComparison();
+            if (tabs.getSelectedIndex() == 2) refreshStats();
+        });
+        add(tabs, BorderLayout.CENTER);
+    }
+
+    private JComponent buildComparison() {
+        comparisonModel = new ComparisonModel();
+        JTable table = new JTable(comparisonModel);
+        table.setAutoCreateRowSorter(true);
+        table.setFont(UITheme.FONT_BODY);
+        table.setRowHeight(26);
+        table.getTableHeader().setFont(UITheme.FONT_BODY);
+        table.setDefaultRenderer(BigDecimal.class, new AmountRenderer());
+        table.setDefaultRenderer(Double.class, new PercentRenderer());
+
+        multiples = new JPanel(new GridLayout(0, 4, 10, 10));
+        multiples.setBackground(UITheme.CARD);
+        JScrollPane multiplesScroll = new JScrollPane(multiples);
+        multiplesScroll.setBorder(null);
+
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+            wrap(new JScrollPane(table), "Compared with the previous month, last year and recent averages"),
+            wrap(multiplesScroll, "Last 13 months per category"));
+        split.setResizeWeight(0.5);
+        split.setDividerSize(6);
+        split.setBorder(null);
+        split.setOpaque(false);
+        return split;
+    }
+
+    private JComponent buildStats() {
+        cbStatsFrom = new JComboBox<>();
+        cbStatsTo   = new JComboBox<>();
+        YearMonth cur = YearMonth.now();
+        for (int i = 0; i < 120; i++) {
+            String m = cur.minusMonths(i).format(DateTimeFormatter.ofPattern("yyyy-MM"));
+            cbStatsFrom.addItem(m);
+            cbStatsTo.addItem(m);
+        }
+        cbStatsFrom.setSelectedIndex(11);
+        cbStatsFrom.addActionListener(e -> refreshStats());
+        cbStatsTo.addActionListener(e -> refreshStats());
+
+        JPanel range = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+        range.setOpaque(false);
+        range.add(new JLabel("From:"));
+        range.add(cbStatsFrom);
+        range.add(new JLabel("To:"));
+        range.add(cbStatsTo);
+
+        statsModel = new StatsModel();
+        JTable table = new JTable(statsModel);
+        table.setAutoCreateRowSorter(true);
+        table.setFont(UITheme.FONT_BODY);
+        table.setRowHeight(26);
+        table.getTableHeader().setFont(UITheme.FONT_BODY);
+        table.setDefaultRenderer(BigDecimal.class, new AmountRenderer());
+
+        JPanel p = new JPanel(new BorderLayout(0, 8));
+        p.setOpaque(false);
+        p.add(range, BorderLayout.NORTH);
+        p.add(wrap(new JScrollPane(table), "Transaction sizes and merchants (estimates)"), BorderLayout.CENTER);
+        return p;
     }
 
     private JPanel wrap(JComponent c, String title) {
@@ -87,25 +186,85 @@ public class ChartsPanel extends JPanel {
         return p;
     }
 
+    @SuppressWarnings("try")   // the scope only has to span the queries
     public void refreshData() {
-        try {
-            String month = (String) cbMonth.getSelectedItem();
-            List<Object[]> data = service.getMonthlyCategorySummary(month);
-            barChart.setData(data);
-            pieChart.setData(data);
-            buildLegend(data);
+        loaded = true;
+        comparisonMonth = null;
+        statsRange      = null;
+        String month = (String) cbMonth.getSelectedItem();
+        PanelRefreshEvent ev = PanelRefreshEvent.begin("ChartsPanel", month);
+        try (QueryGuard.Scope queries = QueryGuard.open("ChartsPanel.refreshData")) {
+            show(service.getMonthlyCategorySummary(month));
         } catch (SQLException ex) {
+            if (SyncManager.isConnectionError(ex)) return;   // offline: keep what is shown, the status bar says so
             JOptionPane.showMessageDialog(this, "Error loading chart data: " + ex.getMessage());
+        } finally {
+            ev.commit();
+        }
+        if (tabs.getSelectedIndex() == 1) refreshComparison();
+        if (tabs.getSelectedIndex() == 2) refreshStats();
+    }
+
+    /** Loads the comparison for the selected month, unless it is already shown. */
+    private void refreshComparison() {
+        String month = (String) cbMonth.getSelectedItem();
+        if (month.equals(comparisonMonth)) return;
+        try {
+            showComparison(service.getCategoryComparison(YearMonth.parse(month)));
+            comparisonMonth = month;
+        } catch (SQLException ex) {
+            if (SyncManager.isConnectionError(ex)) return;
+            JOptionPane.showMessageDialog(this, "Error loading comparison: " + ex.getMessage());
         }
     }
 
+    /** Loads the statistics for the selected range, unless they are already shown. */
+    private void refreshStats() {
+        String from  = (String) cbStatsFrom.getSelectedItem();
+        String to    = (String) cbStatsTo.getSelectedItem();
+        if (from.compareTo(to) > 0) {   // either order means the same range
+            String t = from;
+            from = to;
+            to   = t;
+        }
+        String range = from + ".." + to;
+        if (range.equals(statsRange)) return;
+        try {
+            statsModel.setRows(service.getCategoryStats(YearMonth.parse(from), YearMonth.parse(to)));
+            statsRange = range;
+        } catch (SQLException ex) {
+            if (SyncManager.isConnectionError(ex)) return;
+            JOptionPane.showMessageDialog(this, "Error loading statistics: " + ex.getMessage());
+        }
+    }
+
+    private void showComparison(List<CategoryComparison> rows) {
+        comparisonModel.setRows(rows);
+        BigDecimal max = BigDecimal.ONE;   // one scale for every small chart
+        for (CategoryComparison c : rows) {
+            for (BigDecimal v : c.getHistory()) if (v.compareTo(max) > 0) max = v;
+        }
+        multiples.removeAll();
+        for (int i = 0; i < rows.size(); i++) {
+            multiples.add(new SmallMultiple(rows.get(i), max, ChartPainter.color(i)));
+        }
+        multiples.revalidate();
+        multiples.repaint();
+    }
+
+    private void show(List<Object[]> data) {
+        barChart.setData(data);
+        pieChart.setData(data);
+        buildLegend(data);
+    }
+
     private void buildLegend(List<Object[]> data) {
         legendPanel.removeAll();
         for (int i = 0; i < data.size(); i++) {
             Object[] row = data.get(i);
             String cat   = (String) row[1];
             BigDecimal amt = (BigDecimal) row[2];
-            Color color = PALETTE[i % PALETTE.length];
+            Color color = ChartPainter.color(i);
 
             JPanel item = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
             item.setOpaque(false);
@@ -135,52 +294,161 @@ public class ChartsPanel extends JPanel {
 
         @Override protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            if (data == null || data.isEmpty()) {
-                g.setColor(UITheme.TEXT_MUTED);
-                g.drawString("No data", getWidth()/2 - 25, getHeight()/2);
-                return;
-            }
-            Graphics2D g2 = (Graphics2D) g;
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            ChartPainter.bars((Graphics2D) g, getWidth(), getHeight(), data);
+        }
+    }
 
-            int pad = 40, bottom = 30;
-            int w = getWidth() - 2*pad, h = getHeight() - pad - bottom;
-            BigDecimal max = data.stream().map(r -> (BigDecimal)r[2])
-                                 .max(BigDecimal::compareTo).orElse(BigDecimal.ONE);
-            if (max.compareTo(BigDecimal.ZERO) == 0) max = BigDecimal.ONE;
+    // ── Comparison table ─────────────────────────────────────────────────────
+    private static class ComparisonModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {
+            "Category", "This month", "Previous", "Δ", "Δ %", "Last year", "Δ", "Δ %",
+            "Avg 3 mo", "Avg 6 mo", "Avg 12 mo"
+        };
+        private List<CategoryComparison> rows = new ArrayList<>();
+
+        void setRows(List<CategoryComparison> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override public int    getRowCount()           { return rows.size(); }
+        @Override public int    getColumnCount()        { return COLUMNS.length; }
+        @Override public String getColumnName(int c)    { return COLUMNS[c]; }
 
-            int n = data.size();
-            int barW = Math.max(20, w / (n*2 + 1));
-            int gap  = barW;
+        @Override
+        public Class<?> getColumnClass(int c) {
+            return c == 0 ? String.class : c == 4 || c == 7 ? Double.class : BigDecimal.class;
+        }
 
+        @Override
+        public Object getValueAt(int r, int c) {
+            CategoryComparison row = rows.get(r);
+            return switch (c) {
+                case 0  -> row.getCategoryName();
+                case 1  -> row.getTotal();
+                case 2  -> row.getPrevious();
+                case 3  -> row.getChangeFromPrevious();
+                case 4  -> row.getPercentFromPrevious();
+                case 5  -> row.getLastYear();
+                case 6  -> row.getChangeFromLastYear();
+                case 7  -> row.getPercentFromLastYear();
+                case 8  -> row.getAvg3();
+                case 9  -> row.getAvg6();
+                default -> row.getAvg12();
+            };
+        }
+    }
+
+    // ── Statistics table ─────────────────────────────────────────────────────
+    private static class StatsModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {
+            "Category", "Expenses", "Median", "P90", "Distinct merchants"
+        };
+        private List<CategoryStats> rows = new ArrayList<>();
+
+        void setRows(List<CategoryStats> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override public int    getRowCount()           { return rows.size(); }
+        @Override public int    getColumnCount()        { return COLUMNS.length; }
+        @Override public String getColumnName(int c)    { return COLUMNS[c]; }
+
+        @Override
+        public Class<?> getColumnClass(int c) {
+            return c == 0 ? String.class : c == 1 ? Integer.class : c == 4 ? Long.class : BigDecimal.class;
+        }
+
+        @Override
+        public Object getValueAt(int r, int c) {
+            CategoryStats row = rows.get(r);
+            return switch (c) {
+                case 0  -> row.getCategoryName();
+                case 1  -> row.getCount();
+                case 2  -> row.getMedian();
+                case 3  -> row.getP90();
+                default -> row.getDistinctMerchants();
+            };
+        }
+    }
+
+    /** Amounts; changes are signed and red when spending went up. */
+    private static class AmountRenderer extends DefaultTableCellRenderer {
+        AmountRenderer() { setHorizontalAlignment(SwingConstants.RIGHT); }
+
+        @Override
+        public Component getTableCellRendererComponent(JTable t, Object v, boolean sel, boolean focus, int r, int c) {
+            super.getTableCellRendererComponent(t, v, sel, focus, r, c);
+            BigDecimal amt = (BigDecimal) v;
+            boolean change = "Δ".equals(t.getColumnName(c));
+            setText(amt == null ? "" : (change && amt.signum() > 0 ? "+" : "") + CurrencyFormatter.format(amt));
+            if (!sel) setForeground(change ? changeColor(amt == null ? 0 : amt.signum()) : UITheme.TEXT_PRIMARY);
+            return this;
+        }
+    }
+
+    private static class PercentRenderer extends DefaultTableCellRenderer {
+        PercentRenderer() { setHorizontalAlignment(SwingConstants.RIGHT); }
+
+        @Override
+        public Component getTableCellRendererComponent(JTable t, Object v, boolean sel, boolean focus, int r, int c) {
+            super.getTableCellRendererComponent(t, v, sel, focus, r, c);
+            Double pct = (Double) v;
+            setText(pct == null ? "—" : String.format("%+.1f %%", pct));
+            if (!sel) setForeground(changeColor(pct == null ? 0 : (int) Math.signum(pct)));
+            return this;
+        }
+    }
+
+    private static Color changeColor(int sign) {
+        return sign > 0 ? UITheme.DANGER : sign < 0 ? UITheme.SUCCESS : UITheme.TEXT_MUTED;
+    }
+
+    // ── Small multiples ──────────────────────────────────────────────────────
+    /** One category's last 13 months as bars on the shared scale, with its 12-month average dashed. */
+    private static class SmallMultiple extends JPanel {
+        private final CategoryComparison data;
+        private final BigDecimal         max;
+        private final Color              color;
+
+        SmallMultiple(CategoryComparison data, BigDecimal max, Color color) {
+            this.data  = data;
+            this.max   = max;
+            this.color = color;
+            setBackground(UITheme.CARD);
+            setPreferredSize(new Dimension(180, 110));
+            setToolTipText(data.getCategoryName() + ": " + CurrencyFormatter.format(data.getTotal())
+                           + " (12-month average " + CurrencyFormatter.format(data.getAvg12()) + ")");
+        }
+
+        @Override protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            Graphics2D g2 = (Graphics2D) g;
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            g2.setFont(UITheme.FONT_SMALL);
+            FontMetrics fm = g2.getFontMetrics();
+            g2.setColor(UITheme.TEXT_PRIMARY);
+            g2.drawString(data.getCategoryName(), 4, fm.getAscent());
+            String total = CurrencyFormatter.formatWhole(data.getTotal());
+            g2.drawString(total, getWidth() - 4 - fm.stringWidth(total), fm.getAscent());
+
+            List<BigDecimal> history = data.getHistory();
+            int top = fm.getHeight() + 4, bottom = getHeight() - 4;
+            int h = bottom - top, n = history.size();
+            double slot = (getWidth() - 8) / (double) n;
+            double scale = h / max.doubleValue();
             for (int i = 0; i < n; i++) {
-                BigDecimal amt = (BigDecimal) data.get(i)[2];
-                String cat    = (String) data.get(i)[1];
-                Color color   = PALETTE[i % PALETTE.length];
-
-                double ratio = amt.doubleValue() / max.doubleValue();
-                int barH = (int)(ratio * h);
-                int x = pad + gap + i*(barW + gap);
-                int y = pad + h - barH;
-
-                g2.setColor(color);
-                g2.fillRoundRect(x, y, barW, barH, 4, 4);
-
-                // amount label
-                g2.setColor(UITheme.TEXT_PRIMARY);
-                g2.setFont(UITheme.FONT_SMALL);
-                String amtLabel = "$" + String.format("%.0f", amt.doubleValue());
-                g2.drawString(amtLabel, x + barW/2 - g2.getFontMetrics().stringWidth(amtLabel)/2, y - 4);
-
-                // category label (truncate)
-                String label = cat.length() > 8 ? cat.substring(0,7) + "…" : cat;
-                g2.drawString(label, x + barW/2 - g2.getFontMetrics().stringWidth(label)/2,
-                              pad + h + 16);
+                int barH = (int) Math.round(history.get(i).doubleValue() * scale);
+                int x = 4 + (int) (i * slot);
+                g2.setColor(i == n - 1 ? color : UITheme.BORDER_COLOR);
+                g2.fillRect(x + 1, bottom - barH, Math.max(1, (int) slot - 2), barH);
             }
-
-            // Baseline
-            g2.setColor(UITheme.BORDER_COLOR);
-            g2.drawLine(pad, pad + h, pad + w, pad + h);
+            int avgY = bottom - (int) Math.round(data.getAvg12().doubleValue() * scale);
+            g2.setColor(UITheme.TEXT_MUTED);
+            g2.setStroke(new BasicStroke(1f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 1f, new float[]{3f, 3f}, 0f));
+            g2.drawLine(4, avgY, getWidth() - 4, avgY);
         }
     }
 
@@ -197,37 +465,7 @@ public class ChartsPanel extends JPanel {
 
         @Override protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            if (data == null || data.isEmpty()) return;
-            Graphics2D g2 = (Graphics2D) g;
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-            double total = data.stream().mapToDouble(r -> ((BigDecimal)r[2]).doubleValue()).sum();
-            if (total == 0) return;
-
-            int margin = 20;
-            int size   = Math.min(getWidth(), getHeight()) - 2*margin;
-            int x = (getWidth() - size)/2, y = (getHeight() - size)/2;
-
-            double start = -90;
-            for (int i = 0; i < data.size(); i++) {
-                double val   = ((BigDecimal) data.get(i)[2]).doubleValue();
-                double sweep = (val / total) * 360.0;
-                g2.setColor(PALETTE[i % PALETTE.length]);
-                g2.fill(new Arc2D.Double(x, y, size, size, start, sweep, Arc2D.PIE));
-                start += sweep;
-            }
-
-            // White circle in center (donut look)
-            int inner = size / 3;
-            g2.setColor(UITheme.CARD);
-            g2.fillOval(x + size/2 - inner/2, y + size/2 - inner/2, inner, inner);
-
-            // Total label
-            g2.setColor(UITheme.TEXT_PRIMARY);
-            g2.setFont(UITheme.FONT_SMALL);
-            String lbl = CurrencyFormatter.format(total);
-            g2.drawString(lbl, x + size/2 - g2.getFontMetrics().stringWidth(lbl)/2,
-                          y + size/2 + g2.getFontMetrics().getAscent()/2);
+            ChartPainter.donut((Graphics2D) g, getWidth(), getHeight(), data);
         }
     }
 }
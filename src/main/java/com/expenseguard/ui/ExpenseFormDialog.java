@@ -1,8 +1,12 @@
 package com.expenseguard.ui;
 
-import com.expenseguard.dao.CategoryDAO;
+import com.expenseguard.dao.FxRateDAO;
 import com.expenseguard.model.Category;
 import com.expenseguard.model.Expense;
+import com.expenseguard.service.CurrencyConverter;
+import com.expenseguard.service.ExpenseService;
+import com.expenseguard.util.CurrencyFormatter;
+import com.expenseguard.util.RecurrenceRule;
 import com.expenseguard.util.UITheme;
 
 import javax.swing.*;
@@ -23,18 +27,30 @@ public class ExpenseFormDialog extends JDialog {
     private boolean              saved = false;
 
     private JComboBox<Category>  cbCategory;
+    private JComboBox<String>    cbCurrency;
     private JTextField           tfDescription;
     private JTextField           tfAmount;
     private JTextField           tfDate;
     private JTextArea            taaNotes;
+    private JComboBox<String>    cbRepeat;
+    private String               recurrenceRule;
 
     private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
+    // Preset labels → rules; anything else typed into the combo is parsed as a rule.
+    private static final String[][] REPEAT_PRESETS = {
+        {"Does not repeat", null},
+        {"Weekly",          "FREQ=WEEKLY"},
+        {"Monthly",         "FREQ=MONTHLY"},
+        {"Yearly",          "FREQ=YEARLY"},
+    };
+
     public ExpenseFormDialog(Frame owner, Expense expense) {
         super(owner, expense.getId() == 0 ? "Add Expense" : "Edit Expense", true);
         this.expense = expense;
         buildUI();
         populateCategories();
+        populateCurrencies();
         if (expense.getId() != 0) prefill();
         pack();
         setLocationRelativeTo(owner);
@@ -59,6 +75,7 @@ public class ExpenseFormDialog extends JDialog {
         cbCategory    = new JComboBox<>();
         tfDescription = UITheme.styledField();
         tfAmount      = UITheme.styledField();
+        cbCurrency    = new JComboBox<>();
         tfDate        = UITheme.styledField();
         tfDate.setText(LocalDate.now().format(DATE_FMT));
         taaNotes      = new JTextArea(3, 20);
@@ -69,9 +86,20 @@ public class ExpenseFormDialog extends JDialog {
 
         addRow(form, gbc, 0, "Category *",    cbCategory);
         addRow(form, gbc, 1, "Description *", tfDescription);
-        addRow(form, gbc, 2, "Amount ($) *",  tfAmount);
-        addRow(form, gbc, 3, "Date (YYYY-MM-DD) *", tfDate);
-        addRow(form, gbc, 4, "Notes",          spNotes);
+        addRow(form, gbc, 2, "Amount *",      tfAmount);
+        addRow(form, gbc, 3, "Currency",      cbCurrency);
+        addRow(form, gbc, 4, "Date (YYYY-MM-DD) *", tfDate);
+        addRow(form, gbc, 5, "Notes",          spNotes);
+        if (expense.getId() == 0) {
+            cbRepeat = new JComboBox<>();
+            for (String[] p : REPEAT_PRESETS) cbRepeat.addItem(p[0]);
+            cbRepeat.setEditable(true);
+            cbRepeat.setToolTipText("Preset, RRULE (FREQ=MONTHLY;BYMONTHDAY=1) or cron (0 0 1 * *)");
+            addRow(form, gbc, 6, "Repeats",   cbRepeat);
+        }
+        AttachmentStrip receipts = new AttachmentStrip(new ExpenseService(), true);
+        receipts.showExpense(expense.getId());   // loads in the background
+        addRow(form, gbc, 7, "Receipts",       receipts);
 
         root.add(form, BorderLayout.CENTER);
 
@@ -104,7 +132,7 @@ public class ExpenseFormDialog extends JDialog {
 
     private void populateCategories() {
         try {
-            List<Category> cats = new CategoryDAO().findAll();
+            List<Category> cats = new ExpenseService().getCategories();
             for (Category c : cats) cbCategory.addItem(c);
         } catch (SQLException ex) {
             JOptionPane.showMessageDialog(this, "Failed to load categories: " + ex.getMessage(),
@@ -112,11 +140,30 @@ public class ExpenseFormDialog extends JDialog {
         }
     }
 
+    /** Reporting currency first, then the pivot and every currency that has FX rates loaded. */
+    private void populateCurrencies() {
+        String reporting = CurrencyFormatter.currencyCode();
+        String pivot     = CurrencyConverter.pivotCurrency();
+        cbCurrency.addItem(reporting);
+        if (!pivot.equals(reporting)) cbCurrency.addItem(pivot);
+        try {
+            for (String c : new FxRateDAO().findCurrencies()) {
+                if (!c.equals(reporting) && !c.equals(pivot)) cbCurrency.addItem(c);
+            }
+        } catch (SQLException ex) {
+            // Rates unavailable – only the reporting currency can be entered.
+        }
+    }
+
     private void prefill() {
         tfDescription.setText(expense.getDescription());
         tfAmount.setText(expense.getAmount().toPlainString());
         tfDate.setText(expense.getExpenseDate().format(DATE_FMT));
         if (expense.getNotes() != null) taaNotes.setText(expense.getNotes());
+        if (((DefaultComboBoxModel<String>) cbCurrency.getModel()).getIndexOf(expense.getCurrency()) < 0) {
+            cbCurrency.addItem(expense.getCurrency());
+        }
+        cbCurrency.setSelectedItem(expense.getCurrency());
         for (int i = 0; i < cbCategory.getItemCount(); i++) {
             if (cbCategory.getItemAt(i).getId() == expense.getCategoryId()) {
                 cbCategory.setSelectedIndex(i);
@@ -162,10 +209,21 @@ public class ExpenseFormDialog extends JDialog {
             return;
         }
 
+        if (cbRepeat != null) {
+            try {
+                recurrenceRule = selectedRule();
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(),
+                                              "Validation", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+        }
+
         expense.setCategoryId(cat.getId());
         expense.setCategoryName(cat.getName());
         expense.setDescription(desc);
         expense.setAmount(amount);
+        expense.setCurrency((String) cbCurrency.getSelectedItem());
         expense.setExpenseDate(date);
         expense.setNotes(taaNotes.getText().trim());
 
@@ -173,6 +231,16 @@ public class ExpenseFormDialog extends JDialog {
         dispose();
     }
 
+    private String selectedRule() {
+        String text = String.valueOf(cbRepeat.getSelectedItem()).trim();
+        for (String[] p : REPEAT_PRESETS) {
+            if (p[0].equals(text)) return p[1];
+        }
+        return RecurrenceRule.parse(text).toString();
+    }
+
     public boolean isSaved() { return saved; }
+    /** Rule chosen under "Repeats" for a new expense, or null if it does not repeat. */
+    public String  getRecurrenceRule() { return recurrenceRule; }
     public Expense getExpense() { return expense; }
 }
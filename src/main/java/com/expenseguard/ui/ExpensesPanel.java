@@ -1,50 +1,119 @@
 package com.expenseguard.ui;
 
+import com.expenseguard.dao.ExpenseQuery;
+import com.expenseguard.db.QueryGuard;
+import com.expenseguard.metrics.PanelRefreshEvent;
+import com.expenseguard.model.Category;
 import com.expenseguard.model.Expense;
+import com.expenseguard.service.AnomalyDetector;
+import com.expenseguard.service.BudgetExceededException;
 import com.expenseguard.service.ExpenseService;
-import com.expenseguard.service.ExpenseService.BudgetAlert;
+import com.expenseguard.service.RecurringScheduler;
+import com.expenseguard.service.SyncConflictException;
+import com.expenseguard.service.SyncManager;
+import com.expenseguard.service.WriteBehindQueue;
 import com.expenseguard.util.CurrencyFormatter;
 import com.expenseguard.util.UITheme;
 
 import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
  * Panel that lists expenses and provides add/edit/delete actions.
+ *
+ * <p>The filter bar builds an {@link ExpenseQuery} (date range, categories,
+ * amount range, text, sort and page size); its results are loaded in the
+ * background and added to the table as they arrive. Nothing here queries on
+ * the EDT: reloads after a save, the anomaly flags and the total (which may
+ * need exchange rates) are loaded by workers too, and only shown on the EDT.
+ *
+ * <p>In write-behind mode ({@link WriteBehindQueue}), and for every save while
+ * offline, saves return as soon as they are journaled: queued writes are laid
+ * over the stored rows and marked pending until the background writer
+ * confirms or rejects them.
  */
 public class ExpensesPanel extends JPanel {
 
-    private final ExpenseService service = new ExpenseService();
+    private final ExpenseService   service = new ExpenseService();
+    private final WriteBehindQueue queue   = WriteBehindQueue.getInstance();
 
     private JTable          table;
     private DefaultTableModel model;
-    private List<Expense>   expenses = new ArrayList<>();
+    private List<Expense>   expenses = new ArrayList<>();   // as stored
+    private List<Expense>   shown    = new ArrayList<>();   // stored rows with pending writes applied
 
-    private JComboBox<String> cbMonthFilter;
-    private JLabel            lblTotal;
+    private JComboBox<String>            cbMonthFilter;   // presets for the date range
+    private JTextField                   tfFrom, tfTo, tfMin, tfMax, tfText;
+    private JButton                      btnCategories;
+    private JComboBox<ExpenseQuery.Sort> cbSort;
+    private JComboBox<String>            cbPageSize;
+    private JButton                      btnPrev, btnNext;
+    private JLabel                       lblPage;
+    private JLabel                       lblTotal;
+    private AttachmentStrip              receipts;   // of the selected row
+
+    private final Set<Integer>         categoryFilter = new LinkedHashSet<>();
+    private ExpenseQuery               query   = ExpenseQuery.builder().build();
+    private SwingWorker<Void, Expense> loading;   // the filter load in progress, if any
+    private Map<Integer, Set<AnomalyDetector.Flag>> flags = Map.of();   // by expense id
+    private int                        annotating;   // generation of the flags and total being loaded
 
     private static final String[] COLUMNS = {
-        "ID", "Date", "Category", "Description", "Amount", "Notes"
+        "ID", "Date", "Category", "Description", "Amount", "Flags", "Notes", "Status"
     };
+    private static final int FLAGS_COLUMN = 5;
+
+    private static final String SAVED    = "✓";
+    private static final String SAVING   = "⏳ Saving";
+    private static final String DELETING = "⏳ Deleting";
+
+    private static final String[] PAGE_SIZES = {"All rows", "100 / page", "500 / page"};
+
+    private boolean loaded;   // refreshData() has run
 
     public ExpensesPanel() {
+        this(null);
+    }
+
+    /** @param preload all expenses, loaded in the background; null to load them now */
+    public ExpensesPanel(CompletableFuture<List<Expense>> preload) {
         setLayout(new BorderLayout(0, 12));
         setBackground(UITheme.SURFACE);
         setBorder(BorderFactory.createEmptyBorder(16, 16, 16, 16));
         buildUI();
-        refreshData();
+        if (preload == null) refreshData();
+        else                 Preload.into(preload, this::show, this::refreshData, () -> loaded);
+        queue.addListener(new WriteBehindQueue.Listener() {
+            @Override public void confirmed(List<WriteBehindQueue.Write> writes) {
+                SwingUtilities.invokeLater(() -> applyConfirmed(writes));
+            }
+            @Override public void failed(WriteBehindQueue.Write write, SQLException error) {
+                SwingUtilities.invokeLater(() -> writeFailed(write, error));
+            }
+        });
     }
 
     private void buildUI() {
         // ── Top bar ──────────────────────────────────────────────────────────
-        JPanel top = new JPanel(new BorderLayout());
+        JPanel top = new JPanel(new BorderLayout(0, 10));
         top.setOpaque(false);
 
         JLabel title = UITheme.titleLabel("💸  Expenses");
@@ -53,31 +122,32 @@ public class ExpensesPanel extends JPanel {
         JPanel controls = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
         controls.setOpaque(false);
 
-        cbMonthFilter = new JComboBox<>();
-        populateMonthFilter();
-        cbMonthFilter.addActionListener(e -> refreshData());
-        controls.add(new JLabel("Month:"));
-        controls.add(cbMonthFilter);
-
         JButton btnAdd    = UITheme.primaryButton("+ Add");
         JButton btnEdit   = UITheme.secondaryButton("✏ Edit");
         JButton btnDelete = UITheme.dangerButton("🗑 Delete");
+        JButton btnRecur  = UITheme.secondaryButton("🔁 Recurring");
+        JButton btnFlags  = UITheme.secondaryButton("⚠ Re-check");
+        btnFlags.setToolTipText("Recompute the unusual-amount and duplicate flags from all expenses");
 
         btnAdd.addActionListener(e -> onAdd());
         btnEdit.addActionListener(e -> onEdit());
         btnDelete.addActionListener(e -> onDelete());
+        btnRecur.addActionListener(e -> new RecurringExpensesDialog(
+            (Frame) SwingUtilities.getWindowAncestor(this), service).setVisible(true));
+        btnFlags.addActionListener(e -> onRecheckFlags(btnFlags));
 
         controls.add(btnAdd);
         controls.add(btnEdit);
         controls.add(btnDelete);
+        controls.add(btnRecur);
+        controls.add(btnFlags);
         top.add(controls, BorderLayout.EAST);
+        top.add(buildFilterBar(), BorderLayout.SOUTH);
 
         add(top, BorderLayout.NORTH);
 
         // ── Table ────────────────────────────────────────────────────────────
-        model = new DefaultTableModel(COLUMNS, 0) {
-            @Override public boolean isCellEditable(int r, int c) { return false; }
-        };
+        model = newTableModel();
         table = new JTable(model);
         table.setFont(UITheme.FONT_BODY);
         table.setRowHeight(28);
@@ -97,19 +167,108 @@ public class ExpensesPanel extends JPanel {
         DefaultTableCellRenderer rightAlign = new DefaultTableCellRenderer();
         rightAlign.setHorizontalAlignment(SwingConstants.RIGHT);
         table.getColumnModel().getColumn(4).setCellRenderer(rightAlign);
+        DefaultTableCellRenderer flagged = new DefaultTableCellRenderer();
+        flagged.setForeground(new Color(180, 83, 9));
+        table.getColumnModel().getColumn(5).setCellRenderer(flagged);
+        table.getColumnModel().getColumn(7).setMaxWidth(110);
 
         JScrollPane sp = new JScrollPane(table);
         sp.setBorder(BorderFactory.createLineBorder(UITheme.BORDER_COLOR));
-        add(sp, BorderLayout.CENTER);
+
+        // Receipts of the selected row, loaded once the selection settles
+        receipts = new AttachmentStrip(service, false);
+        receipts.clear();
+        Timer previewDelay = new Timer(150, e -> previewSelected());
+        previewDelay.setRepeats(false);
+        table.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) previewDelay.restart();
+        });
+        JPanel center = new JPanel(new BorderLayout(0, 8));
+        center.setOpaque(false);
+        center.add(sp, BorderLayout.CENTER);
+        center.add(receipts, BorderLayout.SOUTH);
+        add(center, BorderLayout.CENTER);
 
         // ── Footer ───────────────────────────────────────────────────────────
-        JPanel footer = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JPanel footer = new JPanel(new BorderLayout());
         footer.setOpaque(false);
-        lblTotal = new JLabel("Total: $0.00");
+        JPanel paging = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+        paging.setOpaque(false);
+        btnPrev = UITheme.secondaryButton("◀ Prev");
+        btnNext = UITheme.secondaryButton("Next ▶");
+        lblPage = new JLabel();
+        lblPage.setForeground(UITheme.TEXT_MUTED);
+        btnPrev.addActionListener(e -> turnPage(-1));
+        btnNext.addActionListener(e -> turnPage(1));
+        paging.add(btnPrev);
+        paging.add(lblPage);
+        paging.add(btnNext);
+        footer.add(paging, BorderLayout.WEST);
+        lblTotal = new JLabel("Total: " + CurrencyFormatter.format(BigDecimal.ZERO));
         lblTotal.setFont(UITheme.FONT_H2);
         lblTotal.setForeground(UITheme.PRIMARY);
-        footer.add(lblTotal);
+        footer.add(lblTotal, BorderLayout.EAST);
         add(footer, BorderLayout.SOUTH);
+        updatePaging();
+    }
+
+    private JPanel buildFilterBar() {
+        JPanel bar = new JPanel(new GridLayout(2, 1, 0, 6));
+        bar.setOpaque(false);
+        JPanel range = new JPanel(new FlowLayout(FlowLayout.LEFT, 6, 0));
+        JPanel rest  = new JPanel(new FlowLayout(FlowLayout.LEFT, 6, 0));
+        range.setOpaque(false);
+        rest.setOpaque(false);
+        bar.add(range);
+        bar.add(rest);
+
+        cbMonthFilter = new JComboBox<>();
+        populateMonthFilter();
+        cbMonthFilter.addActionListener(e -> monthSelected());
+        tfFrom = new JTextField(8);
+        tfTo   = new JTextField(8);
+        tfFrom.setToolTipText("First day, yyyy-MM-dd");
+        tfTo.setToolTipText("Last day, yyyy-MM-dd");
+
+        btnCategories = UITheme.secondaryButton("All categories ▾");
+        btnCategories.addActionListener(e -> showCategoryMenu());
+
+        tfMin  = new JTextField(5);
+        tfMax  = new JTextField(5);
+        tfText = new JTextField(10);
+        tfText.setToolTipText("Text in the description or notes");
+
+        cbSort = new JComboBox<>(ExpenseQuery.Sort.values());
+        cbSort.addActionListener(e -> applyFilter());
+        cbPageSize = new JComboBox<>(PAGE_SIZES);
+        cbPageSize.addActionListener(e -> applyFilter());
+
+        JButton btnApply = UITheme.primaryButton("Filter");
+        JButton btnClear = UITheme.secondaryButton("Clear");
+        btnApply.addActionListener(e -> applyFilter());
+        btnClear.addActionListener(e -> clearFilter());
+        for (JTextField tf : new JTextField[]{tfFrom, tfTo, tfMin, tfMax, tfText}) {
+            tf.addActionListener(e -> applyFilter());   // Enter applies
+        }
+
+        range.add(new JLabel("Month:"));
+        range.add(cbMonthFilter);
+        range.add(new JLabel("From"));
+        range.add(tfFrom);
+        range.add(new JLabel("to"));
+        range.add(tfTo);
+        range.add(btnCategories);
+        range.add(new JLabel("Amount"));
+        range.add(tfMin);
+        range.add(new JLabel("–"));
+        range.add(tfMax);
+        rest.add(new JLabel("Search"));
+        rest.add(tfText);
+        rest.add(cbSort);
+        rest.add(cbPageSize);
+        rest.add(btnApply);
+        rest.add(btnClear);
+        return bar;
     }
 
     private void populateMonthFilter() {
@@ -120,36 +279,312 @@ public class ExpensesPanel extends JPanel {
         }
     }
 
-    public void refreshData() {
+    /** Fills the date range from the month preset and applies the filter. */
+    private void monthSelected() {
+        String month = (String) cbMonthFilter.getSelectedItem();
+        if ("All".equals(month)) {
+            tfFrom.setText("");
+            tfTo.setText("");
+        } else {
+            YearMonth ym = YearMonth.parse(month);
+            tfFrom.setText(ym.atDay(1).toString());
+            tfTo.setText(ym.atEndOfMonth().toString());
+        }
+        applyFilter();
+    }
+
+    private void showCategoryMenu() {
+        JPopupMenu menu = new JPopupMenu();
         try {
-            String selected = (String) cbMonthFilter.getSelectedItem();
-            if ("All".equals(selected)) {
-                expenses = service.getAllExpenses();
-            } else {
-                expenses = service.getExpensesByMonth(YearMonth.parse(selected));
+            for (Category c : service.getCategories()) {
+                JCheckBoxMenuItem item = new JCheckBoxMenuItem(c.getName(), categoryFilter.contains(c.getId()));
+                item.addActionListener(e -> {
+                    if (item.isSelected()) categoryFilter.add(c.getId());
+                    else                   categoryFilter.remove(c.getId());
+                    btnCategories.setText(categoryFilter.isEmpty() ? "All categories ▾"
+                                          : categoryFilter.size() + " categories ▾");
+                    applyFilter();
+                });
+                menu.add(item);
             }
-            populateTable();
         } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error loading expenses: " + ex.getMessage(),
+            JOptionPane.showMessageDialog(this, "Error loading categories: " + ex.getMessage(),
                                           "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        menu.show(btnCategories, 0, btnCategories.getHeight());
+    }
+
+    private void clearFilter() {
+        tfFrom.setText("");
+        tfTo.setText("");
+        tfMin.setText("");
+        tfMax.setText("");
+        tfText.setText("");
+        categoryFilter.clear();
+        btnCategories.setText("All categories ▾");
+        cbMonthFilter.setSelectedIndex(0);   // applies
+    }
+
+    /** Reads the filter bar into a query for its first page and loads it. */
+    private void applyFilter() {
+        ExpenseQuery q;
+        try {
+            int size = switch (cbPageSize.getSelectedIndex()) {
+                case 1  -> 100;
+                case 2  -> 500;
+                default -> 0;
+            };
+            q = ExpenseQuery.builder()
+                .from(parseDate(tfFrom))
+                .to(parseDate(tfTo))
+                .categories(categoryFilter)
+                .minAmount(parseAmount(tfMin))
+                .maxAmount(parseAmount(tfMax))
+                .text(tfText.getText())
+                .sort((ExpenseQuery.Sort) cbSort.getSelectedItem())
+                .page(0, size)
+                .build();
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Filter", JOptionPane.WARNING_MESSAGE);
+            return;
         }
+        load(q, true);
+    }
+
+    private void turnPage(int delta) {
+        load(query.toBuilder().page(query.getPage() + delta, query.getPageSize()).build(), true);
+    }
+
+    private static LocalDate parseDate(JTextField tf) {
+        String s = tf.getText().trim();
+        if (s.isEmpty()) return null;
+        try {
+            return LocalDate.parse(s);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("\"" + s + "\" is not a date (yyyy-MM-dd).");
+        }
+    }
+
+    private static BigDecimal parseAmount(JTextField tf) {
+        String s = tf.getText().trim();
+        if (s.isEmpty()) return null;
+        try {
+            return new BigDecimal(s);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("\"" + s + "\" is not an amount.");
+        }
+    }
+
+    /**
+     * Loads {@code q} in the background; a load still running is cancelled.
+     * With {@code incremental} the table is cleared and rows are added as they
+     * are read (a new filter or page); without, the rows shown stay until the
+     * new ones replace them at once (a reload of the same filter).
+     */
+    private void load(ExpenseQuery q, boolean incremental) {
+        if (loading != null) loading.cancel(true);
+        loaded = true;
+        query  = q;
+        annotating++;
+        if (incremental) {
+            expenses = new ArrayList<>();
+            shown    = new ArrayList<>();
+            model.setRowCount(0);
+            lblTotal.setText("Loading…");
+            updatePaging();
+        }
+        String operation = incremental ? "ExpensesPanel.load" : "ExpensesPanel.refreshData";
+        PanelRefreshEvent ev = PanelRefreshEvent.begin("ExpensesPanel", q.toString());
+        SwingWorker<Void, Expense> worker = new SwingWorker<>() {
+            private final List<Expense> rows = new ArrayList<>();   // all rows read, for done()
+            private Map<Integer, Set<AnomalyDetector.Flag>> found = flags;
+
+            @Override
+            @SuppressWarnings("try")   // the scope only has to span the queries
+            protected Void doInBackground() throws SQLException {
+                try (QueryGuard.Scope queries = QueryGuard.open(operation)) {
+                    found = anomalyFlags(found);
+                    service.findExpenses(q, e -> {
+                        if (isCancelled()) throw new CancellationException();
+                        rows.add(e);
+                        if (incremental) publish(e);
+                    });
+                }
+                return null;
+            }
+
+            @Override
+            protected void process(List<Expense> chunk) {
+                if (loading != this) return;
+                flags = found;
+                for (Expense e : chunk) model.addRow(row(e, SAVED, flags));
+            }
+
+            @Override
+            protected void done() {
+                if (loading != this) return;
+                loading = null;
+                ev.commit();
+                try {
+                    get();
+                    flags = found;
+                    show(rows);
+                } catch (ExecutionException ex) {
+                    if (incremental) lblTotal.setText("Total: n/a");
+                    JOptionPane.showMessageDialog(ExpensesPanel.this, "Error loading expenses: "
+                                                  + ex.getCause().getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                } catch (InterruptedException | CancellationException ignored) {
+                }
+            }
+        };
+        loading = worker;
+        worker.execute();
+    }
+
+    /** Reloads the current filter and page in the background; the rows shown stay until it is done. */
+    public void refreshData() {
+        load(query, false);
+    }
+
+    private void show(List<Expense> rows) {
+        expenses = rows;
+        populateTable();
     }
 
+    private void updatePaging() {
+        boolean paged = query.getPageSize() > 0;
+        btnPrev.setVisible(paged);
+        btnNext.setVisible(paged);
+        lblPage.setVisible(paged);
+        btnPrev.setEnabled(query.getPage() > 0);
+        btnNext.setEnabled(expenses.size() >= query.getPageSize());
+        lblPage.setText("Page " + (query.getPage() + 1));
+    }
+
+    /** Shows {@link #expenses} with the pending writes laid over them, with the flags known so far. */
     private void populateTable() {
+        shown = new ArrayList<>(expenses);
+        Map<Expense, String> status = new IdentityHashMap<>();
+        overlayPending(status);
+        List<Expense> counted = fillTable(model, shown, status, flags);
+        updatePaging();
+        annotate(counted);
+    }
+
+    /**
+     * Loads the current anomaly flags and the total of {@code counted} in the
+     * reporting currency in the background, then shows them; dropped if the
+     * table has been filled again in the meantime.
+     */
+    private void annotate(List<Expense> counted) {
+        int generation = ++annotating;
+        lblTotal.setText("Total: …");
+        new SwingWorker<BigDecimal, Void>() {
+            private Map<Integer, Set<AnomalyDetector.Flag>> found = flags;
+
+            @Override
+            protected BigDecimal doInBackground() throws SQLException {
+                found = anomalyFlags(found);
+                return service.totalInReportingCurrency(counted);
+            }
+
+            @Override
+            protected void done() {
+                if (generation != annotating) return;
+                flags = found;
+                for (int i = 0; i < shown.size(); i++) model.setValueAt(flagText(shown.get(i), flags), i, FLAGS_COLUMN);
+                try {
+                    lblTotal.setText("Total: " + CurrencyFormatter.format(get()));
+                } catch (ExecutionException ex) {
+                    lblTotal.setText("Total: n/a (" + ex.getCause().getMessage() + ")");
+                } catch (InterruptedException | CancellationException ignored) {
+                }
+            }
+        }.execute();
+    }
+
+    /** The table's model: the expense columns, read-only. */
+    static DefaultTableModel newTableModel() {
+        return new DefaultTableModel(COLUMNS, 0) {
+            @Override public boolean isCellEditable(int r, int c) { return false; }
+        };
+    }
+
+    /**
+     * Replaces the rows of {@code model} with {@code rows}, each with its
+     * {@code status} (saved if absent) and anomaly {@code flags}; returns the
+     * rows that count towards the total: all but those being deleted.
+     */
+    static List<Expense> fillTable(DefaultTableModel model, List<Expense> rows, Map<Expense, String> status,
+                                   Map<Integer, Set<AnomalyDetector.Flag>> flags) {
+        List<Expense> counted = new ArrayList<>(rows.size());
         model.setRowCount(0);
-        BigDecimal total = BigDecimal.ZERO;
-        for (Expense e : expenses) {
-            model.addRow(new Object[]{
-                e.getId(),
-                e.getExpenseDate(),
-                e.getCategoryName(),
-                e.getDescription(),
-                CurrencyFormatter.format(e.getAmount()),
-                e.getNotes() != null ? e.getNotes() : ""
-            });
-            if (e.getAmount() != null) total = total.add(e.getAmount());
+        for (Expense e : rows) {
+            String st = status.getOrDefault(e, SAVED);
+            if (!DELETING.equals(st)) counted.add(e);
+            model.addRow(row(e, st, flags));
+        }
+        return counted;
+    }
+
+    private static Object[] row(Expense e, String status, Map<Integer, Set<AnomalyDetector.Flag>> flags) {
+        return new Object[]{
+            e.getId(),
+            e.getExpenseDate(),
+            e.getCategoryName(),
+            e.getDescription(),
+            CurrencyFormatter.forCurrency(e.getCurrency()).formatAmount(e.getAmount()),
+            flagText(e, flags),
+            e.getNotes() != null ? e.getNotes() : "",
+            status
+        };
+    }
+
+    private static String flagText(Expense e, Map<Integer, Set<AnomalyDetector.Flag>> flags) {
+        Set<AnomalyDetector.Flag> f = flags.get(e.getId());
+        return f == null ? "" : f.stream().map(Object::toString).collect(Collectors.joining(", "));
+    }
+
+    /** The current anomaly flags, or {@code current} if they cannot be loaded (e.g. offline). */
+    private Map<Integer, Set<AnomalyDetector.Flag>> anomalyFlags(Map<Integer, Set<AnomalyDetector.Flag>> current) {
+        try {
+            return service.getAnomalyFlags();
+        } catch (SQLException ex) {
+            return current;
         }
-        lblTotal.setText("Total: " + CurrencyFormatter.format(total));
+    }
+
+    /** Rebuilds the flags from all expenses in the background, with {@code button} disabled meanwhile. */
+    private void onRecheckFlags(JButton button) {
+        button.setEnabled(false);
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws SQLException {
+                service.rebuildAnomalyFlags();
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                button.setEnabled(true);
+                try {
+                    get();
+                    populateTable();
+                } catch (ExecutionException ex) {
+                    JOptionPane.showMessageDialog(ExpensesPanel.this, "Could not re-check flags: "
+                                                  + ex.getCause().getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                } catch (InterruptedException | CancellationException ignored) {
+                }
+            }
+        }.execute();
+    }
+
+    /** Shows the receipts of the selected row; none for several rows or a row not yet stored. */
+    private void previewSelected() {
+        int[] rows = table.getSelectedRows();
+        if (rows.length != 1 || rows[0] >= shown.size()) receipts.clear();
+        else                                             receipts.showExpense(shown.get(rows[0]).getId());
     }
 
     private void onAdd() {
@@ -159,29 +594,60 @@ public class ExpensesPanel extends JPanel {
         dlg.setVisible(true);
         if (!dlg.isSaved()) return;
         try {
-            BudgetAlert alert = service.saveExpense(dlg.getExpense());
+            String rule = dlg.getRecurrenceRule();
+            if (rule != null && !SyncManager.getInstance().isOnline()) {
+                JOptionPane.showMessageDialog(this, "Recurring expenses cannot be set up while offline.",
+                                              "Offline", JOptionPane.WARNING_MESSAGE);
+                return;
+            } else if (rule != null) {
+                service.saveRecurringExpense(dlg.getExpense(), rule);
+                RecurringScheduler.getInstance().runNow();
+            } else if (WriteBehindQueue.isQueueing()) {
+                queue.save(dlg.getExpense());
+                populateTable();
+                return;
+            } else {
+                service.saveExpense(dlg.getExpense());
+            }
             refreshData();
-            showAlert(alert);
+        } catch (BudgetExceededException ex) {
+            JOptionPane.showMessageDialog(this, "🔒 " + ex.getMessage(),
+                                          "Budget Limit", JOptionPane.WARNING_MESSAGE);
         } catch (SQLException ex) {
             JOptionPane.showMessageDialog(this, "Save failed: " + ex.getMessage(),
                                           "Error", JOptionPane.ERROR_MESSAGE);
+        } catch (IOException ex) {
+            journalError("Save", ex);
         }
     }
 
     private void onEdit() {
         int row = table.getSelectedRow();
         if (row < 0) { JOptionPane.showMessageDialog(this, "Select an expense to edit."); return; }
-        Expense e = expenses.get(row);
+        // Queued rows are snapshots shared with the writer; edit a copy of them
+        boolean queued = WriteBehindQueue.isQueueing();
+        Expense e = queued ? new Expense(shown.get(row)) : shown.get(row);
         ExpenseFormDialog dlg = new ExpenseFormDialog(
             (Frame) SwingUtilities.getWindowAncestor(this), e);
         dlg.setVisible(true);
         if (!dlg.isSaved()) return;
         try {
+            if (queued) {
+                queue.update(dlg.getExpense());
+                populateTable();
+                return;
+            }
             service.updateExpense(dlg.getExpense());
             refreshData();
+        } catch (BudgetExceededException ex) {
+            refreshData();   // the edited row was modified in place; reload the stored version
+            JOptionPane.showMessageDialog(this, "🔒 " + ex.getMessage(),
+                                          "Budget Limit", JOptionPane.WARNING_MESSAGE);
         } catch (SQLException ex) {
             JOptionPane.showMessageDialog(this, "Update failed: " + ex.getMessage(),
                                           "Error", JOptionPane.ERROR_MESSAGE);
+        } catch (IOException ex) {
+            journalError("Update", ex);
         }
     }
 
@@ -192,19 +658,94 @@ public class ExpensesPanel extends JPanel {
             "Delete this expense?", "Confirm", JOptionPane.YES_NO_OPTION);
         if (confirm != JOptionPane.YES_OPTION) return;
         try {
-            service.deleteExpense(expenses.get(row).getId());
+            if (WriteBehindQueue.isQueueing()) {
+                queue.delete(shown.get(row));
+                populateTable();
+                return;
+            }
+            service.deleteExpense(shown.get(row).getId());
             refreshData();
         } catch (SQLException ex) {
             JOptionPane.showMessageDialog(this, "Delete failed: " + ex.getMessage(),
                                           "Error", JOptionPane.ERROR_MESSAGE);
+        } catch (IOException ex) {
+            journalError("Delete", ex);
+        }
+    }
+
+    // ── Write-behind ─────────────────────────────────────────────────────────
+
+    /** Lays the queued writes over {@link #shown}, oldest first, and records each affected row's status. */
+    private void overlayPending(Map<Expense, String> status) {
+        for (WriteBehindQueue.Write w : queue.pending()) {
+            Expense e = w.getExpense();
+            int i = indexOf(shown, e);
+            switch (w.getOp()) {
+                case INSERT -> {
+                    if (i < 0 && query.matches(e)) {
+                        shown.add(0, e);
+                        status.put(e, SAVING);
+                    }
+                }
+                case UPDATE -> {
+                    if (i >= 0) {
+                        shown.set(i, e);
+                        status.put(e, SAVING);
+                    }
+                }
+                case DELETE -> {
+                    if (i >= 0) status.put(shown.get(i), DELETING);
+                }
+            }
         }
     }
 
-    private void showAlert(BudgetAlert alert) {
-        if (alert == null) return;
-        int msgType = alert.getType() == BudgetAlert.Type.EXCEEDED
-                      ? JOptionPane.ERROR_MESSAGE
-                      : JOptionPane.WARNING_MESSAGE;
-        JOptionPane.showMessageDialog(this, alert.getMessage(), "Budget Alert", msgType);
+    /** Folds committed writes into the stored rows without reloading them. */
+    private void applyConfirmed(List<WriteBehindQueue.Write> writes) {
+        for (WriteBehindQueue.Write w : writes) {
+            Expense e = w.getExpense();
+            int i = indexOf(expenses, e);
+            if (w.getOp() == WriteBehindQueue.Op.DELETE) {
+                if (i >= 0) expenses.remove(i);
+            } else if (i >= 0) {
+                expenses.set(i, e);
+            } else if (query.matches(e)) {
+                expenses.add(0, e);
+            }
+        }
+        populateTable();
+    }
+
+    private void writeFailed(WriteBehindQueue.Write write, SQLException error) {
+        refreshData();
+        if (error instanceof BudgetExceededException) {
+            JOptionPane.showMessageDialog(this, "🔒 " + error.getMessage(),
+                                          "Budget Limit", JOptionPane.WARNING_MESSAGE);
+        } else if (error instanceof SyncConflictException) {
+            JOptionPane.showMessageDialog(this, error.getMessage(), "Sync Conflict", JOptionPane.WARNING_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, "Could not store \"" + write.getExpense().getDescription()
+                                          + "\": " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void journalError(String action, IOException ex) {
+        JOptionPane.showMessageDialog(this, action + " failed: could not write the local journal ("
+                                      + ex.getMessage() + ")", "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    /** Position of the row for the same expense: same id, or same client key while it has none. */
+    private static int indexOf(List<Expense> list, Expense e) {
+        for (int i = 0; i < list.size(); i++) {
+            Expense x = list.get(i);
+            if (e.getId() != 0 && x.getId() == e.getId()) return i;
+            if (e.getClientRef() != null && e.getClientRef().equals(x.getClientRef())) return i;
+        }
+        return -1;
+    }
+
+    /** Called on the EDT after the scheduler generated recurring expenses. */
+    public void recurringGenerated() {
+        refreshData();
     }
 }
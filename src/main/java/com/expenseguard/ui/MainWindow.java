@@ -1,12 +1,44 @@
 package com.expenseguard.ui;
 
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.metrics.StartupTimer;
+import com.expenseguard.model.Budget;
+import com.expenseguard.model.Category;
+import com.expenseguard.model.Expense;
+import com.expenseguard.service.AnnualReportWriter;
+import com.expenseguard.service.BudgetAlertEngine;
+import com.expenseguard.service.ExpenseService;
+import com.expenseguard.service.ExpenseService.BudgetAlert;
+import com.expenseguard.service.OfflineStore;
+import com.expenseguard.service.RecurringScheduler;
+import com.expenseguard.service.SyncManager;
+import com.expenseguard.service.WriteBehindQueue;
 import com.expenseguard.util.UITheme;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Main JFrame – tabbed shell containing all panels.
+ *
+ * <p>Only the Expenses tab is built up front; the others are built when first
+ * selected. Meanwhile the data of every tab is loaded in parallel in the
+ * background, each load on a pooled connection of its own, and a panel built
+ * later starts out with it unless an expense or budget changed since.
  */
 public class MainWindow extends JFrame {
 
@@ -14,6 +46,20 @@ public class MainWindow extends JFrame {
     private BudgetPanel     budgetPanel;
     private ChartsPanel     chartsPanel;
     private CategoriesPanel categoriesPanel;
+    private JTabbedPane     tabs;
+    private JLabel          lblStatus;
+
+    private final ExpenseService  service = new ExpenseService();
+    private final ExecutorService warmup  = Executors.newFixedThreadPool(3, r -> {
+        Thread t = new Thread(r, "ui-warmup");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private CompletableFuture<List<Budget>>   budgetData;
+    private CompletableFuture<List<Object[]>> chartData;
+    private CompletableFuture<List<Category>> categoryData;
+    private long                              warmedAt;   // change count when the loads started
 
     public MainWindow() {
         setTitle("💰 Personal Expense & Budget Guard");
@@ -30,28 +76,226 @@ public class MainWindow extends JFrame {
         getContentPane().setBackground(UITheme.SURFACE);
 
         // ── Sidebar / tab strip ──────────────────────────────────────────────
-        JTabbedPane tabs = new JTabbedPane(JTabbedPane.LEFT);
+        tabs = new JTabbedPane(JTabbedPane.LEFT);
         tabs.setFont(UITheme.FONT_BODY);
         tabs.setBackground(UITheme.SURFACE);
 
-        expensesPanel   = new ExpensesPanel();
-        budgetPanel     = new BudgetPanel();
-        chartsPanel     = new ChartsPanel();
-        categoriesPanel = new CategoriesPanel();
+        // Load every tab's data in the background; the panels default to the current month
+        String month = YearMonth.now().toString();
+        warmedAt     = BudgetAlertEngine.getInstance().changeCount();
+        expensesPanel = new ExpensesPanel(warm(service::getAllExpenses));
+        budgetData    = warm(() -> service.getBudgetsForMonth(month));
+        chartData     = warm(() -> service.getMonthlyCategorySummary(month));
+        categoryData  = warm(service::getCategories);
+        warm(service::getAnomalyFlags);   // builds the flags the expenses table shows
+        warm(() -> {                      // deletes receipt files of removed attachments
+            try {
+                return service.pruneAttachments();
+            } catch (IOException ex) {
+                throw new SQLException("Pruning attachment files failed: " + ex.getMessage(), ex);
+            }
+        });
 
         tabs.addTab("💸  Expenses",   expensesPanel);
-        tabs.addTab("🛡  Budgets",    budgetPanel);
-        tabs.addTab("📊  Reports",    chartsPanel);
-        tabs.addTab("🏷  Categories", categoriesPanel);
+        tabs.addTab("🛡  Budgets",    placeholder());
+        tabs.addTab("📊  Reports",    placeholder());
+        tabs.addTab("🏷  Categories", placeholder());
 
-        // Refresh charts/budgets when switching to those tabs
+        // Build a tab on its first selection; refresh charts/budgets when switching to them later
         tabs.addChangeListener(e -> {
             int idx = tabs.getSelectedIndex();
+            if (build(idx)) return;
             if (idx == 1) budgetPanel.refreshData();
             if (idx == 2) chartsPanel.refreshData();
             if (idx == 3) categoriesPanel.refreshData();
         });
 
-        setContentPane(tabs);
+        RecurringScheduler.getInstance().setListener(inserted ->
+            SwingUtilities.invokeLater(expensesPanel::recurringGenerated));
+        BudgetAlertEngine.getInstance().addListener(alert ->
+            SwingUtilities.invokeLater(() -> showAlert(alert)));
+
+        SyncManager.getInstance().addListener(online ->
+            SwingUtilities.invokeLater(() -> onlineChanged(online)));
+
+        // ── Status bar: connection state and writes waiting to be stored ─────
+        lblStatus = new JLabel();
+        lblStatus.setFont(UITheme.FONT_BODY);
+        lblStatus.setBorder(BorderFactory.createEmptyBorder(4, 12, 4, 12));
+        updateStatus();
+        new Timer(2000, e -> updateStatus()).start();
+
+        setJMenuBar(buildMenu());
+
+        JPanel content = new JPanel(new BorderLayout());
+        content.add(tabs, BorderLayout.CENTER);
+        content.add(lblStatus, BorderLayout.SOUTH);
+        setContentPane(content);
+        StartupTimer.phase("window built");
+    }
+
+    private JMenuBar buildMenu() {
+        JMenuItem backup  = new JMenuItem("Back Up Database…");
+        JMenuItem restore = new JMenuItem("Restore Database…");
+        backup.addActionListener(e -> onSnapshot(false));
+        restore.addActionListener(e -> onSnapshot(true));
+        JMenuItem report  = new JMenuItem("Annual Report…");
+        report.addActionListener(e -> onAnnualReport(report));
+        JMenu file = new JMenu("File");
+        file.add(backup);
+        file.add(restore);
+        file.addSeparator();
+        file.add(report);
+        JMenuBar bar = new JMenuBar();
+        bar.add(file);
+        return bar;
+    }
+
+    /** Asks for a snapshot file and backs up to it or restores from it. */
+    private void onSnapshot(boolean restore) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Expense Guard snapshots (*.egsnap)", "egsnap"));
+        if (!restore) chooser.setSelectedFile(new File("expenseguard-" + LocalDate.now() + ".egsnap"));
+        int choice = restore ? chooser.showOpenDialog(this) : chooser.showSaveDialog(this);
+        if (choice != JFileChooser.APPROVE_OPTION) return;
+        new SnapshotDialog(this, restore, chooser.getSelectedFile().toPath(), this::restored).run();
+    }
+
+    /** Asks for a year and a folder and writes the year's report there in the background. */
+    private void onAnnualReport(JMenuItem item) {
+        int current = Year.now().getValue();
+        Integer[] years = {current, current - 1, current - 2, current - 3, current - 4};
+        Integer year = (Integer) JOptionPane.showInputDialog(this, "Year:", "Annual Report",
+            JOptionPane.PLAIN_MESSAGE, null, years, LocalDate.now().getMonthValue() == 1 ? years[1] : years[0]);
+        if (year == null) return;
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        chooser.setDialogTitle("Folder for the " + year + " report");
+        if (chooser.showDialog(this, "Write Report") != JFileChooser.APPROVE_OPTION) return;
+        Path dir = chooser.getSelectedFile().toPath();
+
+        item.setEnabled(false);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<Path, Void>() {
+            @Override protected Path doInBackground() throws Exception {
+                return new AnnualReportWriter().write(service.getAnnualReport(Year.of(year)), dir);
+            }
+            @Override protected void done() {
+                item.setEnabled(true);
+                setCursor(Cursor.getDefaultCursor());
+                Path html;
+                try {
+                    html = get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(MainWindow.this,
+                        "Annual report failed: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                int open = JOptionPane.showConfirmDialog(MainWindow.this,
+                    "Report written to " + html + "\n\nOpen it now?", "Annual Report", JOptionPane.YES_NO_OPTION);
+                if (open != JOptionPane.YES_OPTION) return;
+                CompletableFuture.runAsync(() -> {   // can block
+                    try {
+                        Desktop.getDesktop().open(html.toFile());
+                    } catch (IOException | UnsupportedOperationException ex) {
+                        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(MainWindow.this,
+                            "Could not open " + html + ": " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+                    }
+                });
+            }
+        }.execute();
+    }
+
+    /** Rebuilds the flags from the restored expenses and shows the restored data. */
+    private void restored() {
+        warm(() -> {
+            service.rebuildAnomalyFlags();
+            return null;
+        }).whenComplete((v, ex) -> SwingUtilities.invokeLater(() -> {
+            expensesPanel.refreshData();
+            if (budgetPanel     != null) budgetPanel.refreshData();
+            if (chartsPanel     != null) chartsPanel.refreshData();
+            if (categoriesPanel != null) categoriesPanel.refreshData();
+        }));
+    }
+
+    /** Reloads from the database once it is reachable again. */
+    private void onlineChanged(boolean online) {
+        updateStatus();
+        if (!online) return;
+        expensesPanel.refreshData();
+        int idx = tabs.getSelectedIndex();
+        if (idx == 1 && budgetPanel     != null) budgetPanel.refreshData();
+        if (idx == 2 && chartsPanel     != null) chartsPanel.refreshData();
+        if (idx == 3 && categoriesPanel != null) categoriesPanel.refreshData();
+    }
+
+    /**
+     * Builds the panel of tab {@code idx} on its first selection, with the
+     * data loaded at start-up if nothing changed since; false if it exists.
+     */
+    private boolean build(int idx) {
+        boolean fresh = BudgetAlertEngine.getInstance().changeCount() == warmedAt;
+        JComponent panel;
+        if (idx == 1 && budgetPanel == null) {
+            panel = budgetPanel = new BudgetPanel(fresh ? budgetData : null);
+        } else if (idx == 2 && chartsPanel == null) {
+            panel = chartsPanel = new ChartsPanel(fresh ? chartData : null);
+        } else if (idx == 3 && categoriesPanel == null) {
+            panel = categoriesPanel = new CategoriesPanel(fresh ? categoryData : null);
+        } else {
+            return false;
+        }
+        tabs.setComponentAt(idx, panel);
+        return true;
+    }
+
+    private static JPanel placeholder() {
+        JPanel p = new JPanel();
+        p.setBackground(UITheme.SURFACE);
+        return p;
+    }
+
+    /**
+     * Runs a load on the warm-up pool, on a pooled connection of its own so
+     * the loads run in parallel. On a first start it waits for the connection
+     * and schema; otherwise it starts at once and, until the database is
+     * reached, is answered from the offline store where possible.
+     */
+    private <T> CompletableFuture<T> warm(DatabaseConnection.Work<T> work) {
+        SyncManager sync = SyncManager.getInstance();
+        CompletableFuture<Void> ready = OfflineStore.getInstance().isEmpty()
+            ? sync.firstAttempt() : CompletableFuture.completedFuture(null);
+        return ready.thenApplyAsync(v -> {
+            try {
+                return sync.isOnline() ? DatabaseConnection.instance().inTransaction(work) : work.run();
+            } catch (SQLException ex) {
+                throw new CompletionException(ex);
+            }
+        }, warmup);
+    }
+
+    private void updateStatus() {
+        SyncManager sync = SyncManager.getInstance();
+        int pending = WriteBehindQueue.getInstance().pending().size();
+        String waiting = pending == 0 ? "" : " · " + pending + " change(s) waiting to sync";
+        if (sync.isOnline()) {
+            lblStatus.setForeground(UITheme.SUCCESS);
+            lblStatus.setText("● Online" + waiting);
+        } else if (!sync.isConnectAttempted()) {
+            lblStatus.setForeground(UITheme.TEXT_MUTED);
+            lblStatus.setText("● Connecting…" + waiting);
+        } else {
+            lblStatus.setForeground(UITheme.DANGER);
+            lblStatus.setText("● Offline – showing saved data, new expenses are kept locally" + waiting);
+        }
+    }
+
+    private void showAlert(BudgetAlert alert) {
+        int msgType = alert.getType() == BudgetAlert.Type.EXCEEDED   ? JOptionPane.ERROR_MESSAGE
+                    : alert.getType() == BudgetAlert.Type.BACK_UNDER ? JOptionPane.INFORMATION_MESSAGE
+                    : JOptionPane.WARNING_MESSAGE;
+        JOptionPane.showMessageDialog(this, alert.getMessage(), "Budget Alert", msgType);
     }
 }
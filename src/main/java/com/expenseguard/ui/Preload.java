@@ -0,0 +1,46 @@
+package com.expenseguard.ui;
+
+import com.expenseguard.metrics.StartupTimer;
+import com.expenseguard.service.SyncManager;
+
+import javax.swing.*;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Hands a panel the data {@link MainWindow} loaded for it in the background,
+ * so building the panel does not query on the EDT.
+ */
+final class Preload {
+
+    private Preload() {}
+
+    /**
+     * Shows {@code data} with {@code show} once it is loaded, at once if it
+     * already is. If loading failed the panel loads itself with {@code reload},
+     * unless the database is unreachable (the status bar says so); if it was
+     * refreshed in the meantime ({@code superseded}) the data is dropped.
+     */
+    static <T> void into(CompletableFuture<T> data, Consumer<T> show, Runnable reload,
+                         BooleanSupplier superseded) {
+        if (data.isDone() && !data.isCompletedExceptionally()) {
+            show.accept(data.join());
+            StartupTimer.interactive();
+            return;
+        }
+        data.whenComplete((value, error) -> SwingUtilities.invokeLater(() -> {
+            if (superseded.getAsBoolean()) return;
+            if (error == null)            show.accept(value);
+            else if (!unreachable(error)) reload.run();
+            StartupTimer.interactive();
+        }));
+    }
+
+    private static boolean unreachable(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof SQLException ex && SyncManager.isConnectionError(ex);
+    }
+}
@@ -0,0 +1,107 @@
+package com.expenseguard.ui;
+
+import com.expenseguard.model.RecurringExpense;
+import com.expenseguard.service.ExpenseService;
+import com.expenseguard.util.CurrencyFormatter;
+import com.expenseguard.util.UITheme;
+
+import javax.swing.*;
+import javax.swing.table.*;
+import java.awt.*;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Modal dialog listing active recurring expenses, with an action to stop one.
+ */
+public class RecurringExpensesDialog extends JDialog {
+
+    private final ExpenseService     service;
+    private List<RecurringExpense>   templates = new ArrayList<>();
+
+    private JTable                   table;
+    private DefaultTableModel        model;
+
+    private static final String[] COLS = {"Description", "Category", "Amount", "Rule", "Since", "Generated to"};
+
+    public RecurringExpensesDialog(Frame owner, ExpenseService service) {
+        super(owner, "Recurring Expenses", true);
+        this.service = service;
+        buildUI();
+        refreshData();
+        pack();
+        setLocationRelativeTo(owner);
+    }
+
+    private void buildUI() {
+        JPanel root = new JPanel(new BorderLayout(0, 12));
+        root.setBackground(UITheme.CARD);
+        root.setBorder(BorderFactory.createEmptyBorder(16, 16, 16, 16));
+        root.add(UITheme.titleLabel("🔁  Recurring Expenses"), BorderLayout.NORTH);
+
+        model = new DefaultTableModel(COLS, 0) {
+            @Override public boolean isCellEditable(int r, int c) { return false; }
+        };
+        table = new JTable(model);
+        table.setFont(UITheme.FONT_BODY);
+        table.setRowHeight(28);
+        table.setGridColor(UITheme.BORDER_COLOR);
+        table.setShowVerticalLines(false);
+        DefaultTableCellRenderer rightAlign = new DefaultTableCellRenderer();
+        rightAlign.setHorizontalAlignment(SwingConstants.RIGHT);
+        table.getColumnModel().getColumn(2).setCellRenderer(rightAlign);
+
+        JScrollPane sp = new JScrollPane(table);
+        sp.setPreferredSize(new Dimension(760, 260));
+        sp.setBorder(BorderFactory.createLineBorder(UITheme.BORDER_COLOR));
+        root.add(sp, BorderLayout.CENTER);
+
+        JPanel btns = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+        btns.setBackground(UITheme.CARD);
+        JButton btnStop  = UITheme.dangerButton("⏹ Stop");
+        JButton btnClose = UITheme.secondaryButton("Close");
+        btnStop.addActionListener(e -> onStop());
+        btnClose.addActionListener(e -> dispose());
+        btns.add(btnStop);
+        btns.add(btnClose);
+        root.add(btns, BorderLayout.SOUTH);
+
+        setContentPane(root);
+    }
+
+    private void refreshData() {
+        try {
+            templates = service.getRecurringExpenses();
+        } catch (SQLException ex) {
+            JOptionPane.showMessageDialog(this, "Error loading recurring expenses: " + ex.getMessage(),
+                                          "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        model.setRowCount(0);
+        for (RecurringExpense r : templates) {
+            model.addRow(new Object[]{
+                r.getDescription(),
+                r.getCategoryName(),
+                CurrencyFormatter.forCurrency(r.getCurrency()).formatAmount(r.getAmount()),
+                r.getRule(),
+                r.getStartDate(),
+                r.getLastGenerated() != null ? r.getLastGenerated() : ""
+            });
+        }
+    }
+
+    private void onStop() {
+        int row = table.getSelectedRow();
+        if (row < 0) { JOptionPane.showMessageDialog(this, "Select a recurring expense to stop."); return; }
+        int confirm = JOptionPane.showConfirmDialog(this,
+            "Stop generating this expense? Existing entries are kept.", "Confirm", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) return;
+        try {
+            service.stopRecurringExpense(templates.get(row).getId());
+            refreshData();
+        } catch (SQLException ex) {
+            JOptionPane.showMessageDialog(this, "Stop failed: " + ex.getMessage(),
+                                          "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
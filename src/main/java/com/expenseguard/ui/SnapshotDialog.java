@@ -0,0 +1,97 @@
+package com.expenseguard.ui;
+
+import com.expenseguard.service.DatabaseSnapshot;
+import com.expenseguard.util.UITheme;
+
+import javax.swing.*;
+import java.awt.*;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Modal dialog that backs the database up to a snapshot file, or restores
+ * one, in the background while showing how far it got.
+ */
+public class SnapshotDialog extends JDialog {
+
+    private final boolean  restore;
+    private final Path     file;
+    private final Runnable onRestored;
+
+    private JLabel       lblTable;
+    private JProgressBar progress;
+
+    /** @param onRestored run on the EDT after a successful restore; ignored for a backup */
+    public SnapshotDialog(Frame owner, boolean restore, Path file, Runnable onRestored) {
+        super(owner, restore ? "Restore Database" : "Back Up Database", true);
+        this.restore    = restore;
+        this.file       = file;
+        this.onRestored = onRestored;
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);   // the copy cannot be abandoned halfway
+        buildUI();
+        pack();
+        setLocationRelativeTo(owner);
+    }
+
+    private void buildUI() {
+        JPanel root = new JPanel(new BorderLayout(0, 12));
+        root.setBackground(UITheme.CARD);
+        root.setBorder(BorderFactory.createEmptyBorder(16, 16, 16, 16));
+        root.add(UITheme.titleLabel(restore ? "⤒  Restoring " + file.getFileName()
+                                            : "⤓  Backing up to " + file.getFileName()), BorderLayout.NORTH);
+
+        lblTable = new JLabel("Starting…");
+        lblTable.setFont(UITheme.FONT_BODY);
+        progress = new JProgressBar(0, 1000);
+        progress.setStringPainted(true);
+        progress.setPreferredSize(new Dimension(420, 22));
+
+        JPanel body = new JPanel(new BorderLayout(0, 8));
+        body.setOpaque(false);
+        body.add(lblTable, BorderLayout.NORTH);
+        body.add(progress, BorderLayout.CENTER);
+        root.add(body, BorderLayout.CENTER);
+        setContentPane(root);
+    }
+
+    /** Starts the backup or restore and shows the dialog until it is done. */
+    public void run() {
+        SwingWorker<Long, Object[]> worker = new SwingWorker<>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                DatabaseSnapshot.Progress p = (table, done, total) -> publish(new Object[]{table, done, total});
+                DatabaseSnapshot snapshot = new DatabaseSnapshot();
+                return restore ? snapshot.restore(file, p) : snapshot.backup(file, p);
+            }
+
+            @Override
+            protected void process(List<Object[]> updates) {
+                Object[] last = updates.get(updates.size() - 1);
+                long done  = (Long) last[1];
+                long total = (Long) last[2];
+                lblTable.setText((restore ? "Loading " : "Copying ") + last[0] + " – "
+                                 + String.format("%,d MB", done >> 20));
+                progress.setValue((int) (1000 * Math.min(1.0, (double) done / Math.max(1, total))));
+                progress.setString(restore ? null : "about " + progress.getValue() / 10 + " %");
+            }
+
+            @Override
+            protected void done() {
+                dispose();
+                try {
+                    long rows = get();
+                    JOptionPane.showMessageDialog(getOwner(),
+                        String.format("%s %,d rows.", restore ? "Restored" : "Backed up", rows),
+                        getTitle(), JOptionPane.INFORMATION_MESSAGE);
+                    if (restore && onRestored != null) onRestored.run();
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(getOwner(), getTitle() + " failed: " + cause.getMessage(),
+                                                  "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+        setVisible(true);
+    }
+}
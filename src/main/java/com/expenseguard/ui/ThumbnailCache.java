@@ -0,0 +1,185 @@
+package com.expenseguard.ui;
+
+import com.expenseguard.util.UITheme;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Thumbnails of attachment files, made on a small background pool and kept
+ * in a least-recently-used cache of {@code -Dexpenseguard.thumbnails.cache}
+ * entries (default 200). Blobs are immutable, so an entry keyed by its hash
+ * never goes stale.
+ *
+ * <p>Pictures are decoded with every n-th pixel only, so a 12-megapixel photo
+ * costs a fraction of its full decode. Other files (PDFs) get a drawn
+ * placeholder. The pool's queue is bounded and drops the oldest request when
+ * full: scrolling through expenses asks for far more thumbnails than are
+ * still visible when they would be ready.
+ */
+public final class ThumbnailCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ThumbnailCache.class.getName());
+
+    public  static final int SIZE     = 72;
+    private static final int CAPACITY = Integer.getInteger("expenseguard.thumbnails.cache", 200);
+
+    private static final ThumbnailCache INSTANCE = new ThumbnailCache();
+
+    private final Map<String, ImageIcon> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<String, ImageIcon> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+    private final Map<String, List<Consumer<ImageIcon>>> waiting = new HashMap<>();   // by hash, EDT only
+    private final ThreadPoolExecutor pool = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(32), r -> {
+            Thread t = new Thread(r, "thumbnails");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }, this::dropOldest);
+
+    private ThumbnailCache() {
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    public static ThumbnailCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Hands the thumbnail of {@code file} (stored under {@code hash}) to
+     * {@code done} on the event thread: at once if cached, otherwise once it
+     * is made. Call on the event thread.
+     */
+    public void get(String hash, Path file, boolean image, String label, Consumer<ImageIcon> done) {
+        ImageIcon cached = cache.get(hash);
+        if (cached != null) {
+            done.accept(cached);
+            return;
+        }
+        List<Consumer<ImageIcon>> callbacks = waiting.get(hash);
+        if (callbacks != null) {           // already being made
+            callbacks.add(done);
+            return;
+        }
+        callbacks = new ArrayList<>();
+        callbacks.add(done);
+        waiting.put(hash, callbacks);
+        pool.execute(new Job(hash, file, image, label));
+    }
+
+    /** Makes one thumbnail and hands it to everyone waiting for it. */
+    private final class Job implements Runnable {
+        final String  hash;
+        final Path    file;
+        final boolean image;
+        final String  label;
+
+        Job(String hash, Path file, boolean image, String label) {
+            this.hash  = hash;
+            this.file  = file;
+            this.image = image;
+            this.label = label;
+        }
+
+        @Override
+        public void run() {
+            BufferedImage img = null;
+            if (image) {
+                try {
+                    img = decode(file);
+                } catch (Exception ex) {
+                    LOGGER.log(Level.FINE, "No thumbnail for " + file, ex);
+                }
+            }
+            ImageIcon icon = new ImageIcon(img != null ? img : placeholder(label));
+            SwingUtilities.invokeLater(() -> {
+                cache.put(hash, icon);
+                List<Consumer<ImageIcon>> callbacks = waiting.remove(hash);
+                if (callbacks != null) callbacks.forEach(c -> c.accept(icon));
+            });
+        }
+    }
+
+    /** Makes room for {@code job} by dropping the oldest queued request; its waiters are forgotten, so asking again retries. */
+    private void dropOldest(Runnable job, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) return;
+        if (executor.getQueue().poll() instanceof Job dropped) {
+            SwingUtilities.invokeLater(() -> waiting.remove(dropped.hash));
+        }
+        executor.execute(job);
+    }
+
+    /** Reads the picture subsampled to about twice the thumbnail size, then scales it down. */
+    private static BufferedImage decode(Path file) throws Exception {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int w = reader.getWidth(0);
+                int h = reader.getHeight(0);
+                int step = Math.max(1, Math.min(w, h) / (SIZE * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return scale(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage src) {
+        double f = Math.min(1.0, (double) SIZE / Math.max(src.getWidth(), src.getHeight()));
+        int w = Math.max(1, (int) Math.round(src.getWidth() * f));
+        int h = Math.max(1, (int) Math.round(src.getHeight() * f));
+        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(src, 0, 0, w, h, null);
+        g.dispose();
+        return out;
+    }
+
+    /** A page with the file's extension, for files that are not pictures. */
+    private static BufferedImage placeholder(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        String ext = dot < 0 ? "FILE" : fileName.substring(dot + 1).toUpperCase();
+        if (ext.length() > 4) ext = ext.substring(0, 4);
+        BufferedImage out = new BufferedImage(SIZE * 3 / 4, SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, out.getWidth() - 1, out.getHeight() - 1);
+        g.setColor(UITheme.BORDER_COLOR);
+        g.drawRect(0, 0, out.getWidth() - 1, out.getHeight() - 1);
+        g.setColor(UITheme.DANGER);
+        g.setFont(UITheme.FONT_BODY.deriveFont(Font.BOLD));
+        FontMetrics fm = g.getFontMetrics();
+        g.drawString(ext, (out.getWidth() - fm.stringWidth(ext)) / 2, out.getHeight() / 2 + fm.getAscent() / 2);
+        g.dispose();
+        return out;
+    }
+}
@@ -0,0 +1,133 @@
+package com.expenseguard.util;
+
+import java.awt.*;
+import java.awt.geom.Arc2D;
+import java.awt.image.BufferedImage;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Draws the spending charts onto any {@link Graphics2D}: the charts panel's
+ * canvases paint with it, and reports render it headless into images.
+ * Chart rows are {@code [id, label, amount]}, the layout of
+ * {@code ExpenseService.getMonthlyCategorySummary}.
+ */
+public final class ChartPainter {
+
+    // Distinct colours for up to 8 categories
+    private static final Color[] PALETTE = {
+        new Color(37,  99,  235), new Color(22,  163, 74),
+        new Color(220, 38,  38),  new Color(217, 119, 6),
+        new Color(139, 92,  246), new Color(236, 72,  153),
+        new Color(20,  184, 166), new Color(251, 146, 60)
+    };
+
+    private ChartPainter() {}
+
+    /** Colour of the {@code i}-th series. */
+    public static Color color(int i) {
+        return PALETTE[i % PALETTE.length];
+    }
+
+    /** A {@code width} x {@code height} image on the card background, drawn by {@code chart}; needs no display. */
+    public static BufferedImage render(int width, int height, Consumer<Graphics2D> chart) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = img.createGraphics();
+        try {
+            g2.setColor(UITheme.CARD);
+            g2.fillRect(0, 0, width, height);
+            chart.accept(g2);
+        } finally {
+            g2.dispose();
+        }
+        return img;
+    }
+
+    /** One bar per row, labelled with its amount and (truncated) label. */
+    public static void bars(Graphics2D g2, int width, int height, List<Object[]> data) {
+        bars(g2, width, height, data, null);
+    }
+
+    /** As {@link #bars(Graphics2D, int, int, List)}, all bars in {@code color}; null for a colour per row. */
+    public static void bars(Graphics2D g2, int width, int height, List<Object[]> data, Color color) {
+        if (data == null || data.isEmpty()) {
+            g2.setColor(UITheme.TEXT_MUTED);
+            g2.drawString("No data", width/2 - 25, height/2);
+            return;
+        }
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        int pad = 40, bottom = 30;
+        int w = width - 2*pad, h = height - pad - bottom;
+        BigDecimal max = data.stream().map(r -> (BigDecimal)r[2])
+                             .max(BigDecimal::compareTo).orElse(BigDecimal.ONE);
+        if (max.compareTo(BigDecimal.ZERO) == 0) max = BigDecimal.ONE;
+
+        int n = data.size();
+        int barW = Math.max(20, w / (n*2 + 1));
+        int gap  = barW;
+
+        for (int i = 0; i < n; i++) {
+            BigDecimal amt = (BigDecimal) data.get(i)[2];
+            String cat    = (String) data.get(i)[1];
+
+            double ratio = amt.doubleValue() / max.doubleValue();
+            int barH = (int)(ratio * h);
+            int x = pad + gap + i*(barW + gap);
+            int y = pad + h - barH;
+
+            g2.setColor(color != null ? color : color(i));
+            g2.fillRoundRect(x, y, barW, barH, 4, 4);
+
+            // amount label
+            g2.setColor(UITheme.TEXT_PRIMARY);
+            g2.setFont(UITheme.FONT_SMALL);
+            String amtLabel = CurrencyFormatter.formatWhole(amt);
+            g2.drawString(amtLabel, x + barW/2 - g2.getFontMetrics().stringWidth(amtLabel)/2, y - 4);
+
+            // category label (truncate)
+            String label = cat.length() > 8 ? cat.substring(0,7) + "…" : cat;
+            g2.drawString(label, x + barW/2 - g2.getFontMetrics().stringWidth(label)/2,
+                          pad + h + 16);
+        }
+
+        // Baseline
+        g2.setColor(UITheme.BORDER_COLOR);
+        g2.drawLine(pad, pad + h, pad + w, pad + h);
+    }
+
+    /** The rows' shares of their total as a donut, with the total in the middle. */
+    public static void donut(Graphics2D g2, int width, int height, List<Object[]> data) {
+        if (data == null || data.isEmpty()) return;
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        double total = data.stream().mapToDouble(r -> ((BigDecimal)r[2]).doubleValue()).sum();
+        if (total == 0) return;
+
+        int margin = 20;
+        int size   = Math.min(width, height) - 2*margin;
+        int x = (width - size)/2, y = (height - size)/2;
+
+        double start = -90;
+        for (int i = 0; i < data.size(); i++) {
+            double val   = ((BigDecimal) data.get(i)[2]).doubleValue();
+            double sweep = (val / total) * 360.0;
+            g2.setColor(color(i));
+            g2.fill(new Arc2D.Double(x, y, size, size, start, sweep, Arc2D.PIE));
+            start += sweep;
+        }
+
+        // White circle in center (donut look)
+        int inner = size / 3;
+        g2.setColor(UITheme.CARD);
+        g2.fillOval(x + size/2 - inner/2, y + size/2 - inner/2, inner, inner);
+
+        // Total label
+        g2.setColor(UITheme.TEXT_PRIMARY);
+        g2.setFont(UITheme.FONT_SMALL);
+        String lbl = CurrencyFormatter.format(total);
+        g2.drawString(lbl, x + size/2 - g2.getFontMetrics().stringWidth(lbl)/2,
+                      y + size/2 + g2.getFontMetrics().getAscent()/2);
+    }
+}
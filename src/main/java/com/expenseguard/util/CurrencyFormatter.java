@@ -1,21 +1,200 @@
 package com.expenseguard.util;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
+import java.util.Currency;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Thread-safe currency formatter.
+ *
+ * <p>An instance is immutable: the prefix/suffix, separators and grouping of the
+ * locale's currency pattern are read once from {@link DecimalFormat}, after
+ * which amounts are written digit by digit from long minor units (cents) into
+ * a {@link StringBuilder} – no locking, no {@code NumberFormat} per call.
+ * Whole amounts up to {@value #CACHE_MAJOR_UNITS} are cached.
+ *
+ * <p>The static {@code format} methods use the default instance, which follows
+ * {@code -Dexpenseguard.locale=de-DE} and {@code -Dexpenseguard.currency=EUR}
+ * (default {@code en-US} / {@code USD}) and can be replaced with
+ * {@link #setDefault(Locale, Currency)}.
+ */
 public final class CurrencyFormatter {
 
-    private static final NumberFormat NF = NumberFormat.getCurrencyInstance(Locale.US);
+    private static final int CACHE_MAJOR_UNITS = 10_000;
+    private static final long[] POW10 = {1, 10, 100, 1_000, 10_000};
 
-    private CurrencyFormatter() {}
+    private static final ThreadLocal<StringBuilder> BUFFER =
+        ThreadLocal.withInitial(() -> new StringBuilder(32));
+    private static final ThreadLocal<char[]> DIGITS = ThreadLocal.withInitial(() -> new char[40]);
+
+    private static final Map<String, CurrencyFormatter> BY_CURRENCY = new ConcurrentHashMap<>();
+
+    private static volatile CurrencyFormatter defaultInstance = of(
+        Locale.forLanguageTag(System.getProperty("expenseguard.locale", "en-US")),
+        Currency.getInstance(System.getProperty("expenseguard.currency", "USD")));
+
+    private final Locale   locale;
+    private final Currency currency;
+    private final String   posPrefix, posSuffix, negPrefix, negSuffix;
+    private final char     groupingSeparator, decimalSeparator, zeroDigit;
+    private final int      groupingSize;
+    private final int      fractionDigits;
+    private final String[] wholeCache = new String[CACHE_MAJOR_UNITS + 1];
+
+    private CurrencyFormatter(Locale locale, Currency currency) {
+        DecimalFormat df = (DecimalFormat) NumberFormat.getCurrencyInstance(locale);
+        df.setCurrency(currency);
+        DecimalFormatSymbols sym = df.getDecimalFormatSymbols();
+
+        this.locale            = locale;
+        this.currency          = currency;
+        this.posPrefix         = df.getPositivePrefix();
+        this.posSuffix         = df.getPositiveSuffix();
+        this.negPrefix         = df.getNegativePrefix();
+        this.negSuffix         = df.getNegativeSuffix();
+        this.groupingSeparator = sym.getMonetaryGroupingSeparator();
+        this.decimalSeparator  = sym.getMonetaryDecimalSeparator();
+        this.zeroDigit         = sym.getZeroDigit();   // not '0' in e.g. ar-EG
+        this.groupingSize      = df.isGroupingUsed() ? df.getGroupingSize() : 0;
+        this.fractionDigits    = Math.max(0, Math.min(4, currency.getDefaultFractionDigits()));
+    }
+
+    public static CurrencyFormatter of(Locale locale, Currency currency) {
+        return new CurrencyFormatter(locale, currency);
+    }
+
+    public static CurrencyFormatter getDefault() {
+        return defaultInstance;
+    }
+
+    public static void setDefault(Locale locale, Currency currency) {
+        defaultInstance = of(locale, currency);
+    }
+
+    // ── Static convenience API (default instance) ────────────────────────────
 
     public static String format(BigDecimal amount) {
-        if (amount == null) return NF.format(BigDecimal.ZERO);
-        return NF.format(amount);
+        return defaultInstance.formatAmount(amount);
     }
 
     public static String format(double amount) {
-        return NF.format(amount);
+        return defaultInstance.formatAmount(amount);
+    }
+
+    /** Formats rounded to whole major units (e.g. "$1,235"), for compact chart labels. */
+    public static String formatWhole(BigDecimal amount) {
+        return defaultInstance.formatWholeAmount(amount);
+    }
+
+    /** ISO 4217 code of the default (reporting) currency, e.g. "USD". */
+    public static String currencyCode() {
+        return defaultInstance.currency.getCurrencyCode();
+    }
+
+    /** Formatter for {@code currencyCode} in the default instance's locale; cached. */
+    public static CurrencyFormatter forCurrency(String currencyCode) {
+        CurrencyFormatter def = defaultInstance;
+        if (currencyCode == null || def.currency.getCurrencyCode().equals(currencyCode)) return def;
+        return BY_CURRENCY.computeIfAbsent(def.locale.toLanguageTag() + "/" + currencyCode,
+                                           k -> of(def.locale, Currency.getInstance(currencyCode)));
+    }
+
+    /** Currency symbol of the default instance, e.g. "$" or "€". */
+    public static String symbol() {
+        return defaultInstance.currency.getSymbol(defaultInstance.locale);
+    }
+
+    // ── Instance API ─────────────────────────────────────────────────────────
+
+    public Locale   getLocale()         { return locale; }
+    public Currency getCurrency()       { return currency; }
+    public int      getFractionDigits() { return fractionDigits; }
+
+    public String formatAmount(BigDecimal amount) {
+        if (amount == null) return formatMinor(0);
+        BigDecimal scaled = amount.setScale(fractionDigits, RoundingMode.HALF_EVEN);
+        if (scaled.precision() > 18) return fallback().format(amount);
+        return formatMinor(scaled.unscaledValue().longValue());
+    }
+
+    public String formatAmount(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) return fallback().format(amount);
+        double scaled = amount * POW10[fractionDigits];
+        double frac   = scaled - Math.floor(scaled);
+        if (Math.abs(scaled) < 1e15 && Math.abs(frac - 0.5) > 4 * Math.ulp(scaled)) {
+            return formatMinor((long) Math.rint(scaled));
+        }
+        // Too close to a tie for the multiplication to be trusted: round the exact
+        // binary value, as NumberFormat does.
+        return formatAmount(new BigDecimal(amount));
+    }
+
+    public String formatWholeAmount(BigDecimal amount) {
+        if (amount == null) amount = BigDecimal.ZERO;
+        BigDecimal whole = amount.setScale(0, RoundingMode.HALF_EVEN);
+        if (whole.precision() > 18) return fallback().format(whole);
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        return append(sb, whole.longValue(), 0).toString();
+    }
+
+    /** Formats an amount given in minor units (e.g. cents). */
+    public String formatMinor(long minorUnits) {
+        long unit = POW10[fractionDigits];
+        if (minorUnits >= 0 && minorUnits % unit == 0 && minorUnits / unit <= CACHE_MAJOR_UNITS) {
+            int idx = (int) (minorUnits / unit);
+            String s = wholeCache[idx];
+            if (s == null) wholeCache[idx] = s = build(minorUnits);
+            return s;
+        }
+        return build(minorUnits);
+    }
+
+    /** Appends an amount given in minor units to {@code out} without intermediate objects. */
+    public StringBuilder appendMinor(StringBuilder out, long minorUnits) {
+        return append(out, minorUnits, fractionDigits);
+    }
+
+    private StringBuilder append(StringBuilder out, long minorUnits, int fractionDigits) {
+        boolean negative = minorUnits < 0;
+        out.append(negative ? negPrefix : posPrefix);
+
+        char[] buf = DIGITS.get();
+        int pos = buf.length;
+        // Work on the negative magnitude so Long.MIN_VALUE needs no special case.
+        long v = negative ? minorUnits : -minorUnits;
+        for (int i = 0; i < fractionDigits; i++) {
+            buf[--pos] = (char) (zeroDigit - (v % 10));
+            v /= 10;
+        }
+        if (fractionDigits > 0) buf[--pos] = decimalSeparator;
+        int digits = 0;
+        do {
+            if (groupingSize > 0 && digits > 0 && digits % groupingSize == 0) buf[--pos] = groupingSeparator;
+            buf[--pos] = (char) (zeroDigit - (v % 10));
+            v /= 10;
+            digits++;
+        } while (v != 0);
+
+        out.append(buf, pos, buf.length - pos);
+        return out.append(negative ? negSuffix : posSuffix);
+    }
+
+    private String build(long minorUnits) {
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        return appendMinor(sb, minorUnits).toString();
+    }
+
+    private NumberFormat fallback() {
+        NumberFormat nf = NumberFormat.getCurrencyInstance(locale);
+        nf.setCurrency(currency);
+        return nf;
     }
 }
@@ -0,0 +1,117 @@
+package com.expenseguard.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Mergeable distinct-count sketch (Flajolet et al., "HyperLogLog: the analysis
+ * of a near-optimal cardinality estimation algorithm", 2007).
+ *
+ * <p>{@code 2^p} one-byte registers (default {@code p = 10}: 1,024 registers,
+ * about 3 % standard error) each hold the longest run of leading zeros seen
+ * among the hashes routed to it; small counts fall back to linear counting,
+ * which is close to exact. Two sketches merge by taking the larger register.
+ * Sketches with few registers set, the usual case for one category in one
+ * month, serialise as (index, value) pairs instead of the full array.
+ */
+public final class HyperLogLog {
+
+    private static final byte DENSE  = 1;
+    private static final byte SPARSE = 2;
+
+    private final int    p;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(10);
+    }
+
+    public HyperLogLog(int p) {
+        if (p < 4 || p > 16) throw new IllegalArgumentException("p must be between 4 and 16");
+        this.p         = p;
+        this.registers = new byte[1 << p];
+    }
+
+    public void add(String value) {
+        addHash(hash(value));
+    }
+
+    public void addHash(long hash) {
+        int  index = (int) (hash >>> (64 - p));
+        long rest  = hash << p | (1L << (p - 1));   // a set bit caps the run
+        byte rank  = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) registers[index] = rank;
+    }
+
+    /** Adds everything {@code other} has seen; both must have the same precision. */
+    public void merge(HyperLogLog other) {
+        if (other.p != p) throw new IllegalArgumentException("Cannot merge precision " + other.p + " into " + p);
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+        }
+    }
+
+    /** Estimated number of distinct values added. */
+    public long estimate() {
+        int    m     = registers.length;
+        double sum   = 0;
+        int    zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) zeros++;
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double e     = alpha * m * m / sum;
+        if (e <= 2.5 * m && zeros > 0) e = m * Math.log((double) m / zeros);
+        return Math.round(e);
+    }
+
+    // ── serialisation ────────────────────────────────────────────────────────
+
+    public byte[] toBytes() {
+        int set = 0;
+        for (byte r : registers) if (r != 0) set++;
+        if (set * 3 < registers.length) {
+            ByteBuffer buf = ByteBuffer.allocate(2 + 2 + set * 3);
+            buf.put(SPARSE).put((byte) p).putShort((short) set);
+            for (int i = 0; i < registers.length; i++) {
+                if (registers[i] != 0) buf.putShort((short) i).put(registers[i]);
+            }
+            return buf.array();
+        }
+        ByteBuffer buf = ByteBuffer.allocate(2 + registers.length);
+        buf.put(DENSE).put((byte) p).put(registers);
+        return buf.array();
+    }
+
+    /** @throws IllegalArgumentException if {@code bytes} is not a serialised sketch */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buf  = ByteBuffer.wrap(bytes);
+        byte       kind = buf.get();
+        HyperLogLog h   = new HyperLogLog(buf.get());
+        if (kind == DENSE) {
+            buf.get(h.registers);
+        } else if (kind == SPARSE) {
+            int set = Short.toUnsignedInt(buf.getShort());
+            for (int i = 0; i < set; i++) h.registers[Short.toUnsignedInt(buf.getShort())] = buf.get();
+        } else {
+            throw new IllegalArgumentException("Unknown sketch encoding " + kind);
+        }
+        return h;
+    }
+
+    /** 64-bit FNV-1a of the UTF-8 bytes, finished with the MurmurHash3 mixer. */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,223 @@
+package com.expenseguard.util;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Day-granular recurrence rule for recurring expenses.
+ *
+ * <p>Two notations are accepted:
+ * <ul>
+ *   <li>an iCalendar RRULE subset – {@code FREQ=DAILY|WEEKLY|MONTHLY|YEARLY}
+ *       with optional {@code INTERVAL}, {@code BYDAY} (weekly), {@code BYMONTHDAY}
+ *       (monthly, negative counts from the month's end), {@code COUNT} and
+ *       {@code UNTIL}, e.g. {@code FREQ=MONTHLY;BYMONTHDAY=1};</li>
+ *   <li>a five-field cron expression whose minute and hour are ignored, e.g.
+ *       {@code 0 0 1 * *} (1st of every month) or {@code 0 0 * * 1-5}.</li>
+ * </ul>
+ *
+ * <p>Monthly rules on a day the month lacks (the 31st, the 29th of February)
+ * fall on the month's last day rather than being skipped – rent is still due.
+ */
+public final class RecurrenceRule {
+
+    private enum Freq { DAILY, WEEKLY, MONTHLY, YEARLY }
+
+    private static final DateTimeFormatter UNTIL_FMT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final String         text;
+    // RRULE
+    private final Freq           freq;
+    private final int            interval;
+    private final Set<DayOfWeek> byDay;
+    private final int            byMonthDay;   // 0 = day of the start date
+    private final int            count;        // 0 = unbounded
+    private final LocalDate      until;
+    // cron
+    private final BitSet         cronDays, cronMonths, cronWeekdays;
+    private final boolean        cronDaysAny, cronWeekdaysAny;
+
+    private RecurrenceRule(String text, Freq freq, int interval, Set<DayOfWeek> byDay,
+                           int byMonthDay, int count, LocalDate until,
+                           BitSet cronDays, BitSet cronMonths, BitSet cronWeekdays) {
+        this.text            = text;
+        this.freq            = freq;
+        this.interval        = interval;
+        this.byDay           = byDay;
+        this.byMonthDay      = byMonthDay;
+        this.count           = count;
+        this.until           = until;
+        this.cronDays        = cronDays;
+        this.cronMonths      = cronMonths;
+        this.cronWeekdays    = cronWeekdays;
+        this.cronDaysAny     = cronDays != null && cronDays.cardinality() == 31;
+        this.cronWeekdaysAny = cronWeekdays != null && cronWeekdays.cardinality() == 7;
+    }
+
+    /** Parses an RRULE or cron expression; throws IllegalArgumentException if invalid. */
+    public static RecurrenceRule parse(String text) {
+        if (text == null || text.isBlank()) throw new IllegalArgumentException("Empty recurrence rule");
+        String s = text.strip();
+        return s.toUpperCase(Locale.ROOT).contains("FREQ=") ? parseRrule(s) : parseCron(s);
+    }
+
+    /**
+     * Occurrences of a series starting on {@code start} that fall after
+     * {@code after} (exclusive, may be null) and on or before {@code end}.
+     */
+    public List<LocalDate> occurrences(LocalDate start, LocalDate after, LocalDate end) {
+        List<LocalDate> out = new ArrayList<>();
+        if (freq == null) {
+            LocalDate d = after != null && after.isAfter(start) ? after.plusDays(1) : start;
+            for (; !d.isAfter(end); d = d.plusDays(1)) {
+                if (cronMatches(d)) out.add(d);
+            }
+            return out;
+        }
+        LocalDate last = until != null && until.isBefore(end) ? until : end;
+        int n = 0;
+        for (long k = 0; ; k += interval) {
+            for (LocalDate d : candidates(start, k)) {
+                if (d.isBefore(start)) continue;
+                if (d.isAfter(last) || (count > 0 && ++n > count)) return out;
+                if (after == null || d.isAfter(after)) out.add(d);
+            }
+        }
+    }
+
+    @Override
+    public String toString() { return text; }
+
+    // ── RRULE ────────────────────────────────────────────────────────────────
+
+    /** Dates of the {@code k}-th period after the one containing {@code start}, ascending. */
+    private List<LocalDate> candidates(LocalDate start, long k) {
+        return switch (freq) {
+            case DAILY  -> List.of(start.plusDays(k));
+            case YEARLY -> List.of(start.plusYears(k));
+            case WEEKLY -> {
+                if (byDay.isEmpty()) yield List.of(start.plusWeeks(k));
+                LocalDate monday = start.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).plusWeeks(k);
+                List<LocalDate> days = new ArrayList<>(byDay.size());
+                for (DayOfWeek dow : byDay) days.add(monday.with(TemporalAdjusters.nextOrSame(dow)));
+                yield days;
+            }
+            case MONTHLY -> {
+                YearMonth ym  = YearMonth.from(start).plusMonths(k);
+                int       day = byMonthDay == 0 ? start.getDayOfMonth() : byMonthDay;
+                int       len = ym.lengthOfMonth();
+                yield List.of(ym.atDay(day > 0 ? Math.min(day, len) : Math.max(1, len + day + 1)));
+            }
+        };
+    }
+
+    private static RecurrenceRule parseRrule(String s) {
+        if (s.regionMatches(true, 0, "RRULE:", 0, 6)) s = s.substring(6);
+        Freq freq = null;
+        int interval = 1, byMonthDay = 0, count = 0;
+        LocalDate until = null;
+        Set<DayOfWeek> byDay = EnumSet.noneOf(DayOfWeek.class);
+        try {
+            for (String part : s.split(";")) {
+                if (part.isBlank()) continue;
+                int eq = part.indexOf('=');
+                if (eq < 0) throw new IllegalArgumentException("Expected NAME=VALUE: " + part);
+                String name  = part.substring(0, eq).strip().toUpperCase(Locale.ROOT);
+                String value = part.substring(eq + 1).strip().toUpperCase(Locale.ROOT);
+                switch (name) {
+                    case "FREQ"       -> freq = Freq.valueOf(value);
+                    case "INTERVAL"   -> interval = Integer.parseInt(value);
+                    case "BYMONTHDAY" -> byMonthDay = Integer.parseInt(value);
+                    case "COUNT"      -> count = Integer.parseInt(value);
+                    case "UNTIL"      -> until = LocalDate.parse(value.length() > 8 ? value.substring(0, 8) : value, UNTIL_FMT);
+                    case "BYDAY"      -> { for (String d : value.split(",")) byDay.add(weekday(d.strip())); }
+                    default -> throw new IllegalArgumentException("Unsupported RRULE part: " + name);
+                }
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid RRULE: " + s, e);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid RRULE: " + s + " (" + e.getMessage() + ")", e);
+        }
+        if (freq == null)                        throw new IllegalArgumentException("RRULE needs FREQ: " + s);
+        if (interval < 1 || count < 0)           throw new IllegalArgumentException("Invalid INTERVAL/COUNT: " + s);
+        if (byMonthDay < -31 || byMonthDay > 31) throw new IllegalArgumentException("Invalid BYMONTHDAY: " + s);
+        if (!byDay.isEmpty() && freq != Freq.WEEKLY) {
+            throw new IllegalArgumentException("BYDAY is only supported with FREQ=WEEKLY: " + s);
+        }
+        return new RecurrenceRule(s, freq, interval, byDay, byMonthDay, count, until, null, null, null);
+    }
+
+    private static DayOfWeek weekday(String code) {
+        return switch (code) {
+            case "MO" -> DayOfWeek.MONDAY;
+            case "TU" -> DayOfWeek.TUESDAY;
+            case "WE" -> DayOfWeek.WEDNESDAY;
+            case "TH" -> DayOfWeek.THURSDAY;
+            case "FR" -> DayOfWeek.FRIDAY;
+            case "SA" -> DayOfWeek.SATURDAY;
+            case "SU" -> DayOfWeek.SUNDAY;
+            default   -> throw new IllegalArgumentException("Invalid BYDAY value: " + code);
+        };
+    }
+
+    // ── cron ─────────────────────────────────────────────────────────────────
+
+    private boolean cronMatches(LocalDate d) {
+        if (!cronMonths.get(d.getMonthValue())) return false;
+        boolean dom = cronDays.get(d.getDayOfMonth());
+        boolean dow = cronWeekdays.get(d.getDayOfWeek().getValue() % 7);
+        // As in cron: when both day fields are restricted, either may match.
+        if (cronDaysAny)     return dow;
+        if (cronWeekdaysAny) return dom;
+        return dom || dow;
+    }
+
+    private static RecurrenceRule parseCron(String s) {
+        String[] f = s.split("\\s+");
+        if (f.length != 5) throw new IllegalArgumentException("Expected an RRULE or a 5-field cron expression: " + s);
+        BitSet weekdays = cronField(f[4], 0, 7, s);
+        if (weekdays.get(7)) { weekdays.set(0); weekdays.clear(7); }   // 7 is also Sunday
+        return new RecurrenceRule(s, null, 1, null, 0, 0, null,
+                                  cronField(f[2], 1, 31, s), cronField(f[3], 1, 12, s), weekdays);
+    }
+
+    /** Parses {@code *}, {@code n}, {@code a-b}, stepped forms such as {@code 1-31/2} and comma lists. */
+    private static BitSet cronField(String field, int min, int max, String rule) {
+        BitSet bits = new BitSet(max + 1);
+        try {
+            for (String item : field.split(",")) {
+                int step = 1, slash = item.indexOf('/');
+                if (slash >= 0) {
+                    step = Integer.parseInt(item.substring(slash + 1));
+                    item = item.substring(0, slash);
+                }
+                int lo, hi;
+                if (item.equals("*")) {
+                    lo = min; hi = max;
+                } else if (item.contains("-")) {
+                    lo = Integer.parseInt(item.substring(0, item.indexOf('-')));
+                    hi = Integer.parseInt(item.substring(item.indexOf('-') + 1));
+                } else {
+                    lo = Integer.parseInt(item);
+                    hi = slash >= 0 ? max : lo;
+                }
+                if (lo < min || hi > max || lo > hi || step < 1) throw new NumberFormatException(item);
+                for (int v = lo; v <= hi; v += step) bits.set(v);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cron field '" + field + "' in: " + rule, e);
+        }
+        return bits;
+    }
+}
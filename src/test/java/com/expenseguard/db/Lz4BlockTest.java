@@ -0,0 +1,118 @@
+package com.expenseguard.db;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Lz4BlockTest {
+
+    @Test
+    void emptyInput() throws IOException {
+        assertRoundTrip(new byte[0]);
+    }
+
+    @Test
+    void inputsShorterThanAnyMatch() throws IOException {
+        for (int len = 1; len <= 20; len++) {
+            byte[] src = new byte[len];
+            Arrays.fill(src, (byte) 'a');
+            assertRoundTrip(src);
+        }
+    }
+
+    @Test
+    void incompressibleInput() throws IOException {
+        for (int len : new int[]{13, 15, 16, 269, 270, 271, 65_536, 1 << 20}) {
+            byte[] src = new byte[len];
+            new SplittableRandom(len).nextBytes(src);
+            int n = assertRoundTrip(src);
+            assertTrue(n <= Lz4Block.maxCompressedLength(len), "compressed " + len + " bytes into " + n);
+        }
+    }
+
+    @Test
+    void longMatches() throws IOException {
+        // A random 4 KiB block repeated: matches far beyond the token's 15 and several 255-byte steps
+        byte[] block = new byte[4096];
+        new SplittableRandom(1).nextBytes(block);
+        byte[] src = new byte[256 * 1024];
+        for (int i = 0; i < src.length; i += block.length) System.arraycopy(block, 0, src, i, block.length);
+        int n = assertRoundTrip(src);
+        assertTrue(n < src.length / 20, "compressed " + src.length + " bytes into " + n);
+    }
+
+    @Test
+    void overlappingCopies() throws IOException {
+        // Offsets shorter than the match: a run of one byte, then short repeating patterns
+        for (int period = 1; period <= 7; period++) {
+            byte[] src = new byte[10_000 + period];
+            for (int i = 0; i < src.length; i++) src[i] = (byte) ('a' + i % period);
+            int n = assertRoundTrip(src);
+            assertTrue(n < 100, "period " + period + " compressed into " + n);
+        }
+    }
+
+    @Test
+    void matchesAtEveryDistance() throws IOException {
+        // Literals and matches interleaved, up to the 64 KiB window and beyond it
+        SplittableRandom rnd = new SplittableRandom(7);
+        byte[] src = new byte[1 << 20];
+        int pos = 0;
+        while (pos < src.length) {
+            int literals = Math.min(rnd.nextInt(300), src.length - pos);
+            for (int i = 0; i < literals; i++) src[pos++] = (byte) rnd.nextInt();
+            int offset = 1 + rnd.nextInt(70_000);
+            int len    = Math.min(4 + rnd.nextInt(600), src.length - pos);
+            if (offset > pos) continue;
+            for (int i = 0; i < len; i++, pos++) src[pos] = src[pos - offset];
+        }
+        assertRoundTrip(src);
+    }
+
+    @Test
+    void copyRows() throws IOException {
+        StringBuilder rows = new StringBuilder();
+        for (int id = 1; id <= 5_000; id++) {
+            rows.append(id).append('\t').append(1 + id % 8).append("\tCoffee #").append(id % 37)
+                .append('\t').append(id % 9_000 / 100.0).append("\tUSD\t2026-").append(1 + id % 12).append("-15\n");
+        }
+        byte[] src = rows.toString().getBytes(StandardCharsets.UTF_8);
+        int n = assertRoundTrip(src);
+        assertTrue(n < src.length / 2, "compressed " + src.length + " bytes into " + n);
+    }
+
+    @Test
+    void rejectsCorruptBlocks() throws IOException {
+        byte[] src = new byte[4096];
+        for (int i = 0; i < src.length; i++) src[i] = (byte) (i % 10);
+        byte[] dst = new byte[Lz4Block.maxCompressedLength(src.length)];
+        int    n   = Lz4Block.compress(src, src.length, dst);
+
+        assertThrows(IOException.class, () -> Lz4Block.decompress(dst, n - 1, new byte[src.length]));
+        assertThrows(IOException.class, () -> Lz4Block.decompress(dst, n, new byte[src.length - 1]));
+        assertThrows(IOException.class, () -> Lz4Block.decompress(dst, n, new byte[src.length + 1]));
+
+        byte[] badOffset = Arrays.copyOf(dst, n);
+        int    offsetAt  = 1 + 10;   // token, then the ten literals before the first match
+        badOffset[offsetAt]     = (byte) 0xFF;
+        badOffset[offsetAt + 1] = (byte) 0xFF;
+        assertThrows(IOException.class, () -> Lz4Block.decompress(badOffset, n, new byte[src.length]));
+    }
+
+    /** Compresses and decompresses {@code src}, checks the bytes survive; returns the compressed length. */
+    private static int assertRoundTrip(byte[] src) throws IOException {
+        byte[] compressed = new byte[Lz4Block.maxCompressedLength(src.length)];
+        int    n          = Lz4Block.compress(src, src.length, compressed);
+        byte[] out        = new byte[src.length];
+        Lz4Block.decompress(compressed, n, out);
+        assertArrayEquals(src, out);
+        return n;
+    }
+}
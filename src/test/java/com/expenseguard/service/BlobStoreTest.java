@@ -0,0 +1,63 @@
+package com.expenseguard.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlobStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void storesContentUnderItsHash() throws IOException {
+        BlobStore store  = new BlobStore(dir.resolve("blobs"));
+        Path      source = Files.writeString(dir.resolve("receipt.txt"), "abc", StandardCharsets.UTF_8);
+
+        String hash = store.put(source);
+
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", hash);
+        assertEquals("abc", Files.readString(store.path(hash), StandardCharsets.UTF_8));
+        assertNoLeftovers(store);
+    }
+
+    @Test
+    void storesSameContentOnce() throws IOException {
+        BlobStore store = new BlobStore(dir.resolve("blobs"));
+        byte[]    bytes = new byte[3 << 20];
+        new SplittableRandom(5).nextBytes(bytes);
+        Path a = Files.write(dir.resolve("a.jpg"), bytes);
+        Path b = Files.write(dir.resolve("b.jpg"), bytes);
+
+        String hash = store.put(a);
+
+        assertEquals(hash, store.put(b));
+        assertArrayEquals(bytes, Files.readAllBytes(store.path(hash)));
+        assertNoLeftovers(store);
+    }
+
+    @Test
+    void emptyFile() throws IOException {
+        BlobStore store = new BlobStore(dir.resolve("blobs"));
+        String    hash  = store.put(Files.createFile(dir.resolve("empty")));
+
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", hash);
+        assertEquals(0, Files.size(store.path(hash)));
+    }
+
+    private void assertNoLeftovers(BlobStore store) throws IOException {
+        try (Stream<Path> parts = Files.list(dir.resolve("blobs").resolve("tmp"))) {
+            assertTrue(parts.findAny().isEmpty(), "temporary files left behind");
+        }
+    }
+}
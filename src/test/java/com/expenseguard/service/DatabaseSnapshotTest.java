@@ -0,0 +1,133 @@
+package com.expenseguard.service;
+
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.SchemaInitializer;
+import com.expenseguard.model.Budget;
+import com.expenseguard.model.Expense;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Backs a database up and restores the snapshot into a fresh one on an
+ * embedded PostgreSQL server, then checks the restored tables hold the same
+ * rows and the restored database works: the sketch triggers are enabled
+ * again and new rows get ids past the restored ones.
+ */
+class DatabaseSnapshotTest {
+
+    /** Tables compared row by row, each by its key. */
+    private static final Map<String, String> TABLES = new LinkedHashMap<>();
+    static {
+        TABLES.put("categories",          "id");
+        TABLES.put("recurring_expenses",  "id");
+        TABLES.put("budgets",             "id");
+        TABLES.put("expenses",            "id");
+        TABLES.put("expense_attachments", "id");
+        TABLES.put("budget_alerts",       "id");
+    }
+
+    private static EmbeddedPostgres pg;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void startDatabase() throws IOException, SQLException {
+        pg = EmbeddedPostgres.builder().start();
+        try (Connection c = pg.getPostgresDatabase().getConnection(); Statement st = c.createStatement()) {
+            st.execute("CREATE DATABASE restored");
+        }
+        use("postgres");
+        SchemaInitializer.initialize();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        DatabaseConnection.getInstance().closeConnection();
+        pg.close();
+    }
+
+    @Test
+    void restoresWhatWasBackedUp() throws Exception {
+        ExpenseService service = new ExpenseService();
+        LocalDate      today   = LocalDate.now();
+        service.saveBudget(new Budget(1, YearMonth.now().toString(), new BigDecimal("50.00")));
+        for (int i = 0; i < 200; i++) {
+            service.saveExpense(new Expense(1 + i % 8, "Coffee #" + i % 13, new BigDecimal("1.25").add(BigDecimal.valueOf(i)),
+                                            today.minusDays(i % 90), null));
+        }
+        service.saveRecurringExpense(new Expense(2, "Rent", new BigDecimal("900.00"), today, null), "FREQ=MONTHLY");
+        Path receipt = Files.writeString(dir.resolve("receipt.txt"), "receipt");
+        service.addAttachment(service.getAllExpenses().get(0).getId(), receipt);
+
+        Path file = dir.resolve("snapshot.egs");
+        long backedUp = new DatabaseSnapshot().backup(file, (table, done, total) -> { });
+
+        use("restored");
+        SchemaInitializer.initialize();
+        long restored = new DatabaseSnapshot().restore(file, (table, done, total) -> { });
+
+        assertEquals(backedUp, restored);
+        for (Map.Entry<String, String> t : TABLES.entrySet()) {
+            assertEquals(contents("postgres", t.getKey(), t.getValue()), contents("restored", t.getKey(), t.getValue()),
+                         t.getKey() + " differs after the restore");
+        }
+
+        // The sketch triggers are back on: reading builds the month's sketches, a new expense drops its own
+        service.getCategoryStats(YearMonth.now(), YearMonth.now());
+        assertEquals(1, sketches(1, YearMonth.now()));
+        Expense added = new Expense(1, "After restore", new BigDecimal("2.00"), today, null);
+        service.saveExpense(added);
+        assertEquals(0, sketches(1, YearMonth.now()), "the new expense's month kept its sketch");
+        assertEquals(1, sketches(2, YearMonth.now()));
+        assertTrue(added.getId() > 200, "new expense reused a restored id: " + added.getId());
+    }
+
+    /** Points the application at {@code database} of the embedded server. */
+    private static void use(String database) {
+        System.setProperty("expenseguard.db.url", pg.getJdbcUrl("postgres", database));
+        System.setProperty("expenseguard.db.user", "postgres");
+        System.setProperty("expenseguard.db.password", "");
+        DatabaseConnection.getInstance().closeConnection();   // the next use connects to the new URL
+    }
+
+    /** Every row of {@code table} as text, in key order. */
+    private static String contents(String database, String table, String key) throws SQLException {
+        try (Connection c = pg.getDatabase("postgres", database).getConnection();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT string_agg(t::text, E'\\n' ORDER BY " + key + ") FROM " + table + " t")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    /** Stored sketches of {@code category} in {@code month}, in the restored database. */
+    private static int sketches(int category, YearMonth month) throws SQLException {
+        try (Connection c = pg.getDatabase("postgres", "restored").getConnection();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT count(*) FROM expense_sketches WHERE category_id = " + category
+                                            + " AND month = '" + month.atDay(1) + "'")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.expenseguard.service;
+
+import com.expenseguard.dao.ExpenseQuery;
+import com.expenseguard.db.DatabaseConnection;
+import com.expenseguard.db.QueryGuard;
+import com.expenseguard.db.SchemaInitializer;
+import com.expenseguard.model.Attachment;
+import com.expenseguard.model.Budget;
+import com.expenseguard.model.Category;
+import com.expenseguard.model.Expense;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pins the number of statements each {@link ExpenseService} method sends to
+ * the database, so a change that adds queries (typically a query per row:
+ * N+1) fails the build instead of slowing the app down.
+ *
+ * <p>Runs against an embedded PostgreSQL server with the real schema, the 8
+ * seeded categories and a budget for each in the current month. Each method
+ * runs once to warm the caches it relies on, then once inside a
+ * {@link QueryGuard} scope in {@code fail} mode (set by the build), so no
+ * statement may repeat more than {@code expenseguard.db.queryRepeatLimit}
+ * times either. A count that drops fails too, so the pin is updated with the
+ * improvement.
+ */
+class ExpenseServiceQueryCountTest {
+
+    /** Public methods that are not pinned: no database, or statements spread over the report's own threads. */
+    private static final Set<String> UNPINNED = Set.of("attachmentFile", "getAnnualReport");
+
+    private static EmbeddedPostgres pg;
+    private static ExpenseService   service;
+
+    private final Map<String, Pin> pins  = new LinkedHashMap<>();
+    private final LocalDate        today = LocalDate.now();
+    private final String           month = YearMonth.now().toString();
+
+    @BeforeAll
+    static void startDatabase() throws IOException, SQLException {
+        pg = EmbeddedPostgres.builder().start();
+        System.setProperty("expenseguard.db.url", pg.getJdbcUrl("postgres", "postgres"));
+        System.setProperty("expenseguard.db.user", "postgres");
+        System.setProperty("expenseguard.db.password", "");
+        SchemaInitializer.initialize();
+        service = new ExpenseService();
+        for (Category c : service.getCategories()) {
+            service.saveBudget(new Budget(c.getId(), YearMonth.now().toString(), new BigDecimal("500.00")));
+        }
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        DatabaseConnection.getInstance().closeConnection();
+        pg.close();
+    }
+
+    ExpenseServiceQueryCountTest() {
+        // Each pin does its setup and returns the call to count
+        pin("getAllExpenses",             1, () -> service::getAllExpenses);
+        pin("getExpensesByMonth",         1, () -> () -> service.getExpensesByMonth(YearMonth.now()));
+        pin("findExpenses",               1, () -> () -> {
+            List<Expense> rows = new ArrayList<>();
+            service.findExpenses(ExpenseQuery.builder().from(today.withDayOfMonth(1)).build(), rows::add);
+            return rows;
+        });
+        pin("getExpense",                 1, () -> {
+            int id = stored().getId();
+            return () -> service.getExpense(id);
+        });
+        pin("getExpensePage",             1, () -> () -> service.getExpensePage(YearMonth.now(), null, 0, 50));
+        pin("getCategories",              1, () -> service::getCategories);
+        pin("getMonthlyCategorySummary",  1, () -> () -> service.getMonthlyCategorySummary(month));
+        pin("getCategoryComparison",      1, () -> () -> service.getCategoryComparison(YearMonth.now()));
+        pin("getCategoryStats",           3, () -> () -> service.getCategoryStats(YearMonth.now().minusMonths(11), YearMonth.now()));
+        pin("getAnomalyFlags",            0, () -> service::getAnomalyFlags);
+        pin("rebuildAnomalyFlags",        1, () -> () -> { service.rebuildAnomalyFlags(); return null; });
+        pin("totalInReportingCurrency",   0, () -> {
+            List<Expense> rows = service.getExpensesByMonth(YearMonth.now());
+            return () -> service.totalInReportingCurrency(rows);
+        });
+        pin("checkBudget",                2, () -> () -> service.checkBudget(1, month));
+        pin("getBudgetsForMonth",         2, () -> () -> service.getBudgetsForMonth(month));
+        pin("getAlertHistory",            1, () -> () -> service.getAlertHistory(50));
+        pin("getRecurringExpenses",       1, () -> service::getRecurringExpenses);
+        pin("saveExpense",                2, () -> {
+            Expense e = expense();
+            return () -> { service.saveExpense(e); return null; };
+        });
+        pin("saveExpenses",               2, () -> {   // budget lookup + insert, however many expenses
+            List<Expense> batch = new ArrayList<>();
+            for (int i = 0; i < 25; i++) batch.add(new Expense(1 + i % 8, "Bulk " + i, new BigDecimal("1.00"), today, null));
+            return () -> { service.saveExpenses(batch); return null; };
+        });
+        pin("updateExpense",              3, () -> {
+            Expense e = stored();
+            e.setAmount(e.getAmount().add(BigDecimal.ONE));
+            return () -> { service.updateExpense(e); return null; };
+        });
+        pin("updateExpense(version)",     3, () -> {
+            Expense e = stored();
+            int version = e.getVersion();
+            e.setAmount(e.getAmount().add(BigDecimal.ONE));
+            return () -> { service.updateExpense(e, version); return null; };
+        });
+        pin("deleteExpense",              1, () -> {
+            int id = stored().getId();
+            return () -> { service.deleteExpense(id); return null; };
+        });
+        pin("deleteExpense(version)",     2, () -> {
+            Expense e = stored();
+            return () -> { service.deleteExpense(e.getId(), e.getVersion()); return null; };
+        });
+        pin("saveRecurringExpense",       3, () -> {
+            Expense e = expense();
+            return () -> { service.saveRecurringExpense(e, "FREQ=MONTHLY"); return null; };
+        });
+        pin("stopRecurringExpense",       1, () -> {
+            Expense e = expense();
+            service.saveRecurringExpense(e, "FREQ=MONTHLY");
+            int id = e.getRecurringId();
+            return () -> { service.stopRecurringExpense(id); return null; };
+        });
+        pin("saveBudget",                 1, () -> {
+            Budget b = new Budget(1, YearMonth.now().plusYears(5).toString(), new BigDecimal("100.00"));
+            return () -> { service.saveBudget(b); return null; };
+        });
+        pin("deleteBudget",               1, () -> {
+            Budget b = new Budget(1, YearMonth.now().plusYears(6).toString(), new BigDecimal("100.00"));
+            service.saveBudget(b);
+            int id = service.getBudgetsForMonth(b.getMonthYear()).get(0).getId();
+            return () -> { service.deleteBudget(id); return null; };
+        });
+        pin("getAttachments",             1, () -> {
+            int id = stored().getId();
+            return () -> service.getAttachments(id);
+        });
+        pin("addAttachment",              1, () -> {
+            int id = stored().getId();
+            Path file = receipt();
+            return () -> service.addAttachment(id, file);
+        });
+        pin("removeAttachment",           1, () -> {
+            Attachment a = service.addAttachment(stored().getId(), receipt());
+            return () -> { service.removeAttachment(a.getId()); return null; };
+        });
+        pin("pruneAttachments",           1, () -> {
+            service.addAttachment(stored().getId(), receipt());   // so there is something referenced
+            return service::pruneAttachments;
+        });
+    }
+
+    @TestFactory
+    Stream<DynamicTest> statementCountsAsPinned() {
+        return pins.entrySet().stream().map(p -> DynamicTest.dynamicTest(p.getKey(), () -> {
+            Pin pin = p.getValue();
+            pin.prepare.call().call();   // warm-up
+            Callable<?> call = pin.prepare.call();
+            int                  actual;
+            Map<String, Integer> shapes;
+            try (QueryGuard.Scope scope = QueryGuard.open("ExpenseService." + p.getKey())) {
+                call.call();
+                actual = scope.getStatements();
+                shapes = new LinkedHashMap<>(scope.getShapes());
+            }
+            assertEquals(pin.statements, actual, "statements of " + p.getKey() + " " + shapes
+                         + (actual < pin.statements ? ": fewer than pinned, update the pin" : ""));
+        }));
+    }
+
+    @Test
+    void everyMethodIsPinned() {
+        Set<String> missing = new TreeSet<>();
+        for (Method m : ExpenseService.class.getDeclaredMethods()) {
+            if (!Modifier.isPublic(m.getModifiers()) || Modifier.isStatic(m.getModifiers())) continue;
+            if (UNPINNED.contains(m.getName())) continue;
+            boolean pinned = pins.keySet().stream().anyMatch(k -> k.equals(m.getName()) || k.startsWith(m.getName() + "("));
+            if (!pinned) missing.add(m.getName());
+        }
+        assertTrue(missing.isEmpty(), "ExpenseService methods without a pinned statement count: " + missing);
+    }
+
+    private void pin(String method, int statements, Callable<Callable<?>> prepare) {
+        pins.put(method, new Pin(statements, prepare));
+    }
+
+    private Expense expense() {
+        return new Expense(1, "Query count check", new BigDecimal("1.00"), today, null);
+    }
+
+    /** A new expense, saved. */
+    private Expense stored() throws Exception {
+        Expense e = expense();
+        service.saveExpense(e);
+        return e;
+    }
+
+    private static Path receipt() throws IOException {
+        Path file = Files.createTempFile("receipt", ".txt");
+        Files.writeString(file, "receipt " + System.nanoTime());
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    private static final class Pin {
+        final int                   statements;
+        final Callable<Callable<?>> prepare;
+
+        Pin(int statements, Callable<Callable<?>> prepare) {
+            this.statements = statements;
+            this.prepare    = prepare;
+        }
+    }
+}